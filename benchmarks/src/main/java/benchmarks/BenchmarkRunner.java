@@ -0,0 +1,39 @@
+package benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Ponto de entrada do benchmarks.jar: aceita as mesmas opções do JMH, mas
+ * grava os resultados por padrão em JSON ({@code jmh-result.json}) para que
+ * regressões possam ser comparadas entre execuções.
+ *
+ * Exemplos:
+ *   java -jar benchmarks/target/benchmarks.jar
+ *   java -jar benchmarks/target/benchmarks.jar Engine -rff engine.json
+ *   java -jar benchmarks/target/benchmarks.jar -rf csv
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cmd = new CommandLineOptions(args);
+        if (cmd.shouldHelp()) {
+            cmd.showHelp();
+            return;
+        }
+        if (cmd.shouldList()) {
+            new Runner(cmd).list();
+            return;
+        }
+
+        ResultFormatType format = cmd.getResultFormat().orElse(ResultFormatType.JSON);
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(cmd).resultFormat(format);
+        if (!cmd.getResult().hasValue()) {
+            options.result("jmh-result." + format.name().toLowerCase());
+        }
+        new Runner(options.build()).run();
+    }
+}
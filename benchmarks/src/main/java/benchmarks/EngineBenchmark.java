@@ -0,0 +1,59 @@
+package benchmarks;
+
+import model.GameState;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validação/execução de movimentos e fim de jogo sobre posições de partidas
+ * reais (ver {@link Positions}), percorridas em ordem a cada chamada.
+ *
+ * {@code executeMove} inclui restaurar a posição com setPosition; o
+ * benchmark {@code setPosition} mede só essa parte para ser descontada.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EngineBenchmark {
+    // Potência de 2 para percorrer as posições com uma máscara
+    private static final int POSITIONS = 1024;
+
+    private Positions[] positions;
+    private GameState[] games;
+    private final GameState game = new GameState();
+    private int next;
+
+    @Setup
+    public void setup() {
+        positions = Positions.sample(POSITIONS, 42);
+        games = new GameState[POSITIONS];
+        for (int i = 0; i < POSITIONS; i++) {
+            games[i] = new GameState();
+            games[i].setPosition(positions[i].board, positions[i].whiteTurn);
+        }
+    }
+
+    @Benchmark
+    public long setPosition() {
+        Positions p = positions[next++ & (POSITIONS - 1)];
+        game.setPosition(p.board, p.whiteTurn);
+        return game.getZobristKey();
+    }
+
+    /** Primeiro salto de um movimento legal: gera a lista de legais e valida contra ela */
+    @Benchmark
+    public boolean executeMove() {
+        Positions p = positions[next++ & (POSITIONS - 1)];
+        game.setPosition(p.board, p.whiteTurn);
+        return game.executeMove(p.r1, p.c1, p.r2, p.c2);
+    }
+
+    @Benchmark
+    public String checkGameOver() {
+        return games[next++ & (POSITIONS - 1)].checkGameOver();
+    }
+}
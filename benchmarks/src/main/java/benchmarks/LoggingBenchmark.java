@@ -0,0 +1,117 @@
+package benchmarks;
+
+import log.Log;
+import model.GameState;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lances por segundo com o log de cada lance do GameRoom: as cinco linhas
+ * de System.out.println que o handleMove imprimia ({@code println}) contra
+ * o {@link Log} no nível info ({@code info}, o padrão: o rastreamento por
+ * lance é debug e não monta nada) e no nível debug ({@code debug}: as
+ * linhas vão pela fila para a thread de escrita).
+ *
+ * O println escreve num arquivo temporário por um PrintStream com flush a
+ * cada linha, como o System.out redirecionado; no console seria mais lento.
+ * O stream é compartilhado entre as threads, então {@code -t 4} mostra a
+ * disputa pelo lock dele. Em debug, com a fila cheia, as mensagens são
+ * descartadas; o total sai no fim.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoggingBenchmark {
+    private static final int POSITIONS = 1024;
+
+    @Param({"println", "info", "debug"})
+    public String logging;
+
+    private File file;
+    private PrintStream out;
+    private boolean println;
+
+    @Setup
+    public void setup() throws IOException {
+        file = File.createTempFile("damas-log", ".log");
+        file.deleteOnExit();
+        println = logging.equals("println");
+        if (println) {
+            out = new PrintStream(new BufferedOutputStream(new FileOutputStream(file), 128), true);
+        } else {
+            Log.toFile(file.toPath());
+            Log.setLevel(Log.parse(logging));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (out != null) {
+            out.close();
+        }
+        if (Log.getDropped() > 0) {
+            System.out.println("[LOG] descartadas com a fila cheia: " + Log.getDropped());
+        }
+        Log.flush();
+    }
+
+    @State(Scope.Thread)
+    public static class Room {
+        Positions[] positions;
+        final GameState game = new GameState();
+        int next;
+        final int roomId = 1000 + (int) Thread.currentThread().getId();
+
+        @Setup
+        public void setup() {
+            positions = Positions.sample(POSITIONS, 42);
+        }
+    }
+
+    @Benchmark
+    public boolean handleMove(Room room) {
+        Positions p = room.positions[room.next++ & (POSITIONS - 1)];
+        room.game.setPosition(p.board, p.whiteTurn);
+        if (println) {
+            return printlnMove(room, p);
+        }
+        return logMove(room, p);
+    }
+
+    /** O que o handleMove imprimia antes do Log */
+    private boolean printlnMove(Room room, Positions p) {
+        int roomId = room.roomId;
+        out.println("[SALA " + roomId + "] Recebeu movimento de Jogador" +
+            ": (" + p.r1 + "," + p.c1 + ") -> (" + p.r2 + "," + p.c2 + ") | player1Turn=" + p.whiteTurn);
+        boolean valid = room.game.executeMove(p.r1, p.c1, p.r2, p.c2);
+        out.println("[SALA " + roomId + "] Movimento " + (valid ? "VÁLIDO" : "INVÁLIDO"));
+        out.println("[SALA " + roomId + "] Jogador" +
+            " moveu: (" + p.r1 + "," + p.c1 + ") -> (" + p.r2 + "," + p.c2 + ")");
+        out.println("[SALA " + roomId + "] *** ENVIANDO YOUR_TURN para Oponente ***");
+        out.println("[SALA " + roomId + "] YOUR_TURN enviado!");
+        return valid;
+    }
+
+    /** O que o handleMove registra agora */
+    private boolean logMove(Room room, Positions p) {
+        int roomId = room.roomId;
+        boolean valid = room.game.executeMove(p.r1, p.c1, p.r2, p.c2);
+        if (Log.isDebugEnabled()) {
+            Log.debug("[SALA {}] Movimento de {}: ({},{}) -> ({},{}) {}", roomId, "Jogador",
+                p.r1, p.c1, p.r2, p.c2, valid ? "VÁLIDO" : "INVÁLIDO");
+        }
+        if (Log.isDebugEnabled()) {
+            Log.debug("[SALA {}] YOUR_TURN enviado para {}", roomId, "Oponente");
+        }
+        return valid;
+    }
+}
@@ -0,0 +1,87 @@
+package benchmarks;
+
+import model.Bitboard;
+import model.GameState;
+import model.MoveList;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Posições realistas para os benchmarks: partidas aleatórias com semente fixa,
+ * registrando cada posição alcançada e um primeiro salto legal a partir dela.
+ */
+final class Positions {
+    // Partidas sem fim (damas indo e voltando) são abandonadas
+    private static final int MAX_PLIES = 200;
+
+    final Bitboard board;
+    final boolean whiteTurn;
+    final int r1, c1, r2, c2;
+
+    private Positions(Bitboard board, boolean whiteTurn, int from, int to) {
+        this.board = board;
+        this.whiteTurn = whiteTurn;
+        this.r1 = Bitboard.row(from);
+        this.c1 = Bitboard.col(from);
+        this.r2 = Bitboard.row(to);
+        this.c2 = Bitboard.col(to);
+    }
+
+    /**
+     * Gera {@code count} posições em que o jogo ainda não terminou
+     */
+    static Positions[] sample(int count, long seed) {
+        Random random = new Random(seed);
+        List<Positions> positions = new ArrayList<>();
+        GameState game = new GameState();
+        MoveList moves = new MoveList();
+        int plies = 0;
+        while (positions.size() < count) {
+            if (plies == MAX_PLIES || game.checkGameOver() != null) {
+                game = new GameState();
+                plies = 0;
+            }
+            moves.clear();
+            game.getLegalMoves(moves);
+            int index = random.nextInt(moves.size());
+            int move = moves.get(index);
+            positions.add(new Positions(new Bitboard(game.getBitboard()), game.isWhiteTurn(),
+                MoveList.from(move), MoveList.landing(moves.path(index), 0)));
+            game.executeMove(moves, index);
+            plies++;
+        }
+        return positions.toArray(new Positions[0]);
+    }
+
+    /**
+     * Partida completa (até o fim) jogada salto a salto, como os clientes a
+     * enviam: cada elemento é {r1, c1, r2, c2, 1 se as brancas movem}
+     */
+    static int[][] scriptedGame(long seed) {
+        for (long attempt = seed; ; attempt++) {
+            Random random = new Random(attempt);
+            GameState game = new GameState();
+            MoveList moves = new MoveList();
+            List<int[]> hops = new ArrayList<>();
+            for (int ply = 0; ply < MAX_PLIES && game.checkGameOver() == null; ply++) {
+                moves.clear();
+                game.getLegalMoves(moves);
+                int index = random.nextInt(moves.size());
+                int from = MoveList.from(moves.get(index));
+                long path = moves.path(index);
+                int white = game.isWhiteTurn() ? 1 : 0;
+                for (int hop = 0; hop < MoveList.hops(moves.get(index)); hop++) {
+                    int to = MoveList.landing(path, hop);
+                    hops.add(new int[] {Bitboard.row(from), Bitboard.col(from), Bitboard.row(to), Bitboard.col(to), white});
+                    from = to;
+                }
+                game.executeMove(moves, index);
+            }
+            if (game.checkGameOver() != null) {
+                return hops.toArray(new int[0][]);
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package benchmarks;
+
+import network.BinaryProtocol;
+import network.GameProtocol;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara a decodificação e a criação de um MOVE no protocolo de texto
+ * (getMessageType + parseMove, createMoveMessage) com o frame binário do
+ * {@link BinaryProtocol}.
+ *
+ * Rodar com -prof gc mostra também a alocação por operação: o caminho de
+ * texto aloca várias Strings e arrays; o binário não aloca nada.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProtocolBenchmark {
+
+    private String textMove;
+    private byte[] textBytes;
+    private byte[] binaryMove;
+    private final int[] move = new int[4];
+
+    @Setup
+    public void setup() {
+        textMove = GameProtocol.createMoveMessage(5, 0, 4, 1);
+        textBytes = textMove.getBytes(StandardCharsets.UTF_8);
+        binaryMove = BinaryProtocol.createMoveFrame(5, 0, 4, 1);
+    }
+
+    /** Caminho original: Strings, split e Integer.parseInt */
+    @Benchmark
+    public void textParse(Blackhole bh) {
+        String type = GameProtocol.getMessageType(textMove);
+        bh.consume(type);
+        bh.consume(GameProtocol.parseMove(GameProtocol.getMessageContent(textMove)));
+    }
+
+    /** Texto direto dos bytes, como o servidor NIO faz */
+    @Benchmark
+    public boolean textBytesParse() {
+        int contentStart = GameProtocol.MOVE.length() + 1;
+        return GameProtocol.isMessageType(textBytes, 0, textBytes.length, GameProtocol.MOVE)
+            && GameProtocol.parseMove(textBytes, contentStart, textBytes.length - contentStart, move);
+    }
+
+    /** Frame binário: opcode + 2 bytes */
+    @Benchmark
+    public int binaryParse() {
+        if (BinaryProtocol.frameLength(binaryMove, 0, binaryMove.length) != 3
+                || binaryMove[0] != BinaryProtocol.MOVE) {
+            return -1;
+        }
+        BinaryProtocol.readMove(binaryMove, 0, move);
+        return move[0] + move[1] + move[2] + move[3];
+    }
+
+    @Benchmark
+    public String textEncode() {
+        return GameProtocol.createMoveMessage(5, 0, 4, 1);
+    }
+
+    @Benchmark
+    public byte[] binaryEncode() {
+        return BinaryProtocol.createMoveFrame(5, 0, 4, 1);
+    }
+}
@@ -0,0 +1,175 @@
+package benchmarks;
+
+import network.BinaryProtocol;
+import network.GameProtocol;
+import network.MessageReader;
+import org.openjdk.jmh.annotations.*;
+import server.CheckersServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Partida completa pela rede local: dois clientes roteirizados conectam a um
+ * CheckersServer no mesmo processo e jogam uma partida pré-gerada até o
+ * GAME_OVER, esperando cada OPPONENT_MOVE e YOUR_TURN antes do salto seguinte.
+ *
+ * Cada operação é uma partida (conexão, emparelhamento e todos os saltos);
+ * o número de saltos do roteiro é impresso no início de cada fork.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoundTripBenchmark {
+    private static final int PORT = 5200;
+
+    @Param({"blocking", "nio"})
+    public String transport;
+
+    @Param({"text", "binary"})
+    public String protocol;
+
+    private CheckersServer server;
+    private int[][] script;
+    private int games;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        script = Positions.scriptedGame(7);
+        System.out.println("[BENCH] Roteiro com " + script.length + " saltos");
+
+        // Os logs do servidor dominariam a saída do JMH; descarta
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+                // descartado
+            }
+        }));
+
+        server = new CheckersServer(PORT, false);
+        boolean nio = transport.equals("nio");
+        Thread acceptor = new Thread(() -> {
+            try {
+                if (nio) {
+                    server.startNio(2);
+                } else {
+                    server.start();
+                }
+            } catch (IOException e) {
+                System.err.println("[BENCH] Servidor falhou: " + e.getMessage());
+            }
+        }, "bench-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        waitForServer();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Benchmark
+    public int game() throws IOException {
+        boolean binary = protocol.equals("binary");
+        int id = ++games;
+        try (Client white = new Client("brancas" + id, binary)) {
+            // Espera a sala ser criada para garantir que as brancas são o jogador 1
+            white.await(GameProtocol.WAIT_FOR_PLAYER);
+            try (Client black = new Client("pretas" + id, binary)) {
+                white.await(GameProtocol.YOUR_TURN);
+                for (int i = 0; i < script.length; i++) {
+                    int[] hop = script[i];
+                    Client mover = hop[4] == 1 ? white : black;
+                    Client other = mover == white ? black : white;
+                    mover.sendMove(hop[0], hop[1], hop[2], hop[3]);
+                    mover.await(GameProtocol.OPPONENT_MOVE);
+                    other.await(GameProtocol.OPPONENT_MOVE);
+                    if (i + 1 < script.length) {
+                        (script[i + 1][4] == 1 ? white : black).await(GameProtocol.YOUR_TURN);
+                    }
+                }
+                white.await(GameProtocol.GAME_OVER);
+                black.await(GameProtocol.GAME_OVER);
+            }
+        }
+        return script.length;
+    }
+
+    private static void waitForServer() throws InterruptedException {
+        for (int attempt = 0; attempt < 50; attempt++) {
+            try (Socket probe = new Socket("127.0.0.1", PORT)) {
+                probe.getOutputStream().write((GameProtocol.DISCONNECT + "\n").getBytes(StandardCharsets.UTF_8));
+                return;
+            } catch (IOException e) {
+                Thread.sleep(100);
+            }
+        }
+        throw new IllegalStateException("Servidor não respondeu na porta " + PORT);
+    }
+
+    /**
+     * Cliente roteirizado: envia saltos e espera mensagens de um tipo
+     */
+    private static final class Client implements AutoCloseable {
+        private final Socket socket;
+        private final MessageReader in;
+        private final OutputStream out;
+        private final boolean binary;
+
+        Client(String name, boolean binary) throws IOException {
+            socket = new Socket("127.0.0.1", PORT);
+            socket.setTcpNoDelay(true);
+            in = new MessageReader(socket.getInputStream());
+            out = socket.getOutputStream();
+            this.binary = binary;
+            sendLine(binary ? BinaryProtocol.createConnectMessage(name) : GameProtocol.createConnectMessage(name));
+            await(GameProtocol.CONNECTED);
+        }
+
+        void sendMove(int r1, int c1, int r2, int c2) throws IOException {
+            if (binary) {
+                out.write(BinaryProtocol.createMoveFrame(r1, c1, r2, c2));
+                out.flush();
+            } else {
+                sendLine(GameProtocol.createMoveMessage(r1, c1, r2, c2));
+            }
+        }
+
+        private void sendLine(String message) throws IOException {
+            out.write((message + "\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+
+        /**
+         * Lê mensagens até chegar uma do tipo informado
+         */
+        void await(String type) throws IOException {
+            while (true) {
+                String message = in.readMessage();
+                if (message == null) {
+                    throw new IOException("Conexão encerrada esperando " + type);
+                }
+                String received = GameProtocol.getMessageType(message);
+                if (received.equals(type)) {
+                    return;
+                }
+                if (received.equals(GameProtocol.MOVE_INVALID) || received.equals(GameProtocol.ERROR)) {
+                    throw new IllegalStateException("Roteiro rejeitado: " + message);
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
@@ -11,7 +11,7 @@ if not exist "bin" mkdir bin
 
 REM Compila os arquivos Java
 echo Compilando arquivos...
-javac -d bin -encoding UTF-8 src\network\*.java src\model\*.java src\server\*.java src\form\*.java
+javac -d bin -encoding UTF-8 src\network\*.java src\log\*.java src\model\*.java src\server\*.java src\form\*.java src\loadtest\*.java
 
 if %ERRORLEVEL% == 0 (
     echo.
@@ -1,6 +1,10 @@
 package form;
 
+import model.Bitboard;
+import model.MoveList;
+import network.BinaryProtocol;
 import network.GameProtocol;
+import network.MessageReader;
 
 import javax.swing.*;
 import java.awt.*;
@@ -8,13 +12,14 @@ import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.io.*;
 import java.net.Socket;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.charset.StandardCharsets;
 
 public class TabuleiroForm extends JFrame {
     
     private static final long serialVersionUID = 1L;
     private static final String AGUARDANDO_OPONENTE = "Aguardando oponente...";
+    // Tentativas de retomar a partida (uma por segundo) depois de uma queda
+    private static final int TENTATIVAS_RETOMADA = 10;
     
     private JPanel mainPanel;
     private JPanel tabuleiroPanel;
@@ -25,6 +30,8 @@ public class TabuleiroForm extends JFrame {
     private transient JButton conectarButton;
     private transient JLabel statusLabel;
     private transient JLabel turnoLabel;
+    private transient JButton desistirButton;
+    private transient JButton empateButton;
 
     private final transient JButton[][] casas = new JButton[8][8];
     // Strings internas: "⚫", "⚪", "⚫D", "⚪D"
@@ -33,14 +40,22 @@ public class TabuleiroForm extends JFrame {
     private boolean vezBrancas = true;
     private int selecR = -1;
     private int selecC = -1;
+    // Lista reutilizada na verificação de capturas obrigatórias
+    private final transient MoveList capturas = new MoveList();
     
     // Estado da rede
     private boolean conectado = false;
     private boolean ehJogadorBranco;
     private boolean minhavez = false;
     private transient Socket socket;
-    private transient BufferedReader in;
+    private transient MessageReader in;
     private transient PrintWriter out;
+    private transient OutputStream rawOut;
+    // Servidor aceitou frames binários (CONNECTED|BIN)
+    private boolean binario = false;
+    // Token da sessão (SESSION) para retomar a partida com RESUME
+    private transient String tokenSessao;
+    private transient String servidorIp;
     private transient Thread receiveThread;
 
     public TabuleiroForm() {
@@ -63,6 +78,15 @@ public class TabuleiroForm extends JFrame {
         turnoLabel.setForeground(Color.WHITE);
         turnoLabel.setFont(new Font(Font.SANS_SERIF, Font.BOLD, 16));
         painelStatus.add(turnoLabel);
+
+        // Valem a qualquer momento da partida, não só na sua vez
+        desistirButton = new JButton("Desistir");
+        desistirButton.addActionListener(e -> desistir());
+        empateButton = new JButton("Propor empate");
+        empateButton.addActionListener(e -> enviar(GameProtocol.DRAW_OFFER));
+        habilitarAcoesPartida(false);
+        painelStatus.add(desistirButton);
+        painelStatus.add(empateButton);
         mainPanel.add(painelStatus, BorderLayout.SOUTH);
         
         setContentPane(mainPanel);
@@ -220,11 +244,13 @@ public class TabuleiroForm extends JFrame {
         if (selecR == -1 && !pecas[r][c].isEmpty()) {
             boolean ehBranca = pecas[r][c].contains("⚪");
             if (ehBranca == ehJogadorBranco) {
-                List<int[]> todasCapturas = encontrarTodasCapturas(vezBrancas);
-                boolean deveCapturar = !todasCapturas.isEmpty();
+                capturas.clear();
+                encontrarTodasCapturas(vezBrancas, capturas);
+                boolean deveCapturar = !capturas.isEmpty();
 
-                List<int[]> capturasDaPeca = movimentosDeCaptura(pecas[r][c], r, c);
-                boolean estaPecaPodeCapturar = !capturasDaPeca.isEmpty();
+                capturas.clear();
+                movimentosDeCaptura(pecas[r][c], r, c, capturas);
+                boolean estaPecaPodeCapturar = !capturas.isEmpty();
 
                 if (!deveCapturar || estaPecaPodeCapturar) {
                     selecR = r;
@@ -246,22 +272,20 @@ public class TabuleiroForm extends JFrame {
         }
     }
 
-    private List<int[]> encontrarTodasCapturas(boolean ehBranca) {
-        List<int[]> todasCapturas = new ArrayList<>();
+    private void encontrarTodasCapturas(boolean ehBranca, MoveList destino) {
         for (int r = 0; r < 8; r++) {
             for (int c = 0; c < 8; c++) {
                 String peca = pecas[r][c];
                 if (!peca.isEmpty() && peca.contains("⚪") == ehBranca) {
-                    todasCapturas.addAll(movimentosDeCaptura(peca, r, c));
+                    movimentosDeCaptura(peca, r, c, destino);
                 }
             }
         }
-        return todasCapturas;
     }
 
-    private List<int[]> movimentosDeCaptura(String peca, int r, int c) {
-        List<int[]> moves = new ArrayList<>();
-        if (peca.isEmpty()) return moves;
+    private void movimentosDeCaptura(String peca, int r, int c, MoveList destino) {
+        if (peca.isEmpty()) return;
+        int origem = Bitboard.square(r, c);
 
         boolean ehDama = peca.contains("D");
         boolean ehBranca = peca.contains("⚪");
@@ -272,17 +296,17 @@ public class TabuleiroForm extends JFrame {
                 if (ehDama) {
                     int rr = r + dr;
                     int cc = c + dc;
-                    boolean inimigoEncontrado = false;
+                    int inimigo = -1;
 
                     while (rr >= 0 && rr < 8 && cc >= 0 && cc < 8) {
                         if (!pecas[rr][cc].isEmpty()) {
                             boolean mesmaColor = pecas[rr][cc].contains("⚪") == ehBranca;
-                            if (mesmaColor || inimigoEncontrado) {
+                            if (mesmaColor || inimigo >= 0) {
                                 break;
                             }
-                            inimigoEncontrado = true;
-                        } else if (inimigoEncontrado) {
-                            moves.add(new int[]{rr, cc});
+                            inimigo = Bitboard.square(rr, cc);
+                        } else if (inimigo >= 0) {
+                            destino.add(MoveList.encodeCapture(origem, Bitboard.square(rr, cc), inimigo));
                         }
 
                         rr += dr;
@@ -300,13 +324,12 @@ public class TabuleiroForm extends JFrame {
                         boolean casaVazia = pecas[r2][c2].isEmpty();
                         
                         if (temInimigo && casaVazia) {
-                            moves.add(new int[]{r2, c2});
+                            destino.add(MoveList.encodeCapture(origem, Bitboard.square(r2, c2), Bitboard.square(rm, cm)));
                         }
                     }
                 }
             }
         }
-        return moves;
     }
     
     // ==================== MÉTODOS DE REDE ====================
@@ -334,18 +357,23 @@ public class TabuleiroForm extends JFrame {
         statusLabel.setText("Conectando...");
         statusLabel.setForeground(Color.YELLOW);
         
+        servidorIp = serverIp;
+        tokenSessao = null;
         new Thread(() -> {
             try {
                 socket = new Socket(serverIp, 5000);
-                in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-                out = new PrintWriter(socket.getOutputStream(), true);
+                in = new MessageReader(socket.getInputStream());
+                rawOut = socket.getOutputStream();
+                out = new PrintWriter(new OutputStreamWriter(rawOut, StandardCharsets.UTF_8), true);
                 
-                // Envia mensagem de conexão
-                out.println(GameProtocol.createConnectMessage(nomeJogador));
+                // Envia mensagem de conexão, oferecendo o protocolo binário
+                // (-Ddamas.rating=N informa o rating usado no pareamento)
+                out.println(BinaryProtocol.createConnectMessage(nomeJogador, Integer.getInteger("damas.rating", -1)));
                 
-                // Aguarda confirmação
-                String response = in.readLine();
-                if (response != null && response.equals(GameProtocol.CONNECTED)) {
+                // Aguarda confirmação (um servidor antigo responde só CONNECTED)
+                String response = in.readMessage();
+                if (response != null && response.startsWith(GameProtocol.CONNECTED)) {
+                    binario = response.equals(BinaryProtocol.CONNECTED);
                     conectado = true;
                     
                     SwingUtilities.invokeLater(() -> {
@@ -376,91 +404,191 @@ public class TabuleiroForm extends JFrame {
     }
     
     private void receberMensagens() {
-        try {
-            String message;
-            while ((message = in.readLine()) != null) {
-                String msgType = GameProtocol.getMessageType(message);
-                String content = GameProtocol.getMessageContent(message);
-                
-                // Debug
-                System.out.println("[CLIENTE] Recebeu: " + msgType + " | " + content);
-                
-                switch (msgType) {
-                    case GameProtocol.WAIT_FOR_PLAYER:
-                        SwingUtilities.invokeLater(() -> 
-                            turnoLabel.setText(AGUARDANDO_OPONENTE));
-                        break;
-                        
-                    case GameProtocol.START:
-                        ehJogadorBranco = content.equals("WHITE");
-                        SwingUtilities.invokeLater(() -> {
-                            String cor = ehJogadorBranco ? "BRANCAS (⚪)" : "PRETAS (⚫)";
-                            minhavez = ehJogadorBranco;
-                            turnoLabel.setText("Você joga com: " + cor);
-                            System.out.println("[CLIENTE] Sou jogador: " + (ehJogadorBranco ? "BRANCO" : "PRETO"));
-                        });
-                        break;
-                        
-                    case GameProtocol.YOUR_TURN:
-                        System.out.println("[CLIENTE] *** RECEBEU YOUR_TURN - HABILITANDO TURNO ***");
-                        minhavez = true;
-                        System.out.println("[CLIENTE] É minha vez agora! minhavez=" + minhavez);
-                        SwingUtilities.invokeLater(() -> {
-                            turnoLabel.setText("SUA VEZ!");
-                            turnoLabel.setForeground(Color.GREEN);
-                        });
-                        break;
-                        
-                    case GameProtocol.MOVE_INVALID:
-                        minhavez = true;
-                        SwingUtilities.invokeLater(() -> {
-                            JOptionPane.showMessageDialog(TabuleiroForm.this, 
-                                "Movimento inválido!");
-                            desenharTabuleiro();
-                        });
-                        break;
-                        
-                    case GameProtocol.OPPONENT_MOVE:
-                        int[] move = GameProtocol.parseMove(content);
-                        if (move != null && move.length == 4) {
-                            System.out.println("[CLIENTE] *** RECEBEU OPPONENT_MOVE - DESABILITANDO TURNO ***");
-                            // Ambos recebem OPPONENT_MOVE, então desabilita o turno
-                            // O próximo YOUR_TURN (se vier) habilitará novamente
-                            minhavez = false;
-                            System.out.println("[CLIENTE] minhavez=" + minhavez);
-                            SwingUtilities.invokeLater(() -> {
-                                aplicarMovimento(move[0], move[1], move[2], move[3]);
-                                turnoLabel.setText(AGUARDANDO_OPONENTE);
-                                turnoLabel.setForeground(Color.WHITE);
-                            });
-                        }
-                        break;
-                        
-                    case GameProtocol.GAME_OVER:
-                        SwingUtilities.invokeLater(() -> {
-                            turnoLabel.setText("Jogo Finalizado!");
-                            JOptionPane.showMessageDialog(TabuleiroForm.this, 
-                                "Fim de Jogo!\n" + content);
-                            desconectar();
-                        });
-                        break;
-                        
-                    case GameProtocol.ERROR:
-                        SwingUtilities.invokeLater(() -> 
-                            JOptionPane.showMessageDialog(TabuleiroForm.this, 
-                                "Erro: " + content));
-                        break;
-                    default:
-                        break;
-                }
+        while (true) {
+            try {
+                lerMensagens();
+            } catch (IOException e) {
+                // Queda tratada abaixo
             }
-        } catch (IOException e) {
-            if (conectado) {
+            if (!conectado) {
+                return;
+            }
+            if (!retomarSessao()) {
                 SwingUtilities.invokeLater(() -> {
                     JOptionPane.showMessageDialog(TabuleiroForm.this, 
                         "Conexão perdida com o servidor!");
                     desconectar();
                 });
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Reconecta e envia RESUME com o token da sessão; o servidor responde
+     * CONNECTED, START, a foto do tabuleiro (BOARD) e YOUR_TURN se for a vez
+     */
+    private boolean retomarSessao() {
+        if (tokenSessao == null) {
+            return false;
+        }
+        SwingUtilities.invokeLater(() -> {
+            statusLabel.setText("Reconectando...");
+            statusLabel.setForeground(Color.YELLOW);
+        });
+        for (int tentativa = 0; tentativa < TENTATIVAS_RETOMADA && conectado; tentativa++) {
+            try {
+                Thread.sleep(1000);
+                Socket novoSocket = new Socket(servidorIp, 5000);
+                MessageReader novoIn = new MessageReader(novoSocket.getInputStream());
+                OutputStream novoRawOut = novoSocket.getOutputStream();
+                PrintWriter novoOut = new PrintWriter(new OutputStreamWriter(novoRawOut, StandardCharsets.UTF_8), true);
+                novoOut.println(binario ? BinaryProtocol.createResumeMessage(tokenSessao)
+                    : GameProtocol.createResumeMessage(tokenSessao));
+                
+                String resposta = novoIn.readMessage();
+                String inicio = resposta != null && resposta.startsWith(GameProtocol.CONNECTED) ? novoIn.readMessage() : null;
+                if (inicio == null || !inicio.startsWith(GameProtocol.START)) {
+                    // Sessão expirada: a partida acabou
+                    novoSocket.close();
+                    return false;
+                }
+                ehJogadorBranco = GameProtocol.getMessageContent(inicio).equals("WHITE");
+                socket = novoSocket;
+                in = novoIn;
+                rawOut = novoRawOut;
+                out = novoOut;
+                SwingUtilities.invokeLater(() -> {
+                    statusLabel.setText("Conectado!");
+                    statusLabel.setForeground(Color.GREEN);
+                });
+                return true;
+            } catch (IOException e) {
+                System.out.println("[CLIENTE] Falha ao reconectar: " + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return false;
+    }
+    
+    private void lerMensagens() throws IOException {
+        String message;
+        while ((message = in.readMessage()) != null) {
+            String msgType = GameProtocol.getMessageType(message);
+            String content = GameProtocol.getMessageContent(message);
+            
+            // Debug
+            System.out.println("[CLIENTE] Recebeu: " + msgType + " | " + content);
+            
+            switch (msgType) {
+                case GameProtocol.WAIT_FOR_PLAYER:
+                    SwingUtilities.invokeLater(() -> 
+                        turnoLabel.setText(AGUARDANDO_OPONENTE));
+                    break;
+                    
+                case GameProtocol.START:
+                    ehJogadorBranco = content.equals("WHITE");
+                    SwingUtilities.invokeLater(() -> {
+                        String cor = ehJogadorBranco ? "BRANCAS (⚪)" : "PRETAS (⚫)";
+                        minhavez = ehJogadorBranco;
+                        turnoLabel.setText("Você joga com: " + cor);
+                        habilitarAcoesPartida(true);
+                        System.out.println("[CLIENTE] Sou jogador: " + (ehJogadorBranco ? "BRANCO" : "PRETO"));
+                    });
+                    break;
+                    
+                case GameProtocol.YOUR_TURN:
+                    System.out.println("[CLIENTE] *** RECEBEU YOUR_TURN - HABILITANDO TURNO ***");
+                    minhavez = true;
+                    System.out.println("[CLIENTE] É minha vez agora! minhavez=" + minhavez);
+                    // Partida com relógio: YOUR_TURN|msSeu,msOponente
+                    long[] relogios = GameProtocol.parseClocks(content);
+                    String tempo = relogios == null ? ""
+                        : " (você " + formatarTempo(relogios[0]) + " | oponente " + formatarTempo(relogios[1]) + ")";
+                    SwingUtilities.invokeLater(() -> {
+                        turnoLabel.setText("SUA VEZ!" + tempo);
+                        turnoLabel.setForeground(Color.GREEN);
+                    });
+                    break;
+                    
+                case GameProtocol.MOVE_INVALID:
+                    minhavez = true;
+                    SwingUtilities.invokeLater(() -> {
+                        JOptionPane.showMessageDialog(TabuleiroForm.this, 
+                            "Movimento inválido!");
+                        desenharTabuleiro();
+                    });
+                    break;
+                    
+                case GameProtocol.OPPONENT_MOVE:
+                    int[] move = GameProtocol.parseMove(content);
+                    if (move != null && move.length == 4) {
+                        System.out.println("[CLIENTE] *** RECEBEU OPPONENT_MOVE - DESABILITANDO TURNO ***");
+                        // Ambos recebem OPPONENT_MOVE, então desabilita o turno
+                        // O próximo YOUR_TURN (se vier) habilitará novamente
+                        minhavez = false;
+                        System.out.println("[CLIENTE] minhavez=" + minhavez);
+                        SwingUtilities.invokeLater(() -> {
+                            aplicarMovimento(move[0], move[1], move[2], move[3]);
+                            turnoLabel.setText(AGUARDANDO_OPONENTE);
+                            turnoLabel.setForeground(Color.WHITE);
+                        });
+                    }
+                    break;
+                    
+                case GameProtocol.DRAW_OFFER:
+                    SwingUtilities.invokeLater(() -> {
+                        int resposta = JOptionPane.showConfirmDialog(TabuleiroForm.this,
+                            "O oponente propõe empate. Aceita?", "Proposta de empate", JOptionPane.YES_NO_OPTION);
+                        enviar(resposta == JOptionPane.YES_OPTION ? GameProtocol.DRAW_ACCEPT : GameProtocol.DRAW_DECLINE);
+                    });
+                    break;
+
+                case GameProtocol.DRAW_DECLINE:
+                    SwingUtilities.invokeLater(() ->
+                        JOptionPane.showMessageDialog(TabuleiroForm.this, "Proposta de empate recusada"));
+                    break;
+
+                case GameProtocol.GAME_OVER:
+                    SwingUtilities.invokeLater(() -> {
+                        habilitarAcoesPartida(false);
+                        turnoLabel.setText("Jogo Finalizado!");
+                        JOptionPane.showMessageDialog(TabuleiroForm.this, 
+                            "Fim de Jogo!\n" + content);
+                        desconectar();
+                    });
+                    break;
+                    
+                case GameProtocol.SESSION:
+                    tokenSessao = content;
+                    break;
+                    
+                case GameProtocol.BOARD:
+                    String[][] foto = GameProtocol.parseBoard(content);
+                    if (foto != null) {
+                        boolean brancasJogam = GameProtocol.isWhiteTurn(content);
+                        minhavez = false;
+                        SwingUtilities.invokeLater(() -> {
+                            for (int r = 0; r < 8; r++) {
+                                System.arraycopy(foto[r], 0, pecas[r], 0, 8);
+                            }
+                            vezBrancas = brancasJogam;
+                            selecR = -1;
+                            selecC = -1;
+                            desenharTabuleiro();
+                        });
+                    }
+                    break;
+                    
+                case GameProtocol.ERROR:
+                    SwingUtilities.invokeLater(() -> 
+                        JOptionPane.showMessageDialog(TabuleiroForm.this, 
+                            "Erro: " + content));
+                    break;
+                default:
+                    break;
             }
         }
     }
@@ -468,10 +596,47 @@ public class TabuleiroForm extends JFrame {
     private void enviarMovimento(int r1, int c1, int r2, int c2) {
         if (out != null) {
             System.out.println("[CLIENTE] Enviando movimento: (" + r1 + "," + c1 + ") -> (" + r2 + "," + c2 + ")");
-            out.println(GameProtocol.createMoveMessage(r1, c1, r2, c2));
+            if (binario) {
+                try {
+                    rawOut.write(BinaryProtocol.createMoveFrame(r1, c1, r2, c2));
+                    rawOut.flush();
+                } catch (IOException e) {
+                    // A queda da conexão é tratada pela thread de recepção
+                }
+            } else {
+                out.println(GameProtocol.createMoveMessage(r1, c1, r2, c2));
+            }
         }
     }
     
+    /**
+     * Envia uma mensagem de texto (desistência, empate); com o protocolo
+     * binário elas também seguem em texto
+     */
+    private void enviar(String mensagem) {
+        if (out != null) {
+            out.println(mensagem);
+        }
+    }
+
+    private void desistir() {
+        int resposta = JOptionPane.showConfirmDialog(this, "Desistir da partida?", "Desistir",
+            JOptionPane.YES_NO_OPTION);
+        if (resposta == JOptionPane.YES_OPTION) {
+            enviar(GameProtocol.RESIGN);
+        }
+    }
+
+    private static String formatarTempo(long ms) {
+        long segundos = Math.max(0, ms) / 1000;
+        return String.format("%d:%02d", segundos / 60, segundos % 60);
+    }
+
+    private void habilitarAcoesPartida(boolean habilitar) {
+        desistirButton.setEnabled(habilitar);
+        empateButton.setEnabled(habilitar);
+    }
+
     private void aplicarMovimento(int r1, int c1, int r2, int c2) {
         int dr = r2 - r1;
         int dc = c2 - c1;
@@ -525,6 +690,7 @@ public class TabuleiroForm extends JFrame {
         conectarButton.setEnabled(true);
         ipTextField.setEnabled(true);
         nomeTextField.setEnabled(true);
+        habilitarAcoesPartida(false);
     }
     
     public static void main(String[] args) {
@@ -0,0 +1,370 @@
+package loadtest;
+
+import model.Bitboard;
+import model.GameState;
+import model.MoveList;
+import network.BinaryProtocol;
+import network.GameProtocol;
+import network.MessageReader;
+import server.Histogram;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Gerador de carga: clientes sem interface que falam o GameProtocol com um
+ * CheckersServer já em execução e jogam partidas aleatórias.
+ *
+ * Cada cliente é uma thread com um socket: conecta, espera o pareamento
+ * (os clientes pareiam entre si; use --no-bots no servidor para que nenhum
+ * caia contra um bot), acompanha a partida num GameState local e, na sua
+ * vez, joga um movimento legal sorteado, salto a salto como o cliente
+ * gráfico. No GAME_OVER reconecta para uma nova partida, até o fim da
+ * duração; quem ainda estiver jogando então envia DISCONNECT.
+ *
+ * Mede o tempo de conexão (abrir o socket até o CONNECTED), a espera pelo
+ * oponente (CONNECTED até o START) e o tempo de ida e volta de cada salto
+ * (envio do MOVE até o OPPONENT_MOVE correspondente, que o servidor repassa
+ * aos dois jogadores), com percentis por intervalo e no total, e as
+ * partidas terminadas por segundo.
+ *
+ * Uso: java -cp bin loadtest.LoadGenerator [--host H] [--port P] [--clients N]
+ *                                          [--think MS] [--duration segundos]
+ *                                          [--ramp segundos] [--report segundos]
+ *                                          [--max-moves N] [--binary] [--seed S]
+ */
+public class LoadGenerator {
+    // Espera máxima pelo aceite da conexão TCP
+    private static final int CONNECT_TIMEOUT_MS = 10000;
+    // Pilha das threads dos clientes: só guardam o estado da partida
+    private static final long CLIENT_STACK = 256 * 1024;
+    // Espera pelos clientes que terminam a partida depois do fim da duração
+    private static final long DRAIN_MS = 2000;
+
+    private final InetSocketAddress address;
+    private final int clients;
+    private final int thinkMillis;
+    private final int maxMoves;
+    private final boolean binary;
+    private final long seed;
+
+    /** Do início da conexão até o CONNECTED */
+    private final Histogram connectTimes = new Histogram();
+    /** Do CONNECTED até o START (pareamento) */
+    private final Histogram matchTimes = new Histogram();
+    /** Do envio de um salto até o OPPONENT_MOVE com ele */
+    private final Histogram roundTrips = new Histogram();
+
+    private final LongAdder games = new LongAdder();
+    private final LongAdder interrupted = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final AtomicInteger active = new AtomicInteger();
+    private final Set<Socket> sockets = ConcurrentHashMap.newKeySet();
+    private volatile boolean stopping;
+
+    LoadGenerator(InetSocketAddress address, int clients, int thinkMillis, int maxMoves, boolean binary, long seed) {
+        this.address = address;
+        this.clients = clients;
+        this.thinkMillis = thinkMillis;
+        this.maxMoves = maxMoves;
+        this.binary = binary;
+        this.seed = seed;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String host = "127.0.0.1";
+        int port = 5000;
+        int clients = 200;
+        int think = 0;
+        int duration = 30;
+        int ramp = 0;
+        int report = 5;
+        int maxMoves = 400;
+        boolean binary = false;
+        long seed = 42;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--host": host = args[++i]; break;
+                case "--port": port = Integer.parseInt(args[++i]); break;
+                case "--clients": clients = Integer.parseInt(args[++i]); break;
+                case "--think": think = Integer.parseInt(args[++i]); break;
+                case "--duration": duration = Integer.parseInt(args[++i]); break;
+                case "--ramp": ramp = Integer.parseInt(args[++i]); break;
+                case "--report": report = Math.max(1, Integer.parseInt(args[++i])); break;
+                case "--max-moves": maxMoves = Integer.parseInt(args[++i]); break;
+                case "--binary": binary = true; break;
+                case "--seed": seed = Long.parseLong(args[++i]); break;
+                default:
+                    System.err.println("[CARGA] Opção desconhecida: " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        LoadGenerator generator = new LoadGenerator(new InetSocketAddress(host, port), clients, think, maxMoves,
+            binary, seed);
+        System.out.println("[CARGA] " + clients + " clientes contra " + host + ":" + port + " | pensar: " + think
+            + " ms | duração: " + duration + " s | rampa: " + ramp + " s | " + (binary ? "binário" : "texto"));
+        generator.run(duration, ramp, report);
+    }
+
+    void run(int durationSeconds, int rampSeconds, int reportSeconds) throws InterruptedException {
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(durationSeconds);
+        long rampNanos = TimeUnit.SECONDS.toNanos(rampSeconds);
+
+        System.out.println(String.format("%6s %8s %10s %10s %10s %10s %10s %8s", "tempo", "ativos",
+            "partidas/s", "saltos/s", "rtt p50", "rtt p99", "rtt máx", "erros"));
+        List<Thread> threads = new ArrayList<>(clients);
+        long nextReport = start + TimeUnit.SECONDS.toNanos(reportSeconds);
+        Histogram.Snapshot lastTrips = roundTrips.snapshot();
+        long lastGames = 0;
+        long lastTime = start;
+        int started = 0;
+        while (true) {
+            long now = System.nanoTime();
+            // Inicia os clientes distribuídos ao longo da rampa
+            int due = rampNanos == 0 ? clients : (int) Math.min(clients, clients * (now - start) / rampNanos + 1);
+            while (started < due) {
+                Thread thread = new Thread(null, new Client(started), "load-" + started, CLIENT_STACK);
+                thread.setDaemon(true);
+                thread.start();
+                threads.add(thread);
+                started++;
+            }
+            if (now >= end) {
+                break;
+            }
+            if (now >= nextReport) {
+                Histogram.Snapshot trips = roundTrips.snapshot();
+                Histogram.Snapshot interval = trips.minus(lastTrips);
+                long total = games.sum();
+                double seconds = (now - lastTime) / 1e9;
+                System.out.println(String.format("%5ds %8d %10.1f %10.1f %10s %10s %10s %8d",
+                    TimeUnit.NANOSECONDS.toSeconds(now - start), active.get(), (total - lastGames) / seconds,
+                    interval.getCount() / seconds, millis(interval.percentile(0.5)),
+                    millis(interval.percentile(0.99)), millis(interval.getMax()), errors.sum()));
+                lastTrips = trips;
+                lastGames = total;
+                lastTime = now;
+                nextReport += TimeUnit.SECONDS.toNanos(reportSeconds);
+            }
+            long wait = Math.min(end, started < clients ? now + TimeUnit.MILLISECONDS.toNanos(10) : nextReport) - now;
+            TimeUnit.NANOSECONDS.sleep(Math.max(wait, 0));
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        // Fim da duração: quem está na vez desconecta; quem espera oponente ou
+        // a jogada do outro tem o socket fechado depois de DRAIN_MS
+        stopping = true;
+        long deadline = System.currentTimeMillis() + DRAIN_MS;
+        for (Thread thread : threads) {
+            thread.join(Math.max(1, deadline - System.currentTimeMillis()));
+        }
+        for (Socket socket : sockets) {
+            closeQuietly(socket);
+        }
+        for (Thread thread : threads) {
+            thread.join(DRAIN_MS);
+        }
+        printSummary(elapsed);
+    }
+
+    private void printSummary(double elapsed) {
+        Histogram.Snapshot trips = roundTrips.snapshot();
+        System.out.println(String.format("[CARGA] %.1f s | partidas terminadas: %,d (%.1f/s) | interrompidas: %,d"
+            + " | saltos: %,d (%.1f/s) | erros: %,d", elapsed, games.sum(), games.sum() / elapsed,
+            interrupted.sum(), trips.getCount(), trips.getCount() / elapsed, errors.sum()));
+        System.out.println(String.format("%-12s %10s %9s %9s %9s %9s %9s %9s", "(ms)", "contagem", "média",
+            "p50", "p90", "p99", "p99.9", "máx"));
+        printLatency("conexão", connectTimes.snapshot());
+        printLatency("pareamento", matchTimes.snapshot());
+        printLatency("ida e volta", trips);
+    }
+
+    private static void printLatency(String name, Histogram.Snapshot s) {
+        System.out.println(String.format("%-12s %,10d %9s %9s %9s %9s %9s %9s", name, s.getCount(),
+            millis((long) s.getMean()), millis(s.percentile(0.5)), millis(s.percentile(0.9)),
+            millis(s.percentile(0.99)), millis(s.percentile(0.999)), millis(s.getMax())));
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.2f", nanos / 1e6);
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Encerrando
+        }
+    }
+
+    // ==================== CLIENTE ====================
+
+    private final class Client implements Runnable {
+        private final int id;
+        private final Random random;
+        private final MoveList moves = new MoveList();
+        private int gameNumber;
+
+        Client(int id) {
+            this.id = id;
+            this.random = new Random(seed + id);
+        }
+
+        @Override
+        public void run() {
+            active.incrementAndGet();
+            try {
+                while (!stopping) {
+                    try {
+                        playGame();
+                    } catch (IOException e) {
+                        if (!stopping) {
+                            errors.increment();
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                // Encerrando
+            } finally {
+                active.decrementAndGet();
+            }
+        }
+
+        /**
+         * Conecta, joga uma partida até o GAME_OVER e desconecta
+         */
+        private void playGame() throws IOException, InterruptedException {
+            long start = System.nanoTime();
+            Socket socket = new Socket();
+            sockets.add(socket);
+            try {
+                socket.setTcpNoDelay(true);
+                socket.connect(address, CONNECT_TIMEOUT_MS);
+                MessageReader in = new MessageReader(socket.getInputStream());
+                OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+                String name = "carga" + id + "_" + (gameNumber++);
+                sendText(out, binary ? BinaryProtocol.createConnectMessage(name)
+                    : GameProtocol.createConnectMessage(name));
+                String ack = in.readMessage();
+                if (ack == null || !GameProtocol.getMessageType(ack).equals(GameProtocol.CONNECTED)) {
+                    errors.increment();
+                    return;
+                }
+                connectTimes.recordSince(start);
+                play(in, out, System.nanoTime());
+            } finally {
+                sockets.remove(socket);
+                closeQuietly(socket);
+            }
+        }
+
+        private void play(MessageReader in, OutputStream out, long connected) throws IOException, InterruptedException {
+            GameState game = new GameState();
+            boolean white = false;
+            int plies = 0;
+            int move = 0;
+            long path = 0;
+            int hop = 0;
+            long sentAt = 0;
+            String message;
+            while ((message = in.readMessage()) != null) {
+                String type = GameProtocol.getMessageType(message);
+                switch (type) {
+                    case GameProtocol.START:
+                        white = GameProtocol.getMessageContent(message).equals("WHITE");
+                        matchTimes.recordSince(connected);
+                        break;
+                    case GameProtocol.OPPONENT_MOVE: {
+                        int[] m = GameProtocol.parseMove(GameProtocol.getMessageContent(message));
+                        if (m.length != 4 || !game.executeMove(m[0], m[1], m[2], m[3])) {
+                            // Tabuleiro local fora de sincronia com o servidor
+                            errors.increment();
+                            sendText(out, GameProtocol.DISCONNECT);
+                            return;
+                        }
+                        if (sentAt != 0) {
+                            roundTrips.recordSince(sentAt);
+                            sentAt = 0;
+                        }
+                        break;
+                    }
+                    case GameProtocol.YOUR_TURN: {
+                        if (stopping || plies >= maxMoves) {
+                            // O oponente recebe GAME_OVER e conta a partida como interrompida
+                            sendText(out, GameProtocol.DISCONNECT);
+                            return;
+                        }
+                        if (thinkMillis > 0) {
+                            // Entre metade e uma vez e meia o tempo pedido, para os clientes não andarem juntos
+                            Thread.sleep(thinkMillis / 2 + random.nextInt(thinkMillis + 1));
+                        }
+                        if (!game.isCaptureInProgress()) {
+                            moves.clear();
+                            game.getLegalMoves(moves);
+                            int index = random.nextInt(moves.size());
+                            move = moves.get(index);
+                            path = moves.path(index);
+                            hop = 0;
+                            plies++;
+                        }
+                        int from = hop == 0 ? MoveList.from(move) : MoveList.landing(path, hop - 1);
+                        int to = MoveList.landing(path, hop++);
+                        sentAt = System.nanoTime();
+                        sendMove(out, Bitboard.row(from), Bitboard.col(from), Bitboard.row(to), Bitboard.col(to));
+                        break;
+                    }
+                    case GameProtocol.MOVE_INVALID:
+                    case GameProtocol.ERROR:
+                        errors.increment();
+                        sendText(out, GameProtocol.DISCONNECT);
+                        return;
+                    case GameProtocol.GAME_OVER:
+                        if (game.checkGameOver() == null) {
+                            if (!stopping) {
+                                interrupted.increment();
+                            }
+                        } else if (white) {
+                            // Os dois jogadores recebem o GAME_OVER; só as brancas contam
+                            games.increment();
+                        }
+                        return;
+                    default:
+                        // CONNECTED, SESSION, WAIT, BOARD
+                        break;
+                }
+            }
+            if (!stopping) {
+                // Servidor fechou a conexão no meio da partida
+                errors.increment();
+            }
+        }
+
+        private void sendMove(OutputStream out, int r1, int c1, int r2, int c2) throws IOException {
+            if (binary) {
+                out.write(BinaryProtocol.createMoveFrame(r1, c1, r2, c2));
+                out.flush();
+            } else {
+                sendText(out, GameProtocol.createMoveMessage(r1, c1, r2, c2));
+            }
+        }
+
+        private void sendText(OutputStream out, String message) throws IOException {
+            out.write((message + "\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package loadtest;
+
+import network.GameProtocol;
+import server.CheckersServer;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Teste de carga do modo de threads virtuais do servidor.
+ *
+ * Sobe um CheckersServer no próprio processo, abre milhares de salas ao vivo
+ * (dois sockets por sala, com um primeiro movimento jogado em cada uma) e
+ * acompanha quantas threads de plataforma a JVM mantém. No modo "virtual"
+ * cada sala fica parada em readLine() sem ocupar uma thread carregadora, e a
+ * contagem deve permanecer estável; no modo "pool" ela cresce com as salas.
+ *
+ * Uso: java -cp bin loadtest.VirtualThreadRooms [--rooms N] [--mode virtual|pool]
+ *                                               [--port P] [--hold segundos]
+ */
+public class VirtualThreadRooms {
+
+    public static void main(String[] args) throws Exception {
+        int rooms = 2000;
+        boolean virtual = true;
+        int port = 5100;
+        int holdSeconds = 5;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--rooms": rooms = Integer.parseInt(args[i + 1]); break;
+                case "--mode": virtual = args[i + 1].equals("virtual"); break;
+                case "--port": port = Integer.parseInt(args[i + 1]); break;
+                case "--hold": holdSeconds = Integer.parseInt(args[i + 1]); break;
+                default: break;
+            }
+        }
+
+        PrintStream console = System.out;
+        CheckersServer server;
+        try {
+            server = new CheckersServer(port, virtual);
+        } catch (UnsupportedOperationException e) {
+            console.println("[CARGA] " + e.getMessage());
+            return;
+        }
+
+        // Os logs do servidor iriam para o mesmo console; descarta durante o teste
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+                // descartado
+            }
+        }));
+
+        Thread acceptor = new Thread(() -> {
+            try {
+                server.start();
+            } catch (IOException e) {
+                console.println("[CARGA] Servidor falhou: " + e.getMessage());
+            }
+        }, "load-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        List<Socket> sockets = new ArrayList<>();
+        try {
+            waitForServer(port);
+            int baseline = threads.getThreadCount();
+            console.println("[CARGA] Modo: " + (virtual ? "threads virtuais" : "pool de threads")
+                + " | salas: " + rooms);
+            console.println(String.format("%8s %12s %12s", "salas", "plataforma", "carregadoras"));
+            printSample(console, 0, threads);
+
+            List<PrintWriter> whites = new ArrayList<>();
+            for (int room = 1; room <= rooms; room++) {
+                whites.add(connect(port, "branco" + room, sockets));
+                connect(port, "preto" + room, sockets);
+                if (room % (Math.max(1, rooms / 10)) == 0) {
+                    printSample(console, room, threads);
+                }
+            }
+
+            // Um primeiro movimento em cada sala passa por executeMove
+            for (PrintWriter white : whites) {
+                white.println(GameProtocol.createMoveMessage(5, 0, 4, 1));
+            }
+
+            int peak = 0;
+            for (int s = 0; s < holdSeconds; s++) {
+                Thread.sleep(1000);
+                peak = Math.max(peak, threads.getThreadCount());
+            }
+            printSample(console, rooms, threads);
+
+            console.println("[CARGA] Threads de plataforma: antes=" + baseline + " pico=" + peak
+                + " | por sala: " + String.format("%.3f", (peak - baseline) / (double) rooms));
+        } finally {
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+            // A saída padrão continua descartada: o encerramento das salas também gera logs
+            server.stop();
+        }
+    }
+
+    private static PrintWriter connect(int port, String name, List<Socket> sockets) throws IOException {
+        Socket socket = new Socket("127.0.0.1", port);
+        sockets.add(socket);
+        PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+        out.println(GameProtocol.createConnectMessage(name));
+        return out;
+    }
+
+    private static void waitForServer(int port) throws InterruptedException {
+        for (int attempt = 0; attempt < 50; attempt++) {
+            try (Socket probe = new Socket("127.0.0.1", port)) {
+                probe.getOutputStream().write((GameProtocol.DISCONNECT + "\n").getBytes());
+                return;
+            } catch (IOException e) {
+                Thread.sleep(100);
+            }
+        }
+        throw new IllegalStateException("Servidor não respondeu na porta " + port);
+    }
+
+    private static void printSample(PrintStream console, int rooms, ThreadMXBean threads) {
+        int carriers = 0;
+        for (ThreadInfo info : threads.dumpAllThreads(false, false)) {
+            if (info != null && info.getThreadName().startsWith("ForkJoinPool-")) {
+                carriers++;
+            }
+        }
+        console.println(String.format("%8d %12d %12d", rooms, threads.getThreadCount(), carriers));
+    }
+}
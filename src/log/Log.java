@@ -0,0 +1,209 @@
+package log;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+/**
+ * Log do servidor com níveis, sem formatação no caminho de quem registra.
+ *
+ * Cada chamada primeiro compara o nível com o limiar (uma leitura de
+ * campo); abaixo dele, retorna sem montar nada. Acima, o modelo e os
+ * argumentos vão para o {@link LogRing} e a thread de escrita monta e grava
+ * a linha. As mensagens usam {@code {}} no lugar de cada argumento:
+ * <pre>
+ *     Log.info("[SALA {}] Jogo finalizado: {}", roomId, message);
+ * </pre>
+ * Como a linha é montada depois, os argumentos devem ser valores que não
+ * mudam (números, strings); de um objeto mutável, passe o {@code toString()}.
+ * Para uma mensagem cara de montar, teste antes com {@link #isDebugEnabled()}.
+ *
+ * Configuração: {@code -Ddamas.log.level=debug|info|warn|error|off}
+ * (padrão info; {@code -Ddamas.debug=true} equivale a debug),
+ * {@code -Ddamas.log.file=servidor.log} (padrão: console) e
+ * {@code -Ddamas.log.buffer=8192} (mensagens na fila; com ela cheia as
+ * novas são descartadas e contadas, quem registra nunca espera).
+ */
+public final class Log {
+
+    public enum Level { DEBUG, INFO, WARN, ERROR, OFF }
+
+    private static final Level[] LEVELS = Level.values();
+
+    private static volatile int threshold = initialLevel().ordinal();
+
+    private static final LogRing RING = new LogRing(Integer.getInteger("damas.log.buffer", 8192));
+
+    static {
+        String file = System.getProperty("damas.log.file");
+        if (file != null) {
+            try {
+                RING.toFile(Paths.get(file));
+            } catch (IOException e) {
+                System.err.println("[LOG] Arquivo de log não aberto (" + e.getMessage() + "); usando o console");
+            }
+        }
+    }
+
+    private Log() {
+    }
+
+    private static Level initialLevel() {
+        if (Boolean.getBoolean("damas.debug")) {
+            return Level.DEBUG;
+        }
+        return parse(System.getProperty("damas.log.level", "info"));
+    }
+
+    /**
+     * @throws IllegalArgumentException para um nome desconhecido
+     */
+    public static Level parse(String name) {
+        return Level.valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+
+    public static Level getLevel() {
+        return LEVELS[threshold];
+    }
+
+    public static void setLevel(Level level) {
+        threshold = level.ordinal();
+    }
+
+    public static boolean isEnabled(Level level) {
+        return level.ordinal() >= threshold;
+    }
+
+    public static boolean isDebugEnabled() {
+        return threshold == 0;
+    }
+
+    /**
+     * Passa a gravar no arquivo (acrescentando); o que já estava na fila
+     * ainda pode sair no destino anterior
+     */
+    public static void toFile(Path file) throws IOException {
+        RING.toFile(file);
+    }
+
+    /**
+     * Mensagens descartadas por fila cheia desde o início
+     */
+    public static long getDropped() {
+        return RING.getDropped();
+    }
+
+    /**
+     * Espera a fila esvaziar e grava; o log continua utilizável
+     */
+    public static void flush() {
+        RING.flush();
+    }
+
+    /**
+     * Grava o que falta e encerra a thread de escrita; mensagens posteriores
+     * são gravadas direto, por quem as registra
+     */
+    public static void close() {
+        RING.close();
+    }
+
+    // ==================== REGISTRO ====================
+
+    public static void debug(String message) {
+        if (threshold == 0) {
+            RING.offer(Level.DEBUG, message, 0, null, null, null, null);
+        }
+    }
+
+    public static void debug(String template, Object a) {
+        if (threshold == 0) {
+            RING.offer(Level.DEBUG, template, 1, a, null, null, null);
+        }
+    }
+
+    public static void debug(String template, Object a, Object b) {
+        if (threshold == 0) {
+            RING.offer(Level.DEBUG, template, 2, a, b, null, null);
+        }
+    }
+
+    public static void debug(String template, Object a, Object b, Object c) {
+        if (threshold == 0) {
+            RING.offer(Level.DEBUG, template, 3, a, b, c, null);
+        }
+    }
+
+    public static void debug(String template, Object... args) {
+        if (threshold == 0) {
+            RING.offer(Level.DEBUG, template, args.length, null, null, null, args);
+        }
+    }
+
+    public static void info(String message) {
+        log(Level.INFO, message, 0, null, null, null, null);
+    }
+
+    public static void info(String template, Object a) {
+        log(Level.INFO, template, 1, a, null, null, null);
+    }
+
+    public static void info(String template, Object a, Object b) {
+        log(Level.INFO, template, 2, a, b, null, null);
+    }
+
+    public static void info(String template, Object a, Object b, Object c) {
+        log(Level.INFO, template, 3, a, b, c, null);
+    }
+
+    public static void info(String template, Object... args) {
+        log(Level.INFO, template, args.length, null, null, null, args);
+    }
+
+    public static void warn(String message) {
+        log(Level.WARN, message, 0, null, null, null, null);
+    }
+
+    public static void warn(String template, Object a) {
+        log(Level.WARN, template, 1, a, null, null, null);
+    }
+
+    public static void warn(String template, Object a, Object b) {
+        log(Level.WARN, template, 2, a, b, null, null);
+    }
+
+    public static void warn(String template, Object a, Object b, Object c) {
+        log(Level.WARN, template, 3, a, b, c, null);
+    }
+
+    public static void warn(String template, Object... args) {
+        log(Level.WARN, template, args.length, null, null, null, args);
+    }
+
+    public static void error(String message) {
+        log(Level.ERROR, message, 0, null, null, null, null);
+    }
+
+    public static void error(String template, Object a) {
+        log(Level.ERROR, template, 1, a, null, null, null);
+    }
+
+    public static void error(String template, Object a, Object b) {
+        log(Level.ERROR, template, 2, a, b, null, null);
+    }
+
+    public static void error(String template, Object a, Object b, Object c) {
+        log(Level.ERROR, template, 3, a, b, c, null);
+    }
+
+    public static void error(String template, Object... args) {
+        log(Level.ERROR, template, args.length, null, null, null, args);
+    }
+
+    private static void log(Level level, String template, int argc, Object a, Object b, Object c, Object[] args) {
+        if (level.ordinal() >= threshold) {
+            RING.offer(level, template, argc, a, b, c, args);
+        }
+    }
+}
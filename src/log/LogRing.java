@@ -0,0 +1,309 @@
+package log;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fila circular de mensagens de log com uma thread de escrita.
+ *
+ * As posições são pré-alocadas. Quem registra reserva a próxima sequência
+ * com um CAS, preenche a posição e a publica com uma escrita volátil; com a
+ * fila cheia a mensagem é descartada e contada, sem esperar. A thread de
+ * escrita consome as posições em ordem, monta cada linha (hora, nível,
+ * mensagem com os argumentos) e grava num buffer que só vai para o destino
+ * quando a fila esvazia, então uma rajada de mensagens vira uma escrita só.
+ * Sem mensagens ela dorme e é acordada por quem publica.
+ */
+final class LogRing {
+
+    private static final class Slot {
+        // Sequência + 1 da mensagem publicada nesta posição (0: vazia)
+        volatile long published;
+        Log.Level level;
+        long millis;
+        String template;
+        int argc;
+        Object a, b, c;
+        Object[] args;
+    }
+
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong();
+    private volatile long consumed;
+    // Mensagens já entregues ao destino (com flush)
+    private volatile long flushed;
+    private final LongAdder dropped = new LongAdder();
+    private long reportedDrops;
+
+    private volatile Thread writer;
+    private volatile boolean sleeping;
+    private volatile boolean closed;
+    private volatile Writer out = console();
+    private volatile Writer pendingOut;
+
+    // Só a thread de escrita (ou, depois que ela termina, quem tiver o lock) usa estes
+    private final StringBuilder line = new StringBuilder(256);
+    private final SimpleDateFormat secondFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+    private long cachedSecond = -1;
+    private String cachedPrefix;
+
+    LogRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(16, capacity - 1) << 1);
+        slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+        }
+        mask = size - 1;
+    }
+
+    private static Writer console() {
+        return new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    void toFile(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        pendingOut = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND), StandardCharsets.UTF_8), 1 << 16);
+        wake();
+    }
+
+    long getDropped() {
+        return dropped.sum();
+    }
+
+    // ==================== QUEM REGISTRA ====================
+
+    void offer(Log.Level level, String template, int argc, Object a, Object b, Object c, Object[] args) {
+        if (closed) {
+            writeDirect(level, template, argc, a, b, c, args);
+            return;
+        }
+        if (writer == null) {
+            start();
+        }
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - consumed >= slots.length) {
+                dropped.increment();
+                return;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+
+        Slot slot = slots[(int) sequence & mask];
+        slot.level = level;
+        slot.millis = System.currentTimeMillis();
+        slot.template = template;
+        slot.argc = argc;
+        slot.a = a;
+        slot.b = b;
+        slot.c = c;
+        slot.args = args;
+        slot.published = sequence + 1;
+        if (sleeping) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private synchronized void start() {
+        if (writer == null) {
+            Thread thread = new Thread(this::drain, "log");
+            thread.setDaemon(true);
+            writer = thread;
+            thread.start();
+            // Sem close explícito (ferramentas de linha de comando), grava o resto na saída da JVM
+            Runtime.getRuntime().addShutdownHook(new Thread(this::close, "log-fim"));
+        }
+    }
+
+    // ==================== THREAD DE ESCRITA ====================
+
+    private void drain() {
+        long next = 0;
+        while (true) {
+            Slot slot = slots[(int) next & mask];
+            if (slot.published == next + 1) {
+                if (pendingOut != null) {
+                    switchOutput();
+                }
+                try {
+                    format(slot);
+                    out.append(line);
+                } catch (IOException e) {
+                    // Sem onde registrar: a mensagem se perde, o servidor continua
+                }
+                slot.template = null;
+                slot.a = slot.b = slot.c = null;
+                slot.args = null;
+                consumed = ++next;
+                continue;
+            }
+            // Fila vazia: descarrega o buffer e dorme
+            reportDrops();
+            switchOutput();
+            flushOut();
+            flushed = next;
+            if (closed) {
+                return;
+            }
+            sleeping = true;
+            if (slot.published != next + 1 && !closed && pendingOut == null) {
+                LockSupport.parkNanos(this, 100_000_000L);
+            }
+            sleeping = false;
+        }
+    }
+
+    private void reportDrops() {
+        long drops = dropped.sum();
+        if (drops != reportedDrops) {
+            format(Log.Level.WARN, System.currentTimeMillis(), "[LOG] {} mensagens descartadas com a fila cheia",
+                1, drops - reportedDrops, null, null, null);
+            reportedDrops = drops;
+            try {
+                out.append(line);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void switchOutput() {
+        Writer next = pendingOut;
+        if (next != null) {
+            pendingOut = null;
+            flushOut();
+            out = next;
+        }
+    }
+
+    private void flushOut() {
+        try {
+            out.flush();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private void wake() {
+        Thread thread = writer;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Espera a thread de escrita gravar o que foi publicado até agora
+     */
+    void flush() {
+        long target = claimed.get();
+        while (writer != null && !closed && flushed < target) {
+            wake();
+            LockSupport.parkNanos(100_000L);
+        }
+    }
+
+    /**
+     * Espera até 2s a thread de escrita esvaziar a fila. Se o destino travar
+     * (um pipe cheio, por exemplo), desiste para não prender a saída da JVM;
+     * a thread continua dona da linha e do destino até terminar sozinha
+     */
+    synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        Thread thread = writer;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (writerAlive()) {
+            return;
+        }
+        switchOutput();
+        flushOut();
+    }
+
+    /**
+     * Depois do close: grava na hora, uma mensagem por vez. Enquanto a
+     * thread de escrita não terminou, descarta e conta a mensagem em vez de
+     * disputar com ela a linha e o destino
+     */
+    private synchronized void writeDirect(Log.Level level, String template, int argc,
+                                          Object a, Object b, Object c, Object[] args) {
+        if (writerAlive()) {
+            dropped.increment();
+            return;
+        }
+        format(level, System.currentTimeMillis(), template, argc, a, b, c, args);
+        try {
+            out.append(line);
+            out.flush();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private boolean writerAlive() {
+        Thread thread = writer;
+        return thread != null && thread.isAlive();
+    }
+
+    // ==================== FORMATAÇÃO ====================
+
+    private void format(Slot slot) {
+        format(slot.level, slot.millis, slot.template, slot.argc, slot.a, slot.b, slot.c, slot.args);
+    }
+
+    /**
+     * Monta em {@code line}: "2026-01-31 14:05:09.123 INFO  mensagem\n"
+     */
+    private void format(Log.Level level, long millis, String template, int argc,
+                        Object a, Object b, Object c, Object[] args) {
+        line.setLength(0);
+        long second = millis / 1000;
+        if (second != cachedSecond) {
+            cachedSecond = second;
+            cachedPrefix = secondFormat.format(new Date(second * 1000));
+        }
+        int ms = (int) (millis % 1000);
+        line.append(cachedPrefix).append('.').append((char) ('0' + ms / 100))
+            .append((char) ('0' + ms / 10 % 10)).append((char) ('0' + ms % 10)).append(' ');
+        String name = level.name();
+        line.append(name);
+        for (int i = name.length(); i < 6; i++) {
+            line.append(' ');
+        }
+        int arg = 0;
+        int start = 0;
+        while (arg < argc) {
+            int at = template.indexOf("{}", start);
+            if (at < 0) {
+                break;
+            }
+            line.append(template, start, at);
+            Object value = args != null ? args[arg] : arg == 0 ? a : arg == 1 ? b : c;
+            line.append(value);
+            arg++;
+            start = at + 2;
+        }
+        line.append(template, start, template.length()).append('\n');
+    }
+}
@@ -0,0 +1,153 @@
+package model;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Verifica que a validação de movimentos não aloca: reproduz partidas pelo
+ * caminho do servidor ({@code executeMove(r1, c1, r2, c2)} salto a salto,
+ * com tentativas inválidas antes de cada salto, e {@code checkGameOver}
+ * depois de cada um) e mede os bytes alocados pela thread com o
+ * ThreadMXBean da HotSpot.
+ *
+ * As partidas são geradas antes da medição (lances aleatórios com semente
+ * fixa) e reproduzidas primeiro sem medir, para o JIT compilar o caminho
+ * quente. Executada por {@code mvn test} junto com {@code Perft --verify}.
+ *
+ * Uso: java -cp bin model.AllocationCheck [--games N] [--seed S]
+ */
+public class AllocationCheck {
+
+    // Reproduções de todas as partidas antes de medir
+    private static final int WARMUP_ROUNDS = 200;
+
+    // Turnos por partida gerada (as partidas aleatórias quase sempre acabam antes)
+    private static final int MAX_TURNS = 300;
+
+    private AllocationCheck() {
+    }
+
+    public static void main(String[] args) {
+        int games = 16;
+        long seed = 2024;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--games": games = Integer.parseInt(args[++i]); break;
+                case "--seed": seed = Long.parseLong(args[++i]); break;
+                default:
+                    System.err.println("[ALOCAÇÃO] Opção desconhecida: " + args[i]);
+                    System.exit(2);
+            }
+        }
+        System.exit(verify(games, seed) ? 0 : 1);
+    }
+
+    /**
+     * Reproduz {@code games} partidas e confere que nenhuma alocou
+     * @return true se nada foi alocado (ou se a JVM não mede alocação)
+     */
+    public static boolean verify(int games, long seed) {
+        java.lang.management.ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        if (!(mx instanceof com.sun.management.ThreadMXBean)
+                || !((com.sun.management.ThreadMXBean) mx).isThreadAllocatedMemorySupported()) {
+            System.out.println("[ALOCAÇÃO] JVM sem medição de alocação por thread; verificação ignorada");
+            return true;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) mx;
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long thread = Thread.currentThread().getId();
+
+        Random random = new Random(seed);
+        int[][] hops = new int[games][];
+        int total = 0;
+        for (int g = 0; g < games; g++) {
+            hops[g] = randomGame(random);
+            total += hops[g].length / 2;
+        }
+
+        Bitboard initial = new Bitboard();
+        initial.setInitial();
+        GameState state = new GameState();
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            replayAll(state, initial, hops);
+        }
+
+        // Custo da própria leitura (versões antigas alocam um array por chamada)
+        long before = threads.getThreadAllocatedBytes(thread);
+        long overhead = threads.getThreadAllocatedBytes(thread) - before;
+
+        before = threads.getThreadAllocatedBytes(thread);
+        long checksum = replayAll(state, initial, hops);
+        long allocated = threads.getThreadAllocatedBytes(thread) - before - overhead;
+
+        boolean ok = allocated <= 0;
+        System.out.println("[ALOCAÇÃO] " + games + " partidas, " + total + " saltos (checksum " + checksum + "): "
+            + (ok ? "ok, 0 bytes" : "FALHOU, " + allocated + " bytes alocados"));
+        return ok;
+    }
+
+    /**
+     * Partida aleatória completa, como a sequência de saltos (origem, destino)
+     * que o servidor receberia
+     */
+    private static int[] randomGame(Random random) {
+        Bitboard board = new Bitboard();
+        board.setInitial();
+        boolean white = true;
+        MoveGenerator generator = new MoveGenerator();
+        MoveList moves = new MoveList();
+        int[] hops = new int[64];
+        int length = 0;
+        for (int turn = 0; turn < MAX_TURNS; turn++) {
+            moves.clear();
+            generator.generate(board, white, moves);
+            if (moves.size() == 0) {
+                break;
+            }
+            int index = random.nextInt(moves.size());
+            int move = moves.get(index);
+            int from = MoveList.from(move);
+            for (int hop = 0; hop < MoveList.hops(move); hop++) {
+                int to = MoveList.landing(moves.path(index), hop);
+                if (length + 2 > hops.length) {
+                    hops = Arrays.copyOf(hops, hops.length * 2);
+                }
+                hops[length++] = from;
+                hops[length++] = to;
+                from = to;
+            }
+            MoveGenerator.apply(board, moves, index);
+            white = !white;
+        }
+        return Arrays.copyOf(hops, length);
+    }
+
+    /**
+     * Reproduz todas as partidas no mesmo GameState; o retorno impede que o
+     * JIT descarte o trabalho
+     */
+    private static long replayAll(GameState state, Bitboard initial, int[][] games) {
+        long checksum = 0;
+        for (int[] hops : games) {
+            state.setPosition(initial, true);
+            for (int i = 0; i < hops.length; i += 2) {
+                int from = hops[i];
+                int to = hops[i + 1];
+                // Tentativas inválidas: casa vazia e a peça parada no lugar
+                if (state.executeMove(Bitboard.row(to), Bitboard.col(to), Bitboard.row(from), Bitboard.col(from))
+                        || state.executeMove(Bitboard.row(from), Bitboard.col(from), Bitboard.row(from), Bitboard.col(from))) {
+                    throw new IllegalStateException("Movimento inválido aceito no salto " + i / 2);
+                }
+                if (!state.executeMove(Bitboard.row(from), Bitboard.col(from), Bitboard.row(to), Bitboard.col(to))) {
+                    throw new IllegalStateException("Movimento da partida recusado no salto " + i / 2);
+                }
+                if (state.checkGameOver() != null) {
+                    checksum++;
+                }
+            }
+            checksum += state.getZobristKey();
+        }
+        return checksum;
+    }
+}
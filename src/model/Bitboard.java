@@ -0,0 +1,494 @@
+package model;
+
+/**
+ * Representação do tabuleiro em bitboards.
+ *
+ * Apenas as 32 casas escuras (r + c ímpar) são usadas. Cada casa recebe um
+ * índice de 0 a 31 (casa = r * 4 + c / 2) e cada tipo de peça ocupa uma
+ * máscara de 32 bits: peões brancos, damas brancas, peões pretos e damas pretas.
+ *
+ * As tabelas de vizinhos, saltos e diagonais são pré-calculadas uma única vez,
+ * de modo que as consultas do jogo não alocam nem percorrem Strings.
+ */
+public class Bitboard {
+
+    public static final int SQUARES = 32;
+
+    // Direções diagonais: 0 = (-1,-1), 1 = (-1,+1), 2 = (+1,-1), 3 = (+1,+1)
+    // Brancas sobem (direções 0 e 1), Pretas descem (direções 2 e 3)
+    public static final int DIRECTIONS = 4;
+    private static final int[] DIR_R = {-1, -1, 1, 1};
+    private static final int[] DIR_C = {-1, 1, -1, 1};
+
+    // Casas de promoção: linha 0 para as brancas, linha 7 para as pretas
+    public static final int WHITE_PROMOTION = 0x0000000F;
+    public static final int BLACK_PROMOTION = 0xF0000000;
+
+    private static final int[] ROW = new int[SQUARES];
+    private static final int[] COL = new int[SQUARES];
+    private static final int[][] SQUARE_AT = new int[8][8];
+
+    /** Casa vizinha em cada direção, ou -1 fora do tabuleiro */
+    private static final int[][] NEIGHBOR = new int[SQUARES][DIRECTIONS];
+    /** Casa de aterrissagem de um salto (duas casas) em cada direção, ou -1 */
+    private static final int[][] JUMP = new int[SQUARES][DIRECTIONS];
+    /** Casas percorridas em cada diagonal a partir da casa, em ordem de distância */
+    private static final int[][][] RAY = new int[SQUARES][DIRECTIONS][];
+
+    static {
+        for (int r = 0; r < 8; r++) {
+            for (int c = 0; c < 8; c++) {
+                SQUARE_AT[r][c] = (r + c) % 2 == 1 ? r * 4 + c / 2 : -1;
+                if (SQUARE_AT[r][c] >= 0) {
+                    ROW[SQUARE_AT[r][c]] = r;
+                    COL[SQUARE_AT[r][c]] = c;
+                }
+            }
+        }
+        for (int sq = 0; sq < SQUARES; sq++) {
+            for (int d = 0; d < DIRECTIONS; d++) {
+                int length = 0;
+                int rr = ROW[sq] + DIR_R[d];
+                int cc = COL[sq] + DIR_C[d];
+                while (isInside(rr, cc)) {
+                    length++;
+                    rr += DIR_R[d];
+                    cc += DIR_C[d];
+                }
+                RAY[sq][d] = new int[length];
+                for (int i = 0; i < length; i++) {
+                    RAY[sq][d][i] = SQUARE_AT[ROW[sq] + (i + 1) * DIR_R[d]][COL[sq] + (i + 1) * DIR_C[d]];
+                }
+                NEIGHBOR[sq][d] = length >= 1 ? RAY[sq][d][0] : -1;
+                JUMP[sq][d] = length >= 2 ? RAY[sq][d][1] : -1;
+            }
+        }
+    }
+
+    private int whiteMen;
+    private int whiteKings;
+    private int blackMen;
+    private int blackKings;
+
+    public Bitboard() {
+        // Tabuleiro vazio
+    }
+
+    public Bitboard(Bitboard other) {
+        copyFrom(other);
+    }
+
+    // ==================== TABELAS ====================
+
+    public static boolean isInside(int r, int c) {
+        return r >= 0 && r < 8 && c >= 0 && c < 8;
+    }
+
+    /**
+     * Índice da casa escura em (r, c), ou -1 para casas claras ou fora do tabuleiro
+     */
+    public static int square(int r, int c) {
+        return isInside(r, c) ? SQUARE_AT[r][c] : -1;
+    }
+
+    public static int row(int sq) {
+        return ROW[sq];
+    }
+
+    public static int col(int sq) {
+        return COL[sq];
+    }
+
+    public static int neighbor(int sq, int dir) {
+        return NEIGHBOR[sq][dir];
+    }
+
+    public static int jump(int sq, int dir) {
+        return JUMP[sq][dir];
+    }
+
+    public static int[] ray(int sq, int dir) {
+        return RAY[sq][dir];
+    }
+
+    /**
+     * Direção da diagonal que liga as duas casas, ou -1 se não estiverem na mesma diagonal
+     */
+    public static int direction(int from, int to) {
+        int dr = ROW[to] - ROW[from];
+        int dc = COL[to] - COL[from];
+        if (dr == 0 || Math.abs(dr) != Math.abs(dc)) return -1;
+        return (dr > 0 ? 2 : 0) + (dc > 0 ? 1 : 0);
+    }
+
+    public static int bit(int sq) {
+        return 1 << sq;
+    }
+
+    // ==================== ESTADO ====================
+
+    public void clear() {
+        whiteMen = 0;
+        whiteKings = 0;
+        blackMen = 0;
+        blackKings = 0;
+    }
+
+    public void copyFrom(Bitboard other) {
+        whiteMen = other.whiteMen;
+        whiteKings = other.whiteKings;
+        blackMen = other.blackMen;
+        blackKings = other.blackKings;
+    }
+
+    /**
+     * Posição inicial: Pretas nas linhas 0-2, Brancas nas linhas 5-7
+     */
+    public void setInitial() {
+        blackMen = 0x00000FFF;
+        whiteMen = 0xFFF00000;
+        blackKings = 0;
+        whiteKings = 0;
+    }
+
+    public int getWhiteMen() { return whiteMen; }
+    public int getWhiteKings() { return whiteKings; }
+    public int getBlackMen() { return blackMen; }
+    public int getBlackKings() { return blackKings; }
+
+    public void set(int whiteMen, int whiteKings, int blackMen, int blackKings) {
+        this.whiteMen = whiteMen;
+        this.whiteKings = whiteKings;
+        this.blackMen = blackMen;
+        this.blackKings = blackKings;
+    }
+
+    public int white() {
+        return whiteMen | whiteKings;
+    }
+
+    public int black() {
+        return blackMen | blackKings;
+    }
+
+    public int pieces(boolean white) {
+        return white ? white() : black();
+    }
+
+    public int occupied() {
+        return whiteMen | whiteKings | blackMen | blackKings;
+    }
+
+    public boolean isEmpty(int sq) {
+        return (occupied() & bit(sq)) == 0;
+    }
+
+    public boolean isWhite(int sq) {
+        return (white() & bit(sq)) != 0;
+    }
+
+    public boolean isBlack(int sq) {
+        return (black() & bit(sq)) != 0;
+    }
+
+    public boolean isKing(int sq) {
+        return ((whiteKings | blackKings) & bit(sq)) != 0;
+    }
+
+    /**
+     * Tipo da peça na casa (constantes de {@link Zobrist}) ou -1 se vazia
+     */
+    public int pieceType(int sq) {
+        int b = bit(sq);
+        if ((whiteMen & b) != 0) return Zobrist.WHITE_MAN;
+        if ((whiteKings & b) != 0) return Zobrist.WHITE_KING;
+        if ((blackMen & b) != 0) return Zobrist.BLACK_MAN;
+        if ((blackKings & b) != 0) return Zobrist.BLACK_KING;
+        return -1;
+    }
+
+    // ==================== ALTERAÇÕES ====================
+
+    /**
+     * Move a peça de {@code from} para {@code to} (destino vazio), promovendo
+     * a dama quando atinge a última linha
+     * @return true se a peça foi promovida
+     */
+    public boolean move(int from, int to) {
+        int fromBit = bit(from);
+        int toBit = bit(to);
+        if ((whiteMen & fromBit) != 0) {
+            whiteMen &= ~fromBit;
+            if ((toBit & WHITE_PROMOTION) != 0) {
+                whiteKings |= toBit;
+                return true;
+            }
+            whiteMen |= toBit;
+        } else if ((blackMen & fromBit) != 0) {
+            blackMen &= ~fromBit;
+            if ((toBit & BLACK_PROMOTION) != 0) {
+                blackKings |= toBit;
+                return true;
+            }
+            blackMen |= toBit;
+        } else if ((whiteKings & fromBit) != 0) {
+            whiteKings = (whiteKings & ~fromBit) | toBit;
+        } else if ((blackKings & fromBit) != 0) {
+            blackKings = (blackKings & ~fromBit) | toBit;
+        }
+        return false;
+    }
+
+    /**
+     * Remove qualquer peça da casa
+     */
+    public void remove(int sq) {
+        int mask = ~bit(sq);
+        whiteMen &= mask;
+        whiteKings &= mask;
+        blackMen &= mask;
+        blackKings &= mask;
+    }
+
+    // ==================== CONSULTAS DE MOVIMENTO ====================
+
+    /**
+     * Casa da peça inimiga capturada ao ir de {@code from} para {@code to},
+     * ou -1 se o movimento não for uma captura válida para a peça em {@code from}.
+     *
+     * Peões capturam saltando uma peça adjacente em qualquer diagonal; damas
+     * percorrem a diagonal livre, saltam exatamente uma peça inimiga e podem
+     * parar em qualquer casa vazia depois dela.
+     */
+    public int capturedSquare(int from, int to) {
+        int dir = direction(from, to);
+        if (dir < 0 || isEmpty(from) || !isEmpty(to)) return -1;
+
+        int own = isWhite(from) ? white() : black();
+        int enemy = isWhite(from) ? black() : white();
+
+        if (!isKing(from)) {
+            if (JUMP[from][dir] != to) return -1;
+            int middle = NEIGHBOR[from][dir];
+            return (enemy & bit(middle)) != 0 ? middle : -1;
+        }
+
+        int captured = -1;
+        for (int sq : RAY[from][dir]) {
+            if (sq == to) return captured;
+            int b = bit(sq);
+            if ((own & b) != 0) return -1;
+            if ((enemy & b) != 0) {
+                if (captured >= 0) return -1;
+                captured = sq;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Adiciona à lista todas as capturas disponíveis para a peça na casa
+     */
+    public void addCaptures(int sq, MoveList out) {
+        if (isEmpty(sq)) return;
+        boolean white = isWhite(sq);
+        int own = white ? white() : black();
+        int enemy = white ? black() : white();
+        int occupied = own | enemy;
+
+        for (int d = 0; d < DIRECTIONS; d++) {
+            if (isKing(sq)) {
+                int captured = -1;
+                for (int s : RAY[sq][d]) {
+                    int b = bit(s);
+                    if ((occupied & b) == 0) {
+                        if (captured >= 0) out.add(MoveList.encodeCapture(sq, s, captured));
+                    } else if ((own & b) != 0 || captured >= 0) {
+                        break;
+                    } else {
+                        captured = s;
+                    }
+                }
+            } else {
+                int landing = JUMP[sq][d];
+                int middle = NEIGHBOR[sq][d];
+                if (landing >= 0 && (enemy & bit(middle)) != 0 && (occupied & bit(landing)) == 0) {
+                    out.add(MoveList.encodeCapture(sq, landing, middle));
+                }
+            }
+        }
+    }
+
+    /**
+     * Verifica se a peça na casa tem alguma captura disponível
+     */
+    public boolean hasCapture(int sq) {
+        if (isEmpty(sq)) return false;
+        boolean white = isWhite(sq);
+        int own = white ? white() : black();
+        int enemy = white ? black() : white();
+        int occupied = own | enemy;
+
+        for (int d = 0; d < DIRECTIONS; d++) {
+            if (isKing(sq)) {
+                boolean enemyFound = false;
+                for (int s : RAY[sq][d]) {
+                    int b = bit(s);
+                    if ((occupied & b) == 0) {
+                        if (enemyFound) return true;
+                    } else if ((own & b) != 0 || enemyFound) {
+                        break;
+                    } else {
+                        enemyFound = true;
+                    }
+                }
+            } else {
+                int landing = JUMP[sq][d];
+                if (landing >= 0 && (enemy & bit(NEIGHBOR[sq][d])) != 0 && (occupied & bit(landing)) == 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Verifica se alguma peça da cor informada tem captura disponível
+     */
+    public boolean hasAnyCapture(boolean white) {
+        int remaining = pieces(white);
+        while (remaining != 0) {
+            int sq = Integer.numberOfTrailingZeros(remaining);
+            remaining &= remaining - 1;
+            if (hasCapture(sq)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Verifica se a peça tem um movimento simples para uma casa adjacente vazia
+     * (peões apenas para frente, damas em qualquer direção)
+     */
+    public boolean hasSimpleMove(int sq) {
+        if (isEmpty(sq)) return false;
+        int occupied = occupied();
+        int firstDir = 0;
+        int lastDir = DIRECTIONS - 1;
+        if (!isKing(sq)) {
+            firstDir = isWhite(sq) ? 0 : 2;
+            lastDir = firstDir + 1;
+        }
+        for (int d = firstDir; d <= lastDir; d++) {
+            int target = NEIGHBOR[sq][d];
+            if (target >= 0 && (occupied & bit(target)) == 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Verifica se a diagonal entre as duas casas está livre (extremos excluídos)
+     */
+    public boolean isPathClear(int from, int to) {
+        int dir = direction(from, to);
+        if (dir < 0) return false;
+        int occupied = occupied();
+        for (int sq : RAY[from][dir]) {
+            if (sq == to) return true;
+            if ((occupied & bit(sq)) != 0) return false;
+        }
+        return false;
+    }
+
+    // ==================== ADAPTADOR PARA STRINGS ====================
+
+    /**
+     * Peça na casa no formato usado pela interface: "⚪", "⚫", "⚪D", "⚫D" ou ""
+     */
+    public String pieceString(int sq) {
+        int b = bit(sq);
+        if ((whiteMen & b) != 0) return "⚪";
+        if ((whiteKings & b) != 0) return "⚪D";
+        if ((blackMen & b) != 0) return "⚫";
+        if ((blackKings & b) != 0) return "⚫D";
+        return "";
+    }
+
+    /**
+     * Converte para a matriz 8x8 de Strings usada pela interface
+     */
+    public String[][] toArray() {
+        String[][] board = new String[8][8];
+        for (int r = 0; r < 8; r++) {
+            for (int c = 0; c < 8; c++) {
+                int sq = SQUARE_AT[r][c];
+                board[r][c] = sq >= 0 ? pieceString(sq) : "";
+            }
+        }
+        return board;
+    }
+
+    /**
+     * Carrega a partir da matriz 8x8 de Strings. Peças em casas claras são ignoradas.
+     */
+    public void fromArray(String[][] board) {
+        clear();
+        for (int r = 0; r < 8; r++) {
+            for (int c = 0; c < 8; c++) {
+                int sq = SQUARE_AT[r][c];
+                String piece = board[r][c];
+                if (sq < 0 || piece == null || piece.isEmpty()) continue;
+                boolean white = piece.contains("⚪");
+                boolean king = piece.contains("D");
+                if (white) {
+                    if (king) whiteKings |= bit(sq); else whiteMen |= bit(sq);
+                } else {
+                    if (king) blackKings |= bit(sq); else blackMen |= bit(sq);
+                }
+            }
+        }
+    }
+
+    // ==================== NOTAÇÃO ====================
+
+    /**
+     * Notação compacta: 32 caracteres, um por casa escura (0 a 31, de cima para
+     * baixo): 'w' peão branco, 'W' dama branca, 'b' peão preto, 'B' dama preta,
+     * '.' casa vazia. A posição inicial é {@code bbbbbbbbbbbb........wwwwwwwwwwww}.
+     */
+    @Override
+    public String toString() {
+        char[] squares = new char[SQUARES];
+        for (int sq = 0; sq < SQUARES; sq++) {
+            int b = bit(sq);
+            if ((whiteMen & b) != 0) squares[sq] = 'w';
+            else if ((whiteKings & b) != 0) squares[sq] = 'W';
+            else if ((blackMen & b) != 0) squares[sq] = 'b';
+            else if ((blackKings & b) != 0) squares[sq] = 'B';
+            else squares[sq] = '.';
+        }
+        return new String(squares);
+    }
+
+    /**
+     * Lê a notação de {@link #toString()}
+     * @throws IllegalArgumentException se a notação é inválida
+     */
+    public static Bitboard parse(String squares) {
+        if (squares.length() != SQUARES) {
+            throw new IllegalArgumentException("Esperadas " + SQUARES + " casas: " + squares);
+        }
+        Bitboard board = new Bitboard();
+        for (int sq = 0; sq < SQUARES; sq++) {
+            int b = bit(sq);
+            switch (squares.charAt(sq)) {
+                case 'w': board.whiteMen |= b; break;
+                case 'W': board.whiteKings |= b; break;
+                case 'b': board.blackMen |= b; break;
+                case 'B': board.blackKings |= b; break;
+                case '.': break;
+                default: throw new IllegalArgumentException("Casa inválida '" + squares.charAt(sq) + "': " + squares);
+            }
+        }
+        return board;
+    }
+}
@@ -0,0 +1,410 @@
+package model;
+
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Análise em lote das partidas de um {@link GameArchive}: avaliação de cada
+ * lance pelo motor, detecção de erros graves e estatística de aberturas.
+ *
+ * Três estágios ligados por filas limitadas:
+ * - a thread principal lê o arquivo em sequência e copia cada partida (os
+ *   bytes dos lances) para a fila de trabalho; com a fila cheia ela
+ *   bloqueia, e a leitura anda no ritmo da análise;
+ * - N threads de análise reproduzem a partida no {@link GameState} e
+ *   buscam cada posição até a profundidade pedida, cada uma com a sua
+ *   {@link Search} e tabela de transposição;
+ * - uma thread de escrita grava as linhas de cada partida assim que ela
+ *   termina (na ordem em que terminam, não na ordem dos ids) e soma as
+ *   aberturas.
+ * A memória não depende do número de partidas: no máximo {@code queue}
+ * partidas em cada fila, mais a tabela de aberturas (uma entrada por
+ * sequência inicial distinta). Se a escrita falha (disco cheio, pipe
+ * fechado por um {@code | head}), ninguém mais esvaziaria as filas: a
+ * thread de escrita interrompe a análise e continua descartando resultados
+ * até as threads saírem, e a leitura desiste no próximo envio.
+ *
+ * A avaliação de uma posição é a da busca, do ponto de vista de quem joga.
+ * A perda de um lance é a avaliação antes dele menos o valor do lance
+ * jogado (o negativo da avaliação da posição seguinte); com perda de pelo
+ * menos {@code blunder} o lance é marcado como erro. Lances forçados nunca
+ * são erros, mas as posições forçadas também são buscadas: o erro costuma
+ * ser o lance anterior, que entrega uma peça a uma captura obrigatória.
+ *
+ * Saída (TSV): id da partida, número do lance (meio-lance, a partir de 1),
+ * lado (w/b), lance em PDN, avaliação antes, valor do lance jogado, perda
+ * e "erro" quando for o caso.
+ *
+ * Uso: java -cp bin model.GameAnalyzer pasta [--threads N] [--depth D] [--queue Q] [--hash MB]
+ *                                       [--blunder PERDA] [--blunders-only] [--openings LANCES]
+ *                                       [--limit PARTIDAS] [--out analise.tsv]
+ */
+public class GameAnalyzer {
+
+    // Fim da fila de trabalho (uma por thread de análise) e da fila de resultados
+    private static final Job NO_MORE_JOBS = new Job(-1, new byte[0], 0);
+    private static final Result NO_MORE_RESULTS = new Result(null, null, 0);
+
+    // Intervalo em que um envio bloqueado numa fila cheia confere se a escrita falhou
+    private static final long PUT_CHECK_MILLIS = 100;
+
+    private final int depth;
+    private final int blunder;
+    private final boolean blundersOnly;
+    private final int openingPlies;
+    private final int hashMb;
+    // Erro da thread de escrita; com ele ninguém mais consome os resultados
+    private volatile Throwable writeError;
+
+    private GameAnalyzer(int depth, int blunder, boolean blundersOnly, int openingPlies, int hashMb) {
+        this.depth = depth;
+        this.blunder = blunder;
+        this.blundersOnly = blundersOnly;
+        this.openingPlies = openingPlies;
+        this.hashMb = hashMb;
+    }
+
+    // Partida copiada do arquivo (o ArchivedGame da leitura é reutilizado)
+    private static final class Job {
+        final long id;
+        final byte[] moves;
+        final int outcome;
+
+        Job(long id, byte[] moves, int outcome) {
+            this.id = id;
+            this.moves = moves;
+            this.outcome = outcome;
+        }
+    }
+
+    private static final class Result {
+        final Job job;
+        final String lines;
+        final int blunders;
+
+        Result(Job job, String lines, int blunders) {
+            this.job = job;
+            this.lines = lines;
+            this.blunders = blunders;
+        }
+    }
+
+    // ==================== ANÁLISE ====================
+
+    /**
+     * Thread de análise: consome partidas até receber {@link #NO_MORE_JOBS}
+     */
+    private void analyse(BlockingQueue<Job> jobs, BlockingQueue<Result> results) {
+        TranspositionTable table = new TranspositionTable(hashMb);
+        Search search = new Search(table);
+        // Toda avaliação vem de uma busca na profundidade pedida, forçada ou não
+        search.setForcedShortcut(false);
+        MoveList moves = new MoveList();
+        try {
+            Job job;
+            while ((job = jobs.take()) != NO_MORE_JOBS) {
+                // Tabela limpa a cada partida: o resultado não depende de qual
+                // thread analisou quais partidas antes
+                table.clear();
+                if (!put(results, analyse(job, search, moves))) {
+                    return;
+                }
+            }
+            put(results, NO_MORE_RESULTS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * put que desiste se a escrita falhou: com a fila cheia, confere o erro
+     * a cada {@value #PUT_CHECK_MILLIS} ms em vez de esperar para sempre
+     * @return false se desistiu
+     */
+    private <T> boolean put(BlockingQueue<T> queue, T item) throws InterruptedException {
+        while (writeError == null) {
+            if (queue.offer(item, PUT_CHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Result analyse(Job job, Search search, MoveList moves) {
+        StringBuilder sb = new StringBuilder(job.moves.length * 32);
+        GameState state = new GameState();
+        int blunders = 0;
+        int before = evaluate(search, state);
+        for (int ply = 0; ply < job.moves.length; ply++) {
+            moves.clear();
+            state.getLegalMoves(moves);
+            int index = job.moves[ply] & 0xFF;
+            if (index >= moves.size()) {
+                sb.append("# partida ").append(job.id).append(": lance ").append(ply + 1).append(" inválido\n");
+                break;
+            }
+            boolean white = state.isWhiteTurn();
+            StringBuilder move = GameArchive.pdnMove(new StringBuilder(), moves, index);
+            boolean forced = moves.size() == 1;
+            state.executeMove(moves, index);
+            int after = evaluate(search, state);
+            int played = -after;
+            int loss = forced ? 0 : Math.max(0, before - played);
+            boolean isBlunder = loss >= blunder;
+            if (isBlunder) {
+                blunders++;
+            }
+            if (isBlunder || !blundersOnly) {
+                sb.append(job.id).append('\t').append(ply + 1).append('\t').append(white ? 'w' : 'b')
+                    .append('\t').append(move).append('\t').append(before).append('\t').append(played)
+                    .append('\t').append(loss).append(isBlunder ? "\terro\n" : "\t\n");
+            }
+            before = after;
+        }
+        return new Result(job, sb.toString(), blunders);
+    }
+
+    // Avaliação da posição para quem joga; sem lances, derrota
+    private int evaluate(Search search, GameState state) {
+        if (!search.search(state.getBitboard(), state.isWhiteTurn(), Search.NO_TIME_LIMIT, depth)) {
+            return -Search.WIN;
+        }
+        return search.getBestScore();
+    }
+
+    // ==================== ESCRITA ====================
+
+    /**
+     * Thread de escrita: grava os resultados até receber {@code workers}
+     * marcas de fim e soma as aberturas
+     */
+    private void write(BlockingQueue<Result> results, int workers, Writer out, Stats stats)
+            throws IOException, InterruptedException {
+        out.write("# partida\tlance\tlado\tlance_pdn\tavaliacao_antes\tvalor_jogado\tperda\terro\n");
+        int finished = 0;
+        while (finished < workers) {
+            Result result = results.take();
+            if (result == NO_MORE_RESULTS) {
+                finished++;
+                continue;
+            }
+            out.write(result.lines);
+            stats.add(result, openingPlies);
+        }
+        out.flush();
+    }
+
+    /**
+     * Falha da escrita: marca o erro (os envios nas filas desistem),
+     * interrompe a análise e descarta os resultados até as threads saírem,
+     * para nenhuma ficar presa numa fila cheia
+     */
+    private void abort(Throwable error, List<Thread> workers, BlockingQueue<Result> results) {
+        writeError = error;
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        for (Thread worker : workers) {
+            while (worker.isAlive()) {
+                results.clear();
+                try {
+                    worker.join(PUT_CHECK_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+        results.clear();
+    }
+
+    /**
+     * Contadores da escrita (lidos pelo relatório de progresso)
+     */
+    private static final class Stats {
+        volatile long games;
+        volatile long plies;
+        volatile long blunders;
+        // Primeiros lances (um byte cada) -> {partidas, brancas, pretas, empates}
+        final Map<Long, long[]> openings = new HashMap<>();
+
+        void add(Result result, int openingPlies) {
+            games++;
+            plies += result.job.moves.length;
+            blunders += result.blunders;
+            if (openingPlies > 0 && result.job.moves.length >= openingPlies) {
+                long key = 0;
+                for (int i = 0; i < openingPlies; i++) {
+                    key = key << 8 | (result.job.moves[i] & 0xFF);
+                }
+                long[] counts = openings.computeIfAbsent(key, k -> new long[4]);
+                counts[0]++;
+                int outcome = result.job.outcome & 3;
+                if (outcome != GameArchive.UNFINISHED) {
+                    counts[outcome]++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Sequência de abertura em PDN a partir da chave de {@link Stats#add}
+     */
+    private static String opening(long key, int plies) {
+        Bitboard board = new Bitboard();
+        board.setInitial();
+        MoveGenerator generator = new MoveGenerator();
+        MoveList moves = new MoveList();
+        StringBuilder sb = new StringBuilder();
+        boolean white = true;
+        for (int ply = 0; ply < plies; ply++) {
+            int index = (int) (key >>> (8 * (plies - 1 - ply))) & 0xFF;
+            moves.clear();
+            generator.generate(board, white, moves);
+            if (white) {
+                sb.append(ply / 2 + 1).append(". ");
+            }
+            GameArchive.pdnMove(sb, moves, index).append(' ');
+            MoveGenerator.apply(board, moves, index);
+            white = !white;
+        }
+        return sb.toString().trim();
+    }
+
+    // ==================== LINHA DE COMANDO ====================
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Uso: java -cp bin model.GameAnalyzer pasta [--threads N] [--depth D] [--queue Q]"
+                + " [--hash MB] [--blunder PERDA] [--blunders-only] [--openings LANCES] [--limit N] [--out analise.tsv]");
+            System.exit(2);
+        }
+        Path dir = Paths.get(args[0]);
+        int threads = Runtime.getRuntime().availableProcessors();
+        int depth = 6;
+        int queue = 256;
+        int hash = 4;
+        int blunder = 150;
+        boolean blundersOnly = false;
+        int openings = 6;
+        long limit = Long.MAX_VALUE;
+        Path out = null;
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--threads": threads = Integer.parseInt(args[++i]); break;
+                case "--depth": depth = Integer.parseInt(args[++i]); break;
+                case "--queue": queue = Integer.parseInt(args[++i]); break;
+                case "--hash": hash = Integer.parseInt(args[++i]); break;
+                case "--blunder": blunder = Integer.parseInt(args[++i]); break;
+                case "--blunders-only": blundersOnly = true; break;
+                case "--openings": openings = Math.min(8, Integer.parseInt(args[++i])); break;
+                case "--limit": limit = Long.parseLong(args[++i]); break;
+                case "--out": out = Paths.get(args[++i]); break;
+                default:
+                    System.err.println("[ANÁLISE] Opção desconhecida: " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        GameArchive archive = GameArchive.open(dir);
+        GameAnalyzer analyzer = new GameAnalyzer(depth, blunder, blundersOnly, openings, hash);
+        BlockingQueue<Job> jobs = new ArrayBlockingQueue<>(queue);
+        BlockingQueue<Result> results = new ArrayBlockingQueue<>(queue);
+        Stats stats = new Stats();
+        // Direto no descritor, sem o PrintStream do System.out, que engole os erros de escrita
+        Writer writer = new BufferedWriter(out == null
+            ? new OutputStreamWriter(new FileOutputStream(FileDescriptor.out), StandardCharsets.UTF_8)
+            : Files.newBufferedWriter(out, StandardCharsets.UTF_8), 1 << 16);
+
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> analyzer.analyse(jobs, results), "analise-" + t);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+        Thread writerThread = new Thread(() -> {
+            try {
+                analyzer.write(results, workers.size(), writer, stats);
+            } catch (IOException | InterruptedException e) {
+                analyzer.abort(e, workers, results);
+            }
+        }, "analise-escrita");
+        writerThread.start();
+
+        long start = System.nanoTime();
+        long[] lastReport = {start};
+        long[] read = {0};
+        long maxGames = limit;
+        archive.scan(game -> {
+            byte[] moves = new byte[game.getPlies()];
+            for (int i = 0; i < moves.length; i++) {
+                moves[i] = (byte) game.getMoveIndex(i);
+            }
+            try {
+                if (!analyzer.put(jobs, new Job(game.getId(), moves, game.getOutcome()))) {
+                    return false;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            read[0]++;
+            long now = System.nanoTime();
+            if (now - lastReport[0] >= 5_000_000_000L) {
+                lastReport[0] = now;
+                System.err.println(String.format("[ANÁLISE] %,d lidas, %,d analisadas (%.0f partidas/s), fila %d/%d",
+                    read[0], stats.games, stats.games / ((now - start) / 1e9), jobs.size(), jobs.size() + jobs.remainingCapacity()));
+            }
+            return read[0] < maxGames && analyzer.writeError == null;
+        });
+        for (int t = 0; t < workers.size(); t++) {
+            if (!analyzer.put(jobs, NO_MORE_JOBS)) {
+                break;
+            }
+        }
+        writerThread.join();
+        if (analyzer.writeError != null) {
+            System.err.println("[ANÁLISE] Erro na escrita: " + analyzer.writeError.getMessage());
+            System.exit(1);
+        }
+        if (out != null) {
+            writer.close();
+        }
+
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        System.err.println(String.format("[ANÁLISE] %,d partidas, %,d lances, %,d erros (perda >= %d) em %.1fs:"
+            + " %.1f partidas/s com %d threads, profundidade %d",
+            stats.games, stats.plies, stats.blunders, blunder, elapsed, stats.games / elapsed, threads, depth));
+        if (openings > 0) {
+            printOpenings(stats.openings, openings);
+        }
+    }
+
+    private static void printOpenings(Map<Long, long[]> openings, int plies) {
+        List<Map.Entry<Long, long[]>> sorted = new ArrayList<>(openings.entrySet());
+        sorted.sort((a, b) -> Long.compare(b.getValue()[0], a.getValue()[0]));
+        System.err.println("[ANÁLISE] Aberturas mais jogadas (" + plies + " lances, " + openings.size() + " distintas):");
+        for (int i = 0; i < Math.min(10, sorted.size()); i++) {
+            long[] c = sorted.get(i).getValue();
+            System.err.println(String.format("  %-48s %,8d partidas  brancas %5.1f%%  pretas %5.1f%%  empates %5.1f%%",
+                opening(sorted.get(i).getKey(), plies), c[0], 100.0 * c[GameArchive.WHITE_WINS] / c[0],
+                100.0 * c[GameArchive.BLACK_WINS] / c[0], 100.0 * c[GameArchive.DRAW] / c[0]));
+        }
+    }
+}
@@ -0,0 +1,489 @@
+package model;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Arquivo compacto de partidas terminadas, gravado por {@link GameArchiveWriter}.
+ *
+ * A pasta tem segmentos numerados, cada um com dois arquivos:
+ * - partidas-NNNNNN.dat: cabeçalho (8 bytes mágicos e o id da primeira
+ *   partida) e os registros em sequência: tamanho (2 bytes), fim da partida
+ *   em ms (8), resultado (1), nome das brancas e das pretas (1 byte de
+ *   tamanho + UTF-8), número de lances (2) e um byte por lance completo: o
+ *   índice do lance na lista do {@link MoveGenerator} para a posição;
+ * - partidas-NNNNNN.idx: uma entrada de 16 bytes por partida (id, posição
+ *   no .dat, lances, resultado), para achar uma partida sem ler o segmento.
+ *
+ * A leitura mapeia os segmentos em memória e percorre os registros em ordem
+ * com um único {@link ArchivedGame} reutilizado, que lê os campos direto do
+ * buffer mapeado: nada é copiado para o heap até o leitor pedir (nomes,
+ * reprodução no {@link GameState}, PDN).
+ *
+ * Uso: java -cp bin model.GameArchive pasta                 (resumo e velocidade de leitura)
+ *      java -cp bin model.GameArchive pasta --replay        (reproduz todas no GameState)
+ *      java -cp bin model.GameArchive pasta --pdn [ID] [--out partidas.pdn]
+ */
+public class GameArchive {
+
+    /** Resultado desconhecido (partida interrompida) */
+    public static final int UNFINISHED = 0;
+    public static final int WHITE_WINS = 1;
+    public static final int BLACK_WINS = 2;
+    public static final int DRAW = 3;
+    /** Combinado com o resultado: o perdedor desconectou ou não voltou a tempo */
+    public static final int ABANDONED = 4;
+
+    public static final long DEFAULT_SEGMENT_BYTES = 64L << 20;
+
+    static final byte[] DATA_MAGIC = {'D', 'A', 'M', 'A', 'S', 'A', 'R', 'Q'};
+    static final byte[] INDEX_MAGIC = {'D', 'A', 'M', 'A', 'S', 'I', 'D', 'X'};
+    static final int DATA_HEADER = DATA_MAGIC.length + 8;
+    static final int INDEX_HEADER = INDEX_MAGIC.length;
+    static final int INDEX_ENTRY = 16;
+
+    private static final Pattern SEGMENT = Pattern.compile("partidas-(\\d+)\\.dat");
+
+    private final Path dir;
+    private final List<Integer> segments;
+
+    private GameArchive(Path dir, List<Integer> segments) {
+        this.dir = dir;
+        this.segments = segments;
+    }
+
+    public static GameArchive open(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            throw new IOException("Arquivo de partidas não encontrado: " + dir);
+        }
+        return new GameArchive(dir, listSegments(dir));
+    }
+
+    static String dataName(int segment) {
+        return String.format("partidas-%06d.dat", segment);
+    }
+
+    static String indexName(int segment) {
+        return String.format("partidas-%06d.idx", segment);
+    }
+
+    /**
+     * Números dos segmentos da pasta, em ordem
+     */
+    static List<Integer> listSegments(Path dir) throws IOException {
+        List<Integer> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "partidas-*.dat")) {
+            for (Path file : files) {
+                Matcher m = SEGMENT.matcher(file.getFileName().toString());
+                if (m.matches()) {
+                    segments.add(Integer.parseInt(m.group(1)));
+                }
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    /**
+     * Resultado a partir da mensagem de {@link GameState#checkGameOver()}
+     */
+    public static int outcomeOf(String gameOverMessage) {
+        if (gameOverMessage == null) {
+            return UNFINISHED;
+        }
+        if (gameOverMessage.startsWith("Brancas")) {
+            return WHITE_WINS;
+        }
+        if (gameOverMessage.startsWith("Pretas")) {
+            return BLACK_WINS;
+        }
+        return gameOverMessage.startsWith("Empate") ? DRAW : UNFINISHED;
+    }
+
+    /**
+     * Lance em PDN ("22-18", "19x10x1"): casas de 1 a 32 a partir do canto
+     * superior esquerdo, capturas com todas as aterrissagens
+     */
+    public static StringBuilder pdnMove(StringBuilder sb, MoveList moves, int index) {
+        int move = moves.get(index);
+        char separator = MoveList.isCapture(move) ? 'x' : '-';
+        sb.append(MoveList.from(move) + 1);
+        for (int hop = 0; hop < MoveList.hops(move); hop++) {
+            sb.append(separator).append(MoveList.landing(moves.path(index), hop) + 1);
+        }
+        return sb;
+    }
+
+    // ==================== LEITURA ====================
+
+    /**
+     * Recebe as partidas de {@link #scan}, na ordem dos ids. O objeto é
+     * reutilizado: não guarde a referência depois de retornar.
+     */
+    public interface Visitor {
+        /** @return false para parar a leitura */
+        boolean visit(ArchivedGame game);
+    }
+
+    /**
+     * Percorre todas as partidas em ordem
+     * @return número de partidas visitadas
+     */
+    public long scan(Visitor visitor) throws IOException {
+        ArchivedGame game = new ArchivedGame();
+        long visited = 0;
+        for (int segment : segments) {
+            MappedByteBuffer data = map(dir.resolve(dataName(segment)));
+            checkMagic(data, DATA_MAGIC, segment);
+            long id = data.getLong(DATA_MAGIC.length);
+            int offset = DATA_HEADER;
+            while (offset + 2 <= data.limit()) {
+                int end = offset + 2 + (data.getShort(offset) & 0xFFFF);
+                if (end > data.limit()) {
+                    // Registro sem índice no fim do último segmento (queda na gravação)
+                    break;
+                }
+                game.set(data, offset, id++);
+                visited++;
+                if (!visitor.visit(game)) {
+                    return visited;
+                }
+                offset = end;
+            }
+        }
+        return visited;
+    }
+
+    /**
+     * Procura a partida pelo id no índice dos segmentos
+     * @return a partida (objeto novo) ou null se não existe
+     */
+    public ArchivedGame find(long id) throws IOException {
+        for (int i = segments.size() - 1; i >= 0; i--) {
+            int segment = segments.get(i);
+            MappedByteBuffer data = map(dir.resolve(dataName(segment)));
+            checkMagic(data, DATA_MAGIC, segment);
+            long first = data.getLong(DATA_MAGIC.length);
+            if (id < first) {
+                continue;
+            }
+            MappedByteBuffer index = map(dir.resolve(indexName(segment)));
+            checkMagic(index, INDEX_MAGIC, segment);
+            long entry = INDEX_HEADER + (id - first) * INDEX_ENTRY;
+            if (entry + INDEX_ENTRY > index.limit() || index.getLong((int) entry) != id) {
+                return null;
+            }
+            ArchivedGame game = new ArchivedGame();
+            game.set(data, index.getInt((int) entry + 8), id);
+            return game;
+        }
+        return null;
+    }
+
+    private static MappedByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Segmento maior que 2 GB: " + file);
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private static void checkMagic(ByteBuffer buffer, byte[] magic, int segment) throws IOException {
+        for (int i = 0; i < magic.length; i++) {
+            if (i >= buffer.limit() || buffer.get(i) != magic[i]) {
+                throw new IOException("Segmento " + segment + " não pertence a um arquivo de partidas");
+            }
+        }
+    }
+
+    /**
+     * Uma partida do arquivo, lida direto do segmento mapeado
+     */
+    public static final class ArchivedGame {
+        private ByteBuffer data;
+        private int offset;
+        private long id;
+        private int movesOffset;
+        private int plies;
+        private final MoveList moves = new MoveList();
+
+        void set(ByteBuffer data, int offset, long id) {
+            this.data = data;
+            this.offset = offset;
+            this.id = id;
+            int whiteLength = data.get(offset + 11) & 0xFF;
+            int blackLength = data.get(offset + 12 + whiteLength) & 0xFF;
+            int pliesOffset = offset + 13 + whiteLength + blackLength;
+            plies = data.getShort(pliesOffset) & 0xFFFF;
+            movesOffset = pliesOffset + 2;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public long getEndMillis() {
+            return data.getLong(offset + 2);
+        }
+
+        /** {@link #WHITE_WINS}, {@link #BLACK_WINS}, {@link #DRAW} ou {@link #UNFINISHED} */
+        public int getOutcome() {
+            return data.get(offset + 10) & 3;
+        }
+
+        public boolean isAbandoned() {
+            return (data.get(offset + 10) & ABANDONED) != 0;
+        }
+
+        public String getWhite() {
+            return string(offset + 11);
+        }
+
+        public String getBlack() {
+            return string(offset + 12 + (data.get(offset + 11) & 0xFF));
+        }
+
+        private String string(int at) {
+            byte[] bytes = new byte[data.get(at) & 0xFF];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = data.get(at + 1 + i);
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        /** Número de lances completos */
+        public int getPlies() {
+            return plies;
+        }
+
+        /**
+         * Índice do lance {@code ply} na lista de {@link GameState#getLegalMoves}
+         * (a mesma ordem do {@link MoveGenerator}) para a posição antes dele
+         */
+        public int getMoveIndex(int ply) {
+            return data.get(movesOffset + ply) & 0xFF;
+        }
+
+        /**
+         * Reproduz os primeiros {@code plies} lances no estado (que deve estar
+         * na posição inicial)
+         * @return false se algum lance não existe na posição (arquivo corrompido)
+         */
+        public boolean replay(GameState state, int plies) {
+            for (int ply = 0; ply < plies; ply++) {
+                moves.clear();
+                state.getLegalMoves(moves);
+                int index = getMoveIndex(ply);
+                if (index >= moves.size() || !state.executeMove(moves, index)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public boolean replay(GameState state) {
+            return replay(state, plies);
+        }
+
+        /**
+         * A partida em PDN: casas numeradas de 1 a 32 a partir do canto
+         * superior esquerdo (lado das pretas), brancas começando, capturas
+         * com todas as casas de aterrissagem ("22x15x6")
+         */
+        public String toPdn() {
+            StringBuilder sb = new StringBuilder(256 + plies * 8);
+            String result = pdnResult();
+            tag(sb, "Event", "Damas online");
+            tag(sb, "Site", "?");
+            tag(sb, "Date", new SimpleDateFormat("yyyy.MM.dd").format(new Date(getEndMillis())));
+            tag(sb, "Round", "-");
+            tag(sb, "White", getWhite());
+            tag(sb, "Black", getBlack());
+            tag(sb, "Result", result);
+            tag(sb, "FEN", "W:W21,22,23,24,25,26,27,28,29,30,31,32:B1,2,3,4,5,6,7,8,9,10,11,12");
+            tag(sb, "ArchiveId", Long.toString(id));
+            if (isAbandoned()) {
+                tag(sb, "Termination", "abandoned");
+            }
+            sb.append('\n');
+
+            Bitboard board = new Bitboard();
+            board.setInitial();
+            MoveGenerator generator = new MoveGenerator();
+            boolean white = true;
+            int lineStart = sb.length();
+            for (int ply = 0; ply < plies; ply++) {
+                moves.clear();
+                generator.generate(board, white, moves);
+                int index = getMoveIndex(ply);
+                if (index >= moves.size()) {
+                    break;
+                }
+                StringBuilder token = new StringBuilder();
+                if (white) {
+                    token.append(ply / 2 + 1).append(". ");
+                }
+                pdnMove(token, moves, index);
+                lineStart = append(sb, token, lineStart);
+                MoveGenerator.apply(board, moves, index);
+                white = !white;
+            }
+            append(sb, new StringBuilder(result), lineStart);
+            return sb.append("\n\n").toString();
+        }
+
+        private String pdnResult() {
+            switch (getOutcome()) {
+                case WHITE_WINS: return "1-0";
+                case BLACK_WINS: return "0-1";
+                case DRAW: return "1/2-1/2";
+                default: return "*";
+            }
+        }
+
+        private static void tag(StringBuilder sb, String name, String value) {
+            sb.append('[').append(name).append(" \"")
+                .append(value.replace("\\", "\\\\").replace("\"", "\\\"")).append("\"]\n");
+        }
+
+        // Linhas de no máximo 80 caracteres; devolve o início da linha atual
+        private static int append(StringBuilder sb, CharSequence token, int lineStart) {
+            if (sb.length() > lineStart) {
+                if (sb.length() - lineStart + 1 + token.length() > 80) {
+                    sb.append('\n');
+                    lineStart = sb.length();
+                } else {
+                    sb.append(' ');
+                }
+            }
+            sb.append(token);
+            return lineStart;
+        }
+    }
+
+    // ==================== LINHA DE COMANDO ====================
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Uso: java -cp bin model.GameArchive pasta [--replay | --pdn [ID] [--out arquivo.pdn]]");
+            System.exit(2);
+        }
+        GameArchive archive = open(Paths.get(args[0]));
+        boolean replay = false;
+        boolean pdn = false;
+        long only = -1;
+        Path out = null;
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--replay": replay = true; break;
+                case "--pdn":
+                    pdn = true;
+                    if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                        only = Long.parseLong(args[++i]);
+                    }
+                    break;
+                case "--out": out = Paths.get(args[++i]); break;
+                default:
+                    System.err.println("[ARQUIVO] Opção desconhecida: " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        if (pdn) {
+            exportPdn(archive, only, out);
+        } else {
+            summarize(archive, replay);
+        }
+    }
+
+    private static void exportPdn(GameArchive archive, long only, Path out) throws IOException {
+        Writer writer = new BufferedWriter(out == null
+            ? new OutputStreamWriter(System.out, StandardCharsets.UTF_8)
+            : Files.newBufferedWriter(out, StandardCharsets.UTF_8));
+        try {
+            if (only >= 0) {
+                ArchivedGame game = archive.find(only);
+                if (game == null) {
+                    System.err.println("[ARQUIVO] Partida não encontrada: " + only);
+                    System.exit(1);
+                }
+                writer.write(game.toPdn());
+            } else {
+                long[] count = {0};
+                archive.scan(game -> {
+                    try {
+                        writer.write(game.toPdn());
+                    } catch (IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    count[0]++;
+                    return true;
+                });
+                if (out != null) {
+                    System.out.println("[ARQUIVO] " + count[0] + " partidas exportadas para " + out);
+                }
+            }
+        } finally {
+            writer.flush();
+            if (out != null) {
+                writer.close();
+            }
+        }
+    }
+
+    private static void summarize(GameArchive archive, boolean replay) throws IOException {
+        long[] plies = {0};
+        long[] outcomes = new long[4];
+        long[] abandoned = {0};
+        long[] invalid = {0};
+        long start = System.nanoTime();
+        long games = archive.scan(game -> {
+            plies[0] += game.getPlies();
+            outcomes[game.getOutcome()]++;
+            if (game.isAbandoned()) {
+                abandoned[0]++;
+            }
+            if (replay) {
+                if (!game.replay(new GameState())) {
+                    invalid[0]++;
+                }
+            }
+            return true;
+        });
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        long bytes = 0;
+        for (int segment : archive.segments) {
+            bytes += Files.size(archive.dir.resolve(dataName(segment)));
+        }
+        System.out.println(String.format("[ARQUIVO] %,d partidas em %d segmentos, %,d lances (1 byte cada), "
+            + "%,d bytes: %.1f por partida com nomes e resultado",
+            games, archive.segments.size(), plies[0], bytes, games == 0 ? 0.0 : (double) bytes / games));
+        System.out.println(String.format("[ARQUIVO] Brancas %,d  Pretas %,d  Empates %,d  Sem resultado %,d  (abandonos %,d)",
+            outcomes[WHITE_WINS], outcomes[BLACK_WINS], outcomes[DRAW], outcomes[UNFINISHED], abandoned[0]));
+        System.out.println(String.format("[ARQUIVO] %s em %.2fs: %,.0f partidas/s, %,.0f lances/s",
+            replay ? "Reprodução no GameState" : "Leitura", elapsed, games / elapsed, plies[0] / elapsed));
+        if (invalid[0] > 0) {
+            System.err.println("[ARQUIVO] " + invalid[0] + " partidas com lances inválidos");
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package model;
+
+import log.Log;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Grava partidas terminadas no {@link GameArchive}.
+ *
+ * Os saltos recebidos (um por MOVE do protocolo) são agrupados em lances
+ * completos e cada lance vira um byte: o seu índice na lista do
+ * {@link MoveGenerator} para a posição, a mesma que o leitor gera ao
+ * reproduzir. Cada partida é acrescentada ao segmento atual e indexada;
+ * quando o segmento passa do tamanho pedido, a próxima partida abre outro.
+ *
+ * Não há fsync por partida: uma queda do processo pode perder a última
+ * partida, e {@link #open} descarta um registro sem entrada no índice.
+ * Pode ser usado por várias threads.
+ *
+ * Uso (arquivo de teste): java -cp bin model.GameArchiveWriter --random N [--out pasta]
+ *                                                             [--segment MB] [--seed S]
+ */
+public class GameArchiveWriter implements Closeable {
+
+    private final Path dir;
+    private final long segmentBytes;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Bitboard board = new Bitboard();
+    private final MoveGenerator generator = new MoveGenerator();
+    private final MoveList moves = new MoveList();
+    private byte[] plies = new byte[256];
+    private int segment;
+    private FileChannel data;
+    private FileChannel index;
+    private long nextId;
+
+    private GameArchiveWriter(Path dir, long segmentBytes) {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+    }
+
+    /**
+     * Abre (ou cria) o arquivo na pasta e continua no último segmento
+     * @param segmentBytes tamanho a partir do qual um novo segmento é aberto
+     */
+    public static GameArchiveWriter open(Path dir, long segmentBytes) throws IOException {
+        Files.createDirectories(dir);
+        GameArchiveWriter writer = new GameArchiveWriter(dir, segmentBytes);
+        List<Integer> segments = GameArchive.listSegments(dir);
+        if (segments.isEmpty()) {
+            writer.openSegment(1, 0);
+        } else {
+            writer.reopen(segments.get(segments.size() - 1));
+        }
+        return writer;
+    }
+
+    /**
+     * Salto de um jogador como recebido no MOVE, empacotado para {@link #append}
+     */
+    public static int hop(int r1, int c1, int r2, int c2) {
+        return Bitboard.square(r1, c1) << 5 | Bitboard.square(r2, c2);
+    }
+
+    /**
+     * Acrescenta uma partida
+     * @param hops    saltos aceitos na ordem, empacotados por {@link #hop}; um
+     *                lance incompleto no fim (abandono no meio de uma captura) é ignorado
+     * @param outcome resultado ({@link GameArchive#WHITE_WINS}...), com
+     *                {@link GameArchive#ABANDONED} se terminou por desconexão
+     * @return o id da partida no arquivo
+     * @throws IllegalArgumentException se os saltos não formam uma partida legal
+     */
+    public long append(String white, String black, int outcome, int[] hops, int hopCount, long endMillis)
+            throws IOException {
+        lock.lock();
+        try {
+            int count = encode(hops, hopCount);
+            byte[] whiteName = name(white);
+            byte[] blackName = name(black);
+            int length = 8 + 1 + 1 + whiteName.length + 1 + blackName.length + 2 + count;
+            ByteBuffer record = ByteBuffer.allocate(2 + length);
+            record.putShort((short) length).putLong(endMillis).put((byte) outcome)
+                .put((byte) whiteName.length).put(whiteName)
+                .put((byte) blackName.length).put(blackName)
+                .putShort((short) count).put(plies, 0, count);
+            record.flip();
+
+            if (data.size() > GameArchive.DATA_HEADER && data.size() + record.remaining() > segmentBytes) {
+                close(data, index);
+                openSegment(segment + 1, nextId);
+            }
+            long offset = data.size();
+            writeFully(data, record, offset);
+            ByteBuffer entry = ByteBuffer.allocate(GameArchive.INDEX_ENTRY);
+            entry.putLong(nextId).putInt((int) offset).putShort((short) count).put((byte) outcome).put((byte) 0);
+            entry.flip();
+            writeFully(index, entry, index.size());
+            return nextId++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Converte os saltos em lances completos, um byte cada, em {@code plies}
+     * @return número de lances
+     */
+    private int encode(int[] hops, int hopCount) {
+        board.setInitial();
+        boolean white = true;
+        int count = 0;
+        int hop = 0;
+        while (hop < hopCount) {
+            moves.clear();
+            generator.generate(board, white, moves);
+            int from = hops[hop] >>> 5;
+            int at = from;
+            long path = 0L;
+            int index;
+            int k = 0;
+            do {
+                if (hop + k == hopCount) {
+                    // Lance incompleto no fim
+                    return count;
+                }
+                int to = hops[hop + k] & 0x1F;
+                index = (hops[hop + k] >>> 5) == at ? moves.findHop(from, path, k, to) : -1;
+                if (index < 0) {
+                    throw new IllegalArgumentException("Salto " + (hop + k + 1) + " ilegal");
+                }
+                path = MoveList.withLanding(path, k, to);
+                at = to;
+                k++;
+            } while (k < MoveList.hops(moves.get(index)));
+            if (index > 0xFF) {
+                throw new IllegalArgumentException("Lance " + (count + 1) + " não cabe em um byte");
+            }
+            hop += k;
+            if (count == plies.length) {
+                plies = Arrays.copyOf(plies, count * 2);
+            }
+            plies[count++] = (byte) index;
+            MoveGenerator.apply(board, moves, index);
+            white = !white;
+        }
+        return count;
+    }
+
+    private static byte[] name(String name) {
+        byte[] bytes = (name == null ? "" : name).getBytes(StandardCharsets.UTF_8);
+        return bytes.length > 0xFF ? Arrays.copyOf(bytes, 0xFF) : bytes;
+    }
+
+    private void openSegment(int number, long firstId) throws IOException {
+        segment = number;
+        nextId = firstId;
+        data = FileChannel.open(dir.resolve(GameArchive.dataName(number)), StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        index = FileChannel.open(dir.resolve(GameArchive.indexName(number)), StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(GameArchive.DATA_HEADER);
+        header.put(GameArchive.DATA_MAGIC).putLong(firstId);
+        header.flip();
+        writeFully(data, header, 0);
+        header = ByteBuffer.allocate(GameArchive.INDEX_HEADER);
+        header.put(GameArchive.INDEX_MAGIC);
+        header.flip();
+        writeFully(index, header, 0);
+    }
+
+    /**
+     * Continua o último segmento, descartando o que não chegou ao índice
+     */
+    private void reopen(int number) throws IOException {
+        segment = number;
+        data = FileChannel.open(dir.resolve(GameArchive.dataName(number)),
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        index = FileChannel.open(dir.resolve(GameArchive.indexName(number)), StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(GameArchive.DATA_HEADER);
+        readFully(data, header, 0);
+        long firstId = header.getLong(GameArchive.DATA_MAGIC.length);
+        long entries = Math.max(0, (index.size() - GameArchive.INDEX_HEADER) / GameArchive.INDEX_ENTRY);
+        long end = GameArchive.DATA_HEADER;
+        if (entries > 0) {
+            ByteBuffer entry = ByteBuffer.allocate(GameArchive.INDEX_ENTRY);
+            readFully(index, entry, GameArchive.INDEX_HEADER + (entries - 1) * GameArchive.INDEX_ENTRY);
+            long offset = entry.getInt(8) & 0xFFFFFFFFL;
+            ByteBuffer length = ByteBuffer.allocate(2);
+            readFully(data, length, offset);
+            end = offset + 2 + (length.getShort(0) & 0xFFFF);
+        }
+        if (data.size() > end) {
+            Log.warn("[ARQUIVO] {} bytes sem índice descartados no segmento {}", data.size() - end, number);
+        }
+        data.truncate(end);
+        index.truncate(GameArchive.INDEX_HEADER + entries * GameArchive.INDEX_ENTRY);
+        nextId = firstId + entries;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Segmento do arquivo de partidas truncado");
+            }
+        }
+    }
+
+    private static void close(FileChannel data, FileChannel index) throws IOException {
+        data.force(true);
+        index.force(true);
+        data.close();
+        index.close();
+    }
+
+    /**
+     * Partidas gravadas até agora (o próximo id)
+     */
+    public long size() {
+        lock.lock();
+        try {
+            return nextId;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            close(data, index);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ==================== LINHA DE COMANDO ====================
+
+    /**
+     * Grava partidas aleatórias, para testar a leitura em volume
+     */
+    public static void main(String[] args) throws IOException {
+        int games = 0;
+        Path dir = Paths.get("partidas");
+        long segment = GameArchive.DEFAULT_SEGMENT_BYTES;
+        long seed = 1;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--random": games = Integer.parseInt(args[++i]); break;
+                case "--out": dir = Paths.get(args[++i]); break;
+                case "--segment": segment = Long.parseLong(args[++i]) << 20; break;
+                case "--seed": seed = Long.parseLong(args[++i]); break;
+                default:
+                    System.err.println("[ARQUIVO] Opção desconhecida: " + args[i]);
+                    System.exit(2);
+            }
+        }
+        if (games <= 0) {
+            System.err.println("Uso: java -cp bin model.GameArchiveWriter --random N [--out pasta] [--segment MB] [--seed S]");
+            System.exit(2);
+        }
+
+        Random random = new Random(seed);
+        Bitboard board = new Bitboard();
+        MoveGenerator generator = new MoveGenerator();
+        MoveList legal = new MoveList();
+        int[] hops = new int[200 * MoveList.MAX_HOPS];
+        long start = System.nanoTime();
+        try (GameArchiveWriter writer = open(dir, segment)) {
+            for (int g = 0; g < games; g++) {
+                board.setInitial();
+                boolean white = true;
+                int count = 0;
+                int outcome = GameArchive.DRAW;
+                for (int ply = 0; ply < 200; ply++) {
+                    legal.clear();
+                    generator.generate(board, white, legal);
+                    if (legal.isEmpty()) {
+                        outcome = white ? GameArchive.BLACK_WINS : GameArchive.WHITE_WINS;
+                        break;
+                    }
+                    int index = random.nextInt(legal.size());
+                    int move = legal.get(index);
+                    int from = MoveList.from(move);
+                    for (int h = 0; h < MoveList.hops(move); h++) {
+                        int to = MoveList.landing(legal.path(index), h);
+                        hops[count++] = from << 5 | to;
+                        from = to;
+                    }
+                    MoveGenerator.apply(board, legal, index);
+                    white = !white;
+                }
+                writer.append("Aleatório " + (2 * g + 1), "Aleatório " + (2 * g + 2), outcome, hops, count,
+                    System.currentTimeMillis());
+            }
+            System.out.println(String.format("[ARQUIVO] %d partidas gravadas em %s (%.1fs)",
+                games, dir, (System.nanoTime() - start) / 1e9));
+        }
+    }
+}
@@ -1,17 +1,38 @@
 package model;
 
-import java.util.ArrayList;
-import java.util.List;
+import log.Log;
+
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Representa o estado do jogo de damas
  */
 public class GameState {
-    private String[][] board;
+    private final Bitboard board;
     private boolean whiteTurn;
+    // Chave de Zobrist da posição, atualizada incrementalmente a cada alteração
+    private long zobristKey;
+    
+    // Movimentos legais completos do turno atual, gerados uma vez por turno
+    private final MoveGenerator generator = new MoveGenerator();
+    private final MoveList legalMoves = new MoveList();
+    private boolean legalMovesValid;
+    
+    // Captura múltipla em andamento: casa de origem, casa atual e saltos já feitos
+    private int chainOrigin;
+    private int chainSquare;
+    private int chainHops;
+    private long chainPath;
+    
+    // Tabela de finais para adjudicar partidas já decididas (opcional)
+    private Tablebase tablebase;
+    
+    // Lock explícito em vez de synchronized: threads virtuais não ficam presas
+    // à thread carregadora enquanto aguardam a vez de validar um movimento
+    private final ReentrantLock lock = new ReentrantLock();
     
     public GameState() {
-        board = new String[8][8];
+        board = new Bitboard();
         whiteTurn = true;
         initializeBoard();
     }
@@ -22,329 +43,261 @@ public class GameState {
      * Apenas nas casas escuras (onde r+c é ímpar)
      */
     private void initializeBoard() {
-        for (int r = 0; r < 8; r++) {
-            for (int c = 0; c < 8; c++) {
-                board[r][c] = "";
-                // Casas escuras são onde (r + c) é ímpar
-                if ((r + c) % 2 == 1) {
-                    if (r < 3) {
-                        board[r][c] = "⚫"; // Pretas no topo
-                    } else if (r > 4) {
-                        board[r][c] = "⚪"; // Brancas no fundo
-                    }
-                }
-            }
-        }
+        board.setInitial();
+        zobristKey = Zobrist.hash(board, whiteTurn);
     }
     
     /**
      * Valida e executa um movimento
      * @return true se o movimento foi válido e executado
      */
-    public synchronized boolean executeMove(int r1, int c1, int r2, int c2) {
-        String piece = board[r1][c1];
-        if (piece.isEmpty()) {
-            System.out.println("[GAMESTATE] Movimento inválido: origem vazia");
+    public boolean executeMove(int r1, int c1, int r2, int c2) {
+        lock.lock();
+        try {
+            return validateAndExecute(r1, c1, r2, c2);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private boolean validateAndExecute(int r1, int c1, int r2, int c2) {
+        if (!Bitboard.isInside(r1, c1) || !Bitboard.isInside(r2, c2)) {
+            Log.debug("[GAMESTATE] Movimento inválido: fora do tabuleiro");
+            return false;
+        }
+        
+        int from = Bitboard.square(r1, c1);
+        if (from < 0 || board.isEmpty(from)) {
+            Log.debug("[GAMESTATE] Movimento inválido: origem vazia");
             return false;
         }
         
-        boolean isWhite = piece.contains("⚪");
+        boolean isWhite = board.isWhite(from);
         if (isWhite != whiteTurn) {
-            System.out.println("[GAMESTATE] Movimento inválido: não é a vez de " + (isWhite ? "BRANCO" : "PRETO") + 
-                ", vez atual: " + (whiteTurn ? "BRANCO" : "PRETO"));
+            Log.debug("[GAMESTATE] Movimento inválido: não é a vez de {}, vez atual: {}",
+                isWhite ? "BRANCO" : "PRETO", whiteTurn ? "BRANCO" : "PRETO");
             return false;
         }
         
         int dr = r2 - r1;
         int dc = c2 - c1;
         if (Math.abs(dr) != Math.abs(dc)) {
-            System.out.println("[GAMESTATE] Movimento inválido: não é diagonal (dr=" + dr + ", dc=" + dc + ")");
+            Log.debug("[GAMESTATE] Movimento inválido: não é diagonal (dr={}, dc={})", dr, dc);
             return false;
         }
+        int to = Bitboard.square(r2, c2);
         
-        boolean isKing = piece.contains("D");
-        System.out.println("[GAMESTATE] Validando movimento: peça=" + piece + " de (" + r1 + "," + c1 + 
-            ") para (" + r2 + "," + c2 + ") | isKing=" + isKing + " | isWhite=" + isWhite + 
-            " | dr=" + dr + " | dc=" + dc + ")");
-        
-        // Verifica se há capturas obrigatórias
-        List<int[]> allCaptures = findAllCaptures(whiteTurn);
-        boolean mustCapture = !allCaptures.isEmpty();
-        
-        // Movimento de captura
-        if (Math.abs(dr) >= 2) {
-            List<int[]> capturesFromPiece = getCaptureMovements(piece, r1, c1);
-            boolean validCapture = false;
-            for (int[] move : capturesFromPiece) {
-                if (move[0] == r2 && move[1] == c2) {
-                    validCapture = true;
-                    break;
-                }
-            }
-            
-            if (validCapture) {
-                if (performCapture(r1, c1, r2, c2)) {
-                    // Verifica capturas sequenciais
-                    List<int[]> sequentialCaptures = getCaptureMovements(board[r2][c2], r2, c2);
-                    if (sequentialCaptures.isEmpty()) {
-                        whiteTurn = !whiteTurn;
-                    }
-                    return true;
-                }
-            }
-            return false;
+        boolean isKing = board.isKing(from);
+        if (Log.isDebugEnabled()) {
+            Log.debug("[GAMESTATE] Validando movimento: peça={} de ({},{}) para ({},{}) | isKing={} | isWhite={} | dr={} | dc={}",
+                board.pieceString(from), r1, c1, r2, c2, isKing, isWhite, dr, dc);
         }
         
-        // Movimento simples (não-captura)
-        if (mustCapture) {
-            System.out.println("[GAMESTATE] Movimento inválido: captura obrigatória disponível");
-            return false; // Se há captura disponível, movimento simples não é permitido
+        // Em uma captura múltipla, apenas a peça que está capturando pode continuar
+        if (chainHops > 0 && from != chainSquare) {
+            Log.debug("[GAMESTATE] Movimento inválido: captura múltipla em andamento");
+            return false;
         }
         
-        if (!board[r2][c2].isEmpty()) {
-            System.out.println("[GAMESTATE] Movimento inválido: destino ocupado");
-            return false; // Destino deve estar vazio
+        // Procura o próximo salto entre os movimentos legais completos do turno
+        MoveList moves = currentLegalMoves();
+        int origin = chainHops > 0 ? chainOrigin : from;
+        int index = moves.findHop(origin, chainPath, chainHops, to);
+        if (index < 0) {
+            boolean mustCapture = !moves.isEmpty() && MoveList.isCapture(moves.get(0));
+            Log.debug("[GAMESTATE] Movimento inválido: {}", mustCapture && Math.abs(dr) < 2
+                ? "captura obrigatória disponível" : "nenhuma condição satisfeita");
+            return false;
         }
         
-        if (!isKing) {
-            // Peça normal: move 1 casa diagonalmente
-            // Brancas sobem (dr < 0), Pretas descem (dr > 0)
-            System.out.println("[GAMESTATE] Peça normal: dr=" + dr + ", dc=" + dc + 
-                " | Direção correta? " + ((isWhite && dr < 0) || (!isWhite && dr > 0)));
-            if (Math.abs(dr) == 1 && Math.abs(dc) == 1 && ((isWhite && dr < 0) || (!isWhite && dr > 0))) {
-                System.out.println("[GAMESTATE] Movimento simples VÁLIDO!");
-                performSimpleMove(r1, c1, r2, c2);
-                whiteTurn = !whiteTurn;
-                return true;
-            }
+        int move = moves.get(index);
+        if (MoveList.isCapture(move)) {
+            performCapture(from, to);
         } else {
-            // Dama: move qualquer distância na diagonal se caminho livre
-            if (isPathClear(r1, c1, r2, c2)) {
-                System.out.println("[GAMESTATE] Movimento de dama VÁLIDO!");
-                performSimpleMove(r1, c1, r2, c2);
-                whiteTurn = !whiteTurn;
-                return true;
-            }
+            performSimpleMove(from, to);
         }
         
-        System.out.println("[GAMESTATE] Movimento inválido: nenhuma condição satisfeita");
-        return false;
-    }
-    
-    private boolean performCapture(int r1, int c1, int r2, int c2) {
-        String piece = board[r1][c1];
-        boolean isKing = piece.contains("D");
-        boolean isWhite = piece.contains("⚪");
-        int dr = r2 - r1;
-        int dc = c2 - c1;
-        int stepR = Integer.signum(dr);
-        int stepC = Integer.signum(dc);
-        
-        int enemyR = -1;
-        int enemyC = -1;
-        boolean captured = false;
-        
-        if (isKing) {
-            for (int i = 1; i < Math.abs(dr); i++) {
-                int rr = r1 + i * stepR;
-                int cc = c1 + i * stepC;
-                if (!board[rr][cc].isEmpty()) {
-                    boolean isSameColor = board[rr][cc].contains("⚪") == isWhite;
-                    if (!isSameColor) {
-                        if (!captured) {
-                            captured = true;
-                            enemyR = rr;
-                            enemyC = cc;
-                        } else {
-                            return false;
-                        }
-                    } else {
-                        return false;
-                    }
-                }
-            }
+        chainHops++;
+        if (chainHops == MoveList.hops(move)) {
+            endTurn();
         } else {
-            int rm = (r1 + r2) / 2;
-            int cm = (c1 + c2) / 2;
-            if (Math.abs(dr) == 2 && !board[rm][cm].isEmpty()) {
-                boolean isDifferentColor = board[rm][cm].contains("⚪") != isWhite;
-                if (isDifferentColor) {
-                    captured = true;
-                    enemyR = rm;
-                    enemyC = cm;
-                }
-            }
+            // Verifica capturas sequenciais: a vez continua com a mesma peça
+            chainOrigin = origin;
+            chainSquare = to;
+            chainPath = MoveList.prefix(moves.path(index), chainHops);
         }
-        
-        if (captured) {
-            board[enemyR][enemyC] = "";
-            performSimpleMove(r1, c1, r2, c2);
-            return true;
-        }
-        return false;
+        Log.debug("[GAMESTATE] Movimento VÁLIDO!");
+        return true;
     }
     
-    private void performSimpleMove(int r1, int c1, int r2, int c2) {
-        board[r2][c2] = board[r1][c1];
-        board[r1][c1] = "";
-        
-        // Promove a dama quando atinge a última linha
-        // Brancas (⚪) atingem o topo (linha 0)
-        // Pretas (⚫) atingem o fundo (linha 7)
-        if (board[r2][c2].equals("⚪") && r2 == 0) {
-            board[r2][c2] = "⚪D";
-        } else if (board[r2][c2].equals("⚫") && r2 == 7) {
-            board[r2][c2] = "⚫D";
+    /**
+     * Executa de uma só vez um movimento completo (incluindo todos os saltos de
+     * uma captura múltipla) obtido de {@link #getLegalMoves(MoveList)}.
+     * Só é aceito no início do turno, fora de uma captura múltipla em andamento.
+     * @return true se o movimento é legal e foi executado
+     */
+    public boolean executeMove(MoveList moves, int index) {
+        lock.lock();
+        try {
+            return executeFullMove(moves, index);
+        } finally {
+            lock.unlock();
         }
     }
     
-    private boolean isPathClear(int r1, int c1, int r2, int c2) {
-        int dr = Integer.signum(r2 - r1);
-        int dc = Integer.signum(c2 - c1);
-        for (int i = 1; i < Math.abs(r2 - r1); i++) {
-            if (!board[r1 + i * dr][c1 + i * dc].isEmpty()) return false;
+    private boolean executeFullMove(MoveList moves, int index) {
+        if (chainHops > 0) {
+            return false;
+        }
+        MoveList legal = currentLegalMoves();
+        int legalIndex = legal.indexOf(moves.get(index), moves.path(index));
+        if (legalIndex < 0) {
+            return false;
         }
+        int move = legal.get(legalIndex);
+        long path = legal.path(legalIndex);
+        int current = MoveList.from(move);
+        for (int hop = 0; hop < MoveList.hops(move); hop++) {
+            int landing = MoveList.landing(path, hop);
+            if (MoveList.isCapture(move)) {
+                performCapture(current, landing);
+            } else {
+                performSimpleMove(current, landing);
+            }
+            current = landing;
+        }
+        endTurn();
         return true;
     }
     
-    private List<int[]> findAllCaptures(boolean isWhite) {
-        List<int[]> allCaptures = new ArrayList<>();
-        for (int r = 0; r < 8; r++) {
-            for (int c = 0; c < 8; c++) {
-                String piece = board[r][c];
-                if (!piece.isEmpty() && piece.contains("⚪") == isWhite) {
-                    allCaptures.addAll(getCaptureMovements(piece, r, c));
-                }
+    /**
+     * Adiciona à lista os movimentos legais completos do turno atual, a partir
+     * da posição do início do turno
+     */
+    public void getLegalMoves(MoveList out) {
+        lock.lock();
+        try {
+            MoveList legal = currentLegalMoves();
+            for (int i = 0; i < legal.size(); i++) {
+                out.add(legal.get(i), legal.capturedMask(i), legal.path(i));
             }
+        } finally {
+            lock.unlock();
         }
-        return allCaptures;
     }
     
-    private List<int[]> getCaptureMovements(String piece, int r, int c) {
-        List<int[]> moves = new ArrayList<>();
-        if (piece.isEmpty()) return moves;
-        
-        boolean isKing = piece.contains("D");
-        boolean isWhite = piece.contains("⚪");
-        int[] dirs = {-1, 1};
-        
-        for (int dr : dirs) {
-            for (int dc : dirs) {
-                if (isKing) {
-                    int rr = r + dr;
-                    int cc = c + dc;
-                    boolean enemyFound = false;
-                    
-                    while (rr >= 0 && rr < 8 && cc >= 0 && cc < 8) {
-                        if (!board[rr][cc].isEmpty()) {
-                            boolean isSameColor = board[rr][cc].contains("⚪") == isWhite;
-                            if (isSameColor) {
-                                break;
-                            }
-                            if (enemyFound) {
-                                break;
-                            }
-                            enemyFound = true;
-                        } else if (enemyFound) {
-                            moves.add(new int[]{rr, cc});
-                        }
-                        rr += dr;
-                        cc += dc;
-                    }
-                } else {
-                    int rm = r + dr;
-                    int cm = c + dc;
-                    int r2 = r + 2 * dr;
-                    int c2 = c + 2 * dc;
-                    
-                    if (r2 >= 0 && r2 < 8 && c2 >= 0 && c2 < 8) {
-                        boolean hasEnemy = !board[rm][cm].isEmpty() && 
-                                         board[rm][cm].contains("⚪") != isWhite;
-                        boolean targetEmpty = board[r2][c2].isEmpty();
-                        
-                        if (hasEnemy && targetEmpty) {
-                            moves.add(new int[]{r2, c2});
-                        }
-                    }
-                }
-            }
+    /**
+     * Verifica se há uma captura múltipla em andamento (a vez ainda é do mesmo jogador)
+     */
+    public boolean isCaptureInProgress() {
+        lock.lock();
+        try {
+            return chainHops > 0;
+        } finally {
+            lock.unlock();
         }
-        return moves;
+    }
+    
+    private MoveList currentLegalMoves() {
+        if (!legalMovesValid) {
+            legalMoves.clear();
+            generator.generate(board, whiteTurn, legalMoves);
+            legalMovesValid = true;
+        }
+        return legalMoves;
+    }
+    
+    private void endTurn() {
+        whiteTurn = !whiteTurn;
+        zobristKey ^= Zobrist.SIDE;
+        resetTurn();
+    }
+    
+    private void resetTurn() {
+        legalMovesValid = false;
+        chainHops = 0;
+        chainPath = 0L;
+    }
+    
+    private void performCapture(int from, int to) {
+        int enemy = board.capturedSquare(from, to);
+        zobristKey ^= Zobrist.piece(board.pieceType(enemy), enemy);
+        board.remove(enemy);
+        performSimpleMove(from, to);
+    }
+    
+    private void performSimpleMove(int from, int to) {
+        // Promove a dama quando atinge a última linha
+        // Brancas (⚪) atingem o topo (linha 0)
+        // Pretas (⚫) atingem o fundo (linha 7)
+        zobristKey ^= Zobrist.piece(board.pieceType(from), from);
+        board.move(from, to);
+        zobristKey ^= Zobrist.piece(board.pieceType(to), to);
+    }
+    
+    /**
+     * Com a tabela de finais, {@link #checkGameOver()} também encerra as
+     * partidas cujo resultado com jogo perfeito já é conhecido
+     */
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
     }
     
     /**
      * Verifica se o jogo terminou
-     * @return String com mensagem de vitória ou null se o jogo continua
+     * @return String com mensagem de vitória (ou empate, pela tabela de
+     *         finais) ou null se o jogo continua
      */
     public String checkGameOver() {
-        boolean hasWhite = false;
-        boolean hasBlack = false;
-        boolean hasWhiteMove = false;
-        boolean hasBlackMove = false;
-        
-        for (int r = 0; r < 8; r++) {
-            for (int c = 0; c < 8; c++) {
-                String p = board[r][c];
-                if (!p.isEmpty()) {
-                    boolean isWhite = p.contains("⚪");
-                    if (isWhite) {
-                        hasWhite = true;
-                        if (!getCaptureMovements(p, r, c).isEmpty() || hasSimpleMove(p, r, c)) {
-                            hasWhiteMove = true;
-                        }
-                    } else {
-                        hasBlack = true;
-                        if (!getCaptureMovements(p, r, c).isEmpty() || hasSimpleMove(p, r, c)) {
-                            hasBlackMove = true;
-                        }
-                    }
-                }
-            }
-        }
+        boolean hasWhite = board.white() != 0;
+        boolean hasBlack = board.black() != 0;
         
         if (!hasWhite) return "Pretas venceram!";
         if (!hasBlack) return "Brancas venceram!";
-        if (whiteTurn && !hasWhiteMove) return "Pretas venceram! (Brancas sem movimentos)";
-        if (!whiteTurn && !hasBlackMove) return "Brancas venceram! (Pretas sem movimentos)";
+        if (whiteTurn && !hasAnyMove(true)) return "Pretas venceram! (Brancas sem movimentos)";
+        if (!whiteTurn && !hasAnyMove(false)) return "Brancas venceram! (Pretas sem movimentos)";
+        
+        // Adjudicação só no início de um turno: no meio de uma captura múltipla a posição não está na tabela
+        if (tablebase != null && chainHops == 0) {
+            int result = tablebase.probe(board, whiteTurn);
+            if (result == Tablebase.DRAW) {
+                return "Empate! (final empatado pela tabela de finais)";
+            }
+            if (result != Tablebase.NOT_FOUND) {
+                boolean whiteWins = Tablebase.isWin(result) == whiteTurn;
+                return (whiteWins ? "Brancas" : "Pretas") + " venceram! (vitória forçada em "
+                    + Tablebase.distance(result) + " lances pela tabela de finais)";
+            }
+        }
         
         return null;
     }
     
-    private boolean hasSimpleMove(String piece, int r, int c) {
-        boolean isKing = piece.contains("D");
-        boolean isWhite = piece.contains("⚪");
-        int[] dirs = {-1, 1};
-        
-        if (!isKing) {
-            // Peça normal: verifica 1 casa na direção permitida
-            int dr = isWhite ? -1 : 1; // Brancas sobem, pretas descem
-            for (int dc : dirs) {
-                int r2 = r + dr;
-                int c2 = c + dc;
-                if (r2 >= 0 && r2 < 8 && c2 >= 0 && c2 < 8 && board[r2][c2].isEmpty()) {
-                    return true;
-                }
-            }
-        } else {
-            // Dama: verifica todas as diagonais até encontrar obstáculo
-            for (int dr : dirs) {
-                for (int dc : dirs) {
-                    int r2 = r + dr;
-                    int c2 = c + dc;
-                    // Move até o limite ou até encontrar uma peça
-                    while (r2 >= 0 && r2 < 8 && c2 >= 0 && c2 < 8) {
-                        if (board[r2][c2].isEmpty()) {
-                            return true; // Encontrou movimento válido
-                        }
-                        break; // Bloqueado por peça
-                    }
-                }
+    private boolean hasAnyMove(boolean isWhite) {
+        int pieces = board.pieces(isWhite);
+        while (pieces != 0) {
+            int sq = Integer.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            if (board.hasCapture(sq) || board.hasSimpleMove(sq)) {
+                return true;
             }
         }
         return false;
     }
     
+    /**
+     * Retorna uma cópia do tabuleiro no formato 8x8 de Strings ("⚪", "⚫", "⚪D", "⚫D" ou "").
+     * O estado interno é mantido em {@link Bitboard}; alterações na matriz retornada
+     * não afetam o jogo, use {@link #setBoard(String[][])} para isso.
+     */
     public String[][] getBoard() {
+        return board.toArray();
+    }
+    
+    /**
+     * Acesso direto aos bitboards, sem conversão para Strings
+     */
+    public Bitboard getBitboard() {
         return board;
     }
     
@@ -352,11 +305,56 @@ public class GameState {
         return whiteTurn;
     }
     
+    /**
+     * Chave de Zobrist de 64 bits da posição atual (peças e vez de jogar).
+     * Posições iguais têm chaves iguais; serve para caches, detecção de
+     * repetição e deduplicação sem percorrer o tabuleiro.
+     */
+    public long getZobristKey() {
+        lock.lock();
+        try {
+            return zobristKey;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
     public void setBoard(String[][] board) {
-        this.board = board;
+        lock.lock();
+        try {
+            this.board.fromArray(board);
+            zobristKey = Zobrist.hash(this.board, whiteTurn);
+            resetTurn();
+        } finally {
+            lock.unlock();
+        }
     }
     
+    /**
+     * Copia uma posição (peças e vez de jogar) sem passar pela matriz de Strings
+     */
+    public void setPosition(Bitboard position, boolean whiteTurn) {
+        lock.lock();
+        try {
+            board.copyFrom(position);
+            this.whiteTurn = whiteTurn;
+            zobristKey = Zobrist.hash(board, whiteTurn);
+            resetTurn();
+        } finally {
+            lock.unlock();
+        }
+    }
+
     public void setWhiteTurn(boolean whiteTurn) {
-        this.whiteTurn = whiteTurn;
+        lock.lock();
+        try {
+            if (this.whiteTurn != whiteTurn) {
+                zobristKey ^= Zobrist.SIDE;
+            }
+            this.whiteTurn = whiteTurn;
+            resetTurn();
+        } finally {
+            lock.unlock();
+        }
     }
 }
@@ -0,0 +1,125 @@
+package model;
+
+/**
+ * Gerador de movimentos legais completos.
+ *
+ * Uma captura múltipla é gerada como um único movimento, com todos os saltos
+ * no caminho e todas as peças capturadas na máscara (ver {@link MoveList}).
+ * As regras são as mesmas do {@link GameState}:
+ * - captura é obrigatória, e a sequência continua enquanto houver captura
+ *   a partir da casa de aterrissagem;
+ * - peões andam uma casa para frente e capturam em qualquer diagonal;
+ * - damas andam e capturam a qualquer distância na diagonal;
+ * - a peça capturada sai do tabuleiro no próprio salto, e um peão que atinge
+ *   a última linha no meio da sequência continua capturando como dama.
+ *
+ * O gerador reutiliza seus buffers internos, não aloca por chamada e não é
+ * thread-safe: use uma instância por thread ou por partida.
+ */
+public class MoveGenerator {
+
+    private final Bitboard[] boards = new Bitboard[MoveList.MAX_HOPS + 1];
+    private final MoveList[] hops = new MoveList[MoveList.MAX_HOPS + 1];
+
+    public MoveGenerator() {
+        for (int i = 0; i <= MoveList.MAX_HOPS; i++) {
+            boards[i] = new Bitboard();
+            hops[i] = new MoveList(32);
+        }
+    }
+
+    /**
+     * Adiciona à lista todos os movimentos legais do lado informado
+     */
+    public void generate(Bitboard board, boolean white, MoveList out) {
+        if (generateCaptures(board, white, out)) {
+            return;
+        }
+        int pieces = board.pieces(white);
+        int occupied = board.occupied();
+        while (pieces != 0) {
+            int from = Integer.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            boolean king = board.isKing(from);
+            int firstDir = king ? 0 : (white ? 0 : 2);
+            int lastDir = king ? Bitboard.DIRECTIONS - 1 : firstDir + 1;
+            for (int d = firstDir; d <= lastDir; d++) {
+                for (int to : Bitboard.ray(from, d)) {
+                    if ((occupied & Bitboard.bit(to)) != 0) break;
+                    out.add(MoveList.encodeSequence(from, to, -1, 1), 0, to);
+                    if (!king) break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Adiciona à lista todas as sequências de captura completas do lado informado
+     * @return true se alguma captura foi gerada
+     */
+    public boolean generateCaptures(Bitboard board, boolean white, MoveList out) {
+        int before = out.size();
+        int pieces = board.pieces(white);
+        while (pieces != 0) {
+            int from = Integer.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            generateCaptures(board, from, out);
+        }
+        return out.size() > before;
+    }
+
+    /**
+     * Adiciona à lista todas as sequências de captura completas da peça na casa
+     */
+    public void generateCaptures(Bitboard board, int from, MoveList out) {
+        boards[0].copyFrom(board);
+        extend(0, from, from, -1, 0, 0L, out);
+    }
+
+    private void extend(int depth, int origin, int current, int firstCaptured,
+                        int capturedMask, long path, MoveList out) {
+        MoveList candidates = hops[depth];
+        candidates.clear();
+        boards[depth].addCaptures(current, candidates);
+
+        if (candidates.isEmpty()) {
+            if (depth > 0) {
+                out.add(MoveList.encodeSequence(origin, current, firstCaptured, depth), capturedMask, path);
+            }
+            return;
+        }
+
+        for (int i = 0; i < candidates.size(); i++) {
+            int hop = candidates.get(i);
+            int captured = MoveList.captured(hop);
+            int landing = MoveList.to(hop);
+            Bitboard next = boards[depth + 1];
+            next.copyFrom(boards[depth]);
+            next.remove(captured);
+            next.move(current, landing);
+            extend(depth + 1, origin, landing,
+                depth == 0 ? captured : firstCaptured,
+                capturedMask | Bitboard.bit(captured),
+                MoveList.withLanding(path, depth, landing), out);
+        }
+    }
+
+    /**
+     * Aplica ao tabuleiro o movimento completo de índice {@code index} da lista
+     */
+    public static void apply(Bitboard board, MoveList moves, int index) {
+        int move = moves.get(index);
+        int capturedMask = moves.capturedMask(index);
+        long path = moves.path(index);
+        int current = MoveList.from(move);
+        while (capturedMask != 0) {
+            board.remove(Integer.numberOfTrailingZeros(capturedMask));
+            capturedMask &= capturedMask - 1;
+        }
+        for (int hop = 0; hop < MoveList.hops(move); hop++) {
+            int landing = MoveList.landing(path, hop);
+            board.move(current, landing);
+            current = landing;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Lista reutilizável de movimentos sobre um array de int, sem objetos por movimento.
+ *
+ * Cada movimento é empacotado em um int (índices de casa de {@link Bitboard}):
+ * bits 0-4 origem, bits 5-9 destino, bits 10-14 casa capturada (a primeira,
+ * em capturas múltiplas), bit 15 indicando captura e bits 16-19 o número de
+ * saltos.
+ *
+ * Movimentos completos gerados por {@link MoveGenerator} guardam ainda, em
+ * arrays paralelos, a máscara de todas as casas capturadas e o caminho: as
+ * casas de aterrissagem de cada salto, 5 bits por salto, a partir do bit 0.
+ */
+public class MoveList {
+
+    private static final int SQUARE_MASK = 0x1F;
+    private static final int TO_SHIFT = 5;
+    private static final int CAPTURED_SHIFT = 10;
+    private static final int CAPTURE_FLAG = 1 << 15;
+    private static final int HOPS_SHIFT = 16;
+    private static final int HOPS_MASK = 0xF;
+    private static final int PATH_BITS = 5;
+
+    /** Máximo de saltos em uma captura múltipla (uma peça inimiga por salto) */
+    public static final int MAX_HOPS = 12;
+
+    private int[] moves;
+    private int[] capturedMasks;
+    private long[] paths;
+    private int size;
+
+    public MoveList() {
+        this(64);
+    }
+
+    public MoveList(int capacity) {
+        moves = new int[capacity];
+        capturedMasks = new int[capacity];
+        paths = new long[capacity];
+    }
+
+    // ==================== CODIFICAÇÃO ====================
+
+    public static int encode(int from, int to) {
+        return from | (to << TO_SHIFT);
+    }
+
+    public static int encodeCapture(int from, int to, int captured) {
+        return from | (to << TO_SHIFT) | (captured << CAPTURED_SHIFT) | CAPTURE_FLAG;
+    }
+
+    /**
+     * Movimento completo: {@code hops} saltos de {@code from} até {@code to},
+     * com {@code firstCaptured} = -1 para movimentos simples
+     */
+    public static int encodeSequence(int from, int to, int firstCaptured, int hops) {
+        int move = firstCaptured >= 0 ? encodeCapture(from, to, firstCaptured) : encode(from, to);
+        return move | (hops << HOPS_SHIFT);
+    }
+
+    public static int from(int move) {
+        return move & SQUARE_MASK;
+    }
+
+    public static int to(int move) {
+        return (move >>> TO_SHIFT) & SQUARE_MASK;
+    }
+
+    /**
+     * Casa da peça capturada, ou -1 para movimentos simples
+     */
+    public static int captured(int move) {
+        return isCapture(move) ? (move >>> CAPTURED_SHIFT) & SQUARE_MASK : -1;
+    }
+
+    public static boolean isCapture(int move) {
+        return (move & CAPTURE_FLAG) != 0;
+    }
+
+    /**
+     * Número de saltos do movimento (1 para movimentos de um único passo)
+     */
+    public static int hops(int move) {
+        int hops = (move >>> HOPS_SHIFT) & HOPS_MASK;
+        return hops == 0 ? 1 : hops;
+    }
+
+    /**
+     * Casa de aterrissagem do salto de índice {@code hop} no caminho
+     */
+    public static int landing(long path, int hop) {
+        return (int) (path >>> (hop * PATH_BITS)) & SQUARE_MASK;
+    }
+
+    /**
+     * Acrescenta ao caminho a aterrissagem do salto de índice {@code hop}
+     */
+    public static long withLanding(long path, int hop, int sq) {
+        return path | ((long) sq << (hop * PATH_BITS));
+    }
+
+    /**
+     * Primeiros {@code hops} saltos do caminho
+     */
+    public static long prefix(long path, int hops) {
+        return hops == 0 ? 0L : path & (-1L >>> (64 - hops * PATH_BITS));
+    }
+
+    // ==================== LISTA ====================
+
+    public void add(int move) {
+        int captured = captured(move);
+        add(move, captured >= 0 ? Bitboard.bit(captured) : 0, to(move));
+    }
+
+    public void add(int move, int capturedMask, long path) {
+        if (size == moves.length) {
+            moves = Arrays.copyOf(moves, size * 2);
+            capturedMasks = Arrays.copyOf(capturedMasks, size * 2);
+            paths = Arrays.copyOf(paths, size * 2);
+        }
+        moves[size] = move;
+        capturedMasks[size] = capturedMask;
+        paths[size] = path;
+        size++;
+    }
+
+    /**
+     * Troca duas posições da lista (usado para ordenar movimentos na busca)
+     */
+    public void swap(int i, int j) {
+        int move = moves[i];
+        moves[i] = moves[j];
+        moves[j] = move;
+        int mask = capturedMasks[i];
+        capturedMasks[i] = capturedMasks[j];
+        capturedMasks[j] = mask;
+        long path = paths[i];
+        paths[i] = paths[j];
+        paths[j] = path;
+    }
+
+    public int get(int index) {
+        return moves[index];
+    }
+
+    /**
+     * Máscara de bits ({@link Bitboard#bit(int)}) de todas as peças capturadas pelo movimento
+     */
+    public int capturedMask(int index) {
+        return capturedMasks[index];
+    }
+
+    public long path(int index) {
+        return paths[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Procura o movimento de {@code from} para {@code to}
+     * @return o movimento empacotado ou -1 se não estiver na lista
+     */
+    public int find(int from, int to) {
+        for (int i = 0; i < size; i++) {
+            if (from(moves[i]) == from && to(moves[i]) == to) {
+                return moves[i];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Procura o movimento completo que sai de {@code from}, já percorreu os
+     * primeiros {@code hops} saltos de {@code pathPrefix} e tem {@code to}
+     * como próxima aterrissagem
+     * @return o índice na lista ou -1
+     */
+    public int findHop(int from, long pathPrefix, int hops, int to) {
+        for (int i = 0; i < size; i++) {
+            if (from(moves[i]) == from
+                    && hops < hops(moves[i])
+                    && prefix(paths[i], hops) == pathPrefix
+                    && landing(paths[i], hops) == to) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Procura o movimento completo com a mesma codificação e caminho
+     * @return o índice na lista ou -1
+     */
+    public int indexOf(int move, long path) {
+        for (int i = 0; i < size; i++) {
+            if (moves[i] == move && paths[i] == path) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
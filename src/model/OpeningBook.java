@@ -0,0 +1,175 @@
+package model;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Livro de aberturas: respostas pré-calculadas para as primeiras posições da
+ * partida, gerado por {@link OpeningBookBuilder} e consultado sem busca.
+ *
+ * O arquivo é uma sequência de entradas de tamanho fixo ordenadas pela chave
+ * de Zobrist da posição (uma entrada por movimento do livro):
+ * chave (8 bytes), movimento como em {@link MoveList} (4), caminho (8),
+ * peso (2) e avaliação (2). A consulta é uma busca binária direto no
+ * arquivo mapeado em memória, sem carregá-lo no heap; pode ser
+ * compartilhada por qualquer número de threads.
+ *
+ * O movimento do livro só é devolvido se estiver entre os movimentos legais
+ * informados, o que também protege contra colisões de chave.
+ */
+public class OpeningBook {
+
+    static final byte[] MAGIC = {'D', 'A', 'M', 'A', 'S', 'B', 'K', '1'};
+    static final int HEADER_SIZE = MAGIC.length + 4;
+    static final int ENTRY_SIZE = 24;
+
+    private final MappedByteBuffer data;
+    private final int entries;
+
+    private OpeningBook(MappedByteBuffer data) throws IOException {
+        this.data = data;
+        byte[] magic = new byte[MAGIC.length];
+        data.get(magic);
+        entries = data.getInt();
+        if (!Arrays.equals(magic, MAGIC) || (long) HEADER_SIZE + (long) entries * ENTRY_SIZE != data.capacity()) {
+            throw new IOException("Arquivo não é um livro de aberturas");
+        }
+    }
+
+    /**
+     * Mapeia o arquivo em memória (somente leitura)
+     */
+    public static OpeningBook open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Livro de aberturas maior que 2 GB: " + file);
+            }
+            return new OpeningBook(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public int size() {
+        return entries;
+    }
+
+    /**
+     * Escolhe um movimento do livro para a posição
+     * @param legal  movimentos legais da posição (ver {@link GameState#getLegalMoves})
+     * @param random sorteio proporcional ao peso entre os movimentos do livro;
+     *               null escolhe sempre o de maior peso
+     * @return o índice do movimento escolhido em {@code legal}, ou -1 se a
+     *         posição não está no livro
+     */
+    public int choose(long key, MoveList legal, Random random) {
+        int first = lowerBound(key);
+        int total = 0;
+        int best = -1;
+        int bestWeight = 0;
+        for (int i = first; i < entries && key(i) == key; i++) {
+            if (legal.indexOf(move(i), path(i)) >= 0) {
+                total += weight(i);
+                if (weight(i) > bestWeight) {
+                    best = i;
+                    bestWeight = weight(i);
+                }
+            }
+        }
+        if (best < 0) {
+            return -1;
+        }
+        if (random != null) {
+            int pick = random.nextInt(total);
+            for (int i = first; i < entries && key(i) == key; i++) {
+                if (legal.indexOf(move(i), path(i)) >= 0 && (pick -= weight(i)) < 0) {
+                    best = i;
+                    break;
+                }
+            }
+        }
+        return legal.indexOf(move(best), path(best));
+    }
+
+    public int choose(Bitboard board, boolean white, MoveList legal, Random random) {
+        return choose(Zobrist.hash(board, white), legal, random);
+    }
+
+    /**
+     * Número de movimentos do livro para a posição
+     */
+    public int count(long key) {
+        int count = 0;
+        for (int i = lowerBound(key); i < entries && key(i) == key; i++) {
+            count++;
+        }
+        return count;
+    }
+
+    // Primeira entrada com chave >= key (ordem com sinal, a mesma do gerador)
+    private int lowerBound(long key) {
+        int low = 0;
+        int high = entries;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (key(mid) < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int offset(int entry) {
+        return HEADER_SIZE + entry * ENTRY_SIZE;
+    }
+
+    long key(int entry) {
+        return data.getLong(offset(entry));
+    }
+
+    int move(int entry) {
+        return data.getInt(offset(entry) + 8);
+    }
+
+    long path(int entry) {
+        return data.getLong(offset(entry) + 12);
+    }
+
+    int weight(int entry) {
+        return data.getShort(offset(entry) + 20) & 0xFFFF;
+    }
+
+    int score(int entry) {
+        return data.getShort(offset(entry) + 22);
+    }
+
+    // ==================== LINHA DE COMANDO ====================
+
+    /**
+     * Mostra os movimentos do livro para uma posição:
+     * java -cp bin model.OpeningBook livro.bk ["casas w|b"]
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Uso: java -cp bin model.OpeningBook livro.bk [\"casas w|b\"]");
+            System.exit(2);
+        }
+        OpeningBook book = open(Paths.get(args[0]));
+        String position = args.length > 1 ? args[1] : Perft.INITIAL;
+        Bitboard board = Perft.parseBoard(position);
+        boolean white = Perft.parseWhiteTurn(position);
+        long key = Zobrist.hash(board, white);
+        System.out.println("[LIVRO] " + book.size() + " entradas; " + board + " " + (white ? "w" : "b")
+            + ": " + book.count(key) + " movimentos");
+        for (int i = book.lowerBound(key); i < book.entries && book.key(i) == key; i++) {
+            System.out.println("  " + OpeningBookBuilder.notation(book.move(i), book.path(i))
+                + "  peso " + book.weight(i) + "  avaliação " + book.score(i));
+        }
+    }
+}
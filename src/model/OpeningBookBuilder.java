@@ -0,0 +1,277 @@
+package model;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Gera o {@link OpeningBook} a partir de buscas profundas e/ou de partidas
+ * gravadas.
+ *
+ * - Busca: todas as posições alcançáveis nos primeiros N lances a partir da
+ *   posição inicial (sem repetir transposições) são analisadas pelo
+ *   {@link ParallelSearch} até a profundidade pedida; o melhor movimento
+ *   entra no livro com a avaliação encontrada.
+ * - Partidas: um arquivo texto com uma partida por linha, lances separados
+ *   por espaços na notação do Perft --divide ("(5,0)-(4,1)", capturas
+ *   múltiplas com todas as casas: "(5,2)-(3,4)-(1,2)"); cada lance jogado
+ *   nos primeiros N lances soma 1 ao peso do movimento naquela posição.
+ *   Linhas vazias e iniciadas por # são ignoradas.
+ *
+ * Uso: java -cp bin model.OpeningBookBuilder [--plies N] [--depth D] [--threads T]
+ *                                          [--games partidas.txt] [--no-search] [--out livro.bk]
+ */
+public class OpeningBookBuilder {
+
+    // Peso das entradas vindas da busca (as partidas somam 1 por ocorrência)
+    private static final int SEARCH_WEIGHT = 1;
+
+    private final int plies;
+    // (chave, movimento, caminho) -> {peso, avaliação}
+    private final Map<Entry, int[]> entries = new HashMap<>();
+
+    public OpeningBookBuilder(int plies) {
+        this.plies = plies;
+    }
+
+    private static final class Entry {
+        final long key;
+        final int move;
+        final long path;
+
+        Entry(long key, int move, long path) {
+            this.key = key;
+            this.move = move;
+            this.path = path;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Entry)) return false;
+            Entry other = (Entry) o;
+            return key == other.key && move == other.move && path == other.path;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(key * 31 + path) ^ move;
+        }
+    }
+
+    /**
+     * @param searched a avaliação vem da busca e vale mais que a das partidas
+     *                 (0), qualquer que seja a ordem em que as fontes chegam
+     */
+    private void add(long key, int move, long path, int weight, boolean searched, int score) {
+        int[] value = entries.computeIfAbsent(new Entry(key, move, path), e -> new int[] {0, score});
+        value[0] = Math.min(0xFFFF, value[0] + weight);
+        if (searched) {
+            value[1] = score;
+        }
+    }
+
+    // ==================== BUSCA ====================
+
+    /**
+     * Analisa cada posição dos primeiros lances até a profundidade pedida
+     * @return número de posições analisadas
+     */
+    public int addSearched(int depth, int threads) {
+        ParallelSearch search = new ParallelSearch(threads, new TranspositionTable(64));
+        MoveGenerator generator = new MoveGenerator();
+        MoveList moves = new MoveList();
+        Set<Long> seen = new HashSet<>();
+        List<Bitboard> layer = new ArrayList<>();
+        List<Boolean> sides = new ArrayList<>();
+        Bitboard initial = new Bitboard();
+        initial.setInitial();
+        layer.add(initial);
+        sides.add(true);
+        seen.add(Zobrist.hash(initial, true));
+        int analysed = 0;
+        long start = System.nanoTime();
+
+        for (int ply = 0; ply < plies; ply++) {
+            List<Bitboard> next = new ArrayList<>();
+            List<Boolean> nextSides = new ArrayList<>();
+            for (int p = 0; p < layer.size(); p++) {
+                Bitboard board = layer.get(p);
+                boolean white = sides.get(p);
+                if (search.search(board, white, Search.NO_TIME_LIMIT, depth)) {
+                    add(Zobrist.hash(board, white), search.getBestMove(), search.getBestPath(),
+                        SEARCH_WEIGHT, true, search.getBestScore());
+                }
+                analysed++;
+                if (ply + 1 == plies) {
+                    continue;
+                }
+                moves.clear();
+                generator.generate(board, white, moves);
+                for (int i = 0; i < moves.size(); i++) {
+                    Bitboard child = new Bitboard(board);
+                    MoveGenerator.apply(child, moves, i);
+                    if (seen.add(Zobrist.hash(child, !white))) {
+                        next.add(child);
+                        nextSides.add(!white);
+                    }
+                }
+            }
+            System.out.println(String.format("[LIVRO] Lance %d: %d posições analisadas (%.1fs)",
+                ply + 1, layer.size(), (System.nanoTime() - start) / 1e9));
+            layer = next;
+            sides = nextSides;
+        }
+        search.shutdown();
+        return analysed;
+    }
+
+    // ==================== PARTIDAS ====================
+
+    /**
+     * Soma os lances das partidas do arquivo
+     * @return número de partidas lidas
+     */
+    public int addGames(Path file) throws IOException {
+        MoveGenerator generator = new MoveGenerator();
+        MoveList moves = new MoveList();
+        Bitboard board = new Bitboard();
+        int games = 0;
+        int lineNumber = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                board.setInitial();
+                boolean white = true;
+                String[] tokens = line.split("\\s+");
+                for (int ply = 0; ply < Math.min(plies, tokens.length); ply++) {
+                    moves.clear();
+                    generator.generate(board, white, moves);
+                    int index = find(moves, tokens[ply]);
+                    if (index < 0) {
+                        throw new IllegalArgumentException("Linha " + lineNumber + ": lance ilegal ou inválido '"
+                            + tokens[ply] + "' no lance " + (ply + 1));
+                    }
+                    add(Zobrist.hash(board, white), moves.get(index), moves.path(index), 1, false, 0);
+                    MoveGenerator.apply(board, moves, index);
+                    white = !white;
+                }
+                games++;
+            }
+        }
+        return games;
+    }
+
+    /**
+     * Índice do movimento escrito na notação de {@link #notation}, ou -1
+     */
+    static int find(MoveList moves, String text) {
+        for (int i = 0; i < moves.size(); i++) {
+            if (notation(moves.get(i), moves.path(i)).equals(text)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Casas do movimento completo, como no Perft --divide: "(5,0)-(4,1)"
+     */
+    static String notation(int move, long path) {
+        StringBuilder sb = new StringBuilder();
+        int sq = MoveList.from(move);
+        sb.append('(').append(Bitboard.row(sq)).append(',').append(Bitboard.col(sq)).append(')');
+        for (int hop = 0; hop < MoveList.hops(move); hop++) {
+            sq = MoveList.landing(path, hop);
+            sb.append("-(").append(Bitboard.row(sq)).append(',').append(Bitboard.col(sq)).append(')');
+        }
+        return sb.toString();
+    }
+
+    // ==================== ARQUIVO ====================
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Grava as entradas ordenadas por chave (e, na mesma posição, por peso decrescente)
+     */
+    public void write(Path file) throws IOException {
+        List<Map.Entry<Entry, int[]>> sorted = new ArrayList<>(entries.entrySet());
+        Collections.sort(sorted, (a, b) -> {
+            int byKey = Long.compare(a.getKey().key, b.getKey().key);
+            return byKey != 0 ? byKey : Integer.compare(b.getValue()[0], a.getValue()[0]);
+        });
+        ByteBuffer buffer = ByteBuffer.allocate(OpeningBook.HEADER_SIZE + sorted.size() * OpeningBook.ENTRY_SIZE);
+        buffer.put(OpeningBook.MAGIC).putInt(sorted.size());
+        for (Map.Entry<Entry, int[]> e : sorted) {
+            int score = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, e.getValue()[1]));
+            buffer.putLong(e.getKey().key).putInt(e.getKey().move).putLong(e.getKey().path)
+                .putShort((short) e.getValue()[0]).putShort((short) score);
+        }
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    // ==================== LINHA DE COMANDO ====================
+
+    public static void main(String[] args) throws IOException {
+        int plies = 6;
+        int depth = 12;
+        int threads = Runtime.getRuntime().availableProcessors();
+        Path games = null;
+        boolean search = true;
+        Path file = Paths.get("aberturas.bk");
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--plies": plies = Integer.parseInt(args[++i]); break;
+                case "--depth": depth = Integer.parseInt(args[++i]); break;
+                case "--threads": threads = Integer.parseInt(args[++i]); break;
+                case "--games": games = Paths.get(args[++i]); break;
+                case "--no-search": search = false; break;
+                case "--out": file = Paths.get(args[++i]); break;
+                default:
+                    System.err.println("[LIVRO] Opção desconhecida: " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        OpeningBookBuilder builder = new OpeningBookBuilder(plies);
+        if (games != null) {
+            try {
+                System.out.println("[LIVRO] " + builder.addGames(games) + " partidas lidas de " + games);
+            } catch (IllegalArgumentException e) {
+                System.err.println("[LIVRO] " + games + ": " + e.getMessage());
+                System.exit(1);
+            }
+        }
+        if (search) {
+            builder.addSearched(depth, threads);
+        }
+        builder.write(file);
+        System.out.println("[LIVRO] " + builder.size() + " entradas (" + plies + " lances) -> " + file);
+    }
+}
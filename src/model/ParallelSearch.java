@@ -0,0 +1,206 @@
+package model;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Busca paralela no estilo Lazy SMP.
+ *
+ * Todas as threads rodam o mesmo aprofundamento iterativo sobre a mesma
+ * posição, cada uma com o seu {@link Search} (listas, killers, histórico),
+ * compartilhando uma única {@link TranspositionTable}. Não há divisão
+ * explícita da árvore: o que uma thread grava na tabela corta ou ordena a
+ * busca das outras, e as auxiliares de índice ímpar começam uma profundidade
+ * acima para que as threads fiquem em iterações diferentes.
+ *
+ * A thread que chama {@link #search} é a principal e decide o tempo; quando
+ * ela termina, as auxiliares são interrompidas. O resultado é o da thread
+ * que completou a maior profundidade (em empate, a principal).
+ *
+ * Uso (medição): java -cp bin model.ParallelSearch [--threads 1,2,4,8] [--depth N] [--hash MB]
+ */
+public class ParallelSearch {
+
+    private final TranspositionTable table;
+    private final Search[] searches;
+    private final ExecutorService helpers;
+    private final Future<?>[] pending;
+
+    // Thread cujo resultado vale para a última busca
+    private Search best;
+    private long nodes;
+
+    /**
+     * @param threads número total de threads de busca (incluindo a que chama {@link #search})
+     */
+    public ParallelSearch(int threads, TranspositionTable table) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Threads deve ser >= 1: " + threads);
+        }
+        this.table = table;
+        searches = new Search[threads];
+        for (int i = 0; i < threads; i++) {
+            searches[i] = new Search(table);
+        }
+        pending = new Future<?>[threads];
+        AtomicInteger counter = new AtomicInteger();
+        helpers = threads == 1 ? null : Executors.newFixedThreadPool(threads - 1, task -> {
+            Thread thread = new Thread(task, "search-helper-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        best = searches[0];
+    }
+
+    /**
+     * Mesmo contrato de {@link Search#search(Bitboard, boolean, long, int)}
+     */
+    public boolean search(Bitboard board, boolean white, long timeMillis, int maxDepth) {
+        table.newSearch();
+        for (int i = 1; i < searches.length; i++) {
+            Search helper = searches[i];
+            int firstDepth = 1 + (i & 1);
+            helper.resetStop();
+            // Cópia própria: a principal pode devolver o tabuleiro antes de a auxiliar parar
+            Bitboard position = new Bitboard(board);
+            pending[i] = helpers.submit(() -> helper.search(position, white, timeMillis, maxDepth, firstDepth));
+        }
+
+        boolean found = searches[0].search(board, white, timeMillis, maxDepth, 1);
+
+        for (int i = 1; i < searches.length; i++) {
+            searches[i].stop();
+        }
+        best = searches[0];
+        nodes = searches[0].getNodes();
+        for (int i = 1; i < searches.length; i++) {
+            try {
+                pending[i].get();
+            } catch (Exception e) {
+                throw new IllegalStateException("Falha na thread auxiliar de busca", e);
+            }
+            nodes += searches[i].getNodes();
+            if (searches[i].getCompletedDepth() > best.getCompletedDepth()) {
+                best = searches[i];
+            }
+        }
+        return found;
+    }
+
+    public void setTablebase(Tablebase tablebase) {
+        for (Search search : searches) {
+            search.setTablebase(tablebase);
+        }
+    }
+
+    public void shutdown() {
+        if (helpers != null) {
+            helpers.shutdownNow();
+        }
+    }
+
+    // ==================== RESULTADO ====================
+
+    public int getBestMove() {
+        return best.getBestMove();
+    }
+
+    public long getBestPath() {
+        return best.getBestPath();
+    }
+
+    public int getBestCapturedMask() {
+        return best.getBestCapturedMask();
+    }
+
+    public int getBestScore() {
+        return best.getBestScore();
+    }
+
+    public int getCompletedDepth() {
+        return best.getCompletedDepth();
+    }
+
+    /**
+     * Nós visitados por todas as threads na última busca
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    public int getThreads() {
+        return searches.length;
+    }
+
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    // ==================== LINHA DE COMANDO ====================
+
+    /**
+     * Mede tempo até a profundidade e nós por segundo para cada número de
+     * threads, sobre as posições da suíte do {@link Perft}. A tabela é limpa
+     * antes de cada posição, para que nenhuma medição aproveite a anterior.
+     * O ganho só aparece com núcleos livres: em uma máquina de um núcleo as
+     * threads apenas se revezam.
+     */
+    public static void main(String[] args) {
+        String threadList = "1,2,4,8";
+        int depth = 12;
+        int hashMb = 64;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--threads": threadList = args[++i]; break;
+                case "--depth": depth = Integer.parseInt(args[++i]); break;
+                case "--hash": hashMb = Integer.parseInt(args[++i]); break;
+                default:
+                    System.err.println("[SEARCH] Opção desconhecida: " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        String[] positions = Perft.referencePositions();
+        TranspositionTable table = new TranspositionTable(hashMb);
+        System.out.println("[SEARCH] profundidade " + depth + ", " + positions.length + " posições, "
+            + table.getSizeMb() + " MB (" + table.getEntries() + " entradas), "
+            + Runtime.getRuntime().availableProcessors() + " núcleos");
+
+        // Aquecimento do JIT, fora da medição
+        ParallelSearch warmup = new ParallelSearch(1, table);
+        for (String position : positions) {
+            warmup.search(Perft.parseBoard(position), Perft.parseWhiteTurn(position), 200, depth);
+        }
+
+        double baseSeconds = 0;
+        for (String value : threadList.split(",")) {
+            int threads = Integer.parseInt(value.trim());
+            ParallelSearch search = new ParallelSearch(threads, table);
+            table.resetStats();
+            long totalNodes = 0;
+            double totalSeconds = 0;
+            double occupancy = 0;
+            for (String position : positions) {
+                table.clear();
+                Bitboard board = Perft.parseBoard(position);
+                boolean white = Perft.parseWhiteTurn(position);
+                long start = System.nanoTime();
+                search.search(board, white, Search.NO_TIME_LIMIT, depth);
+                totalSeconds += (System.nanoTime() - start) / 1e9;
+                totalNodes += search.getNodes();
+                occupancy += table.occupancy();
+            }
+            search.shutdown();
+            if (baseSeconds == 0) {
+                baseSeconds = totalSeconds;
+            }
+            System.out.println(String.format("threads %2d: tempo até prof. %d %.3fs  %,d nós  %,.0f nós/s  speedup %.2fx",
+                threads, depth, totalSeconds, totalNodes, totalNodes / Math.max(totalSeconds, 1e-9),
+                baseSeconds / Math.max(totalSeconds, 1e-9)));
+            System.out.println(String.format("           tabela: acertos %.1f%% de %,d consultas, ocupação média %.1f%%",
+                table.hitRate() * 100, table.getProbes(), occupancy / positions.length * 100));
+        }
+    }
+}
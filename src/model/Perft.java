@@ -0,0 +1,383 @@
+package model;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Perft: conta as folhas da árvore de movimentos legais até a profundidade N.
+ *
+ * Serve para verificar a geração de movimentos (contagens de referência
+ * abaixo) e para medir a sua velocidade em nós por segundo. Há dois modos
+ * de contagem:
+ * - generator: {@link MoveGenerator} sobre {@link Bitboard}, o caminho rápido;
+ * - game: força bruta salto a salto, tentando todo par de casas e seguindo
+ *   capturas múltiplas, como o servidor recebe os movimentos. Quem decide se
+ *   o salto vale é o {@link ReferenceBoard}, que reescreve as regras sem o
+ *   MoveGenerator; o {@link GameState} (que valida pelo MoveGenerator) joga
+ *   os mesmos saltos ao lado e precisa aceitar e recusar exatamente os
+ *   mesmos, e chegar à mesma posição ao fim de cada turno.
+ * Só o modo game é um oráculo independente do gerador; o GameState é
+ * conferido contra ele, não o contrário.
+ *
+ * Um movimento é o turno completo (uma captura múltipla conta uma vez). Com
+ * {@code --divide} a contagem é separada por movimento da raiz, para comparar
+ * implementações casa a casa.
+ *
+ * Posições usam a notação de {@link Bitboard#toString()} seguida da vez:
+ * {@code "bbbbbbbbbbbb........wwwwwwwwwwww w"}.
+ *
+ * Uso: java -cp bin model.Perft [--depth N] [--position "casas w|b"]
+ *                               [--mode generator|game] [--divide]
+ *      java -cp bin model.Perft --verify
+ */
+public class Perft {
+
+    /** Posição inicial (brancas começam) */
+    public static final String INITIAL = "bbbbbbbbbbbb........wwwwwwwwwwww w";
+
+    // Folhas acima disto são verificadas só pelo modo generator (o modo game é lento)
+    private static final long GAME_MODE_LIMIT = 50_000;
+
+    /**
+     * Suíte de regressão: posição e contagens esperadas para as profundidades
+     * 1, 2, 3... e, nas posições só com peões, as contagens do GameState
+     * original (tabuleiro de strings), tiradas dele salto a salto. Naquele
+     * motor a dama sem captura andava uma casa só; as listas diferem apenas
+     * onde a árvore chega a damas promovidas, e o {@link ReferenceBoard} com
+     * a regra antiga tem de reproduzir a segunda lista.
+     */
+    private static final Object[][] REFERENCE = {
+        {"inicial", INITIAL,
+            new long[] {7, 49, 302, 1469, 7482, 37986, 190146, 929984, 4571392},
+            new long[] {7, 49, 302, 1469, 7482, 37986, 190146, 929984, 4571326}},
+        {"captura de abertura", "bbbbbbbb.bbbb...ww....wwwwwwwwww b",
+            new long[] {1, 7, 36, 204, 1148, 6107, 33008, 178203},
+            new long[] {1, 7, 36, 204, 1148, 6107, 33008, 178203}},
+        {"captura múltipla no meio-jogo", "...bb.bbbbbb.ww..w.w.wb...wwww.w w",
+            new long[] {1, 6, 17, 69, 250, 935, 3702, 13767, 58802},
+            new long[] {1, 6, 17, 69, 250, 923, 3548, 12949, 52753}},
+        {"damas dos dois lados", "....bbb.....wB.....w.W.......w.. b",
+            new long[] {13, 144, 1151, 7978, 58121, 389839, 2758544}, null},
+        {"final de damas", "............W...............B... b",
+            new long[] {7, 44, 362, 2562, 19813, 142038, 1089746}, null},
+        {"promoção no meio da captura", ".....b...w....b.........w...w..b w",
+            new long[] {4, 2, 8, 15, 55, 81, 176, 220, 540},
+            new long[] {4, 2, 8, 15, 55, 81, 176, 220, 540}},
+    };
+
+    /**
+     * Posições da suíte de regressão (também usadas em benchmarks da busca)
+     */
+    static String[] referencePositions() {
+        String[] positions = new String[REFERENCE.length];
+        for (int i = 0; i < REFERENCE.length; i++) {
+            positions[i] = (String) REFERENCE[i][1];
+        }
+        return positions;
+    }
+
+    private final MoveGenerator generator = new MoveGenerator();
+    private Bitboard[] boards = new Bitboard[0];
+    private MoveList[] lists = new MoveList[0];
+
+    // ==================== MODO GENERATOR ====================
+
+    /**
+     * Número de folhas a {@code depth} movimentos da posição
+     */
+    public long perft(Bitboard board, boolean white, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        ensureCapacity(depth);
+        return count(board, white, depth);
+    }
+
+    private long count(Bitboard board, boolean white, int depth) {
+        MoveList moves = lists[depth];
+        moves.clear();
+        generator.generate(board, white, moves);
+        if (depth == 1) {
+            return moves.size();
+        }
+        Bitboard child = boards[depth];
+        long nodes = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            child.copyFrom(board);
+            MoveGenerator.apply(child, moves, i);
+            nodes += count(child, !white, depth - 1);
+        }
+        return nodes;
+    }
+
+    /**
+     * Folhas por movimento da raiz, indexadas pela sequência de casas do movimento
+     */
+    public Map<String, Long> divide(Bitboard board, boolean white, int depth) {
+        Map<String, Long> result = new TreeMap<>();
+        MoveList moves = new MoveList();
+        generator.generate(board, white, moves);
+        Bitboard child = new Bitboard();
+        for (int i = 0; i < moves.size(); i++) {
+            child.copyFrom(board);
+            MoveGenerator.apply(child, moves, i);
+            int move = moves.get(i);
+            int[] squares = new int[MoveList.hops(move) + 1];
+            squares[0] = MoveList.from(move);
+            for (int hop = 0; hop < MoveList.hops(move); hop++) {
+                squares[hop + 1] = MoveList.landing(moves.path(i), hop);
+            }
+            result.merge(label(squares, squares.length), perft(child, !white, depth - 1), Long::sum);
+        }
+        return result;
+    }
+
+    private void ensureCapacity(int depth) {
+        if (lists.length > depth) {
+            return;
+        }
+        boards = new Bitboard[depth + 1];
+        lists = new MoveList[depth + 1];
+        for (int i = 0; i <= depth; i++) {
+            boards[i] = new Bitboard();
+            lists[i] = new MoveList();
+        }
+    }
+
+    // ==================== MODO GAME ====================
+
+    /**
+     * Mesma contagem de {@link #perft}, pelas regras do {@link ReferenceBoard}
+     * (força bruta), conferindo o GameState a cada salto
+     * @throws IllegalStateException se o GameState discorda das regras
+     */
+    public static long perftGame(Bitboard board, boolean white, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        ReferenceBoard start = new ReferenceBoard(board.toString(), white);
+        return expand(start, start, depth, new int[MoveList.MAX_HOPS + 1], 0, null);
+    }
+
+    public static Map<String, Long> divideGame(Bitboard board, boolean white, int depth) {
+        Map<String, Long> result = new TreeMap<>();
+        ReferenceBoard start = new ReferenceBoard(board.toString(), white);
+        expand(start, start, depth, new int[MoveList.MAX_HOPS + 1], 0, result);
+        return result;
+    }
+
+    /**
+     * Tenta todos os saltos a partir de {@code current}, que é {@code turn}
+     * com a sequência {@code squares} já jogada; um turno completo desce um
+     * nível na árvore
+     */
+    private static long expand(ReferenceBoard turn, ReferenceBoard current, int depth, int[] squares, int hops,
+                               Map<String, Long> divide) {
+        GameState state = replay(turn, squares, hops);
+        ReferenceBoard next = new ReferenceBoard(current);
+        long nodes = 0;
+        for (int from = 0; from < Bitboard.SQUARES; from++) {
+            for (int to = 0; to < Bitboard.SQUARES; to++) {
+                int r1 = Bitboard.row(from);
+                int c1 = Bitboard.col(from);
+                int r2 = Bitboard.row(to);
+                int c2 = Bitboard.col(to);
+                next.copyFrom(current);
+                boolean legal = next.hop(r1, c1, r2, c2);
+                if (state.executeMove(r1, c1, r2, c2) != legal) {
+                    throw new IllegalStateException("GameState " + (legal ? "recusou" : "aceitou") + " o salto ("
+                        + r1 + "," + c1 + ")-(" + r2 + "," + c2 + ") em " + current);
+                }
+                if (!legal) {
+                    continue;
+                }
+                squares[hops] = from;
+                squares[hops + 1] = to;
+                check(state, next);
+                long count;
+                if (next.isCaptureInProgress()) {
+                    // Captura múltipla: o turno continua com a mesma peça
+                    count = expand(turn, next, depth, squares, hops + 1, divide);
+                } else {
+                    count = depth == 1 ? 1 : expand(next, next, depth - 1, new int[MoveList.MAX_HOPS + 1], 0, null);
+                    if (divide != null) {
+                        divide.merge(label(squares, hops + 2), count, Long::sum);
+                    }
+                }
+                nodes += count;
+                // O salto aceito alterou o estado; volta ao início do salto atual
+                state = replay(turn, squares, hops);
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * Contagem só pelo {@link ReferenceBoard}, sem o GameState ao lado
+     * (usada com regras que o GameState não segue)
+     */
+    static long perftRules(ReferenceBoard board, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        ReferenceBoard next = new ReferenceBoard(board);
+        long nodes = 0;
+        for (int from = 0; from < Bitboard.SQUARES; from++) {
+            for (int to = 0; to < Bitboard.SQUARES; to++) {
+                next.copyFrom(board);
+                if (next.hop(Bitboard.row(from), Bitboard.col(from), Bitboard.row(to), Bitboard.col(to))) {
+                    nodes += perftRules(next, next.isCaptureInProgress() ? depth : depth - 1);
+                }
+            }
+        }
+        return nodes;
+    }
+
+    // Depois de um salto aceito, o GameState tem de estar na posição das regras
+    private static void check(GameState state, ReferenceBoard rules) {
+        if (state.isCaptureInProgress() != rules.isCaptureInProgress()
+                || state.isWhiteTurn() != rules.isWhiteTurn()
+                || !state.getBitboard().toString().equals(rules.squares())) {
+            throw new IllegalStateException("GameState em " + state.getBitboard() + " "
+                + (state.isWhiteTurn() ? "w" : "b") + ", regras em " + rules);
+        }
+    }
+
+    /**
+     * GameState no início do turno com os primeiros {@code hops} saltos jogados
+     */
+    private static GameState replay(ReferenceBoard turn, int[] squares, int hops) {
+        GameState state = new GameState();
+        state.setPosition(Bitboard.parse(turn.squares()), turn.isWhiteTurn());
+        for (int i = 0; i < hops; i++) {
+            int from = squares[i];
+            int to = squares[i + 1];
+            state.executeMove(Bitboard.row(from), Bitboard.col(from), Bitboard.row(to), Bitboard.col(to));
+        }
+        return state;
+    }
+
+    private static String label(int[] squares, int length) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            if (i > 0) sb.append('-');
+            sb.append('(').append(Bitboard.row(squares[i])).append(',').append(Bitboard.col(squares[i])).append(')');
+        }
+        return sb.toString();
+    }
+
+    // ==================== POSIÇÕES ====================
+
+    public static Bitboard parseBoard(String position) {
+        return Bitboard.parse(position.trim().split("\\s+")[0]);
+    }
+
+    public static boolean parseWhiteTurn(String position) {
+        String[] parts = position.trim().split("\\s+");
+        if (parts.length < 2 || parts[1].equals("w")) {
+            return true;
+        }
+        if (parts[1].equals("b")) {
+            return false;
+        }
+        throw new IllegalArgumentException("Vez inválida (use w ou b): " + position);
+    }
+
+    // ==================== LINHA DE COMANDO ====================
+
+    public static void main(String[] args) {
+        int depth = 6;
+        String position = INITIAL;
+        boolean game = false;
+        boolean divide = false;
+        boolean verify = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--depth": depth = Integer.parseInt(args[++i]); break;
+                case "--position": position = args[++i]; break;
+                case "--mode": game = args[++i].equals("game"); break;
+                case "--divide": divide = true; break;
+                case "--verify": verify = true; break;
+                default:
+                    System.err.println("[PERFT] Opção desconhecida: " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        if (verify) {
+            System.exit(verify() ? 0 : 1);
+        }
+
+        Bitboard board = parseBoard(position);
+        boolean white = parseWhiteTurn(position);
+        System.out.println("[PERFT] " + board + " " + (white ? "w" : "b") + " | modo " + (game ? "game" : "generator"));
+
+        if (divide) {
+            Map<String, Long> counts = game ? divideGame(board, white, depth) : new Perft().divide(board, white, depth);
+            long total = 0;
+            for (Map.Entry<String, Long> entry : counts.entrySet()) {
+                System.out.println(entry.getKey() + ": " + entry.getValue());
+                total += entry.getValue();
+            }
+            System.out.println("[PERFT] " + counts.size() + " movimentos, " + total + " folhas");
+            return;
+        }
+
+        Perft perft = new Perft();
+        for (int d = 1; d <= depth; d++) {
+            long start = System.nanoTime();
+            long nodes = game ? perftGame(board, white, d) : perft.perft(board, white, d);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.println(String.format("perft(%d) = %,d  %.3fs  %,.0f nós/s",
+                d, nodes, seconds, nodes / Math.max(seconds, 1e-9)));
+        }
+    }
+
+    /**
+     * Confere todas as posições de referência
+     * @return true se todas as contagens conferem
+     */
+    public static boolean verify() {
+        Perft perft = new Perft();
+        boolean ok = true;
+        for (Object[] reference : REFERENCE) {
+            String name = (String) reference[0];
+            String position = (String) reference[1];
+            long[] expected = (long[]) reference[2];
+            Bitboard board = parseBoard(position);
+            boolean white = parseWhiteTurn(position);
+            boolean positionOk = true;
+            for (int d = 1; d <= expected.length; d++) {
+                long nodes = perft.perft(board, white, d);
+                boolean match = nodes == expected[d - 1];
+                if (match && expected[d - 1] <= GAME_MODE_LIMIT) {
+                    try {
+                        nodes = perftGame(board, white, d);
+                    } catch (IllegalStateException e) {
+                        System.out.println("[PERFT] FALHOU " + name + " perft(" + d + "): " + e.getMessage());
+                        positionOk = false;
+                        break;
+                    }
+                    match = nodes == expected[d - 1];
+                }
+                if (!match) {
+                    System.out.println("[PERFT] FALHOU " + name + " perft(" + d + "): esperado "
+                        + expected[d - 1] + ", obtido " + nodes);
+                    positionOk = false;
+                }
+            }
+            long[] original = (long[]) reference[3];
+            for (int d = 1; original != null && d <= original.length && original[d - 1] <= GAME_MODE_LIMIT; d++) {
+                long nodes = perftRules(new ReferenceBoard(board.toString(), white, false), d);
+                if (nodes != original[d - 1]) {
+                    System.out.println("[PERFT] FALHOU " + name + " perft(" + d + ") com a regra original: esperado "
+                        + original[d - 1] + ", obtido " + nodes);
+                    positionOk = false;
+                }
+            }
+            System.out.println("[PERFT] " + name + ": " + (positionOk ? "ok" : "FALHOU") + " até perft(" + expected.length + ")");
+            ok &= positionOk;
+        }
+        return ok;
+    }
+}
@@ -0,0 +1,239 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * As regras do jogo escritas de novo, da forma mais direta: um tabuleiro 8x8
+ * de caracteres e a validação de um salto por vez, como o servidor recebe
+ * os movimentos. Não usa o {@link MoveGenerator} nem as tabelas do
+ * {@link Bitboard}; é o oráculo independente do modo game do {@link Perft}.
+ * Feito para ser fácil de conferir, não rápido.
+ *
+ * Regras:
+ * - captura é obrigatória; depois de uma captura a mesma peça continua
+ *   enquanto puder capturar, e só então a vez passa;
+ * - peões andam uma casa para frente (brancas para a linha 0) e capturam
+ *   saltando uma peça adversária vizinha em qualquer diagonal;
+ * - damas andam qualquer distância com o caminho livre e capturam a única
+ *   peça adversária do caminho, aterrissando em qualquer casa livre depois
+ *   dela;
+ * - a peça capturada sai no próprio salto; um peão que chega à última linha
+ *   vira dama na hora (e continua capturando como dama).
+ * Sem {@code flyingKings}, a dama sem captura anda uma casa só: a regra do
+ * GameState original, com tabuleiro de strings, que o {@link Perft} usa
+ * para conferir estas regras contra as contagens daquele motor.
+ *
+ * Casas na notação de {@link Bitboard#toString()}: 32 caracteres, as casas
+ * escuras linha a linha ('w', 'W', 'b', 'B' ou '.').
+ */
+final class ReferenceBoard {
+
+    private static final char EMPTY = '.';
+
+    private final char[][] cells = new char[8][8];
+    private boolean flyingKings;
+    private boolean whiteTurn;
+    // Peça no meio de uma captura múltipla (linha * 8 + coluna), ou -1
+    private int capturing = -1;
+
+    ReferenceBoard(String squares, boolean whiteTurn) {
+        this(squares, whiteTurn, true);
+    }
+
+    ReferenceBoard(String squares, boolean whiteTurn, boolean flyingKings) {
+        if (squares.length() != 32) {
+            throw new IllegalArgumentException("Esperadas 32 casas: " + squares);
+        }
+        for (char[] row : cells) {
+            Arrays.fill(row, EMPTY);
+        }
+        for (int sq = 0; sq < 32; sq++) {
+            char piece = squares.charAt(sq);
+            if (piece != EMPTY && piece != 'w' && piece != 'W' && piece != 'b' && piece != 'B') {
+                throw new IllegalArgumentException("Casa inválida '" + piece + "': " + squares);
+            }
+            cells[sq / 4][column(sq)] = piece;
+        }
+        this.whiteTurn = whiteTurn;
+        this.flyingKings = flyingKings;
+    }
+
+    ReferenceBoard(ReferenceBoard other) {
+        copyFrom(other);
+    }
+
+    void copyFrom(ReferenceBoard other) {
+        for (int r = 0; r < 8; r++) {
+            System.arraycopy(other.cells[r], 0, cells[r], 0, 8);
+        }
+        flyingKings = other.flyingKings;
+        whiteTurn = other.whiteTurn;
+        capturing = other.capturing;
+    }
+
+    // Coluna da casa escura sq: nas linhas pares as escuras são as ímpares
+    private static int column(int sq) {
+        return 2 * (sq % 4) + (sq / 4 % 2 == 0 ? 1 : 0);
+    }
+
+    boolean isWhiteTurn() {
+        return whiteTurn;
+    }
+
+    boolean isCaptureInProgress() {
+        return capturing >= 0;
+    }
+
+    /**
+     * As 32 casas escuras, na notação de {@link Bitboard#toString()}
+     */
+    String squares() {
+        char[] squares = new char[32];
+        for (int sq = 0; sq < 32; sq++) {
+            squares[sq] = cells[sq / 4][column(sq)];
+        }
+        return new String(squares);
+    }
+
+    @Override
+    public String toString() {
+        return squares() + " " + (whiteTurn ? "w" : "b");
+    }
+
+    // ==================== SALTO ====================
+
+    /**
+     * Valida e joga um salto de quem tem a vez
+     * @return false (sem mudar nada) se o salto não é permitido
+     */
+    boolean hop(int r1, int c1, int r2, int c2) {
+        if (!inside(r1, c1) || !inside(r2, c2) || !isOwn(cells[r1][c1], whiteTurn)) {
+            return false;
+        }
+        if (capturing >= 0 && capturing != r1 * 8 + c1) {
+            return false;
+        }
+        int captured = capturedBy(r1, c1, r2, c2);
+        if (captured < 0) {
+            if (capturing >= 0 || sideCanCapture() || !isStep(r1, c1, r2, c2)) {
+                return false;
+            }
+            move(r1, c1, r2, c2);
+            capturing = -1;
+            whiteTurn = !whiteTurn;
+            return true;
+        }
+        cells[captured / 8][captured % 8] = EMPTY;
+        move(r1, c1, r2, c2);
+        if (canCaptureFrom(r2, c2)) {
+            capturing = r2 * 8 + c2;
+        } else {
+            capturing = -1;
+            whiteTurn = !whiteTurn;
+        }
+        return true;
+    }
+
+    // Movimento sem captura: peão uma casa para frente, dama com o caminho livre
+    private boolean isStep(int r1, int c1, int r2, int c2) {
+        int dr = r2 - r1;
+        int dc = c2 - c1;
+        if (dr == 0 || Math.abs(dr) != Math.abs(dc) || cells[r2][c2] != EMPTY) {
+            return false;
+        }
+        if (isKing(cells[r1][c1])) {
+            return flyingKings ? piecesBetween(r1, c1, r2, c2) == 0 : Math.abs(dr) == 1;
+        }
+        return Math.abs(dr) == 1 && dr == (isWhite(cells[r1][c1]) ? -1 : 1);
+    }
+
+    /**
+     * Casa (linha * 8 + coluna) da peça capturada pelo salto, ou -1 se o
+     * salto não é uma captura válida
+     */
+    private int capturedBy(int r1, int c1, int r2, int c2) {
+        int dr = r2 - r1;
+        int dc = c2 - c1;
+        if (Math.abs(dr) < 2 || Math.abs(dr) != Math.abs(dc) || cells[r2][c2] != EMPTY) {
+            return -1;
+        }
+        char piece = cells[r1][c1];
+        if (!isKing(piece) && Math.abs(dr) != 2) {
+            return -1;
+        }
+        if (piecesBetween(r1, c1, r2, c2) != 1) {
+            return -1;
+        }
+        int stepR = Integer.signum(dr);
+        int stepC = Integer.signum(dc);
+        for (int r = r1 + stepR, c = c1 + stepC; r != r2; r += stepR, c += stepC) {
+            if (cells[r][c] != EMPTY) {
+                return isOwn(cells[r][c], !isWhite(piece)) ? r * 8 + c : -1;
+            }
+        }
+        return -1;
+    }
+
+    private int piecesBetween(int r1, int c1, int r2, int c2) {
+        int stepR = Integer.signum(r2 - r1);
+        int stepC = Integer.signum(c2 - c1);
+        int count = 0;
+        for (int r = r1 + stepR, c = c1 + stepC; r != r2; r += stepR, c += stepC) {
+            if (cells[r][c] != EMPTY) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private boolean canCaptureFrom(int r, int c) {
+        for (int r2 = 0; r2 < 8; r2++) {
+            for (int c2 = 0; c2 < 8; c2++) {
+                if (capturedBy(r, c, r2, c2) >= 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean sideCanCapture() {
+        for (int r = 0; r < 8; r++) {
+            for (int c = 0; c < 8; c++) {
+                if (isOwn(cells[r][c], whiteTurn) && canCaptureFrom(r, c)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void move(int r1, int c1, int r2, int c2) {
+        char piece = cells[r1][c1];
+        cells[r1][c1] = EMPTY;
+        if (piece == 'w' && r2 == 0) {
+            piece = 'W';
+        } else if (piece == 'b' && r2 == 7) {
+            piece = 'B';
+        }
+        cells[r2][c2] = piece;
+    }
+
+    // ==================== PEÇAS ====================
+
+    private static boolean inside(int r, int c) {
+        return r >= 0 && r < 8 && c >= 0 && c < 8;
+    }
+
+    private static boolean isWhite(char piece) {
+        return piece == 'w' || piece == 'W';
+    }
+
+    private static boolean isKing(char piece) {
+        return piece == 'W' || piece == 'B';
+    }
+
+    private static boolean isOwn(char piece, boolean white) {
+        return piece != EMPTY && isWhite(piece) == white;
+    }
+}
@@ -0,0 +1,418 @@
+package model;
+
+/**
+ * Busca alfa-beta (negamax) com aprofundamento iterativo.
+ *
+ * - Ordenação: movimento da tabela de transposição, capturas com mais peças,
+ *   movimentos killer por ply e histórico por casa de origem/destino.
+ * - Extensão de capturas: na profundidade 0 a busca continua enquanto o lado
+ *   a jogar tiver captura (capturas são obrigatórias), evitando avaliar no
+ *   meio de uma troca.
+ * - Tempo: o relógio é consultado a cada {@value #CHECK_INTERVAL} nós; uma
+ *   iteração interrompida é descartada e vale a última completa.
+ * - Finais: com uma {@link Tablebase} configurada, posições com poucas peças
+ *   recebem o valor exato da tabela (vitórias mais próximas valem mais).
+ *
+ * Reutiliza seus buffers entre chamadas e não é thread-safe: use uma
+ * instância por thread. Várias instâncias podem compartilhar a mesma
+ * {@link TranspositionTable} (ver {@link ParallelSearch}); nesse caso quem
+ * compartilha avança a geração da tabela, não cada busca.
+ */
+public class Search {
+
+    /** Valor de vitória; vitórias mais rápidas valem mais (WIN - ply) */
+    public static final int WIN = 30_000;
+
+    /**
+     * Orçamento de tempo para buscar só por profundidade: o maior que ainda
+     * cabe no prazo em nanossegundos ({@code timeMillis * 1_000_000} somado
+     * ao {@code System.nanoTime()}) sem estourar
+     */
+    public static final long NO_TIME_LIMIT = Long.MAX_VALUE / 4_000_000L;
+
+    private static final int MAX_PLY = 64;
+    private static final int CHECK_INTERVAL = 2048;
+
+    // Avaliação
+    private static final int MAN = 100;
+    private static final int KING = 320;
+    private static final int ADVANCE = 3;
+    private static final int BACK_RANK = 8;
+    private static final int CENTER = 4;
+    private static final int CENTER_SQUARES = 0x00666600; // linhas 2-5, colunas centrais
+
+    private final MoveGenerator generator = new MoveGenerator();
+    private final TranspositionTable table;
+    private final boolean agesTable;
+    private Tablebase tablebase;
+    private boolean forcedShortcut = true;
+    private final MoveList[] lists = new MoveList[MAX_PLY + 1];
+    private final Bitboard[] boards = new Bitboard[MAX_PLY + 1];
+    private final int[][] scores = new int[MAX_PLY + 1][];
+    private final int[][] killers = new int[MAX_PLY + 1][2];
+    private final int[][] history = new int[Bitboard.SQUARES][Bitboard.SQUARES];
+
+    private long deadline;
+    private boolean aborted;
+    // Pedido de parada vindo de outra thread (ParallelSearch)
+    private volatile boolean stopped;
+    private long nodes;
+
+    // Resultado da última busca
+    private int bestMove = -1;
+    private int bestScore;
+    private int completedDepth;
+
+    public Search() {
+        this(new TranspositionTable(16));
+    }
+
+    public Search(TranspositionTable table) {
+        this(table, true);
+    }
+
+    /**
+     * @param agesTable cada {@link #search(Bitboard, boolean, long, int)}
+     *                  avança a geração da tabela; false quando ela é dividida
+     *                  com buscas simultâneas de outras partidas, que senão
+     *                  envelheceriam as entradas umas das outras a cada
+     *                  movimento (o dono da tabela chama
+     *                  {@link TranspositionTable#newSearch()} no seu ritmo)
+     */
+    public Search(TranspositionTable table, boolean agesTable) {
+        this.table = table;
+        this.agesTable = agesTable;
+        for (int i = 0; i <= MAX_PLY; i++) {
+            lists[i] = new MoveList();
+            boards[i] = new Bitboard();
+            scores[i] = new int[64];
+        }
+    }
+
+    /**
+     * Procura o melhor movimento até a profundidade máxima ou o fim do tempo
+     * @param timeMillis orçamento de tempo; a profundidade 1 é sempre completada
+     * @return true se há movimento legal (ver {@link #getBestMove()})
+     */
+    public boolean search(Bitboard board, boolean white, long timeMillis, int maxDepth) {
+        if (agesTable) {
+            table.newSearch();
+        }
+        return search(board, white, timeMillis, maxDepth, 1);
+    }
+
+    /**
+     * Como {@link #search(Bitboard, boolean, long, int)}, começando o
+     * aprofundamento em {@code firstDepth} (threads auxiliares alternam a
+     * profundidade para não repetirem o trabalho da principal)
+     */
+    boolean search(Bitboard board, boolean white, long timeMillis, int maxDepth, int firstDepth) {
+        deadline = System.nanoTime() + timeMillis * 1_000_000L;
+        nodes = 0;
+        completedDepth = 0;
+        bestMove = -1;
+        for (int[] k : killers) {
+            k[0] = k[1] = -1;
+        }
+        for (int[] h : history) {
+            java.util.Arrays.fill(h, 0);
+        }
+
+        MoveList root = lists[0];
+        root.clear();
+        generator.generate(board, white, root);
+        if (root.isEmpty()) {
+            bestScore = -WIN;
+            return false;
+        }
+        if (root.size() == 1 && forcedShortcut) {
+            // Movimento forçado: não há o que pensar
+            bestScore = evaluate(board, white);
+            return true;
+        }
+
+        for (int depth = firstDepth; depth <= Math.min(maxDepth, MAX_PLY - 1); depth++) {
+            aborted = false;
+            int score = searchRoot(board, white, depth);
+            if (aborted) {
+                break;
+            }
+            bestScore = score;
+            completedDepth = depth;
+            if (Math.abs(score) >= WIN - MAX_PLY) {
+                // Vitória ou derrota forçada encontrada
+                break;
+            }
+        }
+        return true;
+    }
+
+    private int searchRoot(Bitboard board, boolean white, int depth) {
+        MoveList moves = lists[0];
+        int[] priority = orderMoves(moves, 0, bestMove);
+        int alpha = -WIN - 1;
+        int beta = WIN + 1;
+        int localBest = 0;
+        long key = Zobrist.hash(board, white);
+        Bitboard child = boards[0];
+        for (int i = 0; i < moves.size(); i++) {
+            select(moves, i, priority);
+            child.copyFrom(board);
+            MoveGenerator.apply(child, moves, i);
+            int score = -negamax(child, key ^ Zobrist.delta(board, child) ^ Zobrist.SIDE, !white, depth - 1, 1,
+                -beta, -alpha);
+            if (aborted) {
+                return alpha;
+            }
+            if (score > alpha) {
+                alpha = score;
+                localBest = i;
+            }
+        }
+        // O melhor fica na posição 0 e é o primeiro da próxima iteração
+        moves.swap(0, localBest);
+        bestMove = moves.get(0);
+        return alpha;
+    }
+
+    /**
+     * @param key chave de Zobrist de {@code board} com a vez de {@code white},
+     *            atualizada a cada movimento pela diferença das casas
+     */
+    private int negamax(Bitboard board, long key, boolean white, int depth, int ply, int alpha, int beta) {
+        // Pelo tempo, a primeira iteração nunca é interrompida: sempre há um movimento para jogar
+        if ((++nodes & (CHECK_INTERVAL - 1)) == 0
+                && (stopped || (completedDepth > 0 && System.nanoTime() > deadline))) {
+            aborted = true;
+        }
+        if (aborted) {
+            return 0;
+        }
+        if (board.pieces(white) == 0) {
+            return -WIN + ply;
+        }
+        if (tablebase != null && Integer.bitCount(board.occupied()) <= tablebase.getMaxPieces()) {
+            int result = tablebase.probe(board, white);
+            if (result != Tablebase.NOT_FOUND) {
+                return tablebaseScore(result, ply);
+            }
+        }
+        if (ply >= MAX_PLY || (depth <= 0 && !board.hasAnyCapture(white))) {
+            return evaluate(board, white);
+        }
+
+        long entry = table.probe(key);
+        int ttMove = -1;
+        if (entry != TranspositionTable.MISS) {
+            ttMove = TranspositionTable.move(entry);
+            if (TranspositionTable.depth(entry) >= Math.max(depth, 0)) {
+                int score = fromTable(TranspositionTable.score(entry), ply);
+                int flag = TranspositionTable.flag(entry);
+                if (flag == TranspositionTable.EXACT
+                        || (flag == TranspositionTable.LOWER && score >= beta)
+                        || (flag == TranspositionTable.UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+
+        MoveList moves = lists[ply];
+        moves.clear();
+        generator.generate(board, white, moves);
+        if (moves.isEmpty()) {
+            return -WIN + ply;
+        }
+        int[] priority = orderMoves(moves, ply, ttMove);
+
+        int originalAlpha = alpha;
+        int best = -WIN - 1;
+        int bestIndexMove = -1;
+        Bitboard child = boards[ply];
+        for (int i = 0; i < moves.size(); i++) {
+            select(moves, i, priority);
+            int move = moves.get(i);
+            child.copyFrom(board);
+            MoveGenerator.apply(child, moves, i);
+            int score = -negamax(child, key ^ Zobrist.delta(board, child) ^ Zobrist.SIDE, !white, depth - 1,
+                ply + 1, -beta, -alpha);
+            if (aborted) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                bestIndexMove = move;
+            }
+            if (score > alpha) {
+                alpha = score;
+            }
+            if (alpha >= beta) {
+                if (!MoveList.isCapture(move)) {
+                    killers[ply][1] = killers[ply][0];
+                    killers[ply][0] = move;
+                    history[MoveList.from(move)][MoveList.to(move)] += depth * depth;
+                }
+                break;
+            }
+        }
+
+        int flag = best <= originalAlpha ? TranspositionTable.UPPER
+            : best >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+        table.store(key, bestIndexMove, Math.max(depth, 0), flag, toTable(best, ply));
+        return best;
+    }
+
+    // ==================== ORDENAÇÃO ====================
+
+    /**
+     * Calcula a prioridade de cada movimento; {@link #select} traz o próximo
+     * melhor para a posição i sob demanda (seleção parcial, sem ordenar tudo)
+     */
+    private int[] orderMoves(MoveList moves, int ply, int ttMove) {
+        int[] priority = scores[ply];
+        if (priority.length < moves.size()) {
+            priority = scores[ply] = new int[moves.size() * 2];
+        }
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            int score;
+            if (move == ttMove) {
+                score = 1 << 30;
+            } else if (MoveList.isCapture(move)) {
+                score = (1 << 28) + Integer.bitCount(moves.capturedMask(i)) * 1000;
+            } else if (move == killers[ply][0]) {
+                score = 1 << 27;
+            } else if (move == killers[ply][1]) {
+                score = (1 << 27) - 1;
+            } else {
+                score = history[MoveList.from(move)][MoveList.to(move)];
+            }
+            priority[i] = score;
+        }
+        return priority;
+    }
+
+    private static void select(MoveList moves, int i, int[] priority) {
+        int best = i;
+        for (int j = i + 1; j < moves.size(); j++) {
+            if (priority[j] > priority[best]) {
+                best = j;
+            }
+        }
+        if (best != i) {
+            moves.swap(i, best);
+            int tmp = priority[i];
+            priority[i] = priority[best];
+            priority[best] = tmp;
+        }
+    }
+
+    // ==================== AVALIAÇÃO ====================
+
+    /**
+     * Avaliação estática do ponto de vista de quem joga
+     */
+    public static int evaluate(Bitboard board, boolean white) {
+        int score = side(board.getWhiteMen(), board.getWhiteKings(), true)
+            - side(board.getBlackMen(), board.getBlackKings(), false);
+        return white ? score : -score;
+    }
+
+    private static int side(int men, int kings, boolean white) {
+        int score = Integer.bitCount(men) * MAN + Integer.bitCount(kings) * KING;
+        int pieces = men;
+        while (pieces != 0) {
+            int sq = Integer.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            int row = Bitboard.row(sq);
+            score += ADVANCE * (white ? 7 - row : row);
+        }
+        // Peões na última linha própria impedem a promoção do adversário
+        score += BACK_RANK * Integer.bitCount(men & (white ? Bitboard.BLACK_PROMOTION : Bitboard.WHITE_PROMOTION));
+        score += CENTER * Integer.bitCount((men | kings) & CENTER_SQUARES);
+        return score;
+    }
+
+    // Mesma escala das vitórias da busca: fim em d lances a partir deste ply
+    private static int tablebaseScore(int result, int ply) {
+        if (result == Tablebase.DRAW) {
+            return 0;
+        }
+        int distance = Tablebase.distance(result);
+        return Tablebase.isWin(result) ? WIN - ply - distance : -WIN + ply + distance;
+    }
+
+    // Vitórias são guardadas relativas ao nó, para valerem em qualquer ply
+    private static int toTable(int score, int ply) {
+        if (score >= WIN - MAX_PLY) return score + ply;
+        if (score <= -WIN + MAX_PLY) return score - ply;
+        return score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score >= WIN - MAX_PLY) return score - ply;
+        if (score <= -WIN + MAX_PLY) return score + ply;
+        return score;
+    }
+
+    /**
+     * Consulta a tabela de finais nas posições que ela cobre (null desliga)
+     */
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    /**
+     * Com um só movimento legal na raiz, devolve na hora a avaliação estática
+     * (padrão: basta o movimento). Desligado, a posição forçada é buscada até
+     * a profundidade pedida como as outras, para quem precisa do valor
+     * ({@link GameAnalyzer}: capturas obrigatórias são forçadas e o valor
+     * estático ainda não conta a peça que vai ser tomada)
+     */
+    public void setForcedShortcut(boolean forcedShortcut) {
+        this.forcedShortcut = forcedShortcut;
+    }
+
+    /**
+     * Interrompe a busca em andamento (pode ser chamado de outra thread);
+     * vale até {@link #resetStop()}
+     */
+    void stop() {
+        stopped = true;
+    }
+
+    void resetStop() {
+        stopped = false;
+    }
+
+    // ==================== RESULTADO ====================
+
+    /**
+     * Melhor movimento da última busca (codificado como em {@link MoveList}), ou -1
+     */
+    public int getBestMove() {
+        return lists[0].isEmpty() ? -1 : lists[0].get(0);
+    }
+
+    /**
+     * Casas de aterrissagem do melhor movimento (ver {@link MoveList#landing})
+     */
+    public long getBestPath() {
+        return lists[0].path(0);
+    }
+
+    public int getBestCapturedMask() {
+        return lists[0].capturedMask(0);
+    }
+
+    public int getBestScore() {
+        return bestScore;
+    }
+
+    public int getCompletedDepth() {
+        return completedDepth;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+}
@@ -0,0 +1,246 @@
+package model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Tabela de finais: resultado exato (vitória, derrota ou empate e a distância
+ * em lances até o fim) de todas as posições com até N peças, gerada por
+ * {@link TablebaseGenerator} e consultada por um {@link MappedByteBuffer}.
+ *
+ * O arquivo é dividido por material (peões e damas de cada lado). Dentro de
+ * cada material, a posição é indexada pela combinação das casas de cada tipo
+ * de peça (peões brancos fora da linha 0 e pretos fora da linha 7, onde
+ * seriam promovidos) e pela vez de jogar, com um byte por posição:
+ * - 0: empate (nenhum lado força a vitória);
+ * - 1..254: fim em {@code valor - 1} lances, derrota de quem joga se esse
+ *   número é par (0: já não tem movimentos) e vitória se é ímpar;
+ * - 255: índice sem posição (duas peças na mesma casa).
+ *
+ * Formato: "DAMASTB1", versão, N, número de materiais e, para cada material,
+ * os quatro contadores, o deslocamento e o tamanho dos dados; em seguida os
+ * dados. A leitura é feita diretamente no arquivo mapeado pelo sistema
+ * operacional, sem copiá-lo para o heap, e pode ser compartilhada por
+ * qualquer número de threads.
+ */
+public class Tablebase {
+
+    /** Resultado de {@link #probe} para posições fora da tabela */
+    public static final int NOT_FOUND = -1;
+    public static final int DRAW = 0;
+
+    static final byte[] MAGIC = {'D', 'A', 'M', 'A', 'S', 'T', 'B', '1'};
+    static final int VERSION = 1;
+    static final int INVALID = 255;
+    static final int MAX_DISTANCE = 253;
+
+    // Peões ocupam 28 casas: os brancos nunca estão na linha 0, os pretos nunca na linha 7
+    static final int MAN_SQUARES = 28;
+
+    // Maior número de peças de um tipo
+    static final int MAX_COUNT = 8;
+
+    private static final long[][] BINOMIAL = new long[Bitboard.SQUARES + 1][Bitboard.SQUARES + 1];
+
+    static {
+        for (int n = 0; n <= Bitboard.SQUARES; n++) {
+            BINOMIAL[n][0] = 1;
+            for (int k = 1; k <= n; k++) {
+                BINOMIAL[n][k] = BINOMIAL[n - 1][k - 1] + BINOMIAL[n - 1][k];
+            }
+        }
+    }
+
+    private final MappedByteBuffer data;
+    private final int maxPieces;
+    // Deslocamento dos dados de cada material (ver material()), -1 se ausente
+    private final int[] offsets = new int[(MAX_COUNT + 1) * (MAX_COUNT + 1) * (MAX_COUNT + 1) * (MAX_COUNT + 1)];
+
+    private Tablebase(MappedByteBuffer data) throws IOException {
+        this.data = data;
+        byte[] magic = new byte[MAGIC.length];
+        data.get(magic);
+        if (!Arrays.equals(magic, MAGIC) || data.getInt() != VERSION) {
+            throw new IOException("Arquivo não é uma tabela de finais (versão " + VERSION + ")");
+        }
+        maxPieces = data.getInt();
+        int materials = data.getInt();
+        Arrays.fill(offsets, -1);
+        for (int i = 0; i < materials; i++) {
+            int wm = data.get(), wk = data.get(), bm = data.get(), bk = data.get();
+            long offset = data.getLong();
+            long size = data.getLong();
+            if (offset + size > data.capacity() || size != size(wm, wk, bm, bk)) {
+                throw new IOException("Tabela de finais corrompida (material " + wm + wk + bm + bk + ")");
+            }
+            offsets[material(wm, wk, bm, bk)] = (int) offset;
+        }
+    }
+
+    /**
+     * Mapeia o arquivo em memória (somente leitura)
+     */
+    public static Tablebase open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Tabela de finais maior que 2 GB: " + file);
+            }
+            return new Tablebase(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public int getMaxPieces() {
+        return maxPieces;
+    }
+
+    /**
+     * @return o valor da posição (ver {@link #isWin}, {@link #isLoss},
+     *         {@link #distance}), {@link #DRAW} ou {@link #NOT_FOUND}
+     */
+    public int probe(Bitboard board, boolean white) {
+        int wm = board.getWhiteMen(), wk = board.getWhiteKings();
+        int bm = board.getBlackMen(), bk = board.getBlackKings();
+        int material = material(Integer.bitCount(wm), Integer.bitCount(wk), Integer.bitCount(bm), Integer.bitCount(bk));
+        if (Integer.bitCount(board.occupied()) > maxPieces || material < 0 || offsets[material] < 0
+                || (wm & Bitboard.WHITE_PROMOTION) != 0 || (bm & Bitboard.BLACK_PROMOTION) != 0) {
+            return NOT_FOUND;
+        }
+        int value = data.get(offsets[material] + (int) index(wm, wk, bm, bk, white)) & 0xFF;
+        return value == INVALID ? NOT_FOUND : value;
+    }
+
+    public static boolean isWin(int value) {
+        return value > 0 && (value & 1) == 0;
+    }
+
+    public static boolean isLoss(int value) {
+        return value > 0 && (value & 1) == 1;
+    }
+
+    /**
+     * Lances (turnos completos) até o fim com jogo perfeito dos dois lados
+     */
+    public static int distance(int value) {
+        return value - 1;
+    }
+
+    public static String describe(int value) {
+        if (value == NOT_FOUND) return "fora da tabela";
+        if (value == DRAW) return "empate";
+        return (isWin(value) ? "vitória" : "derrota") + " de quem joga em " + distance(value) + " lances";
+    }
+
+    // ==================== ÍNDICE ====================
+
+    /**
+     * Chave do material na tabela de deslocamentos, ou -1 se algum contador excede {@link #MAX_COUNT}
+     */
+    static int material(int wm, int wk, int bm, int bk) {
+        if (wm > MAX_COUNT || wk > MAX_COUNT || bm > MAX_COUNT || bk > MAX_COUNT) {
+            return -1;
+        }
+        return ((wm * (MAX_COUNT + 1) + wk) * (MAX_COUNT + 1) + bm) * (MAX_COUNT + 1) + bk;
+    }
+
+    /**
+     * Número de índices (posições e vez de jogar) de um material
+     */
+    static long size(int wm, int wk, int bm, int bk) {
+        return BINOMIAL[MAN_SQUARES][wm] * BINOMIAL[Bitboard.SQUARES][wk]
+            * BINOMIAL[MAN_SQUARES][bm] * BINOMIAL[Bitboard.SQUARES][bk] * 2;
+    }
+
+    static long index(int whiteMen, int whiteKings, int blackMen, int blackKings, boolean white) {
+        long index = rank(whiteMen >>> 4);
+        index = index * BINOMIAL[Bitboard.SQUARES][Integer.bitCount(whiteKings)] + rank(whiteKings);
+        index = index * BINOMIAL[MAN_SQUARES][Integer.bitCount(blackMen)] + rank(blackMen);
+        index = index * BINOMIAL[Bitboard.SQUARES][Integer.bitCount(blackKings)] + rank(blackKings);
+        return index * 2 + (white ? 0 : 1);
+    }
+
+    /**
+     * Posição de um índice (inverso de {@link #index}); falso se duas peças
+     * ocupam a mesma casa
+     */
+    static boolean unindex(long index, int wm, int wk, int bm, int bk, Bitboard out) {
+        index >>>= 1;
+        int blackKings = unrank(index % BINOMIAL[Bitboard.SQUARES][bk], bk, Bitboard.SQUARES);
+        index /= BINOMIAL[Bitboard.SQUARES][bk];
+        int blackMen = unrank(index % BINOMIAL[MAN_SQUARES][bm], bm, MAN_SQUARES);
+        index /= BINOMIAL[MAN_SQUARES][bm];
+        int whiteKings = unrank(index % BINOMIAL[Bitboard.SQUARES][wk], wk, Bitboard.SQUARES);
+        index /= BINOMIAL[Bitboard.SQUARES][wk];
+        int whiteMen = unrank(index, wm, MAN_SQUARES) << 4;
+        if (Integer.bitCount(whiteMen | whiteKings | blackMen | blackKings) != wm + wk + bm + bk) {
+            return false;
+        }
+        out.set(whiteMen, whiteKings, blackMen, blackKings);
+        return true;
+    }
+
+    static boolean whiteToMove(long index) {
+        return (index & 1) == 0;
+    }
+
+    // Ordem colexicográfica: soma de C(casa, i + 1) para a i-ésima casa em ordem crescente
+    private static long rank(int squares) {
+        long rank = 0;
+        int i = 1;
+        while (squares != 0) {
+            rank += BINOMIAL[Integer.numberOfTrailingZeros(squares)][i++];
+            squares &= squares - 1;
+        }
+        return rank;
+    }
+
+    private static int unrank(long rank, int count, int squares) {
+        int mask = 0;
+        int sq = squares - 1;
+        for (int i = count; i > 0; i--) {
+            while (BINOMIAL[sq][i] > rank) {
+                sq--;
+            }
+            mask |= 1 << sq;
+            rank -= BINOMIAL[sq][i];
+            sq--;
+        }
+        return mask;
+    }
+
+    // Cabeçalho: magic, versão, N, materiais e (4 bytes + 2 longs) por material
+    static int headerSize(int materials) {
+        return MAGIC.length + 12 + materials * 20;
+    }
+
+    static void writeHeader(ByteBuffer header, int maxPieces, int[][] materials, long[] offsets) {
+        header.put(MAGIC).putInt(VERSION).putInt(maxPieces).putInt(materials.length);
+        for (int i = 0; i < materials.length; i++) {
+            int[] m = materials[i];
+            header.put((byte) m[0]).put((byte) m[1]).put((byte) m[2]).put((byte) m[3]);
+            header.putLong(offsets[i]).putLong(size(m[0], m[1], m[2], m[3]));
+        }
+    }
+
+    // ==================== LINHA DE COMANDO ====================
+
+    /**
+     * Consulta uma posição: java -cp bin model.Tablebase arquivo.tb "casas w|b"
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Uso: java -cp bin model.Tablebase arquivo.tb \"casas w|b\"");
+            System.exit(2);
+        }
+        Tablebase tablebase = open(Paths.get(args[0]));
+        Bitboard board = Perft.parseBoard(args[1]);
+        boolean white = Perft.parseWhiteTurn(args[1]);
+        System.out.println("[TABELA] " + board + " " + (white ? "w" : "b") + ": "
+            + describe(tablebase.probe(board, white)));
+    }
+}
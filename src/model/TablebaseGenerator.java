@@ -0,0 +1,333 @@
+package model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Gerador retrógrado da {@link Tablebase}: resolve todas as posições com até
+ * N peças usando o {@link MoveGenerator} (as mesmas regras do GameState).
+ *
+ * Os materiais são resolvidos do menor para o maior: uma captura leva a um
+ * material com menos peças e uma promoção a um com menos peões, ambos já
+ * resolvidos. Dentro de um material:
+ * 1. cada posição é expandida uma vez; filhos em outros materiais já têm
+ *    valor conhecido e são resumidos (melhor vitória, pior derrota), e os
+ *    filhos no mesmo material ficam em uma lista de índices;
+ * 2. a passada k marca as posições que terminam em exatamente k lances:
+ *    nas ímpares, vitórias (algum filho perde em k - 1); nas pares, derrotas
+ *    (todos os filhos vencem, o mais demorado em k - 1);
+ * 3. quando nenhuma passada muda mais nada, o que sobrou é empate.
+ *
+ * Memória: a lista de filhos do maior material fica inteira no heap. Com 4
+ * peças bastam algumas centenas de MB; 5 peças pedem vários GB (-Xmx).
+ *
+ * Uso: java -cp bin model.TablebaseGenerator [--pieces N] [--out arquivo.tb] [--check]
+ */
+public class TablebaseGenerator {
+
+    private static final short NONE = Short.MAX_VALUE;
+
+    private final int maxPieces;
+    private final Map<Integer, byte[]> solved = new HashMap<>();
+    // Maior distância encontrada em todos os materiais (relatório)
+    private int maxDistance;
+
+    private final MoveGenerator generator = new MoveGenerator();
+    private final MoveList moves = new MoveList();
+    private final Bitboard board = new Bitboard();
+    private final Bitboard child = new Bitboard();
+
+    public TablebaseGenerator(int maxPieces) {
+        if (maxPieces < 2 || maxPieces > Tablebase.MAX_COUNT) {
+            throw new IllegalArgumentException("Peças deve estar entre 2 e " + Tablebase.MAX_COUNT + ": " + maxPieces);
+        }
+        this.maxPieces = maxPieces;
+    }
+
+    /**
+     * Materiais com até N peças e ao menos uma de cada lado, na ordem de resolução
+     * @return {peões brancos, damas brancas, peões pretos, damas pretas}
+     */
+    static List<int[]> materials(int maxPieces) {
+        List<int[]> result = new ArrayList<>();
+        for (int total = 2; total <= maxPieces; total++) {
+            for (int men = 0; men <= total; men++) {
+                for (int wm = 0; wm <= men; wm++) {
+                    int bm = men - wm;
+                    for (int wk = 0; wk <= total - men; wk++) {
+                        int bk = total - men - wk;
+                        if (wm + wk > 0 && bm + bk > 0) {
+                            result.add(new int[] {wm, wk, bm, bk});
+                        }
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Resolve todos os materiais e grava o arquivo
+     */
+    public void generate(Path file) throws IOException {
+        List<int[]> materials = materials(maxPieces);
+        long totalStart = System.nanoTime();
+        for (int[] m : materials) {
+            long start = System.nanoTime();
+            byte[] values = solve(m[0], m[1], m[2], m[3]);
+            solved.put(Tablebase.material(m[0], m[1], m[2], m[3]), values);
+            System.out.println(String.format("[TABELA] %d%d%d%d: %,d índices, %s  %.2fs",
+                m[0], m[1], m[2], m[3], values.length, summary(values), (System.nanoTime() - start) / 1e9));
+        }
+        write(file, materials);
+        System.out.println(String.format("[TABELA] %d materiais até %d peças em %.1fs, maior distância %d lances -> %s",
+            materials.size(), maxPieces, (System.nanoTime() - totalStart) / 1e9, maxDistance, file));
+    }
+
+    private byte[] solve(int wm, int wk, int bm, int bk) {
+        long total = Tablebase.size(wm, wk, bm, bk);
+        if (total > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Material grande demais: " + wm + wk + bm + bk);
+        }
+        int size = (int) total;
+        byte[] values = new byte[size];
+        // Resumo dos filhos em outros materiais: menor vitória possível e maior derrota (-1: não perde)
+        short[] externalWin = new short[size];
+        short[] externalLoss = new short[size];
+        int[] start = new int[size + 1];
+        int[] children = new int[Math.max(16, size * 4)];
+        int childCount = 0;
+        int[] pending = new int[size];
+        int pendingCount = 0;
+        int externalMax = 0;
+
+        for (int i = 0; i < size; i++) {
+            start[i] = childCount;
+            if (!Tablebase.unindex(i, wm, wk, bm, bk, board)) {
+                values[i] = (byte) Tablebase.INVALID;
+                continue;
+            }
+            boolean white = Tablebase.whiteToMove(i);
+            moves.clear();
+            generator.generate(board, white, moves);
+            if (moves.isEmpty()) {
+                values[i] = 1; // sem movimentos: perdeu
+                continue;
+            }
+            int win = NONE;
+            int loss = 0;
+            for (int j = 0; j < moves.size(); j++) {
+                child.copyFrom(board);
+                MoveGenerator.apply(child, moves, j);
+                int value;
+                if (child.pieces(!white) == 0) {
+                    value = 1;
+                } else if (sameMaterial(child, wm, wk, bm, bk)) {
+                    if (childCount == children.length) {
+                        children = Arrays.copyOf(children, children.length * 2);
+                    }
+                    children[childCount++] = (int) Tablebase.index(child.getWhiteMen(), child.getWhiteKings(),
+                        child.getBlackMen(), child.getBlackKings(), !white);
+                    continue;
+                } else {
+                    value = lookup(child, !white);
+                }
+                if (value == Tablebase.DRAW) {
+                    loss = -1;
+                } else if (Tablebase.isLoss(value)) {
+                    win = Math.min(win, value);       // filho perde em value - 1: vitória em value
+                    loss = -1;
+                } else if (loss >= 0) {
+                    loss = Math.max(loss, value);     // filho vence em value - 1: derrota em value
+                }
+            }
+            externalWin[i] = (short) win;
+            externalLoss[i] = (short) loss;
+            if (win != NONE) externalMax = Math.max(externalMax, win);
+            if (loss > 0) externalMax = Math.max(externalMax, loss);
+            pending[pendingCount++] = i;
+        }
+        start[size] = childCount;
+
+        int quiet = 0;
+        for (int k = 1; pendingCount > 0; k++) {
+            if (k > Tablebase.MAX_DISTANCE) {
+                throw new IllegalStateException("Distância acima do formato (" + Tablebase.MAX_DISTANCE + " lances)");
+            }
+            boolean wins = (k & 1) == 1;
+            int remaining = 0;
+            boolean changed = false;
+            for (int p = 0; p < pendingCount; p++) {
+                int i = pending[p];
+                boolean resolved;
+                if (wins) {
+                    resolved = externalWin[i] == k;
+                    for (int c = start[i]; c < start[i + 1] && !resolved; c++) {
+                        int value = values[children[c]] & 0xFF;
+                        resolved = Tablebase.isLoss(value) && Tablebase.distance(value) == k - 1;
+                    }
+                } else {
+                    int longest = externalLoss[i];
+                    for (int c = start[i]; c < start[i + 1] && longest >= 0; c++) {
+                        int value = values[children[c]] & 0xFF;
+                        longest = Tablebase.isWin(value) ? Math.max(longest, value) : -1;
+                    }
+                    resolved = longest == k;
+                }
+                if (resolved) {
+                    values[i] = (byte) (k + 1);
+                    maxDistance = Math.max(maxDistance, k);
+                    changed = true;
+                } else {
+                    pending[remaining++] = i;
+                }
+            }
+            pendingCount = remaining;
+            quiet = changed ? 0 : quiet + 1;
+            // Sem mudanças em duas passadas seguidas e sem distâncias externas pela frente: o resto é empate
+            if (quiet >= 2 && k > externalMax) {
+                break;
+            }
+        }
+        return values;
+    }
+
+    private static boolean sameMaterial(Bitboard b, int wm, int wk, int bm, int bk) {
+        return Integer.bitCount(b.getWhiteMen()) == wm && Integer.bitCount(b.getWhiteKings()) == wk
+            && Integer.bitCount(b.getBlackMen()) == bm && Integer.bitCount(b.getBlackKings()) == bk;
+    }
+
+    private int lookup(Bitboard b, boolean white) {
+        int material = Tablebase.material(Integer.bitCount(b.getWhiteMen()), Integer.bitCount(b.getWhiteKings()),
+            Integer.bitCount(b.getBlackMen()), Integer.bitCount(b.getBlackKings()));
+        byte[] values = solved.get(material);
+        long index = Tablebase.index(b.getWhiteMen(), b.getWhiteKings(), b.getBlackMen(), b.getBlackKings(), white);
+        return values[(int) index] & 0xFF;
+    }
+
+    private void write(Path file, List<int[]> materials) throws IOException {
+        long[] offsets = new long[materials.size()];
+        long offset = Tablebase.headerSize(materials.size());
+        for (int i = 0; i < materials.size(); i++) {
+            offsets[i] = offset;
+            int[] m = materials.get(i);
+            offset += Tablebase.size(m[0], m[1], m[2], m[3]);
+        }
+        ByteBuffer header = ByteBuffer.allocate(Tablebase.headerSize(materials.size()));
+        Tablebase.writeHeader(header, maxPieces, materials.toArray(new int[0][]), offsets);
+        header.flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            for (int[] m : materials) {
+                ByteBuffer data = ByteBuffer.wrap(solved.get(Tablebase.material(m[0], m[1], m[2], m[3])));
+                while (data.hasRemaining()) {
+                    channel.write(data);
+                }
+            }
+        }
+    }
+
+    private static String summary(byte[] values) {
+        long wins = 0, losses = 0, draws = 0;
+        for (byte b : values) {
+            int value = b & 0xFF;
+            if (value == Tablebase.INVALID) continue;
+            if (value == Tablebase.DRAW) draws++;
+            else if (Tablebase.isWin(value)) wins++;
+            else losses++;
+        }
+        return String.format("%,d vitórias, %,d derrotas, %,d empates", wins, losses, draws);
+    }
+
+    // ==================== CONFERÊNCIA ====================
+
+    /**
+     * Confere o arquivo gravado: o valor de cada posição tem que ser o
+     * deduzido dos valores dos seus filhos, consultados pela própria tabela
+     * @return número de posições inconsistentes
+     */
+    public static long check(Tablebase tablebase) {
+        MoveGenerator generator = new MoveGenerator();
+        MoveList moves = new MoveList();
+        Bitboard board = new Bitboard();
+        Bitboard child = new Bitboard();
+        long errors = 0;
+        for (int[] m : materials(tablebase.getMaxPieces())) {
+            long size = Tablebase.size(m[0], m[1], m[2], m[3]);
+            for (long i = 0; i < size; i++) {
+                if (!Tablebase.unindex(i, m[0], m[1], m[2], m[3], board)) {
+                    continue;
+                }
+                boolean white = Tablebase.whiteToMove(i);
+                moves.clear();
+                generator.generate(board, white, moves);
+                int win = NONE;
+                int loss = 0;
+                for (int j = 0; j < moves.size(); j++) {
+                    child.copyFrom(board);
+                    MoveGenerator.apply(child, moves, j);
+                    int value = child.pieces(!white) == 0 ? 1 : tablebase.probe(child, !white);
+                    if (Tablebase.isLoss(value)) {
+                        win = Math.min(win, value);
+                    }
+                    loss = loss >= 0 && Tablebase.isWin(value) ? Math.max(loss, value) : -1;
+                }
+                int expected = moves.isEmpty() ? 1
+                    : win != NONE ? win + 1
+                    : loss > 0 ? loss + 1
+                    : Tablebase.DRAW;
+                int actual = tablebase.probe(board, white);
+                if (actual != expected) {
+                    if (errors++ < 10) {
+                        System.out.println("[TABELA] Inconsistente: " + board + " " + (white ? "w" : "b")
+                            + " gravado " + Tablebase.describe(actual) + ", esperado " + Tablebase.describe(expected));
+                    }
+                }
+            }
+        }
+        return errors;
+    }
+
+    // ==================== LINHA DE COMANDO ====================
+
+    public static void main(String[] args) throws IOException {
+        int pieces = 4;
+        Path file = null;
+        boolean check = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--pieces": pieces = Integer.parseInt(args[++i]); break;
+                case "--out": file = Paths.get(args[++i]); break;
+                case "--check": check = true; break;
+                default:
+                    System.err.println("[TABELA] Opção desconhecida: " + args[i]);
+                    System.exit(2);
+            }
+        }
+        if (file == null) {
+            file = Paths.get("finais" + pieces + ".tb");
+        }
+
+        new TablebaseGenerator(pieces).generate(file);
+
+        if (check) {
+            long start = System.nanoTime();
+            long errors = check(Tablebase.open(file));
+            System.out.println(String.format("[TABELA] Conferência: %s (%.1fs)",
+                errors == 0 ? "ok" : errors + " posições inconsistentes", (System.nanoTime() - start) / 1e9));
+            System.exit(errors == 0 ? 0 : 1);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package model;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tabela de transposição: cache de resultados de busca indexado pela chave de
+ * Zobrist da posição.
+ *
+ * A memória é um único {@code long[]} dimensionado por um orçamento em MB,
+ * dividido em buckets de duas entradas (chave e dados, 32 bytes por bucket):
+ * - entrada 0, preferência por profundidade: só é substituída por uma busca
+ *   pelo menos tão profunda, pela mesma posição ou se for de uma busca antiga;
+ * - entrada 1, sempre substituída: recebe o que não coube na primeira.
+ * A substituição é com perda: uma posição pode ser descartada a qualquer
+ * momento, e a busca só perde tempo, nunca correção.
+ *
+ * Pode ser compartilhada entre threads e entre salas sem locks: a chave é
+ * gravada como {@code chave ^ dados}, então uma entrada meio escrita por
+ * outra thread (chave de uma gravação, dados de outra) não confere e é
+ * tratada como ausente.
+ *
+ * {@link #newSearch()} avança a geração gravada em cada entrada; entradas de
+ * gerações anteriores continuam consultáveis, mas cedem a entrada 0 a
+ * qualquer gravação nova.
+ */
+public class TranspositionTable {
+
+    // Tipo do limite guardado com o valor
+    public static final int EXACT = 0;
+    public static final int LOWER = 1;   // valor >= score (corte beta)
+    public static final int UPPER = 2;   // valor <= score (nenhum movimento superou alfa)
+
+    /** Resultado de {@link #probe} quando a posição não está na tabela */
+    public static final long MISS = 0L;
+
+    // Dados: movimento (20 bits) | profundidade (8) | tipo (2) | válido (1) | score + 2^15 (16) | geração (8)
+    private static final int MOVE_BITS = 20;
+    private static final int DEPTH_SHIFT = 20;
+    private static final int FLAG_SHIFT = 28;
+    private static final long VALID = 1L << 30;
+    private static final int SCORE_SHIFT = 32;
+    private static final int SCORE_OFFSET = 1 << 15;
+    private static final int AGE_SHIFT = 48;
+
+    // Bucket: chave0, dados0 (profundidade), chave1, dados1 (sempre substituída)
+    private static final int BUCKET_LONGS = 4;
+    private static final int BUCKET_BYTES = BUCKET_LONGS * 8;
+    private static final int MAX_BUCKETS = 1 << 28;
+
+    // Buckets examinados por occupancy(): amostra, sem percorrer a tabela inteira
+    private static final int OCCUPANCY_SAMPLE = 4096;
+
+    private final long[] table;
+    private final int mask;
+    private volatile int generation;
+
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * @param sizeMb memória da tabela; arredondada para baixo a uma potência de 2 de buckets
+     */
+    public TranspositionTable(int sizeMb) {
+        long buckets = Math.max(1024, (long) sizeMb * 1024 * 1024 / BUCKET_BYTES);
+        int capacity = Integer.highestOneBit((int) Math.min(buckets, MAX_BUCKETS));
+        table = new long[capacity * BUCKET_LONGS];
+        mask = capacity - 1;
+    }
+
+    /**
+     * @return os dados da entrada ou {@link #MISS}
+     */
+    public long probe(long key) {
+        probes.increment();
+        int base = ((int) key & mask) * BUCKET_LONGS;
+        long entry = table[base + 1];
+        if ((table[base] ^ entry) == key && entry != MISS) {
+            hits.increment();
+            return entry;
+        }
+        entry = table[base + 3];
+        if ((table[base + 2] ^ entry) == key && entry != MISS) {
+            hits.increment();
+            return entry;
+        }
+        return MISS;
+    }
+
+    public void store(long key, int move, int depth, int flag, int score) {
+        int base = ((int) key & mask) * BUCKET_LONGS;
+        int age = generation & 0xFF;
+        long entry = pack(move, depth, flag, score) | ((long) age << AGE_SHIFT);
+        long preferred = table[base + 1];
+        if (depth >= depth(preferred)
+                || (table[base] ^ preferred) == key
+                || age(preferred) != age) {
+            table[base] = key ^ entry;
+            table[base + 1] = entry;
+        } else {
+            table[base + 2] = key ^ entry;
+            table[base + 3] = entry;
+        }
+    }
+
+    /**
+     * Marca o início de uma nova busca: as entradas atuais passam a ser antigas
+     */
+    public void newSearch() {
+        generation++;
+    }
+
+    /**
+     * Esvazia a tabela (as estatísticas de consulta são mantidas)
+     */
+    public void clear() {
+        java.util.Arrays.fill(table, 0L);
+    }
+
+    // ==================== ESTATÍSTICAS ====================
+
+    /**
+     * Fração das consultas que encontraram a posição desde o último {@link #resetStats()}
+     */
+    public double hitRate() {
+        long total = probes.sum();
+        return total == 0 ? 0 : (double) hits.sum() / total;
+    }
+
+    public long getProbes() {
+        return probes.sum();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public void resetStats() {
+        probes.reset();
+        hits.reset();
+    }
+
+    /**
+     * Fração das entradas ocupadas, estimada por amostra dos primeiros buckets
+     * (as chaves de Zobrist espalham as posições uniformemente)
+     */
+    public double occupancy() {
+        int sample = Math.min(OCCUPANCY_SAMPLE, mask + 1);
+        int used = 0;
+        for (int i = 0; i < sample * BUCKET_LONGS; i += 2) {
+            if (table[i + 1] != MISS) {
+                used++;
+            }
+        }
+        return used / (sample * 2.0);
+    }
+
+    public int getEntries() {
+        return (mask + 1) * 2;
+    }
+
+    public int getSizeMb() {
+        return (int) ((long) (mask + 1) * BUCKET_BYTES / (1024 * 1024));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d MB, %,d entradas, acertos %.1f%% de %,d consultas, ocupação %.1f%%",
+            getSizeMb(), getEntries(), hitRate() * 100, getProbes(), occupancy() * 100);
+    }
+
+    // ==================== ENTRADAS ====================
+
+    static long pack(int move, int depth, int flag, int score) {
+        return (move & ((1L << MOVE_BITS) - 1))
+            | ((long) depth << DEPTH_SHIFT)
+            | ((long) flag << FLAG_SHIFT)
+            | VALID
+            | ((long) (score + SCORE_OFFSET) << SCORE_SHIFT);
+    }
+
+    public static int move(long entry) {
+        return (int) (entry & ((1L << MOVE_BITS) - 1));
+    }
+
+    public static int depth(long entry) {
+        return (int) (entry >>> DEPTH_SHIFT) & 0xFF;
+    }
+
+    public static int flag(long entry) {
+        return (int) (entry >>> FLAG_SHIFT) & 3;
+    }
+
+    public static int score(long entry) {
+        return (int) ((entry >>> SCORE_SHIFT) & 0xFFFF) - SCORE_OFFSET;
+    }
+
+    static int age(long entry) {
+        return (int) (entry >>> AGE_SHIFT) & 0xFF;
+    }
+}
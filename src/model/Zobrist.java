@@ -0,0 +1,83 @@
+package model;
+
+/**
+ * Chaves de Zobrist para identificar posições com um long de 64 bits.
+ *
+ * A chave é o XOR de um valor aleatório por (tipo de peça, casa) ocupada,
+ * mais {@link #SIDE} quando é a vez das pretas. As tabelas usam semente fixa,
+ * então a mesma posição tem a mesma chave em qualquer execução (necessário
+ * para arquivos e caches persistentes indexados por chave).
+ */
+public final class Zobrist {
+
+    // Tipos de peça, na mesma ordem de Bitboard.pieceType()
+    public static final int WHITE_MAN = 0;
+    public static final int WHITE_KING = 1;
+    public static final int BLACK_MAN = 2;
+    public static final int BLACK_KING = 3;
+
+    private static final long[][] PIECE = new long[4][Bitboard.SQUARES];
+
+    /** Incluída na chave quando é a vez das pretas */
+    public static final long SIDE;
+
+    static {
+        long seed = 0x44616D6173L; // "Damas"
+        for (int type = 0; type < 4; type++) {
+            for (int sq = 0; sq < Bitboard.SQUARES; sq++) {
+                seed += 0x9E3779B97F4A7C15L;
+                PIECE[type][sq] = mix(seed);
+            }
+        }
+        seed += 0x9E3779B97F4A7C15L;
+        SIDE = mix(seed);
+    }
+
+    private Zobrist() {
+        // Classe utilitária
+    }
+
+    // SplitMix64
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    public static long piece(int type, int sq) {
+        return PIECE[type][sq];
+    }
+
+    /**
+     * Calcula a chave completa da posição
+     */
+    public static long hash(Bitboard board, boolean whiteTurn) {
+        long key = whiteTurn ? 0L : SIDE;
+        key ^= hash(board.getWhiteMen(), WHITE_MAN);
+        key ^= hash(board.getWhiteKings(), WHITE_KING);
+        key ^= hash(board.getBlackMen(), BLACK_MAN);
+        key ^= hash(board.getBlackKings(), BLACK_KING);
+        return key;
+    }
+
+    /**
+     * Diferença entre as chaves de duas posições, sem a vez de jogar: só as
+     * casas que mudaram entram no XOR. A chave depois de um movimento é
+     * {@code key ^ delta(antes, depois) ^ SIDE}, sem percorrer o tabuleiro.
+     */
+    public static long delta(Bitboard before, Bitboard after) {
+        return hash(before.getWhiteMen() ^ after.getWhiteMen(), WHITE_MAN)
+            ^ hash(before.getWhiteKings() ^ after.getWhiteKings(), WHITE_KING)
+            ^ hash(before.getBlackMen() ^ after.getBlackMen(), BLACK_MAN)
+            ^ hash(before.getBlackKings() ^ after.getBlackKings(), BLACK_KING);
+    }
+
+    private static long hash(int mask, int type) {
+        long key = 0L;
+        while (mask != 0) {
+            key ^= PIECE[type][Integer.numberOfTrailingZeros(mask)];
+            mask &= mask - 1;
+        }
+        return key;
+    }
+}
@@ -0,0 +1,337 @@
+package network;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Codificação binária compacta das mensagens do {@link GameProtocol}.
+ *
+ * Cada frame começa com um opcode de um byte com o bit mais alto ligado
+ * (0x80-0xFF), o que o distingue de uma linha de texto (ASCII); assim a mesma
+ * conexão pode receber os dois formatos. Movimentos ocupam 2 bytes: as quatro
+ * coordenadas de 3 bits (r1, c1, r2, c2) empacotadas em 12 bits.
+ *
+ * Negociação: o cliente envia {@code CONNECT|nome|BIN} em texto; se o
+ * servidor responder {@code CONNECTED|BIN}, as mensagens seguintes podem usar
+ * frames binários. Um servidor antigo responde apenas {@code CONNECTED} e a
+ * conexão continua em texto.
+ */
+public class BinaryProtocol {
+
+    private BinaryProtocol() {
+        // Construtor privado para classe utilitária
+    }
+
+    /** Capacidade anunciada no CONNECT e confirmada no CONNECTED */
+    public static final String CAPABILITY = "BIN";
+
+    /** Resposta do servidor que aceita frames binários */
+    public static final String CONNECTED = GameProtocol.CONNECTED + GameProtocol.SEPARATOR + CAPABILITY;
+
+    // Opcodes (frames de 1 byte, exceto onde indicado)
+    public static final byte MOVE = (byte) 0x81;            // + 2 bytes de movimento
+    public static final byte OPPONENT_MOVE = (byte) 0x82;   // + 2 bytes de movimento
+    public static final byte YOUR_TURN = (byte) 0x83;
+    public static final byte MOVE_INVALID = (byte) 0x84;
+    public static final byte WAIT_FOR_PLAYER = (byte) 0x85;
+    public static final byte START_WHITE = (byte) 0x86;
+    public static final byte START_BLACK = (byte) 0x87;
+    public static final byte DISCONNECT = (byte) 0x88;
+    public static final byte GAME_OVER = (byte) 0x89;       // + 2 bytes de tamanho + texto UTF-8
+    public static final byte ERROR = (byte) 0x8A;           // + 2 bytes de tamanho + texto UTF-8
+    public static final byte YOUR_TURN_CLOCK = (byte) 0x8B; // + 2 x 4 bytes: ms do jogador e do oponente
+
+    /**
+     * Tamanho máximo de um frame (e de uma linha de texto) aceito pelos
+     * leitores; textos de GAME_OVER/ERROR mais longos são truncados
+     */
+    public static final int MAX_FRAME = 1024;
+
+    // ==================== NEGOCIAÇÃO ====================
+
+    /**
+     * Cria mensagem de conexão pedindo frames binários
+     * Formato: CONNECT|nomeJogador|BIN
+     */
+    public static String createConnectMessage(String playerName) {
+        return GameProtocol.createConnectMessage(playerName) + GameProtocol.SEPARATOR + CAPABILITY;
+    }
+
+    /**
+     * Idem, com o rating do jogador antes da capacidade (negativo: sem rating)
+     * Formato: CONNECT|nomeJogador|RATING=1500|BIN
+     */
+    public static String createConnectMessage(String playerName, int rating) {
+        if (rating < 0) {
+            return createConnectMessage(playerName);
+        }
+        return GameProtocol.createConnectMessage(playerName, rating) + GameProtocol.SEPARATOR + CAPABILITY;
+    }
+
+    /**
+     * Cria mensagem de retomada de sessão pedindo frames binários
+     * Formato: RESUME|token|BIN
+     */
+    public static String createResumeMessage(String token) {
+        return GameProtocol.createResumeMessage(token) + GameProtocol.SEPARATOR + CAPABILITY;
+    }
+
+    /**
+     * Verifica se o conteúdo do CONNECT (após "CONNECT|") pede frames binários
+     */
+    public static boolean requestsBinary(String connectContent) {
+        return connectContent.endsWith(GameProtocol.SEPARATOR + CAPABILITY);
+    }
+
+    /**
+     * Nome do jogador no conteúdo do CONNECT, sem a capacidade binária e o
+     * rating ({@link GameProtocol#RATING})
+     */
+    public static String playerName(String connectContent) {
+        String name = connectContent;
+        if (requestsBinary(name)) {
+            name = name.substring(0, name.length() - CAPABILITY.length() - 1);
+        }
+        int rating = name.indexOf(GameProtocol.SEPARATOR + GameProtocol.RATING);
+        return rating < 0 ? name : name.substring(0, rating);
+    }
+
+    // ==================== FRAMES ====================
+
+    /**
+     * Verifica se o byte inicia um frame binário (e não uma linha de texto)
+     */
+    public static boolean isBinary(byte first) {
+        return (first & 0x80) != 0;
+    }
+
+    /**
+     * Tamanho do frame que começa em {@code offset}
+     * @return o tamanho em bytes, 0 se ainda faltam bytes, ou -1 se o opcode é
+     *         desconhecido ou o frame passa de {@link #MAX_FRAME}
+     */
+    public static int frameLength(byte[] data, int offset, int available) {
+        if (available < 1) return 0;
+        switch (data[offset]) {
+            case MOVE:
+            case OPPONENT_MOVE:
+                return available >= 3 ? 3 : 0;
+            case YOUR_TURN:
+            case MOVE_INVALID:
+            case WAIT_FOR_PLAYER:
+            case START_WHITE:
+            case START_BLACK:
+            case DISCONNECT:
+                return 1;
+            case YOUR_TURN_CLOCK:
+                return available >= 9 ? 9 : 0;
+            case GAME_OVER:
+            case ERROR:
+                if (available < 3) return 0;
+                int length = 3 + readUnsignedShort(data, offset + 1);
+                if (length > MAX_FRAME) return -1;
+                return available >= length ? length : 0;
+            default:
+                return -1;
+        }
+    }
+
+    // ==================== MOVIMENTOS ====================
+
+    /**
+     * Empacota um movimento em 12 bits (3 bits por coordenada)
+     */
+    public static int packMove(int r1, int c1, int r2, int c2) {
+        if (((r1 | c1 | r2 | c2) & ~7) != 0) {
+            throw new IllegalArgumentException("Coordenada fora do tabuleiro");
+        }
+        return (r1 << 9) | (c1 << 6) | (r2 << 3) | c2;
+    }
+
+    public static int r1(int packed) { return (packed >>> 9) & 7; }
+    public static int c1(int packed) { return (packed >>> 6) & 7; }
+    public static int r2(int packed) { return (packed >>> 3) & 7; }
+    public static int c2(int packed) { return packed & 7; }
+
+    /**
+     * Lê o movimento empacotado de um frame MOVE/OPPONENT_MOVE, sem alocação
+     */
+    public static int readMove(byte[] frame, int offset) {
+        return readUnsignedShort(frame, offset + 1);
+    }
+
+    /**
+     * Lê o movimento para {@code out} = [r1, c1, r2, c2], sem alocação
+     */
+    public static void readMove(byte[] frame, int offset, int[] out) {
+        int packed = readMove(frame, offset);
+        out[0] = r1(packed);
+        out[1] = c1(packed);
+        out[2] = r2(packed);
+        out[3] = c2(packed);
+    }
+
+    public static void writeMove(ByteBuffer out, byte opcode, int r1, int c1, int r2, int c2) {
+        out.put(opcode);
+        out.putShort((short) packMove(r1, c1, r2, c2));
+    }
+
+    public static byte[] createMoveFrame(int r1, int c1, int r2, int c2) {
+        return moveFrame(MOVE, r1, c1, r2, c2);
+    }
+
+    public static byte[] createOpponentMoveFrame(int r1, int c1, int r2, int c2) {
+        return moveFrame(OPPONENT_MOVE, r1, c1, r2, c2);
+    }
+
+    /**
+     * Frame OPPONENT_MOVE compartilhado (não deve ser alterado): o mesmo
+     * array vai para os dois jogadores e os espectadores, sem cópia por envio
+     */
+    public static byte[] opponentMoveFrame(int r1, int c1, int r2, int c2) {
+        return OpponentMoveFrames.FRAMES[packMove(r1, c1, r2, c2)];
+    }
+
+    // Um frame por movimento empacotado (4096), criados ao primeiro uso
+    private static final class OpponentMoveFrames {
+        static final byte[][] FRAMES = new byte[1 << 12][];
+
+        static {
+            for (int packed = 0; packed < FRAMES.length; packed++) {
+                FRAMES[packed] = new byte[] {OPPONENT_MOVE, (byte) (packed >>> 8), (byte) packed};
+            }
+        }
+    }
+
+    private static byte[] moveFrame(byte opcode, int r1, int c1, int r2, int c2) {
+        int packed = packMove(r1, c1, r2, c2);
+        return new byte[] {opcode, (byte) (packed >>> 8), (byte) packed};
+    }
+
+    // ==================== TEXTO ====================
+
+    /**
+     * Texto de um frame GAME_OVER/ERROR
+     */
+    public static String readText(byte[] frame, int offset) {
+        int length = readUnsignedShort(frame, offset + 1);
+        return new String(frame, offset + 3, length, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] textFrame(byte opcode, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, MAX_FRAME - 3);
+        // Não corta um caractere UTF-8 ao meio (bytes de continuação são 10xxxxxx)
+        while (length < bytes.length && length > 0 && (bytes[length] & 0xC0) == 0x80) {
+            length--;
+        }
+        byte[] frame = new byte[3 + length];
+        frame[0] = opcode;
+        frame[1] = (byte) (length >>> 8);
+        frame[2] = (byte) length;
+        System.arraycopy(bytes, 0, frame, 3, length);
+        return frame;
+    }
+
+    private static int readUnsignedShort(byte[] data, int offset) {
+        return ((data[offset] & 0xFF) << 8) | (data[offset + 1] & 0xFF);
+    }
+
+    // ==================== RELÓGIOS ====================
+
+    /**
+     * Frame de vez com os relógios; tempos negativos vão como 0 e acima de
+     * ~24 dias são limitados
+     */
+    public static byte[] createYourTurnFrame(long ownMillis, long opponentMillis) {
+        byte[] frame = new byte[9];
+        frame[0] = YOUR_TURN_CLOCK;
+        writeInt(frame, 1, (int) Math.max(0, Math.min(ownMillis, Integer.MAX_VALUE)));
+        writeInt(frame, 5, (int) Math.max(0, Math.min(opponentMillis, Integer.MAX_VALUE)));
+        return frame;
+    }
+
+    private static void writeInt(byte[] data, int offset, int value) {
+        data[offset] = (byte) (value >>> 24);
+        data[offset + 1] = (byte) (value >>> 16);
+        data[offset + 2] = (byte) (value >>> 8);
+        data[offset + 3] = (byte) value;
+    }
+
+    private static int readInt(byte[] data, int offset) {
+        return ((data[offset] & 0xFF) << 24) | ((data[offset + 1] & 0xFF) << 16)
+            | ((data[offset + 2] & 0xFF) << 8) | (data[offset + 3] & 0xFF);
+    }
+
+    // ==================== CONVERSÃO TEXTO <-> BINÁRIO ====================
+
+    // Frames de um byte pré-alocados, enviados sem cópia
+    private static final byte[] YOUR_TURN_FRAME = {YOUR_TURN};
+    private static final byte[] MOVE_INVALID_FRAME = {MOVE_INVALID};
+    private static final byte[] WAIT_FRAME = {WAIT_FOR_PLAYER};
+    private static final byte[] DISCONNECT_FRAME = {DISCONNECT};
+
+    /**
+     * Converte uma mensagem de texto do protocolo no frame binário equivalente.
+     * Mensagens fixas (YOUR_TURN, MOVE_INVALID...) retornam arrays compartilhados
+     * que não devem ser alterados.
+     * @return o frame ou null se a mensagem não tem forma binária (ex.: CONNECTED)
+     */
+    public static byte[] fromText(String message) {
+        switch (message) {
+            case GameProtocol.YOUR_TURN: return YOUR_TURN_FRAME;
+            case GameProtocol.MOVE_INVALID: return MOVE_INVALID_FRAME;
+            case GameProtocol.WAIT_FOR_PLAYER: return WAIT_FRAME;
+            case GameProtocol.DISCONNECT: return DISCONNECT_FRAME;
+            default: break;
+        }
+        String type = GameProtocol.getMessageType(message);
+        String content = GameProtocol.getMessageContent(message);
+        switch (type) {
+            case GameProtocol.MOVE:
+            case GameProtocol.OPPONENT_MOVE:
+                int[] move = GameProtocol.parseMove(content);
+                if (move.length != 4) return null;
+                return moveFrame(type.equals(GameProtocol.MOVE) ? MOVE : OPPONENT_MOVE,
+                    move[0], move[1], move[2], move[3]);
+            case GameProtocol.START:
+                return new byte[] {content.equals("WHITE") ? START_WHITE : START_BLACK};
+            case GameProtocol.YOUR_TURN:
+                long[] clocks = GameProtocol.parseClocks(content);
+                return clocks == null ? YOUR_TURN_FRAME : createYourTurnFrame(clocks[0], clocks[1]);
+            case GameProtocol.GAME_OVER:
+                return textFrame(GAME_OVER, content);
+            case GameProtocol.ERROR:
+                return textFrame(ERROR, content);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Converte um frame binário completo na mensagem de texto equivalente
+     * (para código que trata as mensagens como texto, como o cliente gráfico)
+     */
+    public static String toText(byte[] frame, int offset) {
+        switch (frame[offset]) {
+            case MOVE:
+            case OPPONENT_MOVE:
+                int packed = readMove(frame, offset);
+                int r1 = r1(packed), c1 = c1(packed), r2 = r2(packed), c2 = c2(packed);
+                return frame[offset] == MOVE
+                    ? GameProtocol.createMoveMessage(r1, c1, r2, c2)
+                    : GameProtocol.createOpponentMoveMessage(r1, c1, r2, c2);
+            case YOUR_TURN: return GameProtocol.YOUR_TURN;
+            case YOUR_TURN_CLOCK:
+                return GameProtocol.createYourTurnMessage(readInt(frame, offset + 1), readInt(frame, offset + 5));
+            case MOVE_INVALID: return GameProtocol.MOVE_INVALID;
+            case WAIT_FOR_PLAYER: return GameProtocol.WAIT_FOR_PLAYER;
+            case START_WHITE: return GameProtocol.createStartMessage("WHITE");
+            case START_BLACK: return GameProtocol.createStartMessage("BLACK");
+            case DISCONNECT: return GameProtocol.DISCONNECT;
+            case GAME_OVER: return GameProtocol.createGameOverMessage(readText(frame, offset));
+            case ERROR: return GameProtocol.createErrorMessage(readText(frame, offset));
+            default: return "";
+        }
+    }
+}
@@ -22,11 +22,24 @@ public class GameProtocol {
     public static final String GAME_OVER = "GAME_OVER";
     public static final String DISCONNECT = "DISCONNECT";
     public static final String ERROR = "ERROR";
+    public static final String SPECTATE = "SPECTATE";
+    public static final String SPECTATING = "SPECTATING";
+    public static final String BOARD = "BOARD";
+    public static final String SESSION = "SESSION";
+    public static final String RESUME = "RESUME";
+    public static final String RESIGN = "RESIGN";
+    // Proposta de empate: o oponente a recebe e responde com DRAW_ACCEPT ou DRAW_DECLINE
+    public static final String DRAW_OFFER = "DRAW_OFFER";
+    public static final String DRAW_ACCEPT = "DRAW_ACCEPT";
+    public static final String DRAW_DECLINE = "DRAW_DECLINE";
     
     // Separadores
     public static final String SEPARATOR = "|";
     public static final String FIELD_SEPARATOR = ",";
     
+    // Campo opcional do CONNECT com o rating do jogador
+    public static final String RATING = "RATING=";
+    
     /**
      * Cria mensagem de conexão
      * Formato: CONNECT|nomeJogador
@@ -35,6 +48,33 @@ public class GameProtocol {
         return CONNECT + SEPARATOR + playerName;
     }
     
+    /**
+     * Cria mensagem de conexão com o rating usado no pareamento
+     * Formato: CONNECT|nomeJogador|RATING=1500
+     */
+    public static String createConnectMessage(String playerName, int rating) {
+        return createConnectMessage(playerName) + SEPARATOR + RATING + rating;
+    }
+    
+    /**
+     * Rating informado no conteúdo do CONNECT (após "CONNECT|"), em qualquer
+     * posição depois do nome
+     * @return o rating ou -1 se ausente ou inválido
+     */
+    public static int parseRating(String connectContent) {
+        int index = connectContent.indexOf(SEPARATOR + RATING);
+        if (index < 0) {
+            return -1;
+        }
+        int start = index + SEPARATOR.length() + RATING.length();
+        int end = connectContent.indexOf(SEPARATOR, start);
+        try {
+            return Math.max(-1, Integer.parseInt(connectContent.substring(start, end < 0 ? connectContent.length() : end)));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+    
     /**
      * Cria mensagem de movimento
      * Formato: MOVE|r1,c1,r2,c2
@@ -59,6 +99,33 @@ public class GameProtocol {
         return OPPONENT_MOVE + SEPARATOR + r1 + FIELD_SEPARATOR + c1 + FIELD_SEPARATOR + r2 + FIELD_SEPARATOR + c2;
     }
     
+    /**
+     * Cria mensagem de vez com os relógios da partida (tempo restante em ms)
+     * Formato: YOUR_TURN|msJogador,msOponente
+     */
+    public static String createYourTurnMessage(long ownMillis, long opponentMillis) {
+        return YOUR_TURN + SEPARATOR + ownMillis + FIELD_SEPARATOR + opponentMillis;
+    }
+    
+    /**
+     * Parse dos relógios do conteúdo de um YOUR_TURN (msJogador,msOponente)
+     * @return array [msJogador, msOponente] ou null se a partida não tem relógio
+     */
+    public static long[] parseClocks(String turnContent) {
+        int comma = turnContent.indexOf(FIELD_SEPARATOR);
+        if (comma < 0) {
+            return null;
+        }
+        try {
+            return new long[] {
+                Long.parseLong(turnContent.substring(0, comma)),
+                Long.parseLong(turnContent.substring(comma + 1))
+            };
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+    
     /**
      * Cria mensagem de fim de jogo
      * Formato: GAME_OVER|mensagem
@@ -75,6 +142,91 @@ public class GameProtocol {
         return ERROR + SEPARATOR + message;
     }
     
+    /**
+     * Cria mensagem com o token da sessão, enviada depois do CONNECTED
+     * Formato: SESSION|token
+     */
+    public static String createSessionMessage(String token) {
+        return SESSION + SEPARATOR + token;
+    }
+    
+    /**
+     * Cria mensagem para retomar a partida depois de uma queda, no lugar do CONNECT
+     * Formato: RESUME|token
+     */
+    public static String createResumeMessage(String token) {
+        return RESUME + SEPARATOR + token;
+    }
+    
+    /**
+     * Cria mensagem para assistir uma partida em andamento
+     * Formato: SPECTATE|idSala
+     */
+    public static String createSpectateMessage(int roomId) {
+        return SPECTATE + SEPARATOR + roomId;
+    }
+    
+    /**
+     * Cria a foto do tabuleiro: vez de jogar (W ou B) e as 32 casas escuras,
+     * linha a linha a partir do topo, com . (vazia), w/W (peão/dama branca)
+     * e b/B (peão/dama preta)
+     * Formato: BOARD|W|bbbbbbbbbbbb........wwwwwwwwwwww
+     */
+    public static String createBoardMessage(String[][] board, boolean whiteTurn) {
+        StringBuilder sb = new StringBuilder(BOARD.length() + 36);
+        sb.append(BOARD).append(SEPARATOR).append(whiteTurn ? 'W' : 'B').append(SEPARATOR);
+        for (int r = 0; r < 8; r++) {
+            for (int c = (r + 1) % 2; c < 8; c += 2) {
+                String piece = board[r][c];
+                char code = '.';
+                if (piece != null && !piece.isEmpty()) {
+                    code = piece.contains("⚪") ? 'w' : 'b';
+                    if (piece.contains("D")) {
+                        code = Character.toUpperCase(code);
+                    }
+                }
+                sb.append(code);
+            }
+        }
+        return sb.toString();
+    }
+    
+    /**
+     * Tabuleiro 8x8 (no formato de GameState.getBoard()) do conteúdo de um BOARD
+     * @return o tabuleiro ou null se o conteúdo é inválido
+     */
+    public static String[][] parseBoard(String boardContent) {
+        int start = boardContent.indexOf(SEPARATOR) + 1;
+        if (start != 2 || boardContent.length() != start + 32) {
+            return null;
+        }
+        String[][] board = new String[8][8];
+        int i = start;
+        for (int r = 0; r < 8; r++) {
+            for (int c = 0; c < 8; c++) {
+                board[r][c] = "";
+            }
+            for (int c = (r + 1) % 2; c < 8; c += 2) {
+                switch (boardContent.charAt(i++)) {
+                    case '.': break;
+                    case 'w': board[r][c] = "⚪"; break;
+                    case 'W': board[r][c] = "⚪D"; break;
+                    case 'b': board[r][c] = "⚫"; break;
+                    case 'B': board[r][c] = "⚫D"; break;
+                    default: return null;
+                }
+            }
+        }
+        return board;
+    }
+    
+    /**
+     * Vez de jogar no conteúdo de um BOARD
+     */
+    public static boolean isWhiteTurn(String boardContent) {
+        return boardContent.startsWith("W");
+    }
+    
     /**
      * Extrai o tipo da mensagem
      */
@@ -118,4 +270,55 @@ public class GameProtocol {
             return new int[0];
         }
     }
+    
+    /**
+     * Verifica se a linha em bytes (ASCII/UTF-8) é do tipo informado, isto é,
+     * se começa com o tipo seguido do separador ou do fim da linha.
+     * Não aloca: usado pelo servidor NIO sobre o buffer de leitura.
+     */
+    public static boolean isMessageType(byte[] line, int offset, int length, String type) {
+        int typeLength = type.length();
+        if (length < typeLength) {
+            return false;
+        }
+        for (int i = 0; i < typeLength; i++) {
+            if (line[offset + i] != type.charAt(i)) {
+                return false;
+            }
+        }
+        return length == typeLength || line[offset + typeLength] == SEPARATOR.charAt(0);
+    }
+    
+    /**
+     * Parse de movimento (r1,c1,r2,c2) diretamente dos bytes da linha, sem alocação
+     * @param out array de 4 posições que recebe [r1, c1, r2, c2]
+     * @return true se o formato é válido
+     */
+    public static boolean parseMove(byte[] data, int offset, int length, int[] out) {
+        int field = 0;
+        int value = 0;
+        int digits = 0;
+        boolean negative = false;
+        int end = offset + length;
+        for (int i = offset; i <= end; i++) {
+            byte b = i < end ? data[i] : (byte) FIELD_SEPARATOR.charAt(0);
+            if (b == FIELD_SEPARATOR.charAt(0)) {
+                if (digits == 0 || field == 4) {
+                    return false;
+                }
+                out[field++] = negative ? -value : value;
+                value = 0;
+                digits = 0;
+                negative = false;
+            } else if (b == '-' && digits == 0 && !negative) {
+                negative = true;
+            } else if (b >= '0' && b <= '9' && digits < 9) {
+                value = value * 10 + (b - '0');
+                digits++;
+            } else {
+                return false;
+            }
+        }
+        return field == 4;
+    }
 }
@@ -0,0 +1,133 @@
+package network;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Leitor bloqueante de mensagens que aceita, no mesmo fluxo, linhas de texto
+ * do {@link GameProtocol} e frames do {@link BinaryProtocol}.
+ *
+ * Frames binários são convertidos para a mensagem de texto equivalente, de
+ * modo que quem lê (cliente gráfico, salas no modo bloqueante) trata os dois
+ * formatos da mesma forma. Textos são decodificados em UTF-8. Com
+ * {@code decodeMoves}, os frames MOVE não viram texto: o movimento fica em
+ * {@link #getMove()} e a leitura não aloca nada.
+ */
+public class MessageReader {
+    /**
+     * Devolvido por {@link #readMessage()} no lugar do texto quando chega um
+     * frame MOVE e o leitor decodifica movimentos. É uma instância própria,
+     * diferente de qualquer linha lida: compare com ==.
+     */
+    public static final String MOVE_FRAME = new String(GameProtocol.MOVE);
+
+    // Tamanho máximo de uma mensagem (linha ou frame)
+    private static final int MAX_MESSAGE = BinaryProtocol.MAX_FRAME;
+
+    private final InputStream in;
+    private final boolean decodeMoves;
+    private final byte[] buffer = new byte[MAX_MESSAGE];
+    private int start;
+    private int end;
+    // Movimento empacotado do último MOVE_FRAME
+    private int move;
+
+    public MessageReader(InputStream in) {
+        this(in, false);
+    }
+
+    /**
+     * @param decodeMoves devolve {@link #MOVE_FRAME} para frames MOVE em vez
+     *                    de convertê-los para texto
+     */
+    public MessageReader(InputStream in, boolean decodeMoves) {
+        this.in = in;
+        this.decodeMoves = decodeMoves;
+    }
+
+    /**
+     * Lê a próxima mensagem, bloqueando a thread atual
+     * @return a mensagem em texto, {@link #MOVE_FRAME} ou null se a conexão foi encerrada
+     */
+    public String readMessage() throws IOException {
+        while (true) {
+            if (start < end) {
+                if (BinaryProtocol.isBinary(buffer[start])) {
+                    int length = BinaryProtocol.frameLength(buffer, start, end - start);
+                    if (length < 0) {
+                        throw new IOException("Frame binário desconhecido");
+                    }
+                    if (length > 0) {
+                        int frame = start;
+                        start += length;
+                        if (decodeMoves && buffer[frame] == BinaryProtocol.MOVE) {
+                            move = BinaryProtocol.readMove(buffer, frame);
+                            return MOVE_FRAME;
+                        }
+                        return BinaryProtocol.toText(buffer, frame);
+                    }
+                } else {
+                    for (int i = start; i < end; i++) {
+                        if (buffer[i] == '\n') {
+                            int length = i - start;
+                            if (length > 0 && buffer[i - 1] == '\r') {
+                                length--;
+                            }
+                            String line = new String(buffer, start, length, StandardCharsets.UTF_8);
+                            start = i + 1;
+                            return line;
+                        }
+                    }
+                }
+            }
+
+            // Mantém no início do buffer a mensagem ainda incompleta
+            if (start > 0) {
+                System.arraycopy(buffer, start, buffer, 0, end - start);
+                end -= start;
+                start = 0;
+            }
+            if (end == buffer.length) {
+                throw new IOException("Mensagem muito longa");
+            }
+            int read = in.read(buffer, end, buffer.length - end);
+            if (read < 0) {
+                return null;
+            }
+            end += read;
+        }
+    }
+
+    /**
+     * Movimento do último {@link #MOVE_FRAME}, empacotado como em
+     * {@link BinaryProtocol#packMove}
+     */
+    public int getMove() {
+        return move;
+    }
+
+    /**
+     * Lê para o buffer o que já chegou, sem consumir mensagens: com um timeout
+     * curto no socket, detecta se o outro lado encerrou a conexão sem perder
+     * o que ele tenha enviado. Um {@link java.net.SocketTimeoutException}
+     * apenas indica que não havia nada para ler.
+     * @return false se a conexão foi encerrada
+     */
+    public boolean poll() throws IOException {
+        if (start > 0) {
+            System.arraycopy(buffer, start, buffer, 0, end - start);
+            end -= start;
+            start = 0;
+        }
+        if (end == buffer.length) {
+            return true;
+        }
+        int read = in.read(buffer, end, buffer.length - end);
+        if (read < 0) {
+            return false;
+        }
+        end += read;
+        return true;
+    }
+}
@@ -0,0 +1,34 @@
+package server;
+
+/**
+ * Lugar de um jogador de uma sala reconstruída do diário ({@link GameJournal})
+ * enquanto ele não volta com RESUME: descarta tudo o que a sala envia
+ */
+class AbsentConnection implements Connection {
+
+    @Override
+    public void send(String message) {
+    }
+
+    @Override
+    public void sendOpponentMove(int r1, int c1, int r2, int c2) {
+    }
+
+    @Override
+    public boolean isBinary() {
+        return false;
+    }
+
+    @Override
+    public void enableBinary() {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public String getRemoteAddress() {
+        return "ausente";
+    }
+}
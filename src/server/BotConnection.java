@@ -0,0 +1,133 @@
+package server;
+
+import log.Log;
+import model.Bitboard;
+import model.GameState;
+import model.MoveList;
+import model.OpeningBook;
+import model.Search;
+import network.GameProtocol;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Jogador controlado pelo servidor, ocupando o lugar de uma {@link Connection}.
+ *
+ * As mensagens que a sala "envia" ao bot atualizam uma cópia local da
+ * partida; ao receber YOUR_TURN a jogada é calculada no {@link BotPool} e
+ * entregue à sala salto a salto, como um cliente faria.
+ */
+class BotConnection implements Connection {
+    static final String NAME = "Bot";
+    private static final int MAX_DEPTH = 64;
+
+    private final GameRoom room;
+    private final BotPool pool;
+    private final boolean player1;
+    private final GameState game = new GameState();
+    private final MoveList legalMoves = new MoveList();
+
+    // Movimento completo escolhido; capturas múltiplas são enviadas salto a salto
+    private int plannedMove = -1;
+    private long plannedPath;
+    private int nextHop;
+    private volatile boolean closed;
+
+    BotConnection(GameRoom room, BotPool pool, boolean player1) {
+        this.room = room;
+        this.pool = pool;
+        this.player1 = player1;
+    }
+
+    @Override
+    public void send(String message) {
+        String type = GameProtocol.getMessageType(message);
+        if (type.equals(GameProtocol.YOUR_TURN)) {
+            pool.think(this::play);
+        } else if (type.equals(GameProtocol.OPPONENT_MOVE)) {
+            int[] move = GameProtocol.parseMove(GameProtocol.getMessageContent(message));
+            if (move.length == 4) {
+                sendOpponentMove(move[0], move[1], move[2], move[3]);
+            }
+        } else if (type.equals(GameProtocol.GAME_OVER)) {
+            closed = true;
+        }
+    }
+
+    @Override
+    public void sendOpponentMove(int r1, int c1, int r2, int c2) {
+        // Ambos os jogadores recebem todos os saltos, inclusive os próprios
+        game.executeMove(r1, c1, r2, c2);
+    }
+
+    /**
+     * Calcula (no início do turno) e envia o próximo salto (executa no pool de busca)
+     */
+    private void play() {
+        if (closed) {
+            return;
+        }
+        if (!game.isCaptureInProgress() && !playFromBook()) {
+            Search search = pool.searcher();
+            if (!search.search(game.getBitboard(), game.isWhiteTurn(), pool.getMoveMillis(), MAX_DEPTH)) {
+                return;
+            }
+            plannedMove = search.getBestMove();
+            plannedPath = search.getBestPath();
+            nextHop = 0;
+            if (Log.isDebugEnabled()) {
+                Log.debug("[BOT] Sala {}: profundidade {}, {} nós, avaliação {}", room.getRoomId(),
+                    search.getCompletedDepth(), search.getNodes(), search.getBestScore());
+            }
+        }
+        int from = nextHop == 0 ? MoveList.from(plannedMove) : MoveList.landing(plannedPath, nextHop - 1);
+        int to = MoveList.landing(plannedPath, nextHop++);
+        room.handleMove(player1, Bitboard.row(from), Bitboard.col(from), Bitboard.row(to), Bitboard.col(to));
+        if (room.isFinished()) {
+            // No modo NIO ninguém mais fecharia a conexão do humano
+            room.closeConnections();
+        }
+    }
+
+    /**
+     * Escolhe o movimento no livro de aberturas, sem busca
+     * @return false se não há livro ou a posição não está nele
+     */
+    private boolean playFromBook() {
+        OpeningBook book = pool.getOpeningBook();
+        if (book == null) {
+            return false;
+        }
+        legalMoves.clear();
+        game.getLegalMoves(legalMoves);
+        int index = book.choose(game.getZobristKey(), legalMoves, ThreadLocalRandom.current());
+        if (index < 0) {
+            return false;
+        }
+        plannedMove = legalMoves.get(index);
+        plannedPath = legalMoves.path(index);
+        nextHop = 0;
+        Log.debug("[BOT] Sala {}: movimento do livro de aberturas", room.getRoomId());
+        return true;
+    }
+
+    @Override
+    public void enableBinary() {
+        // O bot não usa a rede
+    }
+
+    @Override
+    public boolean isBinary() {
+        return false;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    @Override
+    public String getRemoteAddress() {
+        return "bot";
+    }
+}
@@ -0,0 +1,115 @@
+package server;
+
+import log.Log;
+import model.OpeningBook;
+import model.Search;
+import model.Tablebase;
+import model.TranspositionTable;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Recursos compartilhados pelos bots do servidor.
+ *
+ * As buscas rodam em um pool fixo de threads de prioridade mínima, separado
+ * das threads das salas: com muitas partidas contra bots os movimentos deles
+ * ficam na fila, sem disputar CPU com as salas entre humanos. Cada thread do
+ * pool tem o seu {@link Search}; a tabela de transposição é uma só, dividida
+ * por todas as threads e partidas (posições repetidas entre salas, como as
+ * aberturas, são aproveitadas). A geração da tabela avança uma vez por
+ * intervalo de movimento, pelo timer, e não a cada busca: com várias
+ * partidas pensando ao mesmo tempo, cada busca envelheceria as entradas
+ * preferidas por profundidade das outras e a tabela passaria a substituir
+ * tudo.
+ */
+class BotPool {
+    private final int waitSeconds;
+    private final long moveMillis;
+    private final ScheduledExecutorService timer;
+    private final ExecutorService searchers;
+    private final TranspositionTable table;
+    private final ThreadLocal<Search> search;
+    private volatile Tablebase tablebase;
+    private volatile OpeningBook book;
+
+    /**
+     * @param waitSeconds tempo de espera por um oponente humano antes de oferecer o bot
+     * @param threads     threads de busca compartilhadas por todas as partidas contra bots
+     * @param moveMillis  orçamento de tempo por movimento
+     * @param hashMb      memória da tabela de transposição compartilhada
+     */
+    BotPool(int waitSeconds, int threads, long moveMillis, int hashMb) {
+        this.waitSeconds = waitSeconds;
+        this.moveMillis = moveMillis;
+        this.timer = Executors.newSingleThreadScheduledExecutor(daemonFactory("bot-timer", Thread.NORM_PRIORITY));
+        this.searchers = Executors.newFixedThreadPool(threads, daemonFactory("bot-search", Thread.MIN_PRIORITY));
+        this.table = new TranspositionTable(hashMb);
+        this.search = ThreadLocal.withInitial(() -> new Search(table, false));
+        long tick = Math.max(1, moveMillis);
+        timer.scheduleAtFixedRate(table::newSearch, tick, tick, TimeUnit.MILLISECONDS);
+    }
+
+    private static ThreadFactory daemonFactory(String prefix, int priority) {
+        AtomicInteger counter = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(priority);
+            return thread;
+        };
+    }
+
+    /**
+     * Agenda a oferta do bot para uma sala que ainda espera o jogador 2
+     */
+    void scheduleOffer(Runnable offer) {
+        timer.schedule(offer, waitSeconds, TimeUnit.SECONDS);
+    }
+
+    void think(Runnable move) {
+        searchers.execute(move);
+    }
+
+    /**
+     * Buscador da thread atual (só deve ser chamado dentro de {@link #think})
+     */
+    Search searcher() {
+        Search searcher = search.get();
+        searcher.setTablebase(tablebase);
+        return searcher;
+    }
+
+    void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    /**
+     * Livro de aberturas consultado antes da busca, ou null
+     */
+    OpeningBook getOpeningBook() {
+        return book;
+    }
+
+    void setOpeningBook(OpeningBook book) {
+        this.book = book;
+    }
+
+    long getMoveMillis() {
+        return moveMillis;
+    }
+
+    TranspositionTable getTable() {
+        return table;
+    }
+
+    void shutdown() {
+        timer.shutdownNow();
+        searchers.shutdownNow();
+        Log.info("[BOT] Tabela de transposição: {}", table.toString());
+    }
+}
@@ -1,246 +1,850 @@
 package server;
 
-import model.GameState;
+import log.Log;
+import model.GameArchive;
+import model.GameArchiveWriter;
+import model.OpeningBook;
+import model.Tablebase;
+import network.BinaryProtocol;
 import network.GameProtocol;
 
 import java.io.*;
 import java.net.*;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.*;
 
 /**
  * Servidor de Damas - Gerencia partidas entre dois jogadores
+ *
+ * Modos de execução:
+ *   java server.CheckersServer                  (uma thread por conexão)
+ *   java server.CheckersServer --virtual        (uma thread virtual por conexão, Java 21+)
+ *   java server.CheckersServer --nio [--loops N] (event loops NIO, N threads fixas)
+ *   --port P altera a porta (padrão 5000)
+ *
+ * Quem espera mais de --bot-wait segundos (padrão 30) por um oponente joga
+ * contra um bot do servidor; --bot-threads N, --bot-time MS e --bot-hash MB
+ * configuram o pool de busca, o tempo por movimento e a tabela de
+ * transposição compartilhada, e --no-bots desativa os bots. --tablebase
+ * ARQUIVO carrega uma tabela de finais (gerada por model.TablebaseGenerator)
+ * para adjudicar finais decididos e melhorar o jogo dos bots, e --book
+ * ARQUIVO um livro de aberturas (model.OpeningBookBuilder) para os bots.
+ *
+ * O pareamento ({@link Matchmaker}) usa filas concorrentes sem lock global;
+ * --bracket LARGURA só pareia jogadores da mesma faixa de rating (informado
+ * no CONNECT) e --lobby-probe MS define o intervalo em que, no modo
+ * bloqueante, quem espera é sondado para remover conexões mortas.
+ *
+ * Com --clock MIN+SEG cada jogador tem MIN minutos mais SEG segundos por
+ * lance completo; o tempo restante vai no YOUR_TURN e quem o esgota perde.
+ * Os relógios de todas as salas ficam numa única {@link TimerWheel}.
+ *
+ * Durante a partida, a qualquer momento, RESIGN desiste e DRAW_OFFER propõe
+ * empate ao oponente, que responde DRAW_ACCEPT ou DRAW_DECLINE.
+ *
+ * Um cliente que envia SPECTATE|idSala em vez do CONNECT assiste a partida:
+ * recebe a foto do tabuleiro (BOARD) e depois cada OPPONENT_MOVE e o
+ * GAME_OVER.
+ *
+ * Cada jogador recebe um token de sessão (SESSION|token) depois do
+ * CONNECTED; se a conexão cair, a partida espera --grace segundos (padrão
+ * 60, 0 desativa) por um RESUME|token, que a retoma com a foto do tabuleiro.
+ *
+ * Com --journal ARQUIVO cada salto aceito é gravado em um diário
+ * ({@link GameJournal}) e, ao reiniciar, as partidas em andamento são
+ * reconstruídas e esperam os jogadores voltarem com RESUME. --durability
+ * move (padrão: fsync antes de repassar o salto), MS (fsync a cada MS
+ * milissegundos) ou async (sem fsync) escolhe quando o registro vai para o disco.
+ *
+ * Com --archive PASTA as partidas terminadas são guardadas no arquivo
+ * compacto de partidas (model.GameArchive), um byte por lance, por uma
+ * thread própria.
+ *
+ * As mensagens vão para o {@link Log} (assíncrono); --log ARQUIVO grava em
+ * arquivo em vez do console e --log-level debug|info|warn|error|off escolhe
+ * o nível (padrão info; o rastreamento de cada lance só sai em debug).
+ *
+ * --metrics-port P serve as {@link Metrics} (salas, fila, lances, latências
+ * de executeMove, checkGameOver, handleClient e escritas) em texto em
+ * 127.0.0.1:P, e --metrics-dump S as grava no log a cada S segundos.
  */
 public class CheckersServer {
-    private static final int PORT = 5000;
+    public static final int PORT = 5000;
+    static final int DEFAULT_GRACE_SECONDS = 60;
+    // Roda dos relógios: precisão de 10 ms, uma volta a cada ~41 s
+    private static final long CLOCK_TICK_MILLIS = 10;
+    private static final int CLOCK_SLOTS = 4096;
+    // Aviso de durabilidade de quem não retém nada mas também não pode esperar o diário
+    private static final Runnable NOTHING_HELD = () -> { };
+    private final int port;
+    private final boolean virtualThreads;
     private ServerSocket serverSocket;
     private ExecutorService threadPool;
-    private BlockingQueue<GameRoom> waitingRooms;
-    private int gameCounter = 0;
+    private final Matchmaker matchmaker;
+    private final RoomRegistry rooms = new RoomRegistry();
+    private final Sessions sessions;
+    private GameJournal journal;
+    private GameArchiveWriter archive;
+    // Thread única que grava no arquivo de partidas, fora da thread da sala
+    private ExecutorService archiver;
+    // Salas reconstruídas do diário, continuadas por start() no modo bloqueante
+    private final List<GameRoom> recovered = new ArrayList<>();
+    // Registro de salas em andamento, sessões dos jogadores e diário
+    private final RoomListener roomListener = new RoomListener() {
+        @Override
+        public void started(GameRoom room) {
+            Metrics.GAMES_STARTED.increment();
+            rooms.started(room);
+            sessions.started(room);
+            if (journal != null) {
+                Connection player1 = room.getPlayer1();
+                Connection player2 = room.getPlayer2();
+                journal.started(room.getRoomId(),
+                    new String[] {room.getPlayer1Name(), room.getPlayer2Name()},
+                    new String[] {sessions.tokenOf(player1), sessions.tokenOf(player2)},
+                    new boolean[] {player1 instanceof BotConnection, player2 instanceof BotConnection},
+                    holdOutput(room));
+            }
+        }
+        
+        @Override
+        public void moved(GameRoom room, int r1, int c1, int r2, int c2) {
+            if (journal != null) {
+                journal.moved(room.getRoomId(), r1, c1, r2, c2, holdOutput(room));
+            }
+        }
+        
+        @Override
+        public boolean disconnected(GameRoom room, boolean player1, Connection lost) {
+            return sessions.disconnected(room, player1, lost);
+        }
+        
+        @Override
+        public void closed(GameRoom room) {
+            Metrics.GAMES_CLOSED.increment();
+            rooms.closed(room);
+            sessions.closed(room);
+            if (journal != null) {
+                journal.ended(room.getRoomId(), nioServer == null);
+            }
+            if (archive != null && room.isPlayed()) {
+                archive(room);
+            }
+        }
+    };
+    private long probeMillis = 5000;
+    private NioServer nioServer;
+    private BotPool bots;
+    private Tablebase tablebase;
+    private OpeningBook openingBook;
+    // Relógios das partidas: roda compartilhada e controle de tempo, ou null sem relógio
+    private TimerWheel clocks;
+    private long clockBaseMillis;
+    private long clockIncrementMillis;
     
     public CheckersServer() {
-        threadPool = Executors.newCachedThreadPool();
-        waitingRooms = new LinkedBlockingQueue<>();
+        this(PORT, false);
+    }
+    
+    /**
+     * @param virtualThreads executa handleClient e as salas em threads virtuais
+     *                       em vez do pool de threads de plataforma (exige Java 21+)
+     */
+    public CheckersServer(int port, boolean virtualThreads) {
+        this(port, virtualThreads, 0, DEFAULT_GRACE_SECONDS);
+    }
+    
+    /**
+     * @param bracketWidth largura das faixas de rating do pareamento; 0 pareia
+     *                     todos os jogadores juntos
+     * @param graceSeconds tempo em que uma partida espera o jogador que caiu
+     *                     voltar com RESUME; 0 desativa a retomada
+     */
+    public CheckersServer(int port, boolean virtualThreads, int bracketWidth, int graceSeconds) {
+        this.port = port;
+        this.virtualThreads = virtualThreads;
+        threadPool = virtualThreads ? newVirtualThreadExecutor() : Executors.newCachedThreadPool();
+        sessions = new Sessions(TimeUnit.SECONDS.toMillis(graceSeconds));
+        matchmaker = new Matchmaker(Runtime.getRuntime().availableProcessors(), bracketWidth,
+            this::newRoom, this::startMatched);
+    }
+    
+    private GameRoom newRoom(int roomId) {
+        GameRoom room = new GameRoom(roomId, tablebase, roomListener);
+        if (clocks != null) {
+            room.setClock(new GameClock(clocks, clockBaseMillis, clockIncrementMillis));
+        }
+        return room;
+    }
+    
+    /**
+     * Executor com uma thread virtual por tarefa. Obtido por reflexão para que o
+     * projeto continue compilando e rodando (nos outros modos) em Java 8+.
+     * @throws UnsupportedOperationException se a JVM não suporta threads virtuais
+     */
+    static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException("Threads virtuais exigem Java 21 ou superior", e);
+        }
     }
     
     public void start() throws IOException {
-        serverSocket = new ServerSocket(PORT);
-        System.out.println("==============================================");
-        System.out.println("   SERVIDOR DE DAMAS INICIADO");
-        System.out.println("   IP: " + InetAddress.getLocalHost().getHostAddress());
-        System.out.println("   Porta: " + PORT);
-        System.out.println("==============================================");
+        serverSocket = new ServerSocket(port);
+        printBanner(virtualThreads ? "threads virtuais" : "threads por conexão");
+        // Ninguém lê o socket de quem espera: o coletor sonda as conexões
+        matchmaker.startReaper(probeMillis);
+        for (GameRoom room : recovered) {
+            threadPool.execute(() -> room.continueGame(threadPool));
+        }
+        recovered.clear();
         
-        while (true) {
+        while (!serverSocket.isClosed()) {
             try {
                 Socket clientSocket = serverSocket.accept();
-                System.out.println("\n[CONEXÃO] Novo cliente conectado: " + 
-                    clientSocket.getInetAddress().getHostAddress());
+                clientSocket.setTcpNoDelay(true);
+                Metrics.CONNECTIONS.increment();
+                Log.info("[CONEXÃO] Novo cliente conectado: {}", clientSocket.getInetAddress().getHostAddress());
                 
                 threadPool.execute(() -> handleClient(clientSocket));
             } catch (IOException e) {
-                System.err.println("[ERRO] Erro ao aceitar conexão: " + e.getMessage());
+                if (serverSocket.isClosed()) {
+                    break;
+                }
+                Log.error("[ERRO] Erro ao aceitar conexão: {}", e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Inicia o servidor no modo NIO: a thread atual aceita conexões e
+     * {@code loops} threads fixas atendem todas as salas
+     */
+    public void startNio(int loops) throws IOException {
+        nioServer = new NioServer(this, loops);
+        printBanner("NIO, " + loops + " event loops");
+        nioServer.start(port);
+    }
+    
+    /**
+     * Oferece um bot a quem esperar mais de {@code waitSeconds} por um oponente
+     * @param threads    threads de busca compartilhadas por todos os bots
+     * @param moveMillis tempo de busca por movimento
+     * @param hashMb     memória da tabela de transposição, compartilhada por todos os bots
+     */
+    public void enableBots(int waitSeconds, int threads, long moveMillis, int hashMb) {
+        bots = new BotPool(waitSeconds, threads, moveMillis, hashMb);
+        bots.setTablebase(tablebase);
+        bots.setOpeningBook(openingBook);
+    }
+    
+    /**
+     * Intervalo entre sondagens de quem espera oponente no modo bloqueante
+     */
+    public void setLobbyProbeInterval(long millis) {
+        this.probeMillis = millis;
+    }
+    
+    /**
+     * Respostas instantâneas dos bots nas posições do livro de aberturas
+     */
+    public void enableOpeningBook(OpeningBook book) {
+        this.openingBook = book;
+        if (bots != null) {
+            bots.setOpeningBook(book);
+        }
+    }
+    
+    /**
+     * Usa a tabela de finais para encerrar partidas já decididas e nas buscas dos bots
+     */
+    public void enableTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+        if (bots != null) {
+            bots.setTablebase(tablebase);
+        }
+    }
+    
+    /**
+     * Guarda as partidas terminadas no arquivo de partidas
+     */
+    public void enableArchive(GameArchiveWriter archive) {
+        this.archive = archive;
+        archiver = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "game-archive");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * Partidas com relógio: {@code baseMillis} para cada jogador mais
+     * {@code incrementMillis} por lance completo. Chamar antes de
+     * {@link #enableJournal} (as salas reconstruídas recomeçam do tempo base).
+     */
+    public void enableClocks(long baseMillis, long incrementMillis) {
+        this.clockBaseMillis = baseMillis;
+        this.clockIncrementMillis = incrementMillis;
+        clocks = new TimerWheel(CLOCK_TICK_MILLIS, CLOCK_SLOTS, threadPool);
+    }
+    
+    /**
+     * Publica as {@link Metrics}: relatório em 127.0.0.1:{@code port} (0
+     * desativa) e/ou no log a cada {@code dumpSeconds} (0 desativa)
+     */
+    public void enableMetrics(int port, int dumpSeconds) throws IOException {
+        Metrics.gauge("salas_ativas", rooms::size);
+        Metrics.gauge("jogadores_esperando", matchmaker::waiting);
+        Metrics.gauge("sessoes_abertas", sessions::size);
+        if (clocks != null) {
+            Metrics.gauge("relogios", clocks::size);
+        }
+        if (port > 0) {
+            Metrics.listen(port);
+        }
+        if (dumpSeconds > 0) {
+            Metrics.startDump(dumpSeconds);
+        }
+    }
+    
+    /**
+     * Copia a partida e a entrega à thread do arquivo: closed roda com o lock
+     * da sala (no modo NIO, na thread do EventLoop), e a escrita no arquivo
+     * passa por um lock único e, na troca de segmento, por dois force
+     */
+    private void archive(GameRoom room) {
+        int roomId = room.getRoomId();
+        int[] history = room.getHistory();
+        String player1 = room.getPlayer1Name();
+        String player2 = room.getPlayer2Name();
+        int outcome = room.getOutcome();
+        long endedAt = System.currentTimeMillis();
+        try {
+            archiver.execute(() -> {
+                try {
+                    long id = archive.append(player1, player2, outcome, history, history.length, endedAt);
+                    Log.info("[SALA {}] Partida arquivada (id {})", roomId, id);
+                } catch (IOException | IllegalArgumentException e) {
+                    Log.warn("[SALA {}] Partida não arquivada: {}", roomId, e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            Log.warn("[SALA {}] Partida não arquivada: servidor encerrando", roomId);
+        }
+    }
+    
+    /**
+     * No modo NIO a sala roda na thread do EventLoop, que não pode esperar o
+     * force do diário (um fsync por salto pararia todas as conexões do loop),
+     * nem o lote em gravação quando o buffer do diário enche. Com
+     * durabilidade MOVE, a saída das conexões NIO da sala fica retida até o
+     * registro estar no disco, e o loop segue atendendo as outras
+     * @return o aviso que libera a saída (nos outros modos, um aviso vazio:
+     *         o diário não espera), ou null para esperar (modo bloqueante)
+     */
+    private Runnable holdOutput(GameRoom room) {
+        Connection player1 = room.getPlayer1();
+        Connection player2 = room.getPlayer2();
+        NioConnection nio1 = player1 instanceof NioConnection ? (NioConnection) player1 : null;
+        NioConnection nio2 = player2 instanceof NioConnection ? (NioConnection) player2 : null;
+        if (nio1 == null && nio2 == null) {
+            return null;
+        }
+        if (journal.getDurability() != GameJournal.Durability.MOVE) {
+            return NOTHING_HELD;
+        }
+        if (nio1 != null) {
+            nio1.hold();
+        }
+        if (nio2 != null) {
+            nio2.hold();
+        }
+        return () -> {
+            if (nio1 != null) {
+                nio1.release();
+            }
+            if (nio2 != null) {
+                nio2.release();
+            }
+        };
+    }
+
+    /**
+     * Reconstrói as partidas em andamento gravadas no diário e passa a
+     * gravar nele cada salto aceito. Chamar depois de {@link #enableBots} e
+     * antes de iniciar o servidor.
+     * @param intervalMillis intervalo entre os fsync no modo INTERVAL
+     */
+    void enableJournal(Path file, GameJournal.Durability durability, long intervalMillis) throws IOException {
+        List<GameJournal.Game> games = GameJournal.recover(file);
+        List<GameJournal.Game> live = new ArrayList<>();
+        List<GameRoom> restored = new ArrayList<>();
+        for (GameJournal.Game game : games) {
+            matchmaker.reserveIds(game.roomId);
+            GameRoom room = rebuild(game);
+            if (room != null) {
+                live.add(game);
+                restored.add(room);
+            }
+        }
+        // Aberto antes de as salas voltarem a jogar: o diário compactado já tem os saltos delas
+        journal = GameJournal.open(file, durability, intervalMillis, live);
+        for (int i = 0; i < restored.size(); i++) {
+            GameRoom room = restored.get(i);
+            GameJournal.Game game = live.get(i);
+            rooms.started(room);
+            for (int p = 0; p < 2; p++) {
+                if (!game.bots[p]) {
+                    Connection absent = p == 0 ? room.getPlayer1() : room.getPlayer2();
+                    sessions.restore(game.tokens[p], absent, room);
+                    room.connectionLost(p == 0, absent);
+                }
             }
+            room.promptTurn();
         }
+        recovered.addAll(restored);
+        Log.info("[DIÁRIO] {} partidas reconstruídas; gravando em {} ({})", restored.size(), file,
+            durability == GameJournal.Durability.INTERVAL ? durability + " " + intervalMillis + " ms" : durability);
+    }
+    
+    /**
+     * Sala de uma partida do diário, com os saltos aplicados e lugares
+     * provisórios para os humanos
+     * @return null se a partida não pode ser retomada
+     */
+    private GameRoom rebuild(GameJournal.Game game) {
+        boolean resumable = true;
+        for (int p = 0; p < 2; p++) {
+            resumable &= game.bots[p] ? bots != null : sessions.isEnabled() && game.tokens[p] != null;
+        }
+        if (!resumable) {
+            Log.warn("[DIÁRIO] Sala {} descartada: sem sessões ou sem bots para retomá-la", game.roomId);
+            return null;
+        }
+        GameRoom room = newRoom(game.roomId);
+        room.setPlayer1(game.bots[0] ? new BotConnection(room, bots, true) : new AbsentConnection(), game.names[0]);
+        room.setPlayer2(game.bots[1] ? new BotConnection(room, bots, false) : new AbsentConnection(), game.names[1]);
+        if (!room.restore(game.getMoves())) {
+            Log.warn("[DIÁRIO] Sala {} descartada", game.roomId);
+            return null;
+        }
+        return room;
+    }
+    
+    private void printBanner(String mode) throws IOException {
+        Log.info("==============================================");
+        Log.info("   SERVIDOR DE DAMAS INICIADO");
+        Log.info("   IP: {}", InetAddress.getLocalHost().getHostAddress());
+        Log.info("   Porta: {}", port);
+        Log.info("   Modo: {}", mode);
+        Log.info("==============================================");
     }
     
     private void handleClient(Socket socket) {
         try {
-            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-            PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+            SocketConnection connection = new SocketConnection(socket);
             
             // Aguarda mensagem de conexão
-            String connectMsg = in.readLine();
+            String connectMsg = connection.readLine();
+            if (connectMsg != null && connectMsg.startsWith(GameProtocol.SPECTATE)) {
+                GameRoom room = spectate(connection, GameProtocol.getMessageContent(connectMsg));
+                // Esta thread passa a escrever para o espectador até a conexão fechar
+                connection.pump();
+                if (room != null) {
+                    room.unsubscribe(connection);
+                }
+                return;
+            }
+            if (connectMsg != null && connectMsg.startsWith(GameProtocol.RESUME)) {
+                // A thread da sala passa a ler a nova conexão
+                resume(connection, GameProtocol.getMessageContent(connectMsg));
+                return;
+            }
             if (connectMsg == null || !connectMsg.startsWith(GameProtocol.CONNECT)) {
-                out.println(GameProtocol.createErrorMessage("Mensagem de conexão inválida"));
+                connection.send(GameProtocol.createErrorMessage("Mensagem de conexão inválida"));
                 socket.close();
                 return;
             }
             
-            String playerName = GameProtocol.getMessageContent(connectMsg);
-            System.out.println("[JOGADOR] " + playerName + " entrou na fila");
-            
-            out.println(GameProtocol.CONNECTED);
+            long start = System.nanoTime();
+            String content = GameProtocol.getMessageContent(connectMsg);
+            String playerName = BinaryProtocol.playerName(content);
+            Log.info("[JOGADOR] {} entrou na fila", playerName);
+            acknowledge(connection, content, true);
             
-            // Tenta encontrar uma sala de espera ou cria uma nova
-            GameRoom room = waitingRooms.poll();
-            if (room == null) {
-                // Cria nova sala e aguarda segundo jogador
-                room = new GameRoom(++gameCounter);
-                room.setPlayer1(socket, in, out, playerName);
-                out.println(GameProtocol.WAIT_FOR_PLAYER);
-                System.out.println("[SALA " + room.getRoomId() + "] " + playerName + " aguardando oponente...");
-                waitingRooms.offer(room);
-            } else {
-                // Adiciona à sala existente e inicia o jogo
-                room.setPlayer2(socket, in, out, playerName);
-                System.out.println("[SALA " + room.getRoomId() + "] Jogo iniciado!");
-                System.out.println("  - Brancas (Jogador 1): " + room.getPlayer1Name());
-                System.out.println("  - Pretas (Jogador 2): " + room.getPlayer2Name());
-                final GameRoom finalRoom = room;
-                threadPool.execute(finalRoom::startGame);
+            GameRoom room = joinLobby(connection, playerName, GameProtocol.parseRating(content));
+            if (!room.isPlayer1(connection)) {
+                threadPool.execute(() -> room.startGame(threadPool));
             }
+            Metrics.HANDLE_CLIENT.recordSince(start);
             
         } catch (IOException e) {
-            System.err.println("[ERRO] Erro ao processar cliente: " + e.getMessage());
+            Log.error("[ERRO] Erro ao processar cliente: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * Responde ao CONNECT ou RESUME com CONNECTED (|BIN se pedido) e, para
+     * um novo jogador, o token da sessão
+     */
+    void acknowledge(Connection connection, String content, boolean newSession) {
+        if (BinaryProtocol.requestsBinary(content)) {
+            connection.send(BinaryProtocol.CONNECTED);
+            connection.enableBinary();
+        } else {
+            connection.send(GameProtocol.CONNECTED);
+        }
+        if (newSession && sessions.isEnabled()) {
+            connection.send(GameProtocol.createSessionMessage(sessions.open(connection)));
+        }
+    }
+    
+    /**
+     * Retoma a partida da sessão em "RESUME|token[|BIN]" nesta conexão
+     * @return a sala ou null (ERROR enviado e conexão fechada) se a sessão
+     *         não existe ou a partida já terminou
+     */
+    GameRoom resume(Connection connection, String content) {
+        String token = BinaryProtocol.playerName(content);
+        acknowledge(connection, content, false);
+        GameRoom room = sessions.resume(token, connection);
+        if (room == null) {
+            connection.send(GameProtocol.createErrorMessage("Sessão expirada ou inválida"));
+            connection.close();
+        }
+        return room;
+    }
+    
+    /**
+     * Inscreve a conexão como espectadora da sala pedida em
+     * "SPECTATE|idSala[|BIN]"; responde SPECTATING|idSala[|BIN] e a foto do
+     * tabuleiro, ou ERROR e fecha a conexão
+     * @return a sala ou null se ela não existe ou já terminou
+     */
+    GameRoom spectate(Connection connection, String content) {
+        boolean binary = BinaryProtocol.requestsBinary(content);
+        String id = binary ? BinaryProtocol.playerName(content) : content;
+        GameRoom room = null;
+        try {
+            room = rooms.find(Integer.parseInt(id.trim()));
+        } catch (NumberFormatException e) {
+            // Tratado como sala inexistente
+        }
+        if (room == null) {
+            connection.send(GameProtocol.createErrorMessage("Sala não encontrada: " + id));
+            connection.close();
+            return null;
+        }
+        connection.send(GameProtocol.SPECTATING + GameProtocol.SEPARATOR + room.getRoomId()
+            + (binary ? GameProtocol.SEPARATOR + BinaryProtocol.CAPABILITY : ""));
+        if (binary) {
+            connection.enableBinary();
+        }
+        if (connection instanceof SocketConnection) {
+            ((SocketConnection) connection).enablePump();
+        }
+        if (!room.subscribe(connection)) {
+            connection.send(GameProtocol.createGameOverMessage("Partida encerrada"));
+            connection.close();
+            return null;
+        }
+        return room;
+    }
+    
+    /**
+     * Pareia o jogador com quem estiver esperando ou cria uma nova sala
+     * @param rating rating informado no CONNECT, ou negativo
+     * @return a sala do jogador; se ele entrou como jogador 2, o chamador inicia o jogo
+     */
+    GameRoom joinLobby(Connection connection, String playerName, int rating) {
+        GameRoom room = matchmaker.join(connection, playerName, rating);
+        
+        if (room.isPlayer1(connection)) {
+            // Nova sala aguardando segundo jogador
+            Log.info("[SALA {}] {} aguardando oponente...", room.getRoomId(), playerName);
+            if (bots != null) {
+                bots.scheduleOffer(() -> offerBot(room));
+            }
+        } else {
+            // Sala existente: o chamador inicia o jogo
+            logStart(room);
+        }
+        return room;
+    }
+    
+    /**
+     * Retira a sala da fila porque o jogador 1 desconectou enquanto esperava
+     */
+    void leaveLobby(GameRoom room) {
+        matchmaker.cancel(room);
+    }
+    
+    private void logStart(GameRoom room) {
+        Log.info("[SALA {}] Jogo iniciado! Brancas (Jogador 1): {} | Pretas (Jogador 2): {}",
+            room.getRoomId(), room.getPlayer1Name(), room.getPlayer2Name());
+    }
+    
+    /**
+     * Ocupa com um bot o lugar do jogador 2 se a sala ainda estiver esperando
+     */
+    private void offerBot(GameRoom room) {
+        if (!matchmaker.claim(room)) {
+            return;
+        }
+        room.setPlayer2(new BotConnection(room, bots, false), BotConnection.NAME);
+        Log.info("[SALA {}] Sem oponente: {} joga contra o bot", room.getRoomId(), room.getPlayer1Name());
+        startRoom(room);
+    }
+    
+    /**
+     * Sala pareada pelo coletor do Matchmaker, fora de uma chegada
+     */
+    private void startMatched(GameRoom room) {
+        logStart(room);
+        startRoom(room);
+    }
+    
+    private void startRoom(GameRoom room) {
+        if (nioServer != null) {
+            room.start();
+            if (room.isFinished()) {
+                room.closeConnections();
+            }
+        } else {
+            threadPool.execute(() -> room.startGame(threadPool));
         }
     }
     
     public void stop() {
         try {
+            // Antes dos transportes: as quedas do encerramento não fecham as partidas no diário
+            if (journal != null) {
+                journal.close();
+            }
             if (serverSocket != null && !serverSocket.isClosed()) {
                 serverSocket.close();
             }
+            if (nioServer != null) {
+                nioServer.stop();
+            }
             threadPool.shutdown();
-            System.out.println("\n[SERVIDOR] Servidor encerrado");
+            matchmaker.shutdown();
+            if (clocks != null) {
+                clocks.stop();
+            }
+            Metrics.stop();
+            sessions.shutdown();
+            Log.info("[LOBBY] {}", matchmaker.toString());
+            if (bots != null) {
+                bots.shutdown();
+            }
+            if (archive != null) {
+                // Grava as partidas já entregues antes de fechar o arquivo
+                archiver.shutdown();
+                if (!archiver.awaitTermination(10, TimeUnit.SECONDS)) {
+                    Log.warn("[SERVIDOR] Arquivo de partidas fechado com partidas pendentes");
+                }
+                archive.close();
+            }
+            Log.info("[SERVIDOR] Servidor encerrado");
         } catch (IOException e) {
-            System.err.println("[ERRO] Erro ao fechar servidor: " + e.getMessage());
+            Log.error("[ERRO] Erro ao fechar servidor: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
     
     /**
-     * Classe interna que representa uma sala de jogo
+     * Intervalo do --durability MS; fora de move, async ou MS > 0 mostra o uso
+     * e sai (com 0 a thread do diário giraria sem esperar)
      */
-    private static class GameRoom {
-        private final int roomId;
-        private Socket player1Socket, player2Socket;
-        private BufferedReader player1In, player2In;
-        private PrintWriter player1Out, player2Out;
-        private String player1Name, player2Name;
-        private GameState gameState;
-        
-        public GameRoom(int roomId) {
-            this.roomId = roomId;
-            this.gameState = new GameState();
+    private static long parseInterval(String mode) {
+        long millis = -1;
+        try {
+            millis = Long.parseLong(mode);
+        } catch (NumberFormatException e) {
+            // Cai no uso abaixo
         }
-        
-        public void setPlayer1(Socket socket, BufferedReader in, PrintWriter out, String name) {
-            this.player1Socket = socket;
-            this.player1In = in;
-            this.player1Out = out;
-            this.player1Name = name;
+        if (millis <= 0) {
+            System.err.println("[SERVIDOR] --durability inválido: " + mode + " (use move, async ou MS > 0)");
+            System.exit(2);
         }
-        
-        public void setPlayer2(Socket socket, BufferedReader in, PrintWriter out, String name) {
-            this.player2Socket = socket;
-            this.player2In = in;
-            this.player2Out = out;
-            this.player2Name = name;
+        return millis;
+    }
+
+    public static void main(String[] args) {
+        boolean nio = false;
+        boolean virtual = false;
+        int port = PORT;
+        int loops = Runtime.getRuntime().availableProcessors();
+        boolean useBots = true;
+        int botWait = 30;
+        int botThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        long botTime = 1000;
+        int botHash = 64;
+        String tablebaseFile = null;
+        String bookFile = null;
+        int bracket = 0;
+        long lobbyProbe = 5000;
+        int grace = DEFAULT_GRACE_SECONDS;
+        String journalFile = null;
+        String archiveDir = null;
+        GameJournal.Durability durability = GameJournal.Durability.MOVE;
+        long journalInterval = 0;
+        String logFile = null;
+        int metricsPort = 0;
+        int metricsDump = 0;
+        String clock = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--nio")) {
+                nio = true;
+            } else if (args[i].equals("--virtual")) {
+                virtual = true;
+            } else if (args[i].equals("--loops") && i + 1 < args.length) {
+                loops = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--port") && i + 1 < args.length) {
+                port = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--no-bots")) {
+                useBots = false;
+            } else if (args[i].equals("--bot-wait") && i + 1 < args.length) {
+                botWait = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--bot-threads") && i + 1 < args.length) {
+                botThreads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--bot-time") && i + 1 < args.length) {
+                botTime = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--bot-hash") && i + 1 < args.length) {
+                botHash = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--tablebase") && i + 1 < args.length) {
+                tablebaseFile = args[++i];
+            } else if (args[i].equals("--book") && i + 1 < args.length) {
+                bookFile = args[++i];
+            } else if (args[i].equals("--bracket") && i + 1 < args.length) {
+                bracket = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--lobby-probe") && i + 1 < args.length) {
+                lobbyProbe = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--grace") && i + 1 < args.length) {
+                grace = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--journal") && i + 1 < args.length) {
+                journalFile = args[++i];
+            } else if (args[i].equals("--archive") && i + 1 < args.length) {
+                archiveDir = args[++i];
+            } else if (args[i].equals("--durability") && i + 1 < args.length) {
+                String mode = args[++i];
+                if (mode.equals("move")) {
+                    durability = GameJournal.Durability.MOVE;
+                } else if (mode.equals("async")) {
+                    durability = GameJournal.Durability.ASYNC;
+                } else {
+                    durability = GameJournal.Durability.INTERVAL;
+                    journalInterval = parseInterval(mode);
+                }
+            } else if (args[i].equals("--log") && i + 1 < args.length) {
+                logFile = args[++i];
+            } else if (args[i].equals("--metrics-port") && i + 1 < args.length) {
+                metricsPort = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--metrics-dump") && i + 1 < args.length) {
+                metricsDump = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--clock") && i + 1 < args.length) {
+                clock = args[++i];
+            } else if (args[i].equals("--log-level") && i + 1 < args.length) {
+                Log.setLevel(Log.parse(args[++i]));
+            }
         }
-        
-        public void startGame() {
+        if (logFile != null) {
             try {
-                // Envia mensagem de início para ambos os jogadores
-                player1Out.println(GameProtocol.createStartMessage("WHITE"));
-                player2Out.println(GameProtocol.createStartMessage("BLACK"));
-                
-                player1Out.println(GameProtocol.YOUR_TURN);
-                
-                System.out.println("[SALA " + roomId + "] Jogo em andamento...");
-                
-                // Loop do jogo
-                boolean gameRunning = true;
-                boolean player1Turn = true;
-                
-                while (gameRunning) {
-                    try {
-                        BufferedReader currentIn = player1Turn ? player1In : player2In;
-                        PrintWriter currentOut = player1Turn ? player1Out : player2Out;
-                        PrintWriter opponentOut = player1Turn ? player2Out : player1Out;
-                        String currentPlayer = player1Turn ? player1Name : player2Name;
-                        
-                        String message = currentIn.readLine();
-                        
-                        if (message == null || message.startsWith(GameProtocol.DISCONNECT)) {
-                            System.out.println("[SALA " + roomId + "] " + currentPlayer + " desconectou");
-                            opponentOut.println(GameProtocol.createGameOverMessage("Oponente desconectou"));
-                            gameRunning = false;
-                            break;
-                        }
-                        
-                        if (message.startsWith(GameProtocol.MOVE)) {
-                            String moveData = GameProtocol.getMessageContent(message);
-                            int[] move = GameProtocol.parseMove(moveData);
-                            
-                            if (move != null && move.length == 4) {
-                                System.out.println("[SALA " + roomId + "] Recebeu movimento de " + currentPlayer + 
-                                    ": (" + move[0] + "," + move[1] + ") -> (" + move[2] + "," + move[3] + 
-                                    ") | player1Turn=" + player1Turn);
-                                boolean validMove = gameState.executeMove(move[0], move[1], move[2], move[3]);
-                                System.out.println("[SALA " + roomId + "] Movimento " + (validMove ? "VÁLIDO" : "INVÁLIDO"));
-                                
-                                if (validMove) {
-                                    System.out.println("[SALA " + roomId + "] " + currentPlayer + 
-                                        " moveu: (" + move[0] + "," + move[1] + ") -> (" + move[2] + "," + move[3] + ")");
-                                    
-                                    // Envia o movimento para AMBOS os jogadores
-                                    String moveMsg = GameProtocol.createOpponentMoveMessage(
-                                        move[0], move[1], move[2], move[3]);
-                                    player1Out.println(moveMsg);
-                                    player2Out.println(moveMsg);
-                                    
-                                    // Verifica fim de jogo
-                                    String gameOverMsg = gameState.checkGameOver();
-                                    if (gameOverMsg != null) {
-                                        System.out.println("[SALA " + roomId + "] Jogo finalizado: " + gameOverMsg);
-                                        player1Out.println(GameProtocol.createGameOverMessage(gameOverMsg));
-                                        player2Out.println(GameProtocol.createGameOverMessage(gameOverMsg));
-                                        gameRunning = false;
-                                    } else {
-                                        player1Turn = !player1Turn;
-                                        String nextPlayer = player1Turn ? player1Name : player2Name;
-                                        System.out.println("[SALA " + roomId + "] *** ENVIANDO YOUR_TURN para " + nextPlayer + " ***");
-                                        opponentOut.println(GameProtocol.YOUR_TURN);
-                                        System.out.println("[SALA " + roomId + "] YOUR_TURN enviado!");
-                                    }
-                                } else {
-                                    currentOut.println(GameProtocol.MOVE_INVALID);
-                                }
-                            } else {
-                                currentOut.println(GameProtocol.createErrorMessage("Formato de movimento inválido"));
-                            }
-                        }
-                        
-                    } catch (IOException e) {
-                        System.err.println("[SALA " + roomId + "] Erro na comunicação: " + e.getMessage());
-                        gameRunning = false;
-                    }
-                }
-                
-            } catch (Exception e) {
-                System.err.println("[SALA " + roomId + "] Erro no jogo: " + e.getMessage());
-            } finally {
-                closeConnections();
+                Log.toFile(Paths.get(logFile));
+            } catch (IOException e) {
+                System.err.println("[AVISO] Arquivo de log não aberto: " + e.getMessage() + "; usando o console");
             }
         }
         
-        private void closeConnections() {
+        CheckersServer server;
+        try {
+            server = new CheckersServer(port, virtual, bracket, grace);
+        } catch (UnsupportedOperationException e) {
+            Log.warn("[AVISO] {}; usando threads de plataforma", e.getMessage());
+            server = new CheckersServer(port, false, bracket, grace);
+        }
+        server.setLobbyProbeInterval(lobbyProbe);
+        if (tablebaseFile != null) {
             try {
-                if (player1Socket != null) player1Socket.close();
-                if (player2Socket != null) player2Socket.close();
-                System.out.println("[SALA " + roomId + "] Conexões fechadas");
+                Tablebase tablebase = Tablebase.open(Paths.get(tablebaseFile));
+                server.enableTablebase(tablebase);
+                Log.info("[SERVIDOR] Tabela de finais até {} peças: {}", tablebase.getMaxPieces(), tablebaseFile);
             } catch (IOException e) {
-                System.err.println("[ERRO] Erro ao fechar conexões: " + e.getMessage());
+                Log.warn("[AVISO] Tabela de finais não carregada: {}", e.getMessage());
             }
         }
-        
-        public int getRoomId() { return roomId; }
-        public String getPlayer1Name() { return player1Name; }
-        public String getPlayer2Name() { return player2Name; }
-    }
-    
-    public static void main(String[] args) {
-        CheckersServer server = new CheckersServer();
+        if (bookFile != null) {
+            try {
+                OpeningBook book = OpeningBook.open(Paths.get(bookFile));
+                server.enableOpeningBook(book);
+                Log.info("[SERVIDOR] Livro de aberturas com {} entradas: {}", book.size(), bookFile);
+            } catch (IOException e) {
+                Log.warn("[AVISO] Livro de aberturas não carregado: {}", e.getMessage());
+            }
+        }
+        if (useBots) {
+            server.enableBots(botWait, botThreads, botTime, botHash);
+        }
+        if (clock != null) {
+            try {
+                String[] parts = clock.split("\\+");
+                long base = (long) (Double.parseDouble(parts[0]) * 60000);
+                long increment = parts.length > 1 ? (long) (Double.parseDouble(parts[1]) * 1000) : 0;
+                server.enableClocks(base, increment);
+                Log.info("[SERVIDOR] Relógio: {} min + {} s por lance", parts[0], parts.length > 1 ? parts[1] : "0");
+            } catch (NumberFormatException e) {
+                Log.warn("[AVISO] Relógio inválido (use MIN+SEG, ex.: 5+3): {}", clock);
+            }
+        }
+        if (archiveDir != null) {
+            try {
+                GameArchiveWriter writer = GameArchiveWriter.open(Paths.get(archiveDir), GameArchive.DEFAULT_SEGMENT_BYTES);
+                server.enableArchive(writer);
+                Log.info("[SERVIDOR] Arquivo de partidas em {} ({} partidas)", archiveDir, writer.size());
+            } catch (IOException e) {
+                Log.warn("[AVISO] Arquivo de partidas não aberto: {}", e.getMessage());
+            }
+        }
+        if (journalFile != null) {
+            try {
+                server.enableJournal(Paths.get(journalFile), durability, journalInterval);
+            } catch (IOException e) {
+                Log.error("[ERRO FATAL] Diário não pôde ser aberto: {}", e.getMessage());
+                Log.close();
+                return;
+            }
+        }
+        if (metricsPort > 0 || metricsDump > 0) {
+            try {
+                server.enableMetrics(metricsPort, metricsDump);
+            } catch (IOException e) {
+                Log.warn("[AVISO] Endpoint de métricas não aberto: {}", e.getMessage());
+            }
+        }
+        final CheckersServer finalServer = server;
         
         // Adiciona shutdown hook para encerrar o servidor corretamente
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-            System.out.println("\n[SERVIDOR] Encerrando...");
-            server.stop();
+            Log.info("[SERVIDOR] Encerrando...");
+            finalServer.stop();
+            Log.close();
         }));
         
         try {
-            server.start();
+            if (nio) {
+                server.startNio(loops);
+            } else {
+                server.start();
+            }
         } catch (IOException e) {
-            System.err.println("[ERRO FATAL] Não foi possível iniciar o servidor: " + e.getMessage());
+            Log.error("[ERRO FATAL] Não foi possível iniciar o servidor: {}", e.getMessage());
+            Log.close();
             e.printStackTrace();
         }
     }
@@ -0,0 +1,59 @@
+package server;
+
+import network.GameProtocol;
+
+/**
+ * Conexão de um jogador, independente do transporte (sockets bloqueantes ou NIO)
+ */
+interface Connection {
+
+    /**
+     * Envia uma mensagem do protocolo (sem o terminador de linha); conexões
+     * que negociaram frames binários a convertem com {@code BinaryProtocol.fromText}
+     */
+    void send(String message);
+
+    /**
+     * Envia OPPONENT_MOVE; conexões binárias codificam o movimento sem montar o texto
+     */
+    default void sendOpponentMove(int r1, int c1, int r2, int c2) {
+        send(GameProtocol.createOpponentMoveMessage(r1, c1, r2, c2));
+    }
+
+    /**
+     * Enfileira uma mensagem já codificada (linha com terminador ou frame
+     * binário) sem bloquear. Usado no fan-out para espectadores: o mesmo
+     * array vai para várias conexões e não pode ser alterado.
+     * @return false se a fila de saída da conexão está cheia (ou ela não
+     *         aceita espectadores)
+     */
+    default boolean offer(byte[] frame) {
+        return false;
+    }
+
+    /**
+     * Negociou frames binários?
+     */
+    boolean isBinary();
+
+    /**
+     * Passa a enviar frames binários (após o CONNECTED|BIN da negociação)
+     */
+    void enableBinary();
+
+    /**
+     * Verifica se o cliente continua conectado, sem consumir mensagens. Só é
+     * chamado enquanto ninguém mais lê a conexão (jogador esperando oponente);
+     * transportes que detectam a queda sozinhos (NIO) não precisam sondar.
+     */
+    default boolean probe() {
+        return true;
+    }
+
+    /**
+     * Fecha a conexão; chamadas repetidas são ignoradas
+     */
+    void close();
+
+    String getRemoteAddress();
+}
@@ -0,0 +1,93 @@
+package server;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Relógios dos dois jogadores de uma sala: tempo base mais um incremento
+ * somado a cada lance completo (Fischer). Só corre o relógio de quem tem a
+ * vez, inclusive entre os saltos de uma captura múltipla e enquanto ele está
+ * desconectado à espera da retomada.
+ *
+ * O fim do tempo é um {@link TimerWheel.Timeout} na roda compartilhada,
+ * reagendado a cada troca de vez. Quando vence, a sala confere o relógio com
+ * o lock ({@link #isFlagged}) antes de encerrar a partida: um prazo que
+ * venceu enquanto o lance era aceito não derruba ninguém.
+ *
+ * Não é thread-safe: usado com o lock da sala.
+ */
+final class GameClock {
+    private final TimerWheel wheel;
+    private final long incrementMillis;
+    // Tempo restante (ms) do jogador 1 e do jogador 2, sem o trecho em curso
+    private long remaining1, remaining2;
+    private boolean running;
+    private boolean runningPlayer1;
+    private long startedAt;
+    private TimerWheel.Timeout timeout;
+
+    GameClock(TimerWheel wheel, long baseMillis, long incrementMillis) {
+        this.wheel = wheel;
+        this.incrementMillis = incrementMillis;
+        this.remaining1 = baseMillis;
+        this.remaining2 = baseMillis;
+    }
+
+    /**
+     * Dispara o relógio do jogador; {@code onFlag} roda (no executor da roda)
+     * se o tempo dele acabar antes de {@link #stop}
+     */
+    void start(boolean player1, Runnable onFlag) {
+        stop(false);
+        running = true;
+        runningPlayer1 = player1;
+        startedAt = System.nanoTime();
+        timeout = wheel.schedule(onFlag, player1 ? remaining1 : remaining2);
+    }
+
+    /**
+     * Fim do lance de quem tem a vez: desconta o tempo gasto e soma o incremento
+     */
+    void moved() {
+        stop(true);
+    }
+
+    /**
+     * Para os relógios sem incremento (fim da partida)
+     */
+    void cancel() {
+        stop(false);
+    }
+
+    private void stop(boolean increment) {
+        if (!running) {
+            return;
+        }
+        timeout.cancel();
+        timeout = null;
+        long left = remaining(runningPlayer1) + (increment ? incrementMillis : 0);
+        if (runningPlayer1) {
+            remaining1 = left;
+        } else {
+            remaining2 = left;
+        }
+        running = false;
+    }
+
+    /**
+     * Tempo restante do jogador em ms, descontando o trecho em curso (pode ser negativo)
+     */
+    long remaining(boolean player1) {
+        long left = player1 ? remaining1 : remaining2;
+        if (running && runningPlayer1 == player1) {
+            left -= TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        }
+        return left;
+    }
+
+    /**
+     * O relógio do jogador está correndo e o tempo dele acabou?
+     */
+    boolean isFlagged(boolean player1) {
+        return running && runningPlayer1 == player1 && remaining(player1) <= 0;
+    }
+}
@@ -0,0 +1,634 @@
+package server;
+
+import log.Log;
+import network.BinaryProtocol;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Diário (write-ahead log) das partidas em andamento: o início de cada sala,
+ * cada salto aceito por {@code executeMove} e o fechamento da sala, gravados
+ * em um arquivo só de acréscimos. Na partida do servidor o diário é relido e
+ * as salas sem fechamento são reconstruídas (ver {@link #recover}).
+ *
+ * Quem registra só copia o registro para o buffer ativo; uma thread própria
+ * troca os buffers e grava o lote inteiro com um único write (e um único
+ * force) no FileChannel. O momento em que o registro é durável depende de
+ * {@link Durability}:
+ * - MOVE: quem registra espera o force do seu lote (commit em grupo: as
+ *   salas que registram ao mesmo tempo dividem o mesmo fsync). Quem não
+ *   pode bloquear (a thread de um EventLoop NIO) passa um {@code onDurable},
+ *   chamado pela thread de escrita depois do force, e retém até lá o que
+ *   depende do registro;
+ * - com o buffer ativo cheio, quem espera o force espera também o lote em
+ *   gravação liberar espaço; quem passa {@code onDurable} (ou
+ *   {@code await = false}) nunca espera: o buffer ativo cresce;
+ * - INTERVAL: force a cada N ms, sem esperar; uma queda da máquina perde no
+ *   máximo os últimos N ms;
+ * - ASYNC: só o write (cache do sistema operacional); sobrevive à queda do
+ *   processo, não à da máquina.
+ *
+ * Registro: tamanho do corpo (2 bytes), corpo e CRC32 do corpo (4). Corpo:
+ * tipo (1), id da sala (4) e dados:
+ * - START: bots (1 bit por jogador) e, por jogador, nome e token da sessão
+ *   (2 bytes de tamanho + UTF-8; token vazio = sem sessão);
+ * - MOVE: o salto empacotado como em {@link BinaryProtocol#packMove} (2);
+ * - END: nada.
+ * Um registro incompleto ou com CRC errado (queda no meio de um write)
+ * encerra a leitura.
+ *
+ * Uso (medição de vazão): java -cp bin server.GameJournal [--threads N] [--seconds S]
+ *                                                        [--interval MS] [--file diario.log]
+ */
+class GameJournal {
+
+    enum Durability { MOVE, INTERVAL, ASYNC }
+
+    static final byte[] MAGIC = {'D', 'A', 'M', 'A', 'S', 'W', 'A', 'L'};
+
+    private static final byte START = 1;
+    private static final byte MOVE = 2;
+    private static final byte END = 3;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_STRING = 1024;
+
+    private final FileChannel channel;
+    private final Durability durability;
+    private final long intervalNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    // Há registros para gravar (ou o buffer passou da metade)
+    private final Condition ready = lock.newCondition();
+    // Um lote foi gravado
+    private final Condition flushed = lock.newCondition();
+    private ByteBuffer active = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private ByteBuffer spare = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private long appended;
+    private long durable;
+    private boolean full;
+    private boolean closed;
+    private final Thread writer;
+    private final CRC32 crc = new CRC32();
+    private long batches;
+    private final AtomicBoolean failed = new AtomicBoolean();
+    // Avisos de durabilidade na ordem dos registros (só no modo MOVE)
+    private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+
+    // Aviso pendente: roda quando o registro seq estiver no disco
+    private static final class Waiter {
+        final long seq;
+        final Runnable action;
+
+        Waiter(long seq, Runnable action) {
+            this.seq = seq;
+            this.action = action;
+        }
+    }
+
+    private GameJournal(FileChannel channel, Durability durability, long intervalMillis) {
+        this.channel = channel;
+        this.durability = durability;
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        writer = new Thread(this::run, "game-journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Partida lida do diário, ainda sem fechamento
+     */
+    static final class Game {
+        final int roomId;
+        final String[] names = new String[2];
+        final String[] tokens = new String[2];
+        final boolean[] bots = new boolean[2];
+        private int[] moves = new int[64];
+        private int moveCount;
+
+        Game(int roomId) {
+            this.roomId = roomId;
+        }
+
+        void addMove(int packed) {
+            if (moveCount == moves.length) {
+                moves = Arrays.copyOf(moves, moveCount * 2);
+            }
+            moves[moveCount++] = packed;
+        }
+
+        /** Saltos na ordem em que foram aceitos, empacotados como em {@link BinaryProtocol#packMove} */
+        int[] getMoves() {
+            return Arrays.copyOf(moves, moveCount);
+        }
+    }
+
+    // ==================== LEITURA ====================
+
+    /**
+     * Lê o diário e devolve as partidas que começaram e não foram fechadas,
+     * na ordem em que começaram
+     * @return lista vazia se o arquivo não existe
+     */
+    static List<Game> recover(Path file) throws IOException {
+        Map<Integer, Game> games = new LinkedHashMap<>();
+        if (!Files.exists(file) || Files.size(file) == 0) {
+            return new ArrayList<>();
+        }
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file));
+        byte[] magic = new byte[MAGIC.length];
+        if (data.remaining() >= MAGIC.length) {
+            data.get(magic);
+        }
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Arquivo não é um diário de partidas: " + file);
+        }
+        CRC32 crc = new CRC32();
+        int records = 0;
+        while (data.remaining() >= 2) {
+            int length = data.getShort(data.position()) & 0xFFFF;
+            if (length < 5 || data.remaining() < 2 + length + 4) {
+                break;
+            }
+            int body = data.position() + 2;
+            crc.reset();
+            crc.update(data.array(), body, length);
+            if ((int) crc.getValue() != data.getInt(body + length)) {
+                break;
+            }
+            ByteBuffer record = ByteBuffer.wrap(data.array(), body, length);
+            data.position(body + length + 4);
+            records++;
+            byte type = record.get();
+            int roomId = record.getInt();
+            if (type == START) {
+                Game game = new Game(roomId);
+                int bots = record.get();
+                for (int p = 0; p < 2; p++) {
+                    game.bots[p] = (bots & (1 << p)) != 0;
+                    game.names[p] = readString(record);
+                    String token = readString(record);
+                    game.tokens[p] = token.isEmpty() ? null : token;
+                }
+                games.put(roomId, game);
+            } else if (type == MOVE) {
+                Game game = games.get(roomId);
+                if (game != null) {
+                    game.addMove(record.getShort() & 0xFFFF);
+                }
+            } else if (type == END) {
+                games.remove(roomId);
+            }
+        }
+        if (data.hasRemaining()) {
+            Log.warn("[DIÁRIO] {} bytes incompletos ou corrompidos no fim de {} descartados", data.remaining(), file);
+        }
+        Log.info("[DIÁRIO] {} registros lidos de {}: {} partidas em andamento", records, file, games.size());
+        return new ArrayList<>(games.values());
+    }
+
+    private static String readString(ByteBuffer record) {
+        byte[] bytes = new byte[record.getShort() & 0xFFFF];
+        record.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // ==================== ESCRITA ====================
+
+    /**
+     * Reescreve o diário só com as partidas {@code live} (compactação) e o
+     * abre para acréscimos
+     * @param intervalMillis intervalo entre os force no modo INTERVAL
+     */
+    static GameJournal open(Path file, Durability durability, long intervalMillis, List<Game> live)
+            throws IOException {
+        if (durability == Durability.INTERVAL && intervalMillis <= 0) {
+            throw new IllegalArgumentException("Intervalo do diário deve ser positivo: " + intervalMillis);
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        CRC32 crc = new CRC32();
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            buffer.put(MAGIC);
+            for (Game game : live) {
+                buffer = flushIfFull(out, buffer, startSize(game.names, game.tokens));
+                putStart(buffer, crc, game.roomId, game.names, game.tokens, game.bots);
+                for (int move : game.getMoves()) {
+                    buffer = flushIfFull(out, buffer, 13);
+                    putMove(buffer, crc, game.roomId, move);
+                }
+            }
+            flushIfFull(out, buffer, buffer.capacity());
+            out.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        return new GameJournal(channel, durability, intervalMillis);
+    }
+
+    private static ByteBuffer flushIfFull(FileChannel out, ByteBuffer buffer, int needed) throws IOException {
+        if (buffer.remaining() < needed) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            buffer.clear();
+            if (buffer.capacity() < needed) {
+                buffer = ByteBuffer.allocate(needed);
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * Início de uma partida
+     * @param tokens token da sessão de cada jogador, ou null (bot ou sessões desativadas)
+     */
+    void started(int roomId, String[] names, String[] tokens, boolean[] bots) {
+        started(roomId, names, tokens, bots, null);
+    }
+
+    /**
+     * Como {@link #started(int, String[], String[], boolean[])}, sem esperar o force
+     * @param onDurable ver {@link #moved(int, int, int, int, int, Runnable)}
+     */
+    void started(int roomId, String[] names, String[] tokens, boolean[] bots, Runnable onDurable) {
+        int size = startSize(names, tokens);
+        lock.lock();
+        try {
+            if (reserve(size, onDurable == null)) {
+                putStart(active, crc, roomId, names, tokens, bots);
+                commit(onDurable == null, onDurable);
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        run(onDurable);
+    }
+
+    /**
+     * Salto aceito; no modo MOVE só retorna depois que ele está no disco
+     */
+    void moved(int roomId, int r1, int c1, int r2, int c2) {
+        moved(roomId, r1, c1, r2, c2, null);
+    }
+
+    /**
+     * Salto aceito, sem esperar o force
+     * @param onDurable chamado pela thread de escrita quando o registro
+     *                  estiver no disco (ou o diário for desativado por erro);
+     *                  fora do modo MOVE, na hora, por quem registra
+     */
+    void moved(int roomId, int r1, int c1, int r2, int c2, Runnable onDurable) {
+        lock.lock();
+        try {
+            if (reserve(13, onDurable == null)) {
+                putMove(active, crc, roomId, BinaryProtocol.packMove(r1, c1, r2, c2));
+                commit(onDurable == null, onDurable);
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        run(onDurable);
+    }
+
+    /**
+     * Fechamento da sala: ela não é mais reconstruída
+     */
+    void ended(int roomId) {
+        ended(roomId, true);
+    }
+
+    /**
+     * Idem
+     * @param await no modo MOVE, espera o force (quem não pode bloquear passa false)
+     */
+    void ended(int roomId, boolean await) {
+        lock.lock();
+        try {
+            if (reserve(11, await)) {
+                int start = begin(active, END, roomId);
+                end(active, crc, start);
+                commit(await, null);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    Durability getDurability() {
+        return durability;
+    }
+
+    private static void run(Runnable action) {
+        if (action != null) {
+            action.run();
+        }
+    }
+
+    // Com o lock: espera espaço no buffer ativo (ou, sem await, o aumenta);
+    // false se o diário está fechado
+    private boolean reserve(int size, boolean await) {
+        while (!closed && active.remaining() < size) {
+            if (active.position() == 0 || !await) {
+                // Registro maior que o buffer (nomes longos), ou quem registra
+                // não pode esperar o write e o force do lote em gravação
+                active = grow(active, size);
+                break;
+            }
+            full = true;
+            ready.signal();
+            flushed.awaitUninterruptibly();
+        }
+        return !closed;
+    }
+
+    // Buffer com o conteúdo de buffer e espaço para mais size bytes; fica em
+    // uso (troca com o outro) como os de tamanho normal
+    private static ByteBuffer grow(ByteBuffer buffer, int size) {
+        ByteBuffer larger = ByteBuffer.allocateDirect(Math.max(buffer.capacity() * 2, buffer.position() + size));
+        buffer.flip();
+        larger.put(buffer);
+        return larger;
+    }
+
+    // Com o lock: acorda a thread de escrita e, no modo MOVE, espera o force
+    // (await) ou deixa onDurable para a thread de escrita
+    private void commit(boolean await, Runnable onDurable) {
+        long seq = ++appended;
+        if (active.position() > active.capacity() / 2) {
+            full = true;
+        }
+        // No modo INTERVAL a thread de escrita só acorda antes do prazo com o buffer cheio
+        if (durability != Durability.INTERVAL || full) {
+            ready.signal();
+        }
+        if (durability != Durability.MOVE) {
+            run(onDurable);
+        } else if (onDurable != null) {
+            waiters.add(new Waiter(seq, onDurable));
+        } else if (await) {
+            while (durable < seq && !failed.get()) {
+                flushed.awaitUninterruptibly();
+            }
+        }
+    }
+
+    // Retira, com o lock, os avisos cujos registros já estão no disco (todos, se closed)
+    private List<Runnable> takeDurable() {
+        List<Runnable> ready = new ArrayList<>();
+        while (!waiters.isEmpty() && (closed || waiters.peek().seq <= durable)) {
+            ready.add(waiters.poll().action);
+        }
+        return ready;
+    }
+
+    private void run() {
+        while (true) {
+            ByteBuffer batch;
+            long seq;
+            lock.lock();
+            try {
+                if (durability == Durability.INTERVAL) {
+                    long deadline = System.nanoTime() + intervalNanos;
+                    long left;
+                    while (!closed && !full && (left = deadline - System.nanoTime()) > 0) {
+                        try {
+                            ready.awaitNanos(left);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                    }
+                    if (active.position() == 0 && !closed) {
+                        continue;
+                    }
+                }
+                while (active.position() == 0 && !closed) {
+                    ready.awaitUninterruptibly();
+                }
+                if (active.position() == 0) {
+                    return;
+                }
+                batch = active;
+                active = spare;
+                spare = batch;
+                seq = appended;
+                full = false;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                batch.flip();
+                while (batch.hasRemaining()) {
+                    channel.write(batch);
+                }
+                if (durability != Durability.ASYNC) {
+                    channel.force(false);
+                }
+            } catch (IOException e) {
+                Log.error("[DIÁRIO] Erro ao gravar; diário desativado: {}", e.getMessage());
+                failed.set(true);
+            }
+            batch.clear();
+
+            List<Runnable> ready;
+            lock.lock();
+            try {
+                durable = seq;
+                batches++;
+                if (failed.get()) {
+                    closed = true;
+                }
+                flushed.signalAll();
+                ready = takeDurable();
+            } finally {
+                lock.unlock();
+            }
+            for (Runnable action : ready) {
+                action.run();
+            }
+        }
+    }
+
+    /**
+     * Grava o que falta, força para o disco e fecha o arquivo; registros
+     * posteriores são ignorados
+     */
+    void close() {
+        lock.lock();
+        try {
+            closed = true;
+            ready.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join();
+            List<Runnable> ready;
+            lock.lock();
+            try {
+                ready = takeDurable();
+            } finally {
+                lock.unlock();
+            }
+            for (Runnable action : ready) {
+                action.run();
+            }
+            channel.force(true);
+            channel.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            Log.error("[DIÁRIO] Erro ao fechar: {}", e.getMessage());
+        }
+    }
+
+    // ==================== CODIFICAÇÃO ====================
+
+    private static int startSize(String[] names, String[] tokens) {
+        int size = 2 + 1 + 4 + 1 + 4;
+        for (int p = 0; p < 2; p++) {
+            size += 2 + utf8(names[p]).length + 2 + utf8(tokens[p]).length;
+        }
+        return size;
+    }
+
+    private static void putStart(ByteBuffer out, CRC32 crc, int roomId, String[] names, String[] tokens,
+                                 boolean[] bots) {
+        int start = begin(out, START, roomId);
+        out.put((byte) ((bots[0] ? 1 : 0) | (bots[1] ? 2 : 0)));
+        for (int p = 0; p < 2; p++) {
+            putString(out, names[p]);
+            putString(out, tokens[p]);
+        }
+        end(out, crc, start);
+    }
+
+    private static void putMove(ByteBuffer out, CRC32 crc, int roomId, int packed) {
+        int start = begin(out, MOVE, roomId);
+        out.putShort((short) packed);
+        end(out, crc, start);
+    }
+
+    private static void putString(ByteBuffer out, String value) {
+        byte[] bytes = utf8(value);
+        out.putShort((short) bytes.length).put(bytes);
+    }
+
+    private static byte[] utf8(String value) {
+        byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+        return bytes.length > MAX_STRING ? Arrays.copyOf(bytes, MAX_STRING) : bytes;
+    }
+
+    // Reserva o tamanho e escreve tipo e sala; devolve a posição do registro
+    private static int begin(ByteBuffer out, byte type, int roomId) {
+        int start = out.position();
+        out.putShort((short) 0).put(type).putInt(roomId);
+        return start;
+    }
+
+    // Preenche o tamanho e acrescenta o CRC32 do corpo
+    private static void end(ByteBuffer out, CRC32 crc, int start) {
+        int length = out.position() - start - 2;
+        out.putShort(start, (short) length);
+        crc.reset();
+        ByteBuffer body = out.duplicate();
+        body.position(start + 2).limit(start + 2 + length);
+        crc.update(body);
+        out.putInt((int) crc.getValue());
+    }
+
+    long getBatches() {
+        lock.lock();
+        try {
+            return batches;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long getRecords() {
+        lock.lock();
+        try {
+            return appended;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ==================== LINHA DE COMANDO ====================
+
+    /**
+     * Mede a vazão de cada modo: N threads (salas) registrando saltos sem parar
+     */
+    public static void main(String[] args) throws Exception {
+        int threads = 8;
+        int seconds = 3;
+        long interval = 10;
+        Path file = Paths.get("diario-bench.log");
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--threads": threads = Integer.parseInt(args[++i]); break;
+                case "--seconds": seconds = Integer.parseInt(args[++i]); break;
+                case "--interval": interval = Long.parseLong(args[++i]); break;
+                case "--file": file = Paths.get(args[++i]); break;
+                default:
+                    System.err.println("[DIÁRIO] Opção desconhecida: " + args[i]);
+                    System.exit(2);
+            }
+        }
+        System.out.println("[DIÁRIO] " + threads + " threads, " + seconds + " s por modo, arquivo " + file);
+        for (Durability mode : Durability.values()) {
+            GameJournal journal = open(file, mode, interval, new ArrayList<>());
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+            List<Thread> workers = new ArrayList<>();
+            long begin = System.nanoTime();
+            for (int t = 0; t < threads; t++) {
+                final int roomId = t + 1;
+                Thread worker = new Thread(() -> {
+                    journal.started(roomId, new String[] {"a" + roomId, "b" + roomId},
+                        new String[] {null, null}, new boolean[2]);
+                    while (System.nanoTime() < deadline) {
+                        journal.moved(roomId, 5, 0, 4, 1);
+                    }
+                    journal.ended(roomId);
+                });
+                workers.add(worker);
+                worker.start();
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            journal.close();
+            double elapsed = (System.nanoTime() - begin) / 1e9;
+            long records = journal.getRecords();
+            long batches = Math.max(1, journal.getBatches());
+            System.out.println(String.format("[DIÁRIO] %-8s %,12.0f saltos/s  %,10d lotes  %8.1f registros por lote  %,d bytes",
+                mode + (mode == Durability.INTERVAL ? " " + interval + "ms" : ""), records / elapsed,
+                batches, (double) records / batches, Files.size(file)));
+        }
+        Files.deleteIfExists(file);
+    }
+}
@@ -0,0 +1,941 @@
+package server;
+
+import log.Log;
+import model.GameArchive;
+import model.GameArchiveWriter;
+import model.GameState;
+import model.Tablebase;
+import network.BinaryProtocol;
+import network.GameProtocol;
+import network.MessageReader;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Sala de jogo entre dois jogadores.
+ *
+ * A sala é uma máquina de estados ({@link State}) movida por eventos dos dois
+ * jogadores ({@link #handleMessage}, {@link #handleMove}, {@link #handleDisconnect})
+ * e não depende do transporte: no modo bloqueante {@link #startGame} lê os
+ * dois sockets ao mesmo tempo, uma tarefa por jogador; no modo NIO os event
+ * loops entregam as mensagens já decodificadas. Assim um DISCONNECT, uma
+ * desistência (RESIGN) ou uma proposta de empate (DRAW_OFFER) fora da vez
+ * são tratados na hora, e não quando chegaria a vez de quem os enviou.
+ *
+ * Quando uma partida iniciada termina, as conexões são fechadas na mesma
+ * hora ({@link #closeConnections}): a leitura do outro jogador é liberada e
+ * a sala sai do registro sem esperar pela thread que a lia.
+ *
+ * O estado é protegido por um ReentrantLock em vez de synchronized: o envio
+ * de mensagens pode bloquear no socket com o lock adquirido, e uma thread
+ * virtual bloqueada em um monitor prende a thread carregadora.
+ *
+ * Se a conexão de um jogador cai sem DISCONNECT, a sala pode esperar que ele
+ * volte com uma nova conexão ({@link #connectionLost}, {@link #resume}; ver
+ * {@link Sessions}).
+ *
+ * Cada salto aceito é avisado ao listener antes de ser enviado (diário,
+ * ver {@link GameJournal}); {@link #restore} reconstrói a sala a partir
+ * dos saltos gravados.
+ *
+ * Com relógio ({@link #setClock}) só corre o tempo de quem tem a vez; o
+ * YOUR_TURN leva o tempo restante dos dois jogadores e, se o tempo acaba,
+ * a roda de temporizadores avisa a sala ({@link #handleFlag}), que encerra a
+ * partida na hora, sem thread nem tarefa própria por sala.
+ *
+ * Espectadores ({@link #subscribe}) recebem OPPONENT_MOVE e GAME_OVER
+ * codificados uma vez por mensagem e enfileirados sem bloquear (ver
+ * {@link Spectator}); um espectador lento nunca atrasa a partida.
+ */
+class GameRoom {
+
+    /**
+     * Estados da sala; as transições acontecem com o lock. PENDING vai a
+     * PLAYING no início da partida ({@link #start}, {@link #restore}) ou a
+     * CANCELLED se o jogador 1 sai antes; PLAYING vai a OVER no fim, com
+     * resultado, desistência, empate combinado ou desconexão.
+     */
+    private enum State { PENDING, PLAYING, OVER, CANCELLED }
+
+    private final int roomId;
+    private Connection player1, player2;
+    private String player1Name, player2Name;
+    private final GameState gameState;
+    private boolean player1Turn = true;
+    private State state = State.PENDING;
+    private boolean closed;
+    // Proposta de empate à espera da resposta do oponente
+    private boolean drawOffered;
+    private boolean drawOfferedByPlayer1;
+    // Relógios dos jogadores, ou null numa partida sem tempo
+    private GameClock clock;
+    // Saltos aceitos (GameArchiveWriter.hop) e resultado, para o arquivo de partidas
+    private int[] history = new int[128];
+    private int historySize;
+    private int outcome = GameArchive.UNFINISHED;
+    // Jogador com a conexão caída, à espera da retomada da sessão
+    private boolean player1Away, player2Away;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition playerBack = lock.newCondition();
+    private final RoomListener listener;
+    private final List<Spectator> spectators = new ArrayList<>();
+    // Na fila do Matchmaker: quem troca para false fica com a sala
+    private final AtomicBoolean waiting = new AtomicBoolean();
+    // Última sondagem do jogador 1 enquanto espera (System.nanoTime)
+    private volatile long probedAt = System.nanoTime();
+
+    /**
+     * @param tablebase tabela de finais para adjudicação, ou null
+     * @param listener  avisado do início e do fim da sala
+     */
+    GameRoom(int roomId, Tablebase tablebase, RoomListener listener) {
+        this.roomId = roomId;
+        this.listener = listener;
+        this.gameState = new GameState();
+        gameState.setTablebase(tablebase);
+    }
+
+    void setPlayer1(Connection connection, String name) {
+        lock.lock();
+        try {
+            this.player1 = connection;
+            this.player1Name = name;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void setPlayer2(Connection connection, String name) {
+        lock.lock();
+        try {
+            this.player2 = connection;
+            this.player2Name = name;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Partida com relógio; chamar antes do início
+     */
+    void setClock(GameClock clock) {
+        lock.lock();
+        try {
+            this.clock = clock;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Envia a mensagem de início para ambos os jogadores e a vez para as brancas
+     */
+    void start() {
+        lock.lock();
+        try {
+            if (state != State.PENDING) {
+                // O jogador 1 saiu enquanto o jogador 2 entrava
+                player2.send(GameProtocol.createGameOverMessage("Oponente desconectou"));
+                return;
+            }
+            state = State.PLAYING;
+            player1.send(GameProtocol.createStartMessage("WHITE"));
+            player2.send(GameProtocol.createStartMessage("BLACK"));
+
+            startClock();
+            sendTurn(player1);
+            listener.started(this);
+
+            Log.info("[SALA {}] Jogo em andamento...", roomId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Executa a partida no modo bloqueante: inicia o jogo e lê as mensagens
+     * dos dois jogadores até o fim, a do jogador 2 numa tarefa do
+     * {@code executor} e a do jogador 1 na thread atual. O lugar de um
+     * {@link BotConnection}, que joga sozinho, não é lido.
+     */
+    void startGame(Executor executor) {
+        runGame(true, executor);
+    }
+
+    /**
+     * Continua no modo bloqueante uma partida reconstruída por {@link #restore}
+     */
+    void continueGame(Executor executor) {
+        runGame(false, executor);
+    }
+
+    private void runGame(boolean fresh, Executor executor) {
+        if (fresh) {
+            start();
+        }
+        if (seat(true) instanceof BotConnection) {
+            readSeat(false);
+            return;
+        }
+        if (!(seat(false) instanceof BotConnection)) {
+            executor.execute(() -> readSeat(false));
+        }
+        readSeat(true);
+    }
+
+    /**
+     * Lê as mensagens de um jogador até o fim da partida; se a conexão cai,
+     * espera a retomada da sessão e passa a ler a nova conexão
+     */
+    private void readSeat(boolean player1) {
+        try {
+            while (!isFinished()) {
+                if (isAway(player1)) {
+                    awaitPlayer(player1);
+                    continue;
+                }
+                Connection seat = seat(player1);
+                if (!(seat instanceof SocketConnection)) {
+                    return;
+                }
+                SocketConnection current = (SocketConnection) seat;
+                String message;
+                try {
+                    message = current.readLine();
+                } catch (IOException e) {
+                    // Fechada no fim da partida ou trocada por um RESUME não é erro
+                    if (!isFinished() && seat(player1) == current) {
+                        Log.warn("[SALA {}] Erro na comunicação: {}", roomId, e.getMessage());
+                    }
+                    message = null;
+                }
+                if (message == null) {
+                    if (connectionLost(player1, current)) {
+                        awaitPlayer(player1);
+                    }
+                    continue;
+                }
+                if (message == MessageReader.MOVE_FRAME) {
+                    // Frame binário: direto para o handleMove, sem texto (como no NioServer.onFrame)
+                    int packed = current.getMove();
+                    handleMove(player1, BinaryProtocol.r1(packed), BinaryProtocol.c1(packed),
+                        BinaryProtocol.r2(packed), BinaryProtocol.c2(packed));
+                    continue;
+                }
+                handleMessage(player1, message);
+            }
+        } catch (Exception e) {
+            Log.error("[SALA {}] Erro no jogo: {}", roomId, e.getMessage());
+        } finally {
+            closeConnections();
+        }
+    }
+
+    /**
+     * Trata uma linha de texto recebida de um jogador
+     */
+    void handleMessage(boolean fromPlayer1, String message) {
+        if (message == null || message.startsWith(GameProtocol.DISCONNECT)) {
+            handleDisconnect(fromPlayer1);
+            return;
+        }
+
+        if (message.startsWith(GameProtocol.MOVE)) {
+            String moveData = GameProtocol.getMessageContent(message);
+            int[] move = GameProtocol.parseMove(moveData);
+
+            if (move != null && move.length == 4) {
+                handleMove(fromPlayer1, move[0], move[1], move[2], move[3]);
+            } else {
+                handleMalformedMove(fromPlayer1);
+            }
+            return;
+        }
+
+        switch (GameProtocol.getMessageType(message)) {
+            case GameProtocol.RESIGN:
+                handleResign(fromPlayer1);
+                break;
+            case GameProtocol.DRAW_OFFER:
+                handleDrawOffer(fromPlayer1);
+                break;
+            case GameProtocol.DRAW_ACCEPT:
+                handleDrawAnswer(fromPlayer1, true);
+                break;
+            case GameProtocol.DRAW_DECLINE:
+                handleDrawAnswer(fromPlayer1, false);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Valida e aplica um movimento de um jogador
+     */
+    void handleMove(boolean fromPlayer1, int r1, int c1, int r2, int c2) {
+        lock.lock();
+        try {
+            if (state == State.OVER || state == State.CANCELLED) {
+                return;
+            }
+            Connection current = fromPlayer1 ? player1 : player2;
+
+            if (state != State.PLAYING || fromPlayer1 != player1Turn) {
+                Metrics.MOVES_INVALID.increment();
+                current.send(GameProtocol.MOVE_INVALID);
+                return;
+            }
+
+            long start = System.nanoTime();
+            boolean validMove = gameState.executeMove(r1, c1, r2, c2);
+            Metrics.EXECUTE_MOVE.recordSince(start);
+            // Por lance: só em debug, e sem montar os argumentos fora dele
+            if (Log.isDebugEnabled()) {
+                Log.debug("[SALA {}] Movimento de {}: ({},{}) -> ({},{}) {}", roomId, fromPlayer1 ? player1Name : player2Name,
+                    r1, c1, r2, c2, validMove ? "VÁLIDO" : "INVÁLIDO");
+            }
+
+            if (!validMove) {
+                Metrics.MOVES_INVALID.increment();
+                current.send(GameProtocol.MOVE_INVALID);
+                return;
+            }
+            Metrics.MOVES_VALID.increment();
+            // Em uma captura múltipla a vez (e o relógio) continua com o mesmo jogador
+            boolean turnPassed = gameState.isWhiteTurn() != player1Turn;
+            if (clock != null && turnPassed) {
+                clock.moved();
+            }
+            if (drawOffered && drawOfferedByPlayer1 != fromPlayer1) {
+                // Jogar em vez de responder recusa a proposta
+                declineDraw();
+            }
+
+            listener.moved(this, r1, c1, r2, c2);
+            record(r1, c1, r2, c2);
+
+            // Envia o movimento para AMBOS os jogadores
+            player1.sendOpponentMove(r1, c1, r2, c2);
+            player2.sendOpponentMove(r1, c1, r2, c2);
+            if (!spectators.isEmpty()) {
+                broadcast(encode(GameProtocol.createOpponentMoveMessage(r1, c1, r2, c2)),
+                    BinaryProtocol.opponentMoveFrame(r1, c1, r2, c2));
+            }
+
+            // Verifica fim de jogo
+            start = System.nanoTime();
+            String gameOverMsg = gameState.checkGameOver();
+            Metrics.CHECK_GAME_OVER.recordSince(start);
+            if (gameOverMsg != null) {
+                endGame(gameOverMsg);
+                return;
+            }
+
+            player1Turn = gameState.isWhiteTurn();
+            if (turnPassed) {
+                startClock();
+            }
+            sendTurn(player1Turn ? player1 : player2);
+            if (Log.isDebugEnabled()) {
+                Log.debug("[SALA {}] YOUR_TURN enviado para {}", roomId, player1Turn ? player1Name : player2Name);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void handleMalformedMove(boolean fromPlayer1) {
+        lock.lock();
+        try {
+            Metrics.MOVES_INVALID.increment();
+            (fromPlayer1 ? player1 : player2).send(GameProtocol.createErrorMessage("Formato de movimento inválido"));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * O prazo do relógio de um jogador venceu (executa no executor da roda):
+     * se o relógio dele ainda corre e o tempo acabou, perde por tempo
+     */
+    void handleFlag(boolean player1) {
+        lock.lock();
+        try {
+            if (state != State.PLAYING || clock == null || !clock.isFlagged(player1)) {
+                return;
+            }
+            endGame(player1 ? "Pretas venceram! (Brancas sem tempo)" : "Brancas venceram! (Pretas sem tempo)");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * O jogador desistiu: o oponente vence
+     */
+    void handleResign(boolean fromPlayer1) {
+        lock.lock();
+        try {
+            if (state != State.PLAYING) {
+                return;
+            }
+            endGame(fromPlayer1 ? "Pretas venceram! (Brancas desistiram)" : "Brancas venceram! (Pretas desistiram)");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Repassa a proposta de empate ao oponente. Se ele já tinha proposto, é
+     * um acordo; um bot sempre recusa.
+     */
+    void handleDrawOffer(boolean fromPlayer1) {
+        lock.lock();
+        try {
+            if (state != State.PLAYING) {
+                return;
+            }
+            if (drawOffered) {
+                if (drawOfferedByPlayer1 != fromPlayer1) {
+                    endGame("Empate! (acordo entre os jogadores)");
+                }
+                // Proposta repetida enquanto a anterior espera resposta: ignorada
+                return;
+            }
+            Connection opponent = fromPlayer1 ? player2 : player1;
+            if (opponent instanceof BotConnection) {
+                (fromPlayer1 ? player1 : player2).send(GameProtocol.DRAW_DECLINE);
+                return;
+            }
+            drawOffered = true;
+            drawOfferedByPlayer1 = fromPlayer1;
+            opponent.send(GameProtocol.DRAW_OFFER);
+            Log.info("[SALA {}] {} propôs empate", roomId, fromPlayer1 ? player1Name : player2Name);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Resposta à proposta de empate do oponente
+     */
+    void handleDrawAnswer(boolean fromPlayer1, boolean accept) {
+        lock.lock();
+        try {
+            if (state != State.PLAYING) {
+                return;
+            }
+            if (!drawOffered || drawOfferedByPlayer1 == fromPlayer1) {
+                (fromPlayer1 ? player1 : player2).send(GameProtocol.createErrorMessage("Nenhuma proposta de empate"));
+                return;
+            }
+            if (accept) {
+                endGame("Empate! (acordo entre os jogadores)");
+            } else {
+                declineDraw();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Com o lock: retira a proposta pendente e avisa quem a fez
+    private void declineDraw() {
+        drawOffered = false;
+        (drawOfferedByPlayer1 ? player1 : player2).send(GameProtocol.DRAW_DECLINE);
+    }
+
+    /**
+     * Encerra a partida com o resultado para os jogadores, espectadores e arquivo (com o lock)
+     */
+    private void endGame(String gameOverMsg) {
+        Log.info("[SALA {}] Jogo finalizado: {}", roomId, gameOverMsg);
+        outcome = GameArchive.outcomeOf(gameOverMsg);
+        player1.send(GameProtocol.createGameOverMessage(gameOverMsg));
+        player2.send(GameProtocol.createGameOverMessage(gameOverMsg));
+        broadcastLast(GameProtocol.createGameOverMessage(gameOverMsg));
+        finish();
+    }
+
+    /**
+     * Encerra a partida porque um jogador desconectou
+     */
+    void handleDisconnect(boolean fromPlayer1) {
+        lock.lock();
+        try {
+            if (state == State.OVER || state == State.CANCELLED) {
+                return;
+            }
+            String currentPlayer = fromPlayer1 ? player1Name : player2Name;
+            Connection opponent = fromPlayer1 ? player2 : player1;
+            Log.info("[SALA {}] {} desconectou", roomId, currentPlayer);
+            if (opponent != null) {
+                opponent.send(GameProtocol.createGameOverMessage("Oponente desconectou"));
+            }
+            broadcastLast(GameProtocol.createGameOverMessage(currentPlayer + " desconectou"));
+            outcome = (fromPlayer1 ? GameArchive.BLACK_WINS : GameArchive.WHITE_WINS) | GameArchive.ABANDONED;
+            finish();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ==================== RETOMADA ====================
+
+    /**
+     * A conexão de um jogador caiu (fim do fluxo ou erro, sem DISCONNECT)
+     * @return true se a sala espera a retomada da sessão (ou a conexão já
+     *         foi trocada por um RESUME); false se a partida foi encerrada
+     */
+    boolean connectionLost(boolean fromPlayer1, Connection lost) {
+        lock.lock();
+        try {
+            if (seat(fromPlayer1) != lost || (fromPlayer1 ? player1Away : player2Away)) {
+                return true;
+            }
+            if (state == State.OVER || state == State.CANCELLED) {
+                return false;
+            }
+            if (state != State.PLAYING || !listener.disconnected(this, fromPlayer1, lost)) {
+                handleDisconnect(fromPlayer1);
+                return false;
+            }
+            setAway(fromPlayer1, true);
+            (fromPlayer1 ? player2 : player1).send(GameProtocol.WAIT_FOR_PLAYER);
+            Log.info("[SALA {}] {} caiu; aguardando a retomada da sessão", roomId,
+                fromPlayer1 ? player1Name : player2Name);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Fim do prazo de retomada: se o jogador não voltou, perde por desconexão
+     */
+    void expire(boolean player1, Connection lost) {
+        lock.lock();
+        try {
+            if (state != State.PLAYING || seat(player1) != lost || !(player1 ? player1Away : player2Away)) {
+                return;
+            }
+            setAway(player1, false);
+            Log.info("[SALA {}] {} não voltou a tempo", roomId, player1 ? player1Name : player2Name);
+            handleDisconnect(player1);
+            closeConnections();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Troca a conexão do jogador {@code old} pela nova e a põe em dia com
+     * START, a foto do tabuleiro (BOARD) e, se for a vez dele, YOUR_TURN
+     * @return false se a partida já terminou ou {@code old} não é jogador da sala
+     */
+    boolean resume(Connection old, Connection connection) {
+        lock.lock();
+        try {
+            if (state != State.PLAYING || (old != player1 && old != player2)) {
+                return false;
+            }
+            boolean asPlayer1 = old == player1;
+            if (asPlayer1) {
+                player1 = connection;
+            } else {
+                player2 = connection;
+            }
+            setAway(asPlayer1, false);
+            connection.send(GameProtocol.createStartMessage(asPlayer1 ? "WHITE" : "BLACK"));
+            connection.send(GameProtocol.createBoardMessage(gameState.getBoard(), gameState.isWhiteTurn()));
+            if (player1Turn == asPlayer1) {
+                sendTurn(connection);
+            }
+            if (drawOffered && drawOfferedByPlayer1 != asPlayer1) {
+                connection.send(GameProtocol.DRAW_OFFER);
+            }
+            Log.info("[SALA {}] {} retomou a partida", roomId, asPlayer1 ? player1Name : player2Name);
+            // No modo bloqueante, libera a thread da sala presa na leitura da conexão antiga
+            old.close();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reconstrói a partida com os saltos gravados no diário, sem enviá-los
+     * aos jogadores humanos (os bots os recebem para acompanhar a posição).
+     * Os jogadores devem estar definidos; quem não for bot fica ausente em
+     * seguida ({@link #connectionLost}) até retomar a sessão.
+     * @param moves saltos empacotados como em {@link BinaryProtocol#packMove}
+     * @return false se um salto foi recusado ou a partida já tinha terminado
+     */
+    boolean restore(int[] moves) {
+        lock.lock();
+        try {
+            for (int packed : moves) {
+                int r1 = BinaryProtocol.r1(packed), c1 = BinaryProtocol.c1(packed);
+                int r2 = BinaryProtocol.r2(packed), c2 = BinaryProtocol.c2(packed);
+                if (!gameState.executeMove(r1, c1, r2, c2)) {
+                    Log.warn("[SALA {}] Salto inválido no diário: ({},{}) -> ({},{})", roomId, r1, c1, r2, c2);
+                    return false;
+                }
+                player1.sendOpponentMove(r1, c1, r2, c2);
+                player2.sendOpponentMove(r1, c1, r2, c2);
+                record(r1, c1, r2, c2);
+            }
+            if (gameState.checkGameOver() != null) {
+                return false;
+            }
+            if (gameState.isCaptureInProgress() && (gameState.isWhiteTurn() ? player1 : player2) instanceof BotConnection) {
+                // O bot planeja a captura múltipla inteira e perdeu o plano na queda
+                Log.warn("[SALA {}] Diário termina no meio de uma captura do bot", roomId);
+                return false;
+            }
+            state = State.PLAYING;
+            player1Turn = gameState.isWhiteTurn();
+            // O diário não guarda os relógios: recomeçam do tempo base
+            startClock();
+            Log.info("[SALA {}] Reconstruída do diário com {} saltos", roomId, moves.length);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Envia YOUR_TURN a quem tem a vez; numa sala reconstruída, põe o bot para jogar
+     */
+    void promptTurn() {
+        lock.lock();
+        try {
+            if (state == State.PLAYING) {
+                sendTurn(player1Turn ? player1 : player2);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Com o lock: dispara o relógio de quem tem a vez
+    private void startClock() {
+        if (clock != null) {
+            boolean player1 = player1Turn;
+            clock.start(player1, () -> handleFlag(player1));
+        }
+    }
+
+    // Com o lock: YOUR_TURN para quem tem a vez, com os relógios se a partida tiver tempo
+    private void sendTurn(Connection connection) {
+        if (clock == null) {
+            connection.send(GameProtocol.YOUR_TURN);
+        } else {
+            connection.send(GameProtocol.createYourTurnMessage(clock.remaining(player1Turn),
+                clock.remaining(!player1Turn)));
+        }
+    }
+
+    // Com o lock
+    private void record(int r1, int c1, int r2, int c2) {
+        if (historySize == history.length) {
+            history = Arrays.copyOf(history, historySize * 2);
+        }
+        history[historySize++] = GameArchiveWriter.hop(r1, c1, r2, c2);
+    }
+
+    private void setAway(boolean player1, boolean away) {
+        if (player1) {
+            player1Away = away;
+        } else {
+            player2Away = away;
+        }
+        playerBack.signalAll();
+    }
+
+    /**
+     * Modo bloqueante: espera o jogador voltar ou a partida terminar
+     */
+    private void awaitPlayer(boolean player1) {
+        lock.lock();
+        try {
+            while ((player1 ? player1Away : player2Away) && state == State.PLAYING) {
+                playerBack.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isAway(boolean player1) {
+        lock.lock();
+        try {
+            return player1 ? player1Away : player2Away;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Connection seat(boolean player1) {
+        lock.lock();
+        try {
+            return player1 ? this.player1 : player2;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * A conexão ainda ocupa um lugar na sala (não foi trocada por um RESUME)?
+     */
+    boolean hasConnection(Connection connection) {
+        lock.lock();
+        try {
+            return connection == player1 || connection == player2;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void finish() {
+        lock.lock();
+        try {
+            boolean played = state == State.PLAYING;
+            state = played ? State.OVER : State.CANCELLED;
+            drawOffered = false;
+            if (clock != null) {
+                clock.cancel();
+            }
+            playerBack.signalAll();
+            if (played) {
+                // Libera na hora a leitura do outro jogador e o lugar no registro; numa
+                // sala cancelada quem chamou ainda avisa o jogador 2 e fecha
+                closeConnections();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * A partida começou e terminou (com resultado ou por desconexão)?
+     */
+    boolean isPlayed() {
+        lock.lock();
+        try {
+            return state == State.OVER;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Saltos aceitos até agora, empacotados por {@link GameArchiveWriter#hop}
+     */
+    int[] getHistory() {
+        lock.lock();
+        try {
+            return Arrays.copyOf(history, historySize);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Resultado para o arquivo de partidas ({@link GameArchive#WHITE_WINS}...)
+     */
+    int getOutcome() {
+        lock.lock();
+        try {
+            return outcome;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    boolean isFinished() {
+        lock.lock();
+        try {
+            return state == State.OVER || state == State.CANCELLED;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void closeConnections() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (player1 != null) player1.close();
+            if (player2 != null) player2.close();
+            for (Spectator spectator : spectators) {
+                spectator.getConnection().close();
+            }
+            spectators.clear();
+            listener.closed(this);
+            Log.info("[SALA {}] Conexões fechadas", roomId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ==================== ESPECTADORES ====================
+
+    /**
+     * Inscreve um espectador e envia a ele a foto do tabuleiro atual
+     * @return false se a partida não está em andamento
+     */
+    boolean subscribe(Connection connection) {
+        lock.lock();
+        try {
+            if (state != State.PLAYING) {
+                return false;
+            }
+            Spectator spectator = new Spectator(connection);
+            spectator.deliverLast(snapshot(), null);
+            spectators.add(spectator);
+            Log.info("[SALA {}] Espectador {} entrou ({} assistindo)", roomId, connection.getRemoteAddress(),
+                spectators.size());
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void unsubscribe(Connection connection) {
+        lock.lock();
+        try {
+            for (int i = 0; i < spectators.size(); i++) {
+                Spectator spectator = spectators.get(i);
+                if (spectator.getConnection() == connection) {
+                    spectators.remove(i);
+                    if (spectator.getDropped() > 0) {
+                        Log.info("[SALA {}] Espectador saiu ({} mensagens descartadas)", roomId,
+                            spectator.getDropped());
+                    }
+                    return;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int getSpectatorCount() {
+        lock.lock();
+        try {
+            return spectators.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Chamado com o lock: o mesmo array vai para todos os espectadores
+    private void broadcast(byte[] text, byte[] binary) {
+        byte[] snapshot = null;
+        for (Spectator spectator : spectators) {
+            if (spectator.needsResync() && snapshot == null) {
+                snapshot = snapshot();
+            }
+            spectator.deliver(text, binary, snapshot);
+        }
+    }
+
+    private void broadcastLast(String message) {
+        if (spectators.isEmpty()) {
+            return;
+        }
+        byte[] text = encode(message);
+        byte[] binary = BinaryProtocol.fromText(message);
+        byte[] snapshot = null;
+        for (Spectator spectator : spectators) {
+            if (spectator.needsResync()) {
+                if (snapshot == null) {
+                    snapshot = snapshot();
+                }
+                spectator.deliverLast(snapshot, null);
+            }
+            spectator.deliverLast(text, binary);
+        }
+    }
+
+    private byte[] snapshot() {
+        return encode(GameProtocol.createBoardMessage(gameState.getBoard(), gameState.isWhiteTurn()));
+    }
+
+    private static byte[] encode(String message) {
+        return (message + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    boolean isPlayer1(Connection connection) {
+        lock.lock();
+        try {
+            return connection == player1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int getRoomId() { return roomId; }
+
+    /**
+     * Coloca a sala à espera de um segundo jogador
+     */
+    void markWaiting() {
+        waiting.set(true);
+    }
+
+    /**
+     * Tira a sala da espera; só uma das threads concorrentes consegue
+     * @return true para quem ficou com a sala
+     */
+    boolean claim() {
+        return waiting.compareAndSet(true, false);
+    }
+
+    boolean isWaiting() {
+        return waiting.get();
+    }
+
+    long getProbedAt() { return probedAt; }
+
+    void setProbedAt(long nanos) { probedAt = nanos; }
+
+    Connection getPlayer1() {
+        return seat(true);
+    }
+
+    Connection getPlayer2() {
+        return seat(false);
+    }
+
+    String getPlayer1Name() {
+        lock.lock();
+        try {
+            return player1Name;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    String getPlayer2Name() {
+        lock.lock();
+        try {
+            return player2Name;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
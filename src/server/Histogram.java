@@ -0,0 +1,123 @@
+package server;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de latências no estilo HDR: contadores em faixas de largura
+ * proporcional ao valor, com 64 faixas por potência de 2 (erro relativo de
+ * até 1/64, ~1,6%), de 0 até ~2^42 (73 minutos em nanossegundos; acima
+ * disso fica na última faixa).
+ *
+ * Registrar é um incremento atômico no contador da faixa, sem lock e sem
+ * alocação. As leituras ({@link #snapshot}) copiam os contadores e podem
+ * ser subtraídas para ver só um intervalo. Também usado pelo gerador de
+ * carga (loadtest.LoadGenerator) para os tempos medidos no cliente.
+ */
+public final class Histogram {
+    private static final int SUB_BITS = 6;
+    private static final int SUB = 1 << SUB_BITS;
+    private static final int MAX_SHIFT = 42 - SUB_BITS;
+    private static final int BUCKETS = (MAX_SHIFT + 2) * SUB;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder sum = new LongAdder();
+
+    public void record(long value) {
+        counts.incrementAndGet(bucket(Math.max(0, value)));
+        sum.add(value);
+    }
+
+    /**
+     * Registra o tempo desde {@code startNanos} (de System.nanoTime)
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+        }
+        return new Snapshot(copy, sum.sum());
+    }
+
+    // Até 2*SUB o índice é o próprio valor; depois, SUB faixas por potência de 2
+    private static int bucket(long value) {
+        if (value < 2 * SUB) {
+            return (int) value;
+        }
+        int shift = Math.min(63 - Long.numberOfLeadingZeros(value) - SUB_BITS, MAX_SHIFT);
+        long sub = Math.min(value >>> shift, 2 * SUB - 1);
+        return (shift + 1) * SUB + (int) (sub - SUB);
+    }
+
+    // Maior valor que cai na faixa
+    private static long highest(int bucket) {
+        if (bucket < 2 * SUB) {
+            return bucket;
+        }
+        int shift = bucket / SUB - 1;
+        long sub = bucket % SUB + SUB;
+        return ((sub + 1) << shift) - 1;
+    }
+
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+
+        private Snapshot(long[] counts, long sum) {
+            this.counts = counts;
+            this.sum = sum;
+            long total = 0;
+            for (long c : counts) {
+                total += c;
+            }
+            this.count = total;
+        }
+
+        /**
+         * O que foi registrado depois de {@code earlier}
+         */
+        public Snapshot minus(Snapshot earlier) {
+            long[] delta = new long[counts.length];
+            for (int i = 0; i < delta.length; i++) {
+                delta[i] = counts[i] - earlier.counts[i];
+            }
+            return new Snapshot(delta, sum - earlier.sum);
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * Valor abaixo do qual estão {@code fraction} dos registros (limite
+         * superior da faixa, como no HDR); 0 se vazio
+         */
+        public long percentile(double fraction) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(fraction * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return highest(i);
+                }
+            }
+            return highest(counts.length - 1);
+        }
+
+        public long getMax() {
+            return percentile(1.0);
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package server;
+
+import log.Log;
+import network.GameProtocol;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Pareamento de jogadores sem lock global.
+ *
+ * Cada faixa de rating tem N filas concorrentes (shards); uma chegada começa
+ * por um shard sorteado e percorre os demais procurando uma sala à espera.
+ * A posse da sala é decidida por compareAndSet ({@link GameRoom#claim}):
+ * quem vence pareia, os demais descartam a entrada. Entradas velhas (salas
+ * já pareadas, canceladas ou com o jogador morto) não são procuradas no meio
+ * da fila, só descartadas quando chegam à cabeça.
+ *
+ * Sem parceiro, o jogador entra na fila do seu shard e confere os outros de
+ * novo: se duas chegadas simultâneas se enfileiraram em shards diferentes,
+ * uma delas desiste da própria sala e pareia com a outra.
+ *
+ * No modo bloqueante ninguém lê o socket de quem espera; a sala é sondada
+ * ({@link Connection#probe}) antes de ser pareada e, periodicamente, pelo
+ * coletor, que fecha as conexões de quem saiu da fila.
+ */
+class Matchmaker {
+    // Faixa dos jogadores que não informaram rating
+    private static final int UNRATED = -1;
+
+    // Vezes que um jogador desiste da própria sala por um parceiro recém-chegado
+    private static final int MAX_RETRIES = 8;
+
+    private final int shards;
+    private final int bracketWidth;
+    private final IntFunction<GameRoom> newRoom;
+    private final Consumer<GameRoom> startMatched;
+    private final AtomicInteger roomIds = new AtomicInteger();
+    private final ConcurrentHashMap<Integer, Bracket> brackets = new ConcurrentHashMap<>();
+    private final LongAdder pairings = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private ScheduledExecutorService reaper;
+
+    /**
+     * @param shards       filas por faixa de rating
+     * @param bracketWidth largura das faixas de rating; 0 pareia todos juntos
+     * @param newRoom      cria a sala com o id informado
+     * @param startMatched inicia uma sala pareada pelo coletor (as pareadas em
+     *                     {@link #join} são iniciadas por quem chamou)
+     */
+    Matchmaker(int shards, int bracketWidth, IntFunction<GameRoom> newRoom, Consumer<GameRoom> startMatched) {
+        this.shards = Math.max(1, shards);
+        this.bracketWidth = bracketWidth;
+        this.newRoom = newRoom;
+        this.startMatched = startMatched;
+    }
+
+    private final class Bracket {
+        final ConcurrentLinkedQueue<GameRoom>[] queues;
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Bracket() {
+            queues = new ConcurrentLinkedQueue[shards];
+            for (int i = 0; i < shards; i++) {
+                queues[i] = new ConcurrentLinkedQueue<>();
+            }
+        }
+
+        /**
+         * Retira a primeira sala viva a partir do shard {@code home}
+         */
+        GameRoom take(int home) {
+            for (int i = 0; i < shards; i++) {
+                ConcurrentLinkedQueue<GameRoom> queue = queues[(home + i) % shards];
+                GameRoom room;
+                while ((room = queue.poll()) != null) {
+                    if (room.claim()) {
+                        if (isAlive(room)) {
+                            return room;
+                        }
+                        evict(room);
+                    }
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Há outra sala à espera além de {@code own}?
+         */
+        boolean hasOther(GameRoom own) {
+            for (ConcurrentLinkedQueue<GameRoom> queue : queues) {
+                for (GameRoom room : queue) {
+                    if (room != own && room.isWaiting()) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+
+    private Bracket bracket(int rating) {
+        int key = rating < 0 ? UNRATED : bracketWidth > 0 ? rating / bracketWidth : 0;
+        return brackets.computeIfAbsent(key, k -> new Bracket());
+    }
+
+    /**
+     * Pareia o jogador com quem estiver esperando na sua faixa ou abre uma sala
+     * @param rating rating do jogador, ou negativo se não informado
+     * @return a sala; se o jogador entrou como jogador 2, o chamador inicia o jogo
+     */
+    GameRoom join(Connection connection, String playerName, int rating) {
+        Bracket bracket = bracket(rating);
+        int home = ThreadLocalRandom.current().nextInt(shards);
+        GameRoom partner = bracket.take(home);
+        if (partner != null) {
+            return pair(partner, connection, playerName);
+        }
+
+        GameRoom room = newRoom.apply(roomIds.incrementAndGet());
+        room.setPlayer1(connection, playerName);
+        connection.send(GameProtocol.WAIT_FOR_PLAYER);
+        return place(bracket, room, home);
+    }
+
+    /**
+     * Enfileira a sala (já retirada da espera por quem chama) e desfaz a
+     * corrida com chegadas simultâneas em outros shards
+     * @return a própria sala, ou a sala de outro jogador em que o dono entrou como jogador 2
+     */
+    private GameRoom place(Bracket bracket, GameRoom room, int home) {
+        for (int attempt = 0; ; attempt++) {
+            room.markWaiting();
+            bracket.queues[home].offer(room);
+            if (attempt == MAX_RETRIES || !bracket.hasOther(room) || !room.claim()) {
+                return room;
+            }
+            GameRoom partner = bracket.take(home);
+            if (partner != null) {
+                return pair(partner, room.getPlayer1(), room.getPlayer1Name());
+            }
+        }
+    }
+
+    private GameRoom pair(GameRoom room, Connection connection, String playerName) {
+        room.setPlayer2(connection, playerName);
+        pairings.increment();
+        return room;
+    }
+
+    /**
+     * Retira uma sala da espera para completá-la por fora (bot)
+     * @return false se a sala já foi pareada ou o jogador saiu
+     */
+    boolean claim(GameRoom room) {
+        if (!room.claim()) {
+            return false;
+        }
+        if (!isAlive(room)) {
+            evict(room);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Retira a sala da espera porque o jogador desconectou
+     * @return false se ela já tinha sido pareada
+     */
+    boolean cancel(GameRoom room) {
+        return room.claim();
+    }
+
+    private boolean isAlive(GameRoom room) {
+        if (room.isFinished()) {
+            return false;
+        }
+        room.setProbedAt(System.nanoTime());
+        return room.getPlayer1().probe();
+    }
+
+    private void evict(GameRoom room) {
+        evictions.increment();
+        Log.info("[LOBBY] {} saiu da fila (sala {})", room.getPlayer1Name(), room.getRoomId());
+        room.handleDisconnect(true);
+        room.closeConnections();
+    }
+
+    // ==================== COLETOR ====================
+
+    /**
+     * Sonda a cada {@code intervalMillis} quem espera há mais tempo que isso
+     * (só conexões bloqueantes; o NIO detecta a queda sozinho)
+     */
+    void startReaper(long intervalMillis) {
+        reaper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "matchmaker-reaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reaper.scheduleWithFixedDelay(() -> sweep(TimeUnit.MILLISECONDS.toNanos(intervalMillis)),
+            intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void sweep(long intervalNanos) {
+        try {
+            for (Bracket bracket : brackets.values()) {
+                for (int shard = 0; shard < shards; shard++) {
+                    sweep(bracket, shard, intervalNanos);
+                }
+            }
+        } catch (RuntimeException e) {
+            Log.error("[LOBBY] Erro no coletor: {}", e.getMessage());
+        }
+    }
+
+    private void sweep(Bracket bracket, int shard, long intervalNanos) {
+        long now = System.nanoTime();
+        Iterator<GameRoom> it = bracket.queues[shard].iterator();
+        while (it.hasNext()) {
+            GameRoom room = it.next();
+            if (!room.isWaiting()) {
+                it.remove();
+            } else if (room.getPlayer1() instanceof SocketConnection && now - room.getProbedAt() >= intervalNanos
+                    && room.claim()) {
+                it.remove();
+                if (!isAlive(room)) {
+                    evict(room);
+                    continue;
+                }
+                GameRoom placed = place(bracket, room, shard);
+                if (placed != room) {
+                    startMatched.accept(placed);
+                }
+            }
+        }
+    }
+
+    /**
+     * Jogadores esperando oponente (percorre as filas; para as métricas)
+     */
+    int waiting() {
+        int count = 0;
+        for (Bracket bracket : brackets.values()) {
+            for (ConcurrentLinkedQueue<GameRoom> queue : bracket.queues) {
+                for (GameRoom room : queue) {
+                    if (room.isWaiting()) {
+                        count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Garante que as próximas salas tenham id maior que {@code roomId} (salas reconstruídas do diário)
+     */
+    void reserveIds(int roomId) {
+        roomIds.accumulateAndGet(roomId, Math::max);
+    }
+
+    void shutdown() {
+        if (reaper != null) {
+            reaper.shutdownNow();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return pairings.sum() + " pareamentos, " + evictions.sum() + " desistências na fila, "
+            + roomIds.get() + " salas criadas";
+    }
+}
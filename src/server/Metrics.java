@@ -0,0 +1,305 @@
+package server;
+
+import log.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Métricas do servidor: contadores, medidores e histogramas de latência.
+ *
+ * Os contadores ({@link LongAdder}) e os {@link Histogram}s são estáticos
+ * para que salas e conexões registrem sem receber referências; registrar
+ * custa um incremento (mais duas leituras de System.nanoTime nas
+ * latências). Os medidores (salas ativas, jogadores na fila) são lidos só
+ * no relatório.
+ *
+ * O relatório em texto sai por um endpoint local ({@link #listen}: conexão
+ * TCP em 127.0.0.1, responde e fecha; aceita um GET HTTP, então
+ * {@code curl http://127.0.0.1:PORTA/} também funciona) com os totais desde
+ * o início, e/ou periodicamente no {@link Log} ({@link #startDump}) com o
+ * que aconteceu no último intervalo. As leituras não são atômicas entre si:
+ * sob carga, contadores e histogramas de um mesmo relatório podem diferir
+ * pelo que chegou enquanto eram copiados.
+ */
+final class Metrics {
+
+    // ==================== CONTADORES ====================
+
+    static final LongAdder CONNECTIONS = new LongAdder();
+    static final LongAdder GAMES_STARTED = new LongAdder();
+    static final LongAdder GAMES_CLOSED = new LongAdder();
+    static final LongAdder MOVES_VALID = new LongAdder();
+    static final LongAdder MOVES_INVALID = new LongAdder();
+    static final LongAdder MESSAGES_SENT = new LongAdder();
+    static final LongAdder BYTES_SENT = new LongAdder();
+
+    // ==================== HISTOGRAMAS ====================
+
+    /** Do CONNECT lido até o jogador estar na fila ou a partida iniciada */
+    static final Histogram HANDLE_CLIENT = new Histogram();
+    static final Histogram EXECUTE_MOVE = new Histogram();
+    static final Histogram CHECK_GAME_OVER = new Histogram();
+    /** Envio para um jogador: escrita e flush no socket (bloqueante) ou entrada na fila de saída (NIO) */
+    static final Histogram WRITE = new Histogram();
+    /** Tamanho de cada mensagem enviada, em bytes */
+    static final Histogram MESSAGE_BYTES = new Histogram();
+
+    private static final Map<String, Histogram> LATENCIES = new LinkedHashMap<>();
+    private static final Map<String, LongAdder> COUNTERS = new LinkedHashMap<>();
+    private static final Map<String, IntSupplier> GAUGES = new LinkedHashMap<>();
+
+    // Posições dos lances nos contadores (para a taxa de inválidos)
+    private static final int VALID = 3;
+    private static final int INVALID = 4;
+
+    static {
+        LATENCIES.put("handleClient", HANDLE_CLIENT);
+        LATENCIES.put("executeMove", EXECUTE_MOVE);
+        LATENCIES.put("checkGameOver", CHECK_GAME_OVER);
+        LATENCIES.put("escrita", WRITE);
+        COUNTERS.put("conexoes", CONNECTIONS);
+        COUNTERS.put("partidas_iniciadas", GAMES_STARTED);
+        COUNTERS.put("salas_fechadas", GAMES_CLOSED);
+        COUNTERS.put("lances_validos", MOVES_VALID);
+        COUNTERS.put("lances_invalidos", MOVES_INVALID);
+        COUNTERS.put("mensagens_enviadas", MESSAGES_SENT);
+        COUNTERS.put("bytes_enviados", BYTES_SENT);
+    }
+
+    private static final long START = System.nanoTime();
+    private static ServerSocket endpoint;
+    private static ScheduledExecutorService dumper;
+
+    private Metrics() {
+    }
+
+    /**
+     * Registra uma mensagem enviada: contadores e tamanho
+     */
+    static void sent(int bytes) {
+        MESSAGES_SENT.increment();
+        BYTES_SENT.add(bytes);
+        MESSAGE_BYTES.record(bytes);
+    }
+
+    /**
+     * Registra um medidor lido a cada relatório
+     */
+    static synchronized void gauge(String name, IntSupplier value) {
+        GAUGES.put(name, value);
+    }
+
+    // ==================== RELATÓRIO ====================
+
+    /**
+     * Totais desde o início
+     */
+    static synchronized String report() {
+        Map<String, Histogram.Snapshot> latencies = new LinkedHashMap<>();
+        for (Map.Entry<String, Histogram> e : LATENCIES.entrySet()) {
+            latencies.put(e.getKey(), e.getValue().snapshot());
+        }
+        Histogram.Snapshot sizes = MESSAGE_BYTES.snapshot();
+        long[] counters = new long[COUNTERS.size()];
+        int i = 0;
+        for (LongAdder counter : COUNTERS.values()) {
+            counters[i++] = counter.sum();
+        }
+        return format("desde o início", (System.nanoTime() - START) / 1e9, counters, latencies, sizes);
+    }
+
+    private static String format(String period, double seconds, long[] counters,
+                                 Map<String, Histogram.Snapshot> latencies, Histogram.Snapshot sizes) {
+        StringBuilder sb = new StringBuilder(1024);
+        sb.append(String.format("# Métricas %s (%.1f s)\n", period, seconds));
+        for (Map.Entry<String, IntSupplier> e : GAUGES.entrySet()) {
+            sb.append(String.format("%-20s %,d\n", e.getKey(), e.getValue().getAsInt()));
+        }
+        int i = 0;
+        for (String name : COUNTERS.keySet()) {
+            sb.append(String.format("%-20s %,d\n", name, counters[i++]));
+        }
+        long valid = counters[VALID];
+        long invalid = counters[INVALID];
+        sb.append(String.format("%-20s %.2f%%\n", "taxa_invalidos", valid + invalid == 0 ? 0.0
+            : 100.0 * invalid / (valid + invalid)));
+        sb.append(String.format("%-20s %.1f/s\n", "lances_por_segundo", valid / Math.max(seconds, 1e-9)));
+        sb.append(String.format("# latências (µs)     %12s %9s %9s %9s %9s %9s %9s\n",
+            "contagem", "média", "p50", "p90", "p99", "p99.9", "máx"));
+        for (Map.Entry<String, Histogram.Snapshot> e : latencies.entrySet()) {
+            Histogram.Snapshot s = e.getValue();
+            sb.append(String.format("%-20s %,12d %9.1f %9.1f %9.1f %9.1f %9.1f %9.1f\n", e.getKey(), s.getCount(),
+                s.getMean() / 1e3, s.percentile(0.5) / 1e3, s.percentile(0.9) / 1e3, s.percentile(0.99) / 1e3,
+                s.percentile(0.999) / 1e3, s.getMax() / 1e3));
+        }
+        sb.append(String.format("# bytes por mensagem %12s %9s %9s %9s %9s %9s %9s\n",
+            "contagem", "média", "p50", "p90", "p99", "p99.9", "máx"));
+        sb.append(String.format("%-20s %,12d %9.1f %9d %9d %9d %9d %9d\n", "mensagem", sizes.getCount(),
+            sizes.getMean(), sizes.percentile(0.5), sizes.percentile(0.9), sizes.percentile(0.99),
+            sizes.percentile(0.999), sizes.getMax()));
+        return sb.toString();
+    }
+
+    // ==================== ENDPOINT ====================
+
+    /**
+     * Serve o relatório em 127.0.0.1:{@code port} numa thread própria
+     */
+    static synchronized void listen(int port) throws IOException {
+        ServerSocket server = new ServerSocket(port, 8, InetAddress.getLoopbackAddress());
+        endpoint = server;
+        Thread thread = new Thread(() -> serve(server), "metrics");
+        thread.setDaemon(true);
+        thread.start();
+        Log.info("[MÉTRICAS] Relatório em 127.0.0.1:{}", port);
+    }
+
+    private static void serve(ServerSocket server) {
+        while (!server.isClosed()) {
+            try (Socket socket = server.accept()) {
+                boolean http = isHttpGet(socket);
+                byte[] body = report().getBytes(StandardCharsets.UTF_8);
+                OutputStream out = socket.getOutputStream();
+                if (http) {
+                    out.write(("HTTP/1.0 200 OK\r\nContent-Type: text/plain; charset=utf-8\r\nContent-Length: "
+                        + body.length + "\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                }
+                out.write(body);
+                out.flush();
+            } catch (IOException e) {
+                if (!server.isClosed()) {
+                    Log.warn("[MÉTRICAS] Erro no endpoint: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Espera um pouco pela requisição: um GET recebe cabeçalhos HTTP, uma
+     * conexão muda (nc) só o texto
+     */
+    private static boolean isHttpGet(Socket socket) throws IOException {
+        socket.setSoTimeout(200);
+        InputStream in = socket.getInputStream();
+        byte[] head = new byte[4];
+        int read = 0;
+        try {
+            while (read < head.length) {
+                int n = in.read(head, read, head.length - read);
+                if (n < 0) {
+                    break;
+                }
+                read += n;
+            }
+        } catch (SocketTimeoutException e) {
+            return false;
+        }
+        boolean http = read == 4 && new String(head, StandardCharsets.US_ASCII).equals("GET ");
+        if (http) {
+            // Descarta o resto da requisição, até a linha em branco
+            try {
+                int endOfLines = 0;
+                int c;
+                while (endOfLines < 2 && (c = in.read()) >= 0) {
+                    if (c == '\n') {
+                        endOfLines++;
+                    } else if (c != '\r') {
+                        endOfLines = 0;
+                    }
+                }
+            } catch (SocketTimeoutException e) {
+                // Requisição incompleta: responde assim mesmo
+            }
+        }
+        return http;
+    }
+
+    // ==================== RELATÓRIO PERIÓDICO ====================
+
+    /**
+     * Grava no log, a cada {@code seconds}, o que aconteceu no intervalo
+     */
+    static synchronized void startDump(int seconds) {
+        dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumper.scheduleAtFixedRate(new Runnable() {
+            private long lastTime = System.nanoTime();
+            private long[] lastCounters = new long[COUNTERS.size()];
+            private final Map<String, Histogram.Snapshot> lastLatencies = new LinkedHashMap<>();
+            private Histogram.Snapshot lastSizes = MESSAGE_BYTES.snapshot();
+
+            {
+                for (Map.Entry<String, Histogram> e : LATENCIES.entrySet()) {
+                    lastLatencies.put(e.getKey(), e.getValue().snapshot());
+                }
+                int i = 0;
+                for (LongAdder counter : COUNTERS.values()) {
+                    lastCounters[i++] = counter.sum();
+                }
+            }
+
+            @Override
+            public void run() {
+                long now = System.nanoTime();
+                Map<String, Histogram.Snapshot> interval = new LinkedHashMap<>();
+                for (Map.Entry<String, Histogram> e : LATENCIES.entrySet()) {
+                    Histogram.Snapshot current = e.getValue().snapshot();
+                    interval.put(e.getKey(), current.minus(lastLatencies.get(e.getKey())));
+                    lastLatencies.put(e.getKey(), current);
+                }
+                Histogram.Snapshot sizes = MESSAGE_BYTES.snapshot();
+                long[] counters = new long[COUNTERS.size()];
+                long[] delta = new long[counters.length];
+                int i = 0;
+                for (LongAdder counter : COUNTERS.values()) {
+                    counters[i] = counter.sum();
+                    delta[i] = counters[i] - lastCounters[i];
+                    i++;
+                }
+                String text;
+                synchronized (Metrics.class) {
+                    text = format("no último intervalo", (now - lastTime) / 1e9, delta, interval,
+                        sizes.minus(lastSizes));
+                }
+                lastSizes = sizes;
+                lastCounters = counters;
+                lastTime = now;
+                for (String line : text.split("\n")) {
+                    Log.info("[MÉTRICAS] {}", line);
+                }
+            }
+        }, seconds, seconds, TimeUnit.SECONDS);
+    }
+
+    static synchronized void stop() {
+        if (dumper != null) {
+            dumper.shutdownNow();
+            dumper = null;
+        }
+        if (endpoint != null) {
+            try {
+                endpoint.close();
+            } catch (IOException e) {
+                // Encerrando
+            }
+            endpoint = null;
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package server;
+
+import log.Log;
+import network.BinaryProtocol;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Conexão não bloqueante atendida por um {@link EventLoop}.
+ *
+ * As mensagens (linhas de texto ou frames binários) são extraídas diretamente do buffer de leitura da conexão, que é
+ * reutilizado durante toda a sua vida; a saída fica em uma fila escrita pelo
+ * loop quando o canal aceita mais dados.
+ *
+ * A saída pode ser retida ({@link #hold}) enquanto o diário grava um salto
+ * no modo MOVE: o loop não espera o force, mas nada do que vem depois do
+ * salto (o próprio OPPONENT_MOVE, YOUR_TURN, GAME_OVER) sai antes dele
+ * estar no disco.
+ */
+class NioConnection implements Connection {
+    // Tamanho máximo de uma linha do protocolo (ou de um frame)
+    private static final int MAX_LINE = BinaryProtocol.MAX_FRAME;
+    // Mensagens na fila de saída a partir das quais offer() recusa novas
+    private static final int MAX_PENDING = 64;
+
+    private final SocketChannel channel;
+    private final EventLoop loop;
+    private final NioServer server;
+    private final String remoteAddress;
+    private SelectionKey key;
+
+    private final ByteBuffer in = ByteBuffer.allocate(MAX_LINE);
+    private final Queue<ByteBuffer> out = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    // Retenções da saída ainda não liberadas (ver hold)
+    private final AtomicInteger holds = new AtomicInteger();
+    private boolean closing;
+    private volatile boolean closed;
+    // Negociado no CONNECT; lido pelas threads que enviam mensagens
+    private volatile boolean binary;
+
+    // Estado da sessão, acessado apenas pelo loop
+    GameRoom room;
+    GameRoom watching;
+    final int[] move = new int[4];
+
+    NioConnection(SocketChannel channel, EventLoop loop, NioServer server) {
+        this.channel = channel;
+        this.loop = loop;
+        this.server = server;
+        this.remoteAddress = channel.socket().getInetAddress().getHostAddress();
+    }
+
+    void setKey(SelectionKey key) {
+        this.key = key;
+    }
+
+    /**
+     * Lê os bytes disponíveis e entrega ao servidor cada linha de texto ou
+     * frame binário completo
+     */
+    void onReadable() {
+        int read;
+        try {
+            read = channel.read(in);
+        } catch (IOException e) {
+            read = -1;
+        }
+        if (read < 0) {
+            closeNow();
+            server.onClosed(this);
+            return;
+        }
+
+        byte[] data = in.array();
+        int end = in.position();
+        int start = 0;
+        while (start < end && !closed) {
+            if (BinaryProtocol.isBinary(data[start])) {
+                int length = BinaryProtocol.frameLength(data, start, end - start);
+                if (length < 0) {
+                    server.onBadFrame(this);
+                    return;
+                }
+                if (length == 0) {
+                    break;
+                }
+                server.onFrame(this, data, start);
+                start += length;
+            } else {
+                int newline = indexOf(data, (byte) '\n', start, end);
+                if (newline < 0) {
+                    break;
+                }
+                int length = newline - start;
+                if (length > 0 && data[newline - 1] == '\r') {
+                    length--;
+                }
+                server.onLine(this, data, start, length);
+                start = newline + 1;
+            }
+        }
+        if (closed) {
+            return;
+        }
+
+        // Mantém no início do buffer a linha ainda incompleta
+        if (start > 0) {
+            System.arraycopy(data, start, data, 0, end - start);
+            in.position(end - start);
+        }
+        if (!in.hasRemaining()) {
+            server.onLineTooLong(this);
+        }
+    }
+
+    private static int indexOf(byte[] data, byte value, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (data[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void send(String message) {
+        byte[] frame = binary ? BinaryProtocol.fromText(message) : null;
+        send(ByteBuffer.wrap(frame != null ? frame : (message + "\n").getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Override
+    public void sendOpponentMove(int r1, int c1, int r2, int c2) {
+        if (!binary) {
+            Connection.super.sendOpponentMove(r1, c1, r2, c2);
+            return;
+        }
+        // Frame compartilhado; cada envio só tem a sua posição de escrita
+        send(ByteBuffer.wrap(BinaryProtocol.opponentMoveFrame(r1, c1, r2, c2)));
+    }
+
+    // Envio para o jogador desta conexão (os espectadores usam offer)
+    private void send(ByteBuffer data) {
+        long start = System.nanoTime();
+        enqueue(data);
+        Metrics.WRITE.recordSince(start);
+    }
+
+    @Override
+    public boolean offer(byte[] frame) {
+        if (closed || pending.get() >= MAX_PENDING) {
+            return false;
+        }
+        // Cada conexão tem só a sua posição de escrita; os bytes são os mesmos
+        enqueue(ByteBuffer.wrap(frame));
+        return true;
+    }
+
+    @Override
+    public boolean isBinary() {
+        return binary;
+    }
+
+    @Override
+    public void enableBinary() {
+        binary = true;
+    }
+
+    private void enqueue(ByteBuffer data) {
+        if (closed) {
+            return;
+        }
+        pending.incrementAndGet();
+        Metrics.sent(data.remaining());
+        out.add(data);
+        if (loop.inLoop()) {
+            flush();
+        } else {
+            scheduleFlush();
+        }
+    }
+
+    private void scheduleFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            loop.execute(() -> {
+                flushScheduled.set(false);
+                flush();
+            });
+        }
+    }
+
+    /**
+     * Retém a saída (inclusive o que já está na fila) até o {@link #release}
+     * correspondente; pode ser chamado de qualquer thread
+     */
+    void hold() {
+        holds.incrementAndGet();
+    }
+
+    void release() {
+        if (holds.decrementAndGet() == 0) {
+            scheduleFlush();
+        }
+    }
+
+    /**
+     * Escreve a fila de saída até esvaziar ou o canal encher (deve rodar no loop)
+     */
+    void flush() {
+        if (closed) {
+            return;
+        }
+        if (key == null) {
+            if (closing) closeNow();
+            return;
+        }
+        ByteBuffer head;
+        while ((head = out.peek()) != null) {
+            // Conferido depois do peek: quem retém o faz antes de enfileirar
+            if (holds.get() > 0) {
+                // O release() agenda o próximo flush (e o fechamento pendente)
+                if (key.isValid()) {
+                    key.interestOps(SelectionKey.OP_READ);
+                }
+                return;
+            }
+            try {
+                channel.write(head);
+            } catch (IOException e) {
+                closeNow();
+                server.onClosed(this);
+                return;
+            }
+            if (head.hasRemaining()) {
+                key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                return;
+            }
+            out.poll();
+            pending.decrementAndGet();
+        }
+        if (closing) {
+            closeNow();
+        } else if (key.isValid()) {
+            key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    /**
+     * Fecha a conexão depois de enviar o que já está na fila de saída
+     */
+    @Override
+    public void close() {
+        if (loop.inLoop()) {
+            closing = true;
+            flush();
+        } else {
+            loop.execute(this::close);
+        }
+    }
+
+    private void closeNow() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (key != null) {
+            key.cancel();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            Log.warn("[NIO] Erro ao fechar conexão: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public String getRemoteAddress() {
+        return remoteAddress;
+    }
+}
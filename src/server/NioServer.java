@@ -0,0 +1,209 @@
+package server;
+
+import log.Log;
+import network.BinaryProtocol;
+import network.GameProtocol;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Transporte não bloqueante do servidor: uma thread aceita conexões e as
+ * distribui entre um número fixo de {@link EventLoop}s.
+ *
+ * O número de threads não cresce com o número de jogadores, então um único
+ * processo pode manter dezenas de milhares de salas abertas.
+ */
+class NioServer {
+    private final CheckersServer server;
+    private final EventLoop[] loops;
+    private ServerSocketChannel serverChannel;
+    private volatile boolean running = true;
+    private int nextLoop;
+
+    NioServer(CheckersServer server, int loopCount) throws IOException {
+        this.server = server;
+        this.loops = new EventLoop[loopCount];
+        for (int i = 0; i < loopCount; i++) {
+            loops[i] = new EventLoop(this, i);
+        }
+    }
+
+    /**
+     * Inicia os event loops e aceita conexões na thread atual até {@link #stop()}
+     */
+    void start(int port) throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+        for (EventLoop loop : loops) {
+            loop.start();
+        }
+
+        while (running) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                Metrics.CONNECTIONS.increment();
+                Log.info("[CONEXÃO] Novo cliente conectado: {}", channel.socket().getInetAddress().getHostAddress());
+
+                loops[nextLoop].register(channel);
+                nextLoop = (nextLoop + 1) % loops.length;
+            } catch (IOException e) {
+                if (running) {
+                    Log.error("[ERRO] Erro ao aceitar conexão: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Trata uma linha de texto recebida (executa na thread do loop da conexão)
+     */
+    void onLine(NioConnection connection, byte[] data, int offset, int length) {
+        GameRoom room = connection.room;
+
+        // Espectadores só recebem; qualquer mensagem além de DISCONNECT é ignorada
+        if (connection.watching != null) {
+            if (GameProtocol.isMessageType(data, offset, length, GameProtocol.DISCONNECT)) {
+                connection.close();
+                onClosed(connection);
+            }
+            return;
+        }
+
+        // Primeira mensagem: CONNECT|nomeJogador ou SPECTATE|idSala
+        if (room == null) {
+            if (GameProtocol.isMessageType(data, offset, length, GameProtocol.SPECTATE)) {
+                int idStart = Math.min(GameProtocol.SPECTATE.length() + 1, length);
+                connection.watching = server.spectate(connection,
+                    new String(data, offset + idStart, length - idStart, StandardCharsets.UTF_8));
+                return;
+            }
+            if (GameProtocol.isMessageType(data, offset, length, GameProtocol.RESUME)) {
+                int tokenStart = Math.min(GameProtocol.RESUME.length() + 1, length);
+                connection.room = server.resume(connection,
+                    new String(data, offset + tokenStart, length - tokenStart, StandardCharsets.UTF_8));
+                return;
+            }
+            if (!GameProtocol.isMessageType(data, offset, length, GameProtocol.CONNECT)) {
+                connection.send(GameProtocol.createErrorMessage("Mensagem de conexão inválida"));
+                connection.close();
+                return;
+            }
+            long start = System.nanoTime();
+            int nameStart = Math.min(GameProtocol.CONNECT.length() + 1, length);
+            String content = new String(data, offset + nameStart, length - nameStart, StandardCharsets.UTF_8);
+            String playerName = BinaryProtocol.playerName(content);
+            Log.info("[JOGADOR] {} entrou na fila", playerName);
+            server.acknowledge(connection, content, true);
+
+            connection.room = server.joinLobby(connection, playerName, GameProtocol.parseRating(content));
+            if (!connection.room.isPlayer1(connection)) {
+                connection.room.start();
+                closeIfFinished(connection.room);
+            }
+            Metrics.HANDLE_CLIENT.recordSince(start);
+            return;
+        }
+
+        boolean fromPlayer1 = room.isPlayer1(connection);
+        if (GameProtocol.isMessageType(data, offset, length, GameProtocol.MOVE)) {
+            int contentStart = GameProtocol.MOVE.length() + 1;
+            if (GameProtocol.parseMove(data, offset + contentStart, length - contentStart, connection.move)) {
+                int[] move = connection.move;
+                room.handleMove(fromPlayer1, move[0], move[1], move[2], move[3]);
+            } else {
+                room.handleMalformedMove(fromPlayer1);
+            }
+        } else if (GameProtocol.isMessageType(data, offset, length, GameProtocol.DISCONNECT)) {
+            server.leaveLobby(room);
+            room.handleDisconnect(fromPlayer1);
+        } else {
+            // Desistência e propostas de empate: raras, tratadas como texto pela sala
+            room.handleMessage(fromPlayer1, new String(data, offset, length, StandardCharsets.UTF_8));
+        }
+        closeIfFinished(room);
+    }
+
+    /**
+     * Trata um frame binário completo (executa na thread do loop da conexão)
+     */
+    void onFrame(NioConnection connection, byte[] data, int offset) {
+        GameRoom room = connection.room;
+        if (connection.watching != null) {
+            connection.close();
+            onClosed(connection);
+            return;
+        }
+        if (room == null) {
+            // O CONNECT é sempre em texto
+            onBadFrame(connection);
+            return;
+        }
+
+        boolean fromPlayer1 = room.isPlayer1(connection);
+        byte opcode = data[offset];
+        if (opcode == BinaryProtocol.MOVE) {
+            int packed = BinaryProtocol.readMove(data, offset);
+            room.handleMove(fromPlayer1, BinaryProtocol.r1(packed), BinaryProtocol.c1(packed),
+                BinaryProtocol.r2(packed), BinaryProtocol.c2(packed));
+        } else if (opcode == BinaryProtocol.DISCONNECT) {
+            server.leaveLobby(room);
+            room.handleDisconnect(fromPlayer1);
+        }
+        closeIfFinished(room);
+    }
+
+    void onBadFrame(NioConnection connection) {
+        connection.send(GameProtocol.createErrorMessage("Mensagem binária inválida"));
+        connection.close();
+        onClosed(connection);
+    }
+
+    /**
+     * Conexão encerrada pelo cliente ou por erro de I/O
+     */
+    void onClosed(NioConnection connection) {
+        if (connection.watching != null) {
+            connection.watching.unsubscribe(connection);
+            connection.watching = null;
+            return;
+        }
+        GameRoom room = connection.room;
+        if (room != null && room.hasConnection(connection)) {
+            server.leaveLobby(room);
+            room.connectionLost(room.isPlayer1(connection), connection);
+            closeIfFinished(room);
+        }
+    }
+
+    void onLineTooLong(NioConnection connection) {
+        connection.send(GameProtocol.createErrorMessage("Mensagem muito longa"));
+        connection.close();
+        onClosed(connection);
+    }
+
+    private void closeIfFinished(GameRoom room) {
+        if (room.isFinished()) {
+            room.closeConnections();
+        }
+    }
+
+    void stop() {
+        running = false;
+        try {
+            if (serverChannel != null) {
+                serverChannel.close();
+            }
+        } catch (IOException e) {
+            Log.error("[ERRO] Erro ao fechar servidor: {}", e.getMessage());
+        }
+        for (EventLoop loop : loops) {
+            loop.shutdown();
+        }
+    }
+}
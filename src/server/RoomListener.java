@@ -0,0 +1,32 @@
+package server;
+
+/**
+ * Eventos do ciclo de vida de uma {@link GameRoom}, chamados pela thread que
+ * causou o evento
+ */
+interface RoomListener {
+
+    /** A partida começou (START enviado aos dois jogadores) */
+    default void started(GameRoom room) {
+    }
+
+    /**
+     * Um salto foi aceito pelo {@code GameState}, antes de ser enviado aos
+     * jogadores (chamado com o lock da sala)
+     */
+    default void moved(GameRoom room, int r1, int c1, int r2, int c2) {
+    }
+
+    /**
+     * A conexão de um jogador caiu no meio da partida (sem DISCONNECT)
+     * @return true se a sala deve esperar a retomada da sessão em vez de
+     *         encerrar a partida
+     */
+    default boolean disconnected(GameRoom room, boolean player1, Connection lost) {
+        return false;
+    }
+
+    /** As conexões da sala foram fechadas */
+    default void closed(GameRoom room) {
+    }
+}
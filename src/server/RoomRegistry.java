@@ -0,0 +1,31 @@
+package server;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Salas com partida em andamento, por id (para os espectadores as encontrarem)
+ */
+class RoomRegistry implements RoomListener {
+    private final ConcurrentHashMap<Integer, GameRoom> rooms = new ConcurrentHashMap<>();
+
+    @Override
+    public void started(GameRoom room) {
+        rooms.put(room.getRoomId(), room);
+    }
+
+    @Override
+    public void closed(GameRoom room) {
+        rooms.remove(room.getRoomId(), room);
+    }
+
+    /**
+     * @return a sala ou null se não existe ou já terminou
+     */
+    GameRoom find(int roomId) {
+        return rooms.get(roomId);
+    }
+
+    int size() {
+        return rooms.size();
+    }
+}
@@ -0,0 +1,164 @@
+package server;
+
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sessões dos jogadores, para retomar a partida depois de uma queda.
+ *
+ * Cada CONNECT recebe um token (SESSION|token). Se a conexão de um jogador
+ * cai no meio da partida, a sala fica em memória por {@code graceMillis}
+ * esperando um RESUME|token de uma nova conexão; sem retomada no prazo, o
+ * jogador perde por desconexão como antes. Um DISCONNECT explícito encerra
+ * a partida na hora.
+ */
+class Sessions implements RoomListener {
+    private static final int TOKEN_BYTES = 16;
+
+    private final long graceMillis;
+    private final SecureRandom random = new SecureRandom();
+    private final Map<String, Session> byToken = new ConcurrentHashMap<>();
+    // Conexão atual de cada sessão (comparada por identidade)
+    private final Map<Connection, Session> byConnection = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService timer;
+
+    private static final class Session {
+        final String token;
+        volatile Connection connection;
+        volatile GameRoom room;
+
+        Session(String token, Connection connection) {
+            this.token = token;
+            this.connection = connection;
+        }
+    }
+
+    /**
+     * @param graceMillis tempo em que a sala espera a retomada; 0 desativa
+     */
+    Sessions(long graceMillis) {
+        this.graceMillis = graceMillis;
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "session-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Abre a sessão de um jogador que acabou de se conectar
+     * @return o token enviado ao cliente
+     */
+    String open(Connection connection) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        StringBuilder sb = new StringBuilder(TOKEN_BYTES * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        Session session = new Session(sb.toString(), connection);
+        byToken.put(session.token, session);
+        byConnection.put(connection, session);
+        return session.token;
+    }
+
+    /**
+     * Sessões abertas (para as métricas)
+     */
+    int size() {
+        return byToken.size();
+    }
+
+    /**
+     * Retoma a sessão do token na nova conexão (RESUME)
+     * @return a sala retomada ou null se o token não existe, a partida não
+     *         começou ou já terminou
+     */
+    GameRoom resume(String token, Connection connection) {
+        Session session = byToken.get(token);
+        GameRoom room = session != null ? session.room : null;
+        if (room == null) {
+            return null;
+        }
+        Connection old = session.connection;
+        // Registrada antes da troca: uma queda logo depois já encontra a sessão
+        byConnection.put(connection, session);
+        if (!room.resume(old, connection)) {
+            byConnection.remove(connection);
+            return null;
+        }
+        session.connection = connection;
+        byConnection.remove(old);
+        return room;
+    }
+
+    /**
+     * Recria a sessão de uma partida reconstruída do diário, com a conexão
+     * provisória que ocupa o lugar do jogador até o RESUME
+     */
+    void restore(String token, Connection connection, GameRoom room) {
+        Session session = new Session(token, connection);
+        session.room = room;
+        byToken.put(token, session);
+        byConnection.put(connection, session);
+    }
+
+    /**
+     * @return o token da sessão da conexão, ou null
+     */
+    String tokenOf(Connection connection) {
+        Session session = connection != null ? byConnection.get(connection) : null;
+        return session != null ? session.token : null;
+    }
+
+    boolean isEnabled() {
+        return graceMillis > 0;
+    }
+
+    @Override
+    public void started(GameRoom room) {
+        bind(room.getPlayer1(), room);
+        bind(room.getPlayer2(), room);
+    }
+
+    private void bind(Connection connection, GameRoom room) {
+        Session session = byConnection.get(connection);
+        if (session != null) {
+            session.room = room;
+        }
+    }
+
+    @Override
+    public boolean disconnected(GameRoom room, boolean player1, Connection lost) {
+        if (!isEnabled() || !byConnection.containsKey(lost)) {
+            return false;
+        }
+        timer.schedule(() -> room.expire(player1, lost), graceMillis, TimeUnit.MILLISECONDS);
+        return true;
+    }
+
+    @Override
+    public void closed(GameRoom room) {
+        forget(room.getPlayer1());
+        forget(room.getPlayer2());
+    }
+
+    private void forget(Connection connection) {
+        Session session = connection != null ? byConnection.remove(connection) : null;
+        if (session != null) {
+            byToken.remove(session.token);
+        }
+    }
+
+    long getGraceMillis() {
+        return graceMillis;
+    }
+
+    void shutdown() {
+        timer.shutdownNow();
+    }
+}
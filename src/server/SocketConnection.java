@@ -0,0 +1,179 @@
+package server;
+
+import log.Log;
+import network.BinaryProtocol;
+import network.MessageReader;
+
+import java.io.*;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Conexão sobre um Socket bloqueante, lida mensagem a mensagem por uma thread.
+ * Aceita linhas de texto e frames binários; envia frames binários depois da
+ * negociação.
+ */
+class SocketConnection implements Connection {
+    // Espera máxima de uma sondagem quando não há nada para ler
+    private static final int PROBE_TIMEOUT_MS = 1;
+    // Mensagens aguardando a thread da conexão no modo espectador
+    private static final int MAX_PENDING = 64;
+    // Marca na fila: fechar depois de escrever o que veio antes
+    private static final byte[] CLOSE = new byte[0];
+
+    private final Socket socket;
+    private final MessageReader in;
+    private final OutputStream out;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile boolean binary;
+    // Fila do espectador, criada por pump()
+    private volatile BlockingQueue<byte[]> pending;
+
+    SocketConnection(Socket socket) throws IOException {
+        this.socket = socket;
+        this.in = new MessageReader(socket.getInputStream(), true);
+        this.out = new BufferedOutputStream(socket.getOutputStream());
+    }
+
+    /**
+     * Lê a próxima mensagem, bloqueando a thread atual; frames binários
+     * chegam convertidos para texto, exceto MOVE ({@link MessageReader#MOVE_FRAME})
+     * @return a mensagem ou null se a conexão foi encerrada
+     */
+    String readLine() throws IOException {
+        return in.readMessage();
+    }
+
+    /**
+     * Movimento empacotado do último {@link MessageReader#MOVE_FRAME} lido
+     */
+    int getMove() {
+        return in.getMove();
+    }
+
+    @Override
+    public boolean probe() {
+        try {
+            socket.setSoTimeout(PROBE_TIMEOUT_MS);
+            return in.poll();
+        } catch (SocketTimeoutException e) {
+            return true;
+        } catch (IOException e) {
+            return false;
+        } finally {
+            try {
+                socket.setSoTimeout(0);
+            } catch (IOException e) {
+                // Socket já fechado: a próxima leitura falha
+            }
+        }
+    }
+
+    /**
+     * Modo espectador: a thread atual passa a escrever, até a conexão fechar,
+     * as mensagens enfileiradas por {@link #offer}; quem as produz (a sala)
+     * nunca bloqueia no socket de um espectador lento. Retorna na hora se
+     * {@link #enablePump} não foi chamado.
+     */
+    void pump() {
+        BlockingQueue<byte[]> queue = pending;
+        if (queue == null) {
+            return;
+        }
+        try {
+            byte[] data;
+            while ((data = queue.take()) != CLOSE) {
+                out.write(data);
+                out.flush();
+                Metrics.sent(data.length);
+            }
+        } catch (IOException | InterruptedException e) {
+            // Espectador saiu: a sala o remove ao fechar a conexão
+        } finally {
+            pending = null;
+            closeSocket();
+        }
+    }
+
+    /**
+     * Cria a fila do modo espectador; deve ser chamado antes de a conexão
+     * ser inscrita na sala e seguido de {@link #pump}
+     */
+    void enablePump() {
+        pending = new ArrayBlockingQueue<>(MAX_PENDING);
+    }
+
+    @Override
+    public boolean offer(byte[] frame) {
+        BlockingQueue<byte[]> queue = pending;
+        return queue != null && queue.offer(frame);
+    }
+
+    @Override
+    public boolean isBinary() {
+        return binary;
+    }
+
+    @Override
+    public void send(String message) {
+        byte[] frame = binary ? BinaryProtocol.fromText(message) : null;
+        write(frame != null ? frame : (message + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void sendOpponentMove(int r1, int c1, int r2, int c2) {
+        if (binary) {
+            write(BinaryProtocol.opponentMoveFrame(r1, c1, r2, c2));
+        } else {
+            Connection.super.sendOpponentMove(r1, c1, r2, c2);
+        }
+    }
+
+    private void write(byte[] data) {
+        // ReentrantLock: a escrita pode bloquear no socket (ver GameRoom)
+        long start = System.nanoTime();
+        writeLock.lock();
+        try {
+            out.write(data);
+            out.flush();
+        } catch (IOException e) {
+            // Ignorado como no PrintWriter: a queda aparece na próxima leitura
+        } finally {
+            writeLock.unlock();
+        }
+        Metrics.WRITE.recordSince(start);
+        Metrics.sent(data.length);
+    }
+
+    @Override
+    public void enableBinary() {
+        binary = true;
+    }
+
+    @Override
+    public void close() {
+        BlockingQueue<byte[]> queue = pending;
+        if (queue != null && queue.offer(CLOSE)) {
+            // A thread do espectador fecha depois de escrever o que falta
+            return;
+        }
+        closeSocket();
+    }
+
+    private void closeSocket() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            Log.warn("[ERRO] Erro ao fechar conexão: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public String getRemoteAddress() {
+        return socket.getInetAddress().getHostAddress();
+    }
+}
@@ -0,0 +1,59 @@
+package server;
+
+/**
+ * Espectador inscrito em uma {@link GameRoom}.
+ *
+ * A sala codifica cada mensagem uma única vez (texto e frame binário) e
+ * entrega o mesmo array a todos os espectadores por {@link Connection#offer},
+ * que nunca bloqueia. Se a fila de saída de um espectador lento enche, as
+ * mensagens seguintes são descartadas até caber uma foto do tabuleiro
+ * (BOARD), que o ressincroniza de uma vez. Acessado só com o lock da sala.
+ */
+class Spectator {
+    private final Connection connection;
+    private boolean resync;
+    private long dropped;
+
+    Spectator(Connection connection) {
+        this.connection = connection;
+    }
+
+    Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Entrega uma mensagem, no formato negociado pelo espectador
+     * @param snapshot foto do tabuleiro já com esta mensagem aplicada, usada
+     *                 no lugar dela se o espectador perdeu mensagens
+     */
+    void deliver(byte[] text, byte[] binary, byte[] snapshot) {
+        if (resync) {
+            if (connection.offer(snapshot)) {
+                resync = false;
+            } else {
+                dropped++;
+            }
+        } else if (!connection.offer(connection.isBinary() && binary != null ? binary : text)) {
+            resync = true;
+            dropped++;
+        }
+    }
+
+    /**
+     * Mensagem final: não há mais fotos depois dela
+     */
+    void deliverLast(byte[] text, byte[] binary) {
+        if (!connection.offer(connection.isBinary() && binary != null ? binary : text)) {
+            dropped++;
+        }
+    }
+
+    boolean needsResync() {
+        return resync;
+    }
+
+    long getDropped() {
+        return dropped;
+    }
+}
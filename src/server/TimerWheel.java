@@ -0,0 +1,237 @@
+package server;
+
+import log.Log;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Roda de temporizadores com hash (Varghese e Lauck), compartilhada por todas
+ * as salas: os relógios das partidas ({@link GameClock}) agendam aqui o fim
+ * do tempo em vez de uma tarefa por sala num ScheduledExecutorService.
+ *
+ * A roda tem {@code slots} casas de {@code tick} cada; um prazo cai na casa
+ * do tick em que vence e guarda quantas voltas faltam. Uma única thread
+ * avança um tick por vez e percorre só a casa atual: agendar e cancelar são
+ * O(1), e o custo de um tick é o da sua casa (em média temporizadores/slots),
+ * sem ordenar nada. A precisão é a de um tick: um prazo nunca vence antes da
+ * hora, e vence até um tick depois.
+ *
+ * Agendamentos e cancelamentos de outras threads entram em filas
+ * concorrentes e são aplicados pela thread da roda a cada tick; as tarefas
+ * vencidas rodam no {@code executor}, para que um envio bloqueado no socket
+ * não atrase a roda.
+ */
+final class TimerWheel {
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Executor executor;
+    private final Queue<Timeout> added = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final long startTime = System.nanoTime();
+    private final Thread worker;
+    private volatile boolean running = true;
+    // Só a thread da roda
+    private long tick;
+
+    /**
+     * @param tickMillis duração de um tick (a precisão dos prazos)
+     * @param slots      casas da roda, arredondado para potência de 2
+     * @param executor   onde rodam as tarefas vencidas
+     */
+    TimerWheel(long tickMillis, int slots, Executor executor) {
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, tickMillis));
+        int size = Integer.highestOneBit(Math.max(2, slots - 1)) << 1;
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.executor = executor;
+        this.worker = new Thread(this::run, "timer-wheel");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Agenda {@code task} para daqui a {@code delayMillis}
+     * @return o prazo, que pode ser cancelado
+     */
+    Timeout schedule(Runnable task, long delayMillis) {
+        long deadline = System.nanoTime() - startTime + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMillis));
+        Timeout timeout = new Timeout(this, task, deadline);
+        pending.incrementAndGet();
+        added.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Prazos agendados e ainda não vencidos nem cancelados (para as métricas)
+     */
+    int size() {
+        return pending.get();
+    }
+
+    void stop() {
+        running = false;
+        worker.interrupt();
+    }
+
+    private void run() {
+        while (running) {
+            long deadline = tickNanos * (tick + 1);
+            long sleep;
+            while (running && (sleep = deadline - (System.nanoTime() - startTime)) > 0) {
+                LockSupport.parkNanos(this, sleep);
+            }
+            if (!running) {
+                return;
+            }
+            try {
+                unlinkCancelled();
+                transferAdded();
+                wheel[(int) (tick & mask)].expire(deadline);
+            } catch (RuntimeException e) {
+                Log.error("[RELÓGIO] Erro na roda de temporizadores: {}", e.getMessage());
+            }
+            tick++;
+        }
+    }
+
+    // Coloca cada novo prazo na casa do tick em que vence, com as voltas que faltam
+    private void transferAdded() {
+        Timeout timeout;
+        while ((timeout = added.poll()) != null) {
+            if (timeout.state != Timeout.WAITING) {
+                continue;
+            }
+            long due = timeout.deadline / tickNanos;
+            timeout.rounds = (due - tick) / wheel.length;
+            // Prazo já vencido: vai para a casa atual e vence neste tick
+            wheel[(int) (Math.max(due, tick) & mask)].add(timeout);
+        }
+    }
+
+    private void unlinkCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelled.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    private void fire(Timeout timeout) {
+        pending.decrementAndGet();
+        try {
+            executor.execute(timeout.task);
+        } catch (RuntimeException e) {
+            // Executor encerrado: o servidor está parando
+        }
+    }
+
+    /**
+     * Casa da roda: lista duplamente encadeada, para remover um cancelado em O(1)
+     */
+    private final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            timeout.prev = tail;
+            if (tail == null) {
+                head = timeout;
+            } else {
+                tail.next = timeout;
+            }
+            tail = timeout;
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.prev == null) {
+                head = timeout.next;
+            } else {
+                timeout.prev.next = timeout.next;
+            }
+            if (timeout.next == null) {
+                tail = timeout.prev;
+            } else {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+
+        /**
+         * Vence os prazos sem voltas pendentes e desconta uma volta dos demais
+         */
+        void expire(long deadline) {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.rounds <= 0 && timeout.deadline <= deadline) {
+                    remove(timeout);
+                    if (timeout.expire()) {
+                        fire(timeout);
+                    }
+                } else {
+                    timeout.rounds--;
+                }
+                timeout = next;
+            }
+        }
+    }
+
+    /**
+     * Prazo agendado na roda
+     */
+    static final class Timeout {
+        private static final int WAITING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+        private static final AtomicIntegerFieldUpdater<Timeout> STATE =
+            AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+        private final TimerWheel owner;
+        private final Runnable task;
+        private final long deadline;
+        private volatile int state;
+        // Só a thread da roda
+        private long rounds;
+        private Bucket bucket;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(TimerWheel owner, Runnable task, long deadline) {
+            this.owner = owner;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Cancela o prazo; a tarefa não roda se ainda não venceu
+         * @return false se ele já tinha vencido ou sido cancelado
+         */
+        boolean cancel() {
+            if (!STATE.compareAndSet(this, WAITING, CANCELLED)) {
+                return false;
+            }
+            owner.pending.decrementAndGet();
+            owner.cancelled.add(this);
+            return true;
+        }
+
+        private boolean expire() {
+            return STATE.compareAndSet(this, WAITING, EXPIRED);
+        }
+    }
+}